@@ -0,0 +1,125 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jctools.handrolled.footprint;
+
+import static org.jctools.util.UnsafeAccess.UNSAFE;
+
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.Queue;
+
+import org.jctools.queues.QueueByTypeFactory;
+
+/**
+ * Reports the per instance heap footprint of the padded queues against their unpadded counterparts, for the many
+ * small queues (e.g. one per connection) use case. For each queue type this prints the shallow size of the queue
+ * object, the size of the arrays it references directly, and the heap growth measured when allocating many
+ * instances. Sizes are computed from the field offsets so they reflect the running JVM's layout (compressed oops,
+ * field packing, alignment).
+ * <p>
+ * Run with e.g.: {@code -Dq.types=SpscArrayQueue,SpscUnpaddedArrayQueue -Dq.capacity=16 -Dinstances=200000}
+ */
+public class QueueFootprint {
+    private static final String[] TYPES = System.getProperty("q.types",
+        "SpscArrayQueue,SpscUnpaddedArrayQueue,MpscArrayQueue,MpscUnpaddedArrayQueue").split(",");
+    private static final int CAPACITY = Integer.getInteger("q.capacity", 16);
+    private static final int INSTANCES = Integer.getInteger("instances", 200000);
+    private static final int OBJECT_ALIGNMENT = Integer.getInteger("object.alignment", 8);
+
+    public static void main(String[] args) throws Exception {
+        System.out.println("capacity:" + CAPACITY + " instances:" + INSTANCES);
+        System.out.printf("%-32s %10s %10s %10s %12s%n", "type", "shallow", "arrays", "total", "measured");
+        for (String type : TYPES) {
+            Queue<Integer> q = QueueByTypeFactory.createQueue(type, CAPACITY);
+            long shallow = shallowSize(q.getClass());
+            long arrays = referencedArraysSize(q);
+            System.out.printf("%-32s %10d %10d %10d %12.1f%n",
+                q.getClass().getSimpleName(), shallow, arrays, shallow + arrays, measuredSize(type));
+        }
+    }
+
+    private static double measuredSize(String type) {
+        Object[] holder = new Object[INSTANCES];
+        long before = usedHeap();
+        for (int i = 0; i < INSTANCES; i++) {
+            holder[i] = QueueByTypeFactory.createQueue(type, CAPACITY);
+        }
+        long after = usedHeap();
+        if (holder[INSTANCES - 1] == null) {
+            throw new IllegalStateException();
+        }
+        return (after - before) / (double) INSTANCES;
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 4; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    private static long shallowSize(Class<?> type) {
+        // an object with no fields is at least a header
+        long end = UNSAFE.arrayBaseOffset(Object[].class) - 4;
+        for (Class<?> c = type; c != null; c = c.getSuperclass()) {
+            for (Field f : c.getDeclaredFields()) {
+                if (Modifier.isStatic(f.getModifiers())) {
+                    continue;
+                }
+                end = Math.max(end, UNSAFE.objectFieldOffset(f) + fieldSize(f.getType()));
+            }
+        }
+        return align(end);
+    }
+
+    private static long referencedArraysSize(Object o) throws IllegalAccessException {
+        long size = 0;
+        for (Class<?> c = o.getClass(); c != null; c = c.getSuperclass()) {
+            for (Field f : c.getDeclaredFields()) {
+                if (Modifier.isStatic(f.getModifiers()) || !f.getType().isArray()) {
+                    continue;
+                }
+                f.setAccessible(true);
+                Object array = f.get(o);
+                if (array != null) {
+                    size += align(UNSAFE.arrayBaseOffset(array.getClass()) +
+                        (long) Array.getLength(array) * UNSAFE.arrayIndexScale(array.getClass()));
+                }
+            }
+        }
+        return size;
+    }
+
+    private static int fieldSize(Class<?> type) {
+        if (type == long.class || type == double.class) {
+            return 8;
+        }
+        if (type == int.class || type == float.class) {
+            return 4;
+        }
+        if (type == short.class || type == char.class) {
+            return 2;
+        }
+        if (type == byte.class || type == boolean.class) {
+            return 1;
+        }
+        return UNSAFE.arrayIndexScale(Object[].class);
+    }
+
+    private static long align(long size) {
+        return (size + OBJECT_ALIGNMENT - 1) & -OBJECT_ALIGNMENT;
+    }
+}
@@ -0,0 +1,239 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jctools.jmh.latency;
+
+import java.util.Queue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.jctools.channels.ChannelProducer;
+import org.jctools.channels.pipeline.Pipeline;
+import org.jctools.channels.pipeline.Stage;
+import org.jctools.channels.pipeline.StageHandler;
+import org.jctools.queues.MessagePassingQueue;
+import org.jctools.queues.QueueByTypeFactory;
+import org.jctools.util.Pow2;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * The time for a burst of events to go through a linear chain of processing stages, each on its own thread, either
+ * hopping through one queue per stage or sharing one {@link Pipeline} ring.
+ * <p>
+ * To run this benchmark:
+ * <p>
+ * java -jar target/microbenchmarks.jar ".*.PipelineBurstCost.*" -p stages=3
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 10, time = 1, timeUnit = TimeUnit.SECONDS)
+@Measurement(iterations = 10, time = 1, timeUnit = TimeUnit.SECONDS)
+public class PipelineBurstCost
+{
+    @Param({"Pipeline", "MpscArrayQueue", "SpscArrayQueue"})
+    String type;
+    @Param({"3"})
+    int stages;
+    @Param({"100"})
+    int burstSize;
+    @Param({"1024"})
+    int capacity;
+
+    private final AtomicLong done = new AtomicLong();
+    private volatile boolean running;
+    private Thread[] threads;
+
+    // Pipeline
+    private ChannelProducer<Event> producer;
+
+    // chained queues
+    private Queue<Event> head;
+    private Event[] events;
+    private int nextEvent;
+
+    @Setup(Level.Trial)
+    public void setup()
+    {
+        if (burstSize > capacity)
+        {
+            throw new IllegalArgumentException("burstSize must not exceed the capacity");
+        }
+        running = true;
+        threads = new Thread[stages];
+        if ("Pipeline".equals(type))
+        {
+            setupPipeline();
+        }
+        else
+        {
+            setupQueues();
+        }
+        for (Thread t : threads)
+        {
+            t.setDaemon(true);
+            t.start();
+        }
+    }
+
+    private void setupPipeline()
+    {
+        final Pipeline<Event> pipeline = new Pipeline<Event>(capacity, new MessagePassingQueue.Supplier<Event>()
+        {
+            @Override
+            public Event get()
+            {
+                return new Event();
+            }
+        });
+        Stage<Event> upstream = null;
+        for (int i = 0; i < stages; i++)
+        {
+            final boolean last = i == stages - 1;
+            final StageHandler<Event> handler = new StageHandler<Event>()
+            {
+                @Override
+                public void onEvent(Event event, long sequence, boolean endOfBatch)
+                {
+                    event.value++;
+                    if (last && endOfBatch)
+                    {
+                        done.lazySet(sequence + 1);
+                    }
+                }
+            };
+            final Stage<Event> stage = upstream == null ? pipeline.addStage(handler) : pipeline.addStage(handler, upstream);
+            threads[i] = new Thread(new Runnable()
+            {
+                @Override
+                public void run()
+                {
+                    while (running)
+                    {
+                        stage.process(Integer.MAX_VALUE);
+                    }
+                }
+            });
+            upstream = stage;
+        }
+        producer = pipeline.producer();
+    }
+
+    private void setupQueues()
+    {
+        events = new Event[Pow2.roundToPowerOfTwo(capacity)];
+        for (int i = 0; i < events.length; i++)
+        {
+            events[i] = new Event();
+        }
+        Queue<Event> in = QueueByTypeFactory.buildQ(type, String.valueOf(capacity));
+        head = in;
+        for (int i = 0; i < stages; i++)
+        {
+            final Queue<Event> from = in;
+            final Queue<Event> to = i == stages - 1 ? null : QueueByTypeFactory.<Event>buildQ(type, String.valueOf(capacity));
+            threads[i] = new Thread(new Runnable()
+            {
+                @Override
+                public void run()
+                {
+                    while (running)
+                    {
+                        final Event event = from.poll();
+                        if (event == null)
+                        {
+                            continue;
+                        }
+                        event.value++;
+                        if (to == null)
+                        {
+                            done.lazySet(done.get() + 1);
+                        }
+                        else
+                        {
+                            while (!to.offer(event))
+                            {
+                                ;
+                            }
+                        }
+                    }
+                }
+            });
+            in = to;
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void stop() throws InterruptedException
+    {
+        running = false;
+        for (Thread t : threads)
+        {
+            t.join();
+        }
+    }
+
+    @Benchmark
+    @CompilerControl(CompilerControl.Mode.DONT_INLINE)
+    public void burstCost()
+    {
+        final int burst = burstSize;
+        final long target = done.get() + burst;
+        if (producer != null)
+        {
+            sendBurst(producer, burst);
+        }
+        else
+        {
+            sendBurst(head, burst);
+        }
+        while (done.get() != target)
+        {
+            ;
+        }
+    }
+
+    private static void sendBurst(ChannelProducer<Event> producer, int burst)
+    {
+        for (int i = 0; i < burst; i++)
+        {
+            while (!producer.claim())
+            {
+                ;
+            }
+            producer.currentElement().value = i;
+            producer.commit();
+        }
+    }
+
+    private void sendBurst(Queue<Event> q, int burst)
+    {
+        final Event[] events = this.events;
+        final int mask = events.length - 1;
+        for (int i = 0; i < burst; i++)
+        {
+            // all the events of the previous burst are done with, the pool can not wrap onto one still in flight
+            final Event event = events[nextEvent++ & mask];
+            event.value = i;
+            while (!q.offer(event))
+            {
+                ;
+            }
+        }
+    }
+
+    public static final class Event
+    {
+        long value;
+    }
+}
@@ -0,0 +1,165 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jctools.jmh.latency;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.jctools.queues.MpscBlockingConsumerArrayQueue;
+import org.jctools.queues.blocking.BlockingQueueFactory;
+import org.jctools.queues.spec.ConcurrentQueueSpec;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Thousands of consumers, blocked in {@code take()} on their queue, are woken by a burst of messages (one per queue,
+ * round robin) and reply to a shared {@link MpscBlockingConsumerArrayQueue}. The score is the time for the whole burst
+ * to round trip, i.e. the cost of parking and unparking {@code burst} consumers.
+ * <p>
+ * Each queue is shared by {@code consumersPerQueue} consumers: with 1 the queues are SPSC, with more they are SPMC and
+ * the consumers race to take, which exercises the multi-consumer take strategies. {@code MpscBlockingConsumerArrayQueue}
+ * only supports a single consumer (use {@code -p consumersPerQueue=1}).
+ * <p>
+ * The consumers are virtual threads by default, which requires running on JDK 21+ (use {@code -p virtual=false} for
+ * platform threads on older JDKs). Queue types:
+ * <ul>
+ * <li>{@code MpscBlockingConsumerArrayQueue}: the core queue, parks the consumer with the blocked-consumer handshake.
+ * <li>{@code VirtualThreadBlockingQueue}: {@link BlockingQueueFactory#newVirtualThreadBlockingQueue}, park based take
+ * and put strategies ({@code ScParkTakeStrategy} for SPSC, {@code McLockFreeParkTakeStrategy} for SPMC).
+ * <li>{@code ArrayBlockingQueue}: JDK baseline, {@code ReentrantLock} based.
+ * </ul>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class VirtualThreadConsumersRoundTrip {
+    private static final Integer TOKEN = 1;
+
+    @Param(value = { "MpscBlockingConsumerArrayQueue", "VirtualThreadBlockingQueue", "ArrayBlockingQueue" })
+    String qType;
+
+    @Param(value = { "1000", "10000" })
+    int consumers;
+
+    @Param(value = { "1", "4" })
+    int consumersPerQueue;
+
+    @Param(value = { "100" })
+    int burst;
+
+    @Param(value = { "true" })
+    boolean virtual;
+
+    BlockingQueue<Integer>[] inboxes;
+    MpscBlockingConsumerArrayQueue<Integer> replies;
+    Thread[] threads;
+    int next;
+
+    @Setup
+    @SuppressWarnings("unchecked")
+    public void startConsumers() throws Exception {
+        if (consumersPerQueue < 1 || consumers % consumersPerQueue != 0) {
+            throw new IllegalArgumentException("consumers must be a multiple of consumersPerQueue");
+        }
+        inboxes = new BlockingQueue[consumers / consumersPerQueue];
+        threads = new Thread[consumers];
+        replies = new MpscBlockingConsumerArrayQueue<Integer>(Math.max(burst, 2));
+        for (int i = 0; i < consumers; i++) {
+            if (i % consumersPerQueue == 0) {
+                inboxes[i / consumersPerQueue] = newQueue();
+            }
+            final BlockingQueue<Integer> inbox = inboxes[i / consumersPerQueue];
+            final Runnable consumer = new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        while (true) {
+                            replies.offer(inbox.take());
+                        }
+                    } catch (InterruptedException stop) {
+                    }
+                }
+            };
+            threads[i] = virtual ? newVirtualThread(consumer) : new Thread(consumer);
+            threads[i].setDaemon(true);
+            threads[i].start();
+        }
+    }
+
+    private BlockingQueue<Integer> newQueue() {
+        if ("MpscBlockingConsumerArrayQueue".equals(qType)) {
+            if (consumersPerQueue != 1) {
+                throw new IllegalArgumentException(qType + " is single consumer, run with -p consumersPerQueue=1");
+            }
+            return new MpscBlockingConsumerArrayQueue<Integer>(16);
+        } else if ("VirtualThreadBlockingQueue".equals(qType)) {
+            return BlockingQueueFactory.newVirtualThreadBlockingQueue(consumersPerQueue == 1 ?
+                ConcurrentQueueSpec.createBoundedSpsc(16) : ConcurrentQueueSpec.createBoundedSpmc(16));
+        } else if ("ArrayBlockingQueue".equals(qType)) {
+            return new ArrayBlockingQueue<Integer>(16);
+        }
+        throw new IllegalArgumentException("Unsupported queue type: " + qType);
+    }
+
+    private static Thread newVirtualThread(Runnable r) throws Exception {
+        final Method ofVirtual;
+        try {
+            ofVirtual = Thread.class.getMethod("ofVirtual");
+        } catch (NoSuchMethodException e) {
+            throw new IllegalStateException("Virtual threads require JDK 21+, run with -p virtual=false", e);
+        }
+        final Object builder = ofVirtual.invoke(null);
+        final Method unstarted = Class.forName("java.lang.Thread$Builder").getMethod("unstarted", Runnable.class);
+        return (Thread) unstarted.invoke(builder, r);
+    }
+
+    @Benchmark
+    public void roundTrip() throws InterruptedException {
+        final BlockingQueue<Integer>[] inboxes = this.inboxes;
+        int next = this.next;
+        for (int i = 0; i < burst; i++) {
+            inboxes[next].offer(TOKEN);
+            if (++next == inboxes.length) {
+                next = 0;
+            }
+        }
+        this.next = next;
+        for (int i = 0; i < burst; i++) {
+            replies.take();
+        }
+    }
+
+    @TearDown
+    public void stopConsumers() throws InterruptedException {
+        for (Thread t : threads) {
+            t.interrupt();
+        }
+        for (Thread t : threads) {
+            t.join();
+        }
+    }
+}
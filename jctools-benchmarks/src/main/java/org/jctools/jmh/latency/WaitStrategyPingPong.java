@@ -0,0 +1,166 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jctools.jmh.latency;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.concurrent.TimeUnit;
+
+import org.jctools.queues.AdaptiveWaitStrategy;
+import org.jctools.queues.BackoffWaitStrategy;
+import org.jctools.queues.BusySpinWaitStrategy;
+import org.jctools.queues.MessagePassingQueue.WaitStrategy;
+import org.jctools.queues.SpinParkWaitStrategy;
+import org.jctools.queues.SpscArrayQueue;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Ping pong between the benchmark thread and an echo thread over two {@link SpscArrayQueue}s, both sides waiting
+ * with the wait strategy under test. The benchmark thread busy waits {@code gapNanos} before each ping so that the
+ * echo thread goes idle for that long: the score minus the gap is the round trip latency, and the echo thread CPU
+ * utilisation (printed after each iteration) shows what that latency costs while idle.
+ * <p>
+ * Expect {@code BusySpin} to have the lowest latency at 100% CPU, {@code SpinPark} to be close to 0% CPU at large gaps
+ * with an unpark on the latency path, {@code Backoff} to trade latency for CPU in steps, and {@code Adaptive} to track
+ * {@code BusySpin} at short gaps and {@code Backoff} at long ones. {@code EmptySpin} is the baseline for {@code BusySpin}:
+ * the same loop without the spin wait hint.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class WaitStrategyPingPong {
+    private static final Integer PING = 1;
+    private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+    private static final WaitStrategy EMPTY_SPIN = new WaitStrategy() {
+        @Override
+        public int idle(int idleCounter) {
+            return idleCounter + 1;
+        }
+    };
+
+    @Param(value = { "EmptySpin", "BusySpin", "Backoff", "SpinPark", "Adaptive" })
+    String waitStrategy;
+
+    @Param(value = { "0", "10000", "1000000" })
+    long gapNanos;
+
+    SpscArrayQueue<Integer> pings;
+    SpscArrayQueue<Integer> pongs;
+    WaitStrategy pingWait;
+    WaitStrategy pongWait;
+    volatile boolean running;
+    Thread echo;
+    long iterationStartNanos;
+    long iterationStartCpuNanos;
+
+    @Setup
+    public void startEcho() {
+        pings = new SpscArrayQueue<Integer>(16);
+        pongs = new SpscArrayQueue<Integer>(16);
+        // stateful strategies hold per waiting thread state
+        pingWait = newWaitStrategy();
+        pongWait = newWaitStrategy();
+        running = true;
+        echo = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                int idleCounter = 0;
+                while (running) {
+                    final Integer ping = pings.relaxedPoll();
+                    if (ping == null) {
+                        idleCounter = pingWait.idle(idleCounter);
+                        continue;
+                    }
+                    idleCounter = 0;
+                    while (!pongs.relaxedOffer(ping))
+                        ;
+                    signal(pongWait);
+                }
+            }
+        }, "echo");
+        echo.start();
+    }
+
+    private WaitStrategy newWaitStrategy() {
+        if ("EmptySpin".equals(waitStrategy)) {
+            return EMPTY_SPIN;
+        } else if ("BusySpin".equals(waitStrategy)) {
+            return BusySpinWaitStrategy.INSTANCE;
+        } else if ("Backoff".equals(waitStrategy)) {
+            return new BackoffWaitStrategy();
+        } else if ("SpinPark".equals(waitStrategy)) {
+            return new SpinParkWaitStrategy();
+        } else if ("Adaptive".equals(waitStrategy)) {
+            return new AdaptiveWaitStrategy();
+        }
+        throw new IllegalArgumentException("Unsupported wait strategy: " + waitStrategy);
+    }
+
+    private static void signal(WaitStrategy w) {
+        if (w instanceof SpinParkWaitStrategy) {
+            ((SpinParkWaitStrategy) w).signal();
+        }
+    }
+
+    @Setup(Level.Iteration)
+    public void startCpuSample() {
+        iterationStartNanos = System.nanoTime();
+        iterationStartCpuNanos = THREADS.getThreadCpuTime(echo.getId());
+    }
+
+    @Benchmark
+    public Integer roundTrip() {
+        if (gapNanos != 0) {
+            final long sendAt = System.nanoTime() + gapNanos;
+            while (System.nanoTime() < sendAt)
+                ;
+        }
+        while (!pings.relaxedOffer(PING))
+            ;
+        signal(pingWait);
+        Integer pong;
+        int idleCounter = 0;
+        while ((pong = pongs.relaxedPoll()) == null) {
+            idleCounter = pongWait.idle(idleCounter);
+        }
+        return pong;
+    }
+
+    @TearDown(Level.Iteration)
+    public void printCpuSample() {
+        final long cpuNanos = THREADS.getThreadCpuTime(echo.getId()) - iterationStartCpuNanos;
+        final long wallNanos = System.nanoTime() - iterationStartNanos;
+        System.out.printf(" [echo thread CPU: %.1f%%]", 100.0 * cpuNanos / wallNanos);
+    }
+
+    @TearDown
+    public void stopEcho() throws InterruptedException {
+        running = false;
+        signal(pingWait);
+        echo.join();
+    }
+}
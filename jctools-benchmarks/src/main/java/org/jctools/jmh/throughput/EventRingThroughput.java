@@ -0,0 +1,148 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jctools.jmh.throughput;
+
+import java.util.concurrent.TimeUnit;
+
+import org.jctools.queues.EventRing;
+import org.jctools.queues.MessagePassingQueue;
+import org.jctools.queues.MessagePassingQueueByTypeFactory;
+import org.jctools.queues.MpscEventRing;
+import org.jctools.queues.SpscEventRing;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Passing small mutable events from producers to a consumer, either through an {@link EventRing} which reuses
+ * pre-allocated events or through a reference queue with an event allocated per message.
+ * <p>
+ * The point of the exercise is the allocation rate, to run this benchmark:
+ * <p>
+ * java -jar target/microbenchmarks.jar ".*.EventRingThroughput.*" -prof gc -p type=MpscEventRing,MpscArrayQueue
+ * -tg 2,1
+ * <p>
+ * The {@code gc.alloc.rate.norm} of the ring types should be ~0 bytes per op.
+ */
+@State(Scope.Group)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 10, time = 1)
+@Measurement(iterations = 10, time = 1)
+public class EventRingThroughput {
+    static final class Event {
+        long id;
+        long timestamp;
+        int type;
+    }
+
+    @Param(value = { "SpscEventRing", "MpscEventRing", "SpscArrayQueue", "MpscArrayQueue" })
+    String type;
+
+    @Param(value = { "1024" })
+    int capacity;
+
+    @Param(value = { "64" })
+    int drainLimit;
+
+    EventRing<Event> ring;
+    MessagePassingQueue<Event> q;
+    MessagePassingQueue.Consumer<Event> consumer;
+    long sum;
+
+    @Setup()
+    public void createRingOrQueue() {
+        final MessagePassingQueue.Supplier<Event> factory = new MessagePassingQueue.Supplier<Event>() {
+            @Override
+            public Event get() {
+                return new Event();
+            }
+        };
+        if ("SpscEventRing".equals(type)) {
+            ring = new SpscEventRing<Event>(capacity, factory);
+        } else if ("MpscEventRing".equals(type)) {
+            ring = new MpscEventRing<Event>(capacity, factory);
+        } else {
+            q = MessagePassingQueueByTypeFactory.createQueue(type, capacity);
+        }
+        consumer = new MessagePassingQueue.Consumer<Event>() {
+            @Override
+            public void accept(Event e) {
+                sum += e.id + e.timestamp + e.type;
+            }
+        };
+    }
+
+    @AuxCounters
+    @State(Scope.Thread)
+    public static class PollCounters {
+        public long pollsFailed;
+        public long pollsMade;
+    }
+
+    @AuxCounters
+    @State(Scope.Thread)
+    public static class OfferCounters {
+        public long offersFailed;
+        public long offersMade;
+    }
+
+    @Benchmark
+    @Group("tpt")
+    public void offer(OfferCounters counters) {
+        final long id = counters.offersMade;
+        if (ring != null) {
+            final long seq = ring.claim();
+            if (seq == EventRing.FULL) {
+                counters.offersFailed++;
+                return;
+            }
+            final Event e = ring.event(seq);
+            e.id = id;
+            e.timestamp = seq;
+            e.type = 1;
+            ring.publish(seq);
+        } else {
+            final Event e = new Event();
+            e.id = id;
+            e.timestamp = id;
+            e.type = 1;
+            if (!q.relaxedOffer(e)) {
+                counters.offersFailed++;
+                return;
+            }
+        }
+        counters.offersMade++;
+    }
+
+    @Benchmark
+    @Group("tpt")
+    public void drain(PollCounters counters) {
+        final int drained = ring != null ? ring.drain(consumer, drainLimit) : q.drain(consumer, drainLimit);
+        if (drained == 0) {
+            counters.pollsFailed++;
+        } else {
+            counters.pollsMade += drained;
+        }
+    }
+}
@@ -0,0 +1,88 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jctools.jmh.throughput;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Baseline for {@link WorkStealingDequeThroughput}: one task forks empty leaf tasks onto its worker queue and joins
+ * every other one (popping it back), idle workers steal the rest. Reported per forked task.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 10, time = 1)
+@Measurement(iterations = 10, time = 1)
+public class ForkJoinPoolThroughput {
+    private static final int TASKS = 1024;
+
+    @Param(value = { "2" })
+    int parallelism;
+
+    ForkJoinPool pool;
+
+    @Setup
+    public void createPool() {
+        pool = new ForkJoinPool(parallelism);
+    }
+
+    @TearDown
+    public void shutdownPool() {
+        pool.shutdownNow();
+    }
+
+    static final class Leaf extends RecursiveAction {
+        @Override
+        protected void compute() {
+        }
+    }
+
+    static final class Owner extends RecursiveAction {
+        @Override
+        protected void compute() {
+            final ForkJoinTask<?>[] forked = new ForkJoinTask<?>[TASKS];
+            for (int i = 0; i < TASKS; i++) {
+                forked[i] = new Leaf().fork();
+                if ((i & 1) == 1) {
+                    forked[i].join();
+                }
+            }
+            for (int i = 0; i < TASKS; i += 2) {
+                forked[i].join();
+            }
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(TASKS)
+    public void forkJoin() {
+        pool.invoke(new Owner());
+    }
+}
@@ -0,0 +1,176 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jctools.jmh.throughput;
+
+import java.util.concurrent.TimeUnit;
+
+import org.jctools.queues.MessagePassingQueue;
+import org.jctools.queues.MessagePassingQueueConsumer;
+import org.jctools.queues.MessagePassingQueueProducer;
+import org.jctools.queues.MpmcArrayQueue;
+import org.jctools.queues.MpscArrayQueue;
+import org.jctools.queues.MpscUnboundedXaddArrayQueue;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares offer/poll through the shared queue instance ("shared" group) with offer/poll through per thread
+ * producer/consumer handles ("handles" group). Run with several producer threads to see the effect of the handle local
+ * producer limit, e.g. {@code -tg 3,1}.
+ */
+@State(Scope.Group)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 10, time = 1)
+@Measurement(iterations = 10, time = 1)
+public class MpqHandlesThroughputBackoffNone {
+    static final Object TEST_ELEMENT = 1;
+    Integer element = 1;
+    Integer escape;
+    MessagePassingQueue<Integer> q;
+
+    @Param(value = { "MpscArrayQueue", "MpmcArrayQueue", "MpscUnboundedXaddArrayQueue" })
+    String qType;
+
+    @Param(value = { "132000" })
+    int qCapacity;
+
+    @Setup()
+    public void createQueue() {
+        if ("MpscArrayQueue".equals(qType)) {
+            q = new MpscArrayQueue<Integer>(qCapacity);
+        } else if ("MpmcArrayQueue".equals(qType)) {
+            q = new MpmcArrayQueue<Integer>(qCapacity);
+        } else if ("MpscUnboundedXaddArrayQueue".equals(qType)) {
+            q = new MpscUnboundedXaddArrayQueue<Integer>(4096);
+        } else {
+            throw new IllegalArgumentException("Type: " + qType);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class ProducerHandle {
+        MessagePassingQueueProducer<Integer> producer;
+
+        @Setup(Level.Iteration)
+        public void createHandle(MpqHandlesThroughputBackoffNone b) {
+            MessagePassingQueue<Integer> q = b.q;
+            if (q instanceof MpscArrayQueue) {
+                producer = ((MpscArrayQueue<Integer>) q).newProducer();
+            } else if (q instanceof MpmcArrayQueue) {
+                producer = ((MpmcArrayQueue<Integer>) q).newProducer();
+            } else {
+                producer = ((MpscUnboundedXaddArrayQueue<Integer>) q).newProducer();
+            }
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class ConsumerHandle {
+        MessagePassingQueueConsumer<Integer> consumer;
+
+        @Setup(Level.Iteration)
+        public void createHandle(MpqHandlesThroughputBackoffNone b) {
+            MessagePassingQueue<Integer> q = b.q;
+            if (q instanceof MpscArrayQueue) {
+                consumer = ((MpscArrayQueue<Integer>) q).newConsumer();
+            } else if (q instanceof MpmcArrayQueue) {
+                consumer = ((MpmcArrayQueue<Integer>) q).newConsumer();
+            } else {
+                consumer = ((MpscUnboundedXaddArrayQueue<Integer>) q).newConsumer();
+            }
+        }
+    }
+
+    @AuxCounters
+    @State(Scope.Thread)
+    public static class PollCounters {
+        public long pollsFailed;
+        public long pollsMade;
+    }
+
+    @AuxCounters
+    @State(Scope.Thread)
+    public static class OfferCounters {
+        public long offersFailed;
+        public long offersMade;
+    }
+
+    @Benchmark
+    @Group("shared")
+    public void offerShared(OfferCounters counters) {
+        if (!q.offer(element)) {
+            counters.offersFailed++;
+        } else {
+            counters.offersMade++;
+        }
+    }
+
+    @Benchmark
+    @Group("shared")
+    public void pollShared(PollCounters counters) {
+        Integer e = q.poll();
+        if (e == null) {
+            counters.pollsFailed++;
+        } else if (e == TEST_ELEMENT) {
+            counters.pollsMade++;
+        } else {
+            escape = e;
+        }
+    }
+
+    @Benchmark
+    @Group("handles")
+    public void offerHandle(ProducerHandle handle, OfferCounters counters) {
+        if (!handle.producer.offer(element)) {
+            counters.offersFailed++;
+        } else {
+            counters.offersMade++;
+        }
+    }
+
+    @Benchmark
+    @Group("handles")
+    public void pollHandle(ConsumerHandle handle, PollCounters counters) {
+        Integer e = handle.consumer.poll();
+        if (e == null) {
+            counters.pollsFailed++;
+        } else if (e == TEST_ELEMENT) {
+            counters.pollsMade++;
+        } else {
+            escape = e;
+        }
+    }
+
+    @TearDown(Level.Iteration)
+    public void emptyQ() {
+        synchronized (q)
+        {
+            while (q.poll() != null)
+                ;
+        }
+    }
+}
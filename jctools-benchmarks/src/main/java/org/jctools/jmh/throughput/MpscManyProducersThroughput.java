@@ -0,0 +1,119 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jctools.jmh.throughput;
+
+import java.util.concurrent.TimeUnit;
+
+import org.jctools.queues.MessagePassingQueue;
+import org.jctools.queues.MessagePassingQueueByTypeFactory;
+import org.jctools.queues.MpscOnSpscQueue;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Many producers, one consumer: the shared producer index of {@link org.jctools.queues.MpscArrayQueue}, against the
+ * diffused producer indexes of {@link org.jctools.queues.MpscCompoundQueue}, against a lane per producer in
+ * {@link MpscOnSpscQueue}, against the XADD claims of {@link org.jctools.queues.MpscRelaxedArrayQueue}. The
+ * {@link MpscOnSpscQueue} lanes are sized so the total capacity matches the other queues.
+ * Change the number of producers with e.g. {@code -tg 64,1}, and {@code -p producers=64} to size the lanes to match.
+ */
+@State(Scope.Group)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 10, time = 1)
+@Measurement(iterations = 10, time = 1)
+public class MpscManyProducersThroughput {
+    static final Object TEST_ELEMENT = 1;
+    Integer element = 1;
+    Integer escape;
+    MessagePassingQueue<Integer> q;
+
+    @Param(value = { "MpscArrayQueue", "MpscCompoundQueue", "MpscOnSpscQueue", "MpscRelaxedArrayQueue" })
+    String qType;
+
+    @Param(value = { "132000" })
+    int qCapacity;
+
+    @Param(value = { "32" })
+    int producers;
+
+    @Setup()
+    public void createQueue() {
+        if ("MpscOnSpscQueue".equals(qType)) {
+            q = new MpscOnSpscQueue<Integer>(Math.max(2, qCapacity / producers));
+        } else {
+            q = MessagePassingQueueByTypeFactory.createQueue(qType, qCapacity);
+        }
+    }
+
+    @AuxCounters
+    @State(Scope.Thread)
+    public static class PollCounters {
+        public long pollsFailed;
+        public long pollsMade;
+    }
+
+    @AuxCounters
+    @State(Scope.Thread)
+    public static class OfferCounters {
+        public long offersFailed;
+        public long offersMade;
+    }
+
+    @Benchmark
+    @Group("tpt")
+    @GroupThreads(32)
+    public void offer(OfferCounters counters) {
+        if (!q.relaxedOffer(element)) {
+            counters.offersFailed++;
+        } else {
+            counters.offersMade++;
+        }
+    }
+
+    @Benchmark
+    @Group("tpt")
+    public void poll(PollCounters counters) {
+        Integer e = q.relaxedPoll();
+        if (e == null) {
+            counters.pollsFailed++;
+        } else if (e == TEST_ELEMENT) {
+            counters.pollsMade++;
+        } else {
+            escape = e;
+        }
+    }
+
+    @TearDown(Level.Iteration)
+    public void emptyQ() {
+        synchronized (q)
+        {
+            while (q.poll() != null)
+                ;
+        }
+    }
+}
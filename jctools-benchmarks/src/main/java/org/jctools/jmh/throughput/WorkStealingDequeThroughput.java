@@ -0,0 +1,199 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jctools.jmh.throughput;
+
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.TimeUnit;
+
+import org.jctools.queues.BaseWorkStealingArrayDeque;
+import org.jctools.queues.MessagePassingQueue;
+import org.jctools.queues.WorkStealingArrayDeque;
+import org.jctools.queues.WorkStealingGrowableArrayDeque;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * One owner pushes tasks and pops back every other one (fork/join style), the thieves steal from the other end.
+ * {@code ConcurrentLinkedDeque} is included as the JDK baseline, see {@link ForkJoinPoolThroughput} for the cost of
+ * the same pattern on the {@code ForkJoinPool} internal queues.
+ */
+@State(Scope.Group)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 10, time = 1)
+@Measurement(iterations = 10, time = 1)
+public class WorkStealingDequeThroughput {
+    static final Integer TEST_ELEMENT = 1;
+    Deque deque;
+
+    @Param(value = { "WorkStealingArrayDeque", "WorkStealingGrowableArrayDeque", "ConcurrentLinkedDeque" })
+    String dType;
+
+    @Param(value = { "8192" })
+    int dCapacity;
+
+    interface Deque {
+        boolean push(Integer e);
+
+        Integer pop();
+
+        Integer steal();
+
+        int stealHalf(MessagePassingQueue.Consumer<Integer> c);
+    }
+
+    static final class JCToolsDeque implements Deque {
+        final BaseWorkStealingArrayDeque<Integer> d;
+
+        JCToolsDeque(BaseWorkStealingArrayDeque<Integer> d) {
+            this.d = d;
+        }
+
+        public boolean push(Integer e) {
+            return d.push(e);
+        }
+
+        public Integer pop() {
+            return d.pop();
+        }
+
+        public Integer steal() {
+            return d.steal();
+        }
+
+        public int stealHalf(MessagePassingQueue.Consumer<Integer> c) {
+            return d.stealHalf(c);
+        }
+    }
+
+    static final class JdkDeque implements Deque {
+        final ConcurrentLinkedDeque<Integer> d = new ConcurrentLinkedDeque<Integer>();
+
+        public boolean push(Integer e) {
+            d.offerLast(e);
+            return true;
+        }
+
+        public Integer pop() {
+            return d.pollLast();
+        }
+
+        public Integer steal() {
+            return d.pollFirst();
+        }
+
+        public int stealHalf(MessagePassingQueue.Consumer<Integer> c) {
+            final int limit = (d.size() + 1) >> 1;
+            int i = 0;
+            for (; i < limit; i++) {
+                final Integer e = d.pollFirst();
+                if (e == null) {
+                    break;
+                }
+                c.accept(e);
+            }
+            return i;
+        }
+    }
+
+    @Setup
+    public void createDeque() {
+        if ("WorkStealingArrayDeque".equals(dType)) {
+            deque = new JCToolsDeque(new WorkStealingArrayDeque<Integer>(dCapacity));
+        } else if ("WorkStealingGrowableArrayDeque".equals(dType)) {
+            deque = new JCToolsDeque(new WorkStealingGrowableArrayDeque<Integer>(dCapacity));
+        } else if ("ConcurrentLinkedDeque".equals(dType)) {
+            deque = new JdkDeque();
+        } else {
+            throw new IllegalArgumentException("Type: " + dType);
+        }
+    }
+
+    @AuxCounters
+    @State(Scope.Thread)
+    public static class OwnerCounters {
+        public long pushesFailed;
+        public long pushesMade;
+        public long popsMade;
+        int round;
+    }
+
+    @AuxCounters
+    @State(Scope.Thread)
+    public static class StealCounters implements MessagePassingQueue.Consumer<Integer> {
+        public long stealsFailed;
+        public long stealsMade;
+
+        @Override
+        public void accept(Integer e) {
+            stealsMade++;
+        }
+    }
+
+    private void owner(OwnerCounters counters) {
+        if (!deque.push(TEST_ELEMENT)) {
+            counters.pushesFailed++;
+        } else {
+            counters.pushesMade++;
+        }
+        if ((counters.round++ & 1) == 1 && deque.pop() != null) {
+            counters.popsMade++;
+        }
+    }
+
+    @Benchmark
+    @Group("steal")
+    @GroupThreads(1)
+    public void ownerSteal(OwnerCounters counters) {
+        owner(counters);
+    }
+
+    @Benchmark
+    @Group("steal")
+    @GroupThreads(1)
+    public void steal(StealCounters counters) {
+        if (deque.steal() == null) {
+            counters.stealsFailed++;
+        } else {
+            counters.stealsMade++;
+        }
+    }
+
+    @Benchmark
+    @Group("stealHalf")
+    @GroupThreads(1)
+    public void ownerStealHalf(OwnerCounters counters) {
+        owner(counters);
+    }
+
+    @Benchmark
+    @Group("stealHalf")
+    @GroupThreads(1)
+    public void stealHalf(StealCounters counters) {
+        if (deque.stealHalf(counters) == 0) {
+            counters.stealsFailed++;
+        }
+    }
+}
@@ -0,0 +1,137 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jctools.jmh.timers;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.jctools.timers.Timeout;
+import org.jctools.timers.TimingWheel;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compare {@link TimingWheel} with {@link ScheduledThreadPoolExecutor}:
+ * <ul>
+ * <li>{@code scheduleAndCancel}: the common timeout pattern, arm a timer which is cancelled before it expires. Run
+ * with {@code -t N} to measure contention between scheduling threads.
+ * <li>{@code expiry}: schedule a {@code delay.us} timer and wait for it to fire, the score minus the delay is the
+ * expiry lateness (bounded by one tick for the wheel).
+ * </ul>
+ */
+@State(Scope.Benchmark)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class TimingWheelBenchmark {
+    private static final long DELAY_US = Long.getLong("delay.us", 1000L);
+    private static final Runnable NOOP = new Runnable() {
+        @Override
+        public void run() {
+        }
+    };
+
+    interface Scheduler {
+        Object schedule(Runnable task, long delay, TimeUnit unit);
+
+        boolean cancel(Object handle);
+
+        void shutdown() throws InterruptedException;
+    }
+
+    @Param(value = { "TimingWheel", "ScheduledThreadPoolExecutor" })
+    String sType;
+
+    @Param(value = { "100" })
+    int tickUs;
+
+    Scheduler scheduler;
+
+    @Setup
+    public void createScheduler() {
+        if ("TimingWheel".equals(sType)) {
+            final TimingWheel wheel = new TimingWheel(tickUs, TimeUnit.MICROSECONDS);
+            wheel.start();
+            scheduler = new Scheduler() {
+                public Object schedule(Runnable task, long delay, TimeUnit unit) {
+                    return wheel.schedule(task, delay, unit);
+                }
+
+                public boolean cancel(Object handle) {
+                    return ((Timeout) handle).cancel();
+                }
+
+                public void shutdown() throws InterruptedException {
+                    wheel.stop();
+                }
+            };
+        } else if ("ScheduledThreadPoolExecutor".equals(sType)) {
+            final ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1);
+            // otherwise cancelled tasks pile up in the executor queue
+            executor.setRemoveOnCancelPolicy(true);
+            scheduler = new Scheduler() {
+                public Object schedule(Runnable task, long delay, TimeUnit unit) {
+                    return executor.schedule(task, delay, unit);
+                }
+
+                public boolean cancel(Object handle) {
+                    return ((ScheduledFuture<?>) handle).cancel(false);
+                }
+
+                public void shutdown() throws InterruptedException {
+                    executor.shutdownNow();
+                    executor.awaitTermination(1, TimeUnit.SECONDS);
+                }
+            };
+        } else {
+            throw new IllegalArgumentException("Type: " + sType);
+        }
+    }
+
+    @TearDown
+    public void shutdown() throws InterruptedException {
+        scheduler.shutdown();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public boolean scheduleAndCancel() {
+        return scheduler.cancel(scheduler.schedule(NOOP, 10, TimeUnit.SECONDS));
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SampleTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public void expiry() throws InterruptedException {
+        final CountDownLatch fired = new CountDownLatch(1);
+        scheduler.schedule(new Runnable() {
+            @Override
+            public void run() {
+                fired.countDown();
+            }
+        }, DELAY_US, TimeUnit.MICROSECONDS);
+        fired.await();
+    }
+}
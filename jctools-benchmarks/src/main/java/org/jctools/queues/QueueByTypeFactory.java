@@ -123,6 +123,10 @@ public class QueueByTypeFactory {
             return Class.forName("org.jctools.queues.atomic."+queueType);
         } catch (ClassNotFoundException e) {
         }
+        try {
+            return Class.forName("org.jctools.queues.unpadded."+queueType);
+        } catch (ClassNotFoundException e) {
+        }
         try {
             return Class.forName("java.util."+queueType);
         } catch (ClassNotFoundException e) {
@@ -0,0 +1,128 @@
+package org.jctools.channels;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Set;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.type.TypeMirror;
+import javax.tools.Diagnostic;
+import javax.tools.JavaFileObject;
+
+/**
+ * Base for the jctools-channels ahead of time code generators. The processors match the jctools-channels annotations
+ * by name, so this module does not depend on jctools-channels.
+ */
+public abstract class ChannelsProcessor extends AbstractProcessor {
+    protected static final String INDENT_LEVEL = "    ";
+    protected static final String UNSAFE = "org.jctools.util.UnsafeAccess.UNSAFE";
+
+    private final String annotationName;
+
+    protected ChannelsProcessor(String annotationName) {
+        this.annotationName = annotationName;
+    }
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        for (TypeElement annotation : annotations) {
+            if (!annotation.getQualifiedName().contentEquals(annotationName)) {
+                continue;
+            }
+            for (Element element : roundEnv.getElementsAnnotatedWith(annotation)) {
+                if (element.getKind() != ElementKind.INTERFACE) {
+                    error(element, "@" + annotation.getSimpleName() + " is only supported on interfaces");
+                    continue;
+                }
+                final TypeElement iFace = (TypeElement) element;
+                if (!iFace.getTypeParameters().isEmpty()) {
+                    error(element, "Generic interfaces are not supported: " + iFace);
+                    continue;
+                }
+                generate(iFace, annotationMirror(iFace));
+            }
+        }
+        return true;
+    }
+
+    protected abstract void generate(TypeElement iFace, AnnotationMirror annotation);
+
+    private AnnotationMirror annotationMirror(TypeElement iFace) {
+        for (AnnotationMirror mirror : iFace.getAnnotationMirrors()) {
+            if (((TypeElement) mirror.getAnnotationType().asElement()).getQualifiedName().contentEquals(annotationName)) {
+                return mirror;
+            }
+        }
+        throw new IllegalStateException("Not annotated with " + annotationName + ": " + iFace);
+    }
+
+    protected String packageName(TypeElement type) {
+        PackageElement pkg = processingEnv.getElementUtils().getPackageOf(type);
+        return pkg.isUnnamed() ? "" : pkg.getQualifiedName().toString();
+    }
+
+    /**
+     * @return the generated top level class name, matching {@code Class.getName()} based naming at runtime, e.g.
+     * {@code Outer$Inner$JCTools$<suffix>}
+     */
+    protected String generatedSimpleName(TypeElement iFace, String suffix) {
+        String binaryName = processingEnv.getElementUtils().getBinaryName(iFace).toString();
+        String pkg = packageName(iFace);
+        return (pkg.isEmpty() ? binaryName : binaryName.substring(pkg.length() + 1)) + "$JCTools$" + suffix;
+    }
+
+    protected String typeName(TypeMirror type) {
+        return processingEnv.getTypeUtils().erasure(type).toString();
+    }
+
+    protected void writeSource(TypeElement iFace, String simpleName, String body) {
+        String pkg = packageName(iFace);
+        String name = pkg.isEmpty() ? simpleName : pkg + "." + simpleName;
+        try {
+            JavaFileObject file = processingEnv.getFiler().createSourceFile(name, iFace);
+            Writer writer = file.openWriter();
+            try {
+                if (!pkg.isEmpty()) {
+                    writer.write("package " + pkg + ";\n\n");
+                }
+                writer.write("/**\n * Generated by " + getClass().getName() + " from {@link " +
+                        iFace.getQualifiedName() + "}, do not edit.\n */\n");
+                writer.write(body);
+            } finally {
+                writer.close();
+            }
+        } catch (IOException e) {
+            error(iFace, "Failed to write " + name + ": " + e);
+        }
+    }
+
+    protected void error(Element element, String message) {
+        processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, message, element);
+    }
+
+    protected static int primitiveMemorySize(TypeMirror type) {
+        switch (type.getKind()) {
+            case LONG:
+            case DOUBLE:
+                return 8;
+            default:
+                return 4;
+        }
+    }
+
+    protected static String capitalize(String s) {
+        return Character.toUpperCase(s.charAt(0)) + s.substring(1);
+    }
+}
@@ -0,0 +1,170 @@
+package org.jctools.channels.mapping;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+
+import org.jctools.channels.ChannelsProcessor;
+
+/**
+ * Generates, for each interface annotated with {@code org.jctools.channels.mapping.GenerateFlyweights}, the SPSC and
+ * MPSC channel producer and consumer flyweights the {@code Mapper} otherwise compiles from the channel templates at
+ * runtime. The record layout follows {@code ClassViewModel}: after the message indicator, the getter fields in
+ * declaration order, each taking its primitive size (a boolean is stored as a byte).
+ */
+@SupportedAnnotationTypes(FlyweightProcessor.ANNOTATION)
+public class FlyweightProcessor extends ChannelsProcessor {
+    static final String ANNOTATION = "org.jctools.channels.mapping.GenerateFlyweights";
+    // OffHeapFixedMessageSizeRingBuffer.MESSAGE_INDICATOR_SIZE
+    private static final int MESSAGE_INDICATOR_SIZE = 4;
+    private static final String[] PRODUCERS = {
+            "org.jctools.channels.spsc.SpscChannelProducer", "org.jctools.channels.mpsc.MpscChannelProducer" };
+    private static final String[] CONSUMERS = {
+            "org.jctools.channels.spsc.SpscChannelConsumer", "org.jctools.channels.mpsc.MpscChannelConsumer" };
+
+    public FlyweightProcessor() {
+        super(ANNOTATION);
+    }
+
+    @Override
+    protected void generate(TypeElement iFace, AnnotationMirror annotation) {
+        List<ExecutableElement> getters = new ArrayList<ExecutableElement>();
+        List<ExecutableElement> setters = new ArrayList<ExecutableElement>();
+        for (ExecutableElement method : ElementFilter.methodsIn(iFace.getEnclosedElements())) {
+            String name = method.getSimpleName().toString();
+            boolean isAbstract = method.getModifiers().contains(Modifier.ABSTRACT);
+            if (name.startsWith("get")) {
+                if (!isAbstract || !method.getReturnType().getKind().isPrimitive() || !method.getParameters().isEmpty()) {
+                    error(method, name + " must be an abstract getter with no parameters returning a primitive");
+                    return;
+                }
+                getters.add(method);
+            } else if (name.startsWith("set")) {
+                if (!isAbstract || method.getReturnType().getKind() != TypeKind.VOID ||
+                        method.getParameters().size() != 1 ||
+                        !method.getParameters().get(0).asType().getKind().isPrimitive()) {
+                    error(method, name + " must be an abstract setter with one primitive parameter returning void");
+                    return;
+                }
+                setters.add(method);
+            } else if (isAbstract) {
+                error(method, iFace + " has abstract methods that are neither getters nor setters");
+                return;
+            }
+        }
+        for (ExecutableElement setter : setters) {
+            if (getter(getters, setter) == null) {
+                error(setter, "Unable to find getter for setter: " + setter.getSimpleName());
+                return;
+            }
+        }
+        String fields = fields(getters);
+        String iFaceName = iFace.getQualifiedName().toString();
+        for (String parent : PRODUCERS) {
+            String simpleName = generatedSimpleName(iFace, simpleName(parent));
+            writeSource(iFace, simpleName,
+                    "public class " + simpleName + " extends " + parent + "<" + iFaceName + ">\n" +
+                    INDENT_LEVEL + INDENT_LEVEL + "implements " + iFaceName + " {\n\n" +
+                    INDENT_LEVEL + "public " + simpleName + "(java.nio.ByteBuffer buffer, int capacity, int messageSize) {\n" +
+                    INDENT_LEVEL + INDENT_LEVEL + "super(buffer, capacity, messageSize);\n" +
+                    INDENT_LEVEL + "}\n\n" +
+                    INDENT_LEVEL + "public " + iFaceName + " currentElement() {\n" +
+                    INDENT_LEVEL + INDENT_LEVEL + "return this;\n" +
+                    INDENT_LEVEL + "}\n" +
+                    fields +
+                    "}\n");
+        }
+        for (String parent : CONSUMERS) {
+            String simpleName = generatedSimpleName(iFace, simpleName(parent));
+            writeSource(iFace, simpleName,
+                    "public class " + simpleName + " extends " + parent + "<" + iFaceName + ">\n" +
+                    INDENT_LEVEL + INDENT_LEVEL + "implements " + iFaceName + " {\n\n" +
+                    INDENT_LEVEL + "public " + simpleName + "(java.nio.ByteBuffer buffer, int capacity, int messageSize,\n" +
+                    INDENT_LEVEL + INDENT_LEVEL + INDENT_LEVEL + "org.jctools.channels.ChannelReceiver<" + iFaceName + "> receiver) {\n" +
+                    INDENT_LEVEL + INDENT_LEVEL + "super(buffer, capacity, messageSize, receiver);\n" +
+                    INDENT_LEVEL + "}\n\n" +
+                    INDENT_LEVEL + "public boolean read() {\n" +
+                    INDENT_LEVEL + INDENT_LEVEL + "final long pointer = readAcquire();\n" +
+                    INDENT_LEVEL + INDENT_LEVEL + "if (pointer == EOF) {\n" +
+                    INDENT_LEVEL + INDENT_LEVEL + INDENT_LEVEL + "return false;\n" +
+                    INDENT_LEVEL + INDENT_LEVEL + "}\n" +
+                    INDENT_LEVEL + INDENT_LEVEL + "this.pointer = pointer;\n" +
+                    INDENT_LEVEL + INDENT_LEVEL + "receiver.accept(this);\n" +
+                    INDENT_LEVEL + INDENT_LEVEL + "readRelease(pointer);\n" +
+                    INDENT_LEVEL + INDENT_LEVEL + "return true;\n" +
+                    INDENT_LEVEL + "}\n" +
+                    fields +
+                    "}\n");
+        }
+    }
+
+    private static ExecutableElement getter(List<ExecutableElement> getters, ExecutableElement setter) {
+        String name = setter.getSimpleName().toString().replaceFirst("set", "get");
+        for (ExecutableElement getter : getters) {
+            if (getter.getSimpleName().contentEquals(name)) {
+                return getter;
+            }
+        }
+        return null;
+    }
+
+    private String fields(List<ExecutableElement> getters) {
+        StringBuilder out = new StringBuilder();
+        int fieldOffset = MESSAGE_INDICATOR_SIZE;
+        for (Element getter : getters) {
+            TypeMirror type = ((ExecutableElement) getter).getReturnType();
+            String javaType = type.toString();
+            String name = getter.getSimpleName().toString().substring(3);
+            String address = "pointer + " + fieldOffset + "L";
+            String get;
+            String put;
+            if (type.getKind() == TypeKind.BOOLEAN) {
+                get = UNSAFE + ".getByte(" + address + ") != 0";
+                put = UNSAFE + ".putByte(" + address + ", (byte) (value ? 1 : 0))";
+            } else {
+                get = UNSAFE + ".get" + capitalize(javaType) + "(" + address + ")";
+                put = UNSAFE + ".put" + capitalize(javaType) + "(" + address + ", value)";
+            }
+            out.append('\n')
+                    .append(INDENT_LEVEL).append("public ").append(javaType).append(" get").append(name).append("() {\n")
+                    .append(INDENT_LEVEL).append(INDENT_LEVEL).append("return ").append(get).append(";\n")
+                    .append(INDENT_LEVEL).append("}\n\n")
+                    .append(INDENT_LEVEL).append("public void set").append(name).append('(').append(javaType)
+                    .append(" value) {\n")
+                    .append(INDENT_LEVEL).append(INDENT_LEVEL).append(put).append(";\n")
+                    .append(INDENT_LEVEL).append("}\n");
+            fieldOffset += sizeInBytes(type);
+        }
+        return out.toString();
+    }
+
+    // as per Primitive.sizeInBytes in jctools-channels
+    private static int sizeInBytes(TypeMirror type) {
+        switch (type.getKind()) {
+            case BYTE:
+            case BOOLEAN:
+                return 1;
+            case SHORT:
+            case CHAR:
+                return 2;
+            case LONG:
+            case DOUBLE:
+                return 8;
+            default:
+                return 4;
+        }
+    }
+
+    private static String simpleName(String className) {
+        return className.substring(className.lastIndexOf('.') + 1);
+    }
+}
@@ -0,0 +1,316 @@
+package org.jctools.channels.proxy;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.AnnotationValue;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+
+import org.jctools.channels.ChannelsProcessor;
+
+/**
+ * Generates, for each interface annotated with {@code org.jctools.channels.proxy.GenerateProxyChannel} and each of
+ * its back ends, the Java source equivalent of the class {@code ProxyChannelFactory} generates at runtime: the class
+ * extends the back end, implements the interface by writing each call into the ring buffer and implements
+ * {@code process} by dispatching the calls read back to the given implementation.
+ * <p>
+ * Call frame layout (as per the runtime generator): an int call type id, followed by the primitive arguments in
+ * declaration order (long/double 8 bytes, any other primitive 4 bytes), the reference arguments go to the back end's
+ * reference array. Calls with a return value wait for the reply written in place of the call, see
+ * {@code ProxyChannelFactory.awaitIntReply} and friends.
+ */
+@SupportedAnnotationTypes(ProxyChannelProcessor.ANNOTATION)
+public class ProxyChannelProcessor extends ChannelsProcessor {
+    static final String ANNOTATION = "org.jctools.channels.proxy.GenerateProxyChannel";
+    private static final int START_TYPE_ID = 10;
+    private static final String WAIT_STRATEGY = "org.jctools.channels.WaitStrategy";
+    private static final String FACTORY = "org.jctools.channels.proxy.ProxyChannelFactory";
+
+    public ProxyChannelProcessor() {
+        super(ANNOTATION);
+    }
+
+    @Override
+    protected void generate(TypeElement iFace, AnnotationMirror annotation) {
+        List<ExecutableElement> methods = findRelevantMethods(iFace);
+        if (methods.isEmpty()) {
+            error(iFace, "Does not declare any abstract methods: " + iFace);
+            return;
+        }
+        for (ExecutableElement method : methods) {
+            if (!method.getTypeParameters().isEmpty()) {
+                error(method, "Generic methods are not supported: " + method);
+                return;
+            }
+        }
+        for (TypeElement backend : backends(annotation)) {
+            String simpleName = generatedSimpleName(iFace, "ProxyChannel$" + backend.getSimpleName());
+            writeSource(iFace, simpleName, proxyClass(iFace, backend, simpleName, methods));
+        }
+    }
+
+    private List<TypeElement> backends(AnnotationMirror annotation) {
+        List<TypeElement> backends = new ArrayList<TypeElement>();
+        for (Map.Entry<? extends ExecutableElement, ? extends AnnotationValue> entry :
+                processingEnv.getElementUtils().getElementValuesWithDefaults(annotation).entrySet()) {
+            if (!entry.getKey().getSimpleName().contentEquals("backends")) {
+                continue;
+            }
+            @SuppressWarnings("unchecked")
+            List<? extends AnnotationValue> values = (List<? extends AnnotationValue>) entry.getValue().getValue();
+            for (AnnotationValue value : values) {
+                backends.add((TypeElement) ((DeclaredType) value.getValue()).asElement());
+            }
+        }
+        return backends;
+    }
+
+    private List<ExecutableElement> findRelevantMethods(TypeElement iFace) {
+        // all abstract methods, including inherited ones, without override-equivalent duplicates
+        Map<String, ExecutableElement> methods = new LinkedHashMap<String, ExecutableElement>();
+        for (Element member : processingEnv.getElementUtils().getAllMembers(iFace)) {
+            if (member.getKind() != ElementKind.METHOD || !member.getModifiers().contains(Modifier.ABSTRACT)) {
+                continue;
+            }
+            ExecutableElement method = (ExecutableElement) member;
+            StringBuilder signature = new StringBuilder(method.getSimpleName());
+            for (VariableElement parameter : method.getParameters()) {
+                signature.append(',').append(typeName(parameter.asType()));
+            }
+            if (!methods.containsKey(signature.toString())) {
+                methods.put(signature.toString(), method);
+            }
+        }
+        return new ArrayList<ExecutableElement>(methods.values());
+    }
+
+    private String proxyClass(TypeElement iFace, TypeElement backend, String simpleName,
+            List<ExecutableElement> methods) {
+        String iFaceName = iFace.getQualifiedName().toString();
+        int primitiveMessageSize = 0;
+        int referenceMessageSize = 0;
+        for (ExecutableElement method : methods) {
+            int primitiveMethodSize = 0;
+            int referenceCount = 0;
+            for (VariableElement parameter : method.getParameters()) {
+                if (parameter.asType().getKind().isPrimitive()) {
+                    primitiveMethodSize += primitiveMemorySize(parameter.asType());
+                } else {
+                    referenceCount++;
+                }
+            }
+            TypeMirror returnType = method.getReturnType();
+            if (returnType.getKind() != TypeKind.VOID) {
+                // room for the reply, a failure is replied as a reference
+                if (returnType.getKind().isPrimitive()) {
+                    primitiveMethodSize = Math.max(primitiveMethodSize, primitiveMemorySize(returnType));
+                }
+                referenceCount = Math.max(referenceCount, 1);
+            }
+            primitiveMessageSize = Math.max(primitiveMessageSize, primitiveMethodSize);
+            referenceMessageSize = Math.max(referenceMessageSize, referenceCount);
+        }
+        // the int 'type' value on the message frame
+        primitiveMessageSize += 4;
+
+        StringBuilder out = new StringBuilder();
+        out.append("public final class ").append(simpleName).append(" extends ")
+                .append(backend.getQualifiedName()).append('\n')
+                .append(INDENT_LEVEL).append(INDENT_LEVEL).append("implements org.jctools.channels.proxy.ProxyChannel<")
+                .append(iFaceName).append(">, ").append(iFaceName).append(" {\n");
+        out.append(INDENT_LEVEL).append("private final ").append(WAIT_STRATEGY).append(" waitStrategy;\n\n");
+
+        out.append(INDENT_LEVEL).append("public ").append(simpleName).append("(int capacity, ").append(WAIT_STRATEGY)
+                .append(" waitStrategy) {\n");
+        line(out, 2, "super(capacity, " + primitiveMessageSize + ", " + referenceMessageSize + ");");
+        line(out, 2, "this.waitStrategy = waitStrategy;");
+        line(out, 1, "}\n");
+
+        line(out, 1, "@Override");
+        line(out, 1, "public " + iFaceName + " proxyInstance(" + iFaceName + " impl) {");
+        line(out, 2, "return this;");
+        line(out, 1, "}\n");
+
+        line(out, 1, "@Override");
+        line(out, 1, "public " + iFaceName + " proxy() {");
+        line(out, 2, "return this;");
+        line(out, 1, "}\n");
+
+        int type = START_TYPE_ID;
+        for (ExecutableElement method : methods) {
+            userMethod(out, method, type++);
+        }
+        process(out, simpleName, iFaceName, methods);
+        out.append("}\n");
+        return out.toString();
+    }
+
+    private void userMethod(StringBuilder out, ExecutableElement method, int type) {
+        TypeMirror returnType = method.getReturnType();
+        StringBuilder declaration = new StringBuilder("public ").append(typeName(returnType)).append(' ')
+                .append(method.getSimpleName()).append('(');
+        List<? extends VariableElement> parameters = method.getParameters();
+        boolean containsReferences = false;
+        for (int i = 0; i < parameters.size(); i++) {
+            TypeMirror parameterType = parameters.get(i).asType();
+            declaration.append(i == 0 ? "" : ", ").append(typeName(parameterType)).append(" arg").append(i);
+            containsReferences |= !parameterType.getKind().isPrimitive();
+        }
+        declaration.append(')');
+        List<? extends TypeMirror> thrownTypes = method.getThrownTypes();
+        for (int i = 0; i < thrownTypes.size(); i++) {
+            declaration.append(i == 0 ? " throws " : ", ").append(typeName(thrownTypes.get(i)));
+        }
+        line(out, 1, "@Override");
+        line(out, 1, declaration + " {");
+        line(out, 2, "final long wOffset = " + FACTORY + ".writeAcquireWithWaitStrategy(this, waitStrategy);");
+        if (containsReferences) {
+            line(out, 2, "final long arrayReferenceBaseIndex = this.producerReferenceArrayIndex(wOffset);");
+        }
+        int wOffsetDelta = 4;
+        int arrayReferenceBaseIndexDelta = 0;
+        for (int i = 0; i < parameters.size(); i++) {
+            TypeMirror parameterType = parameters.get(i).asType();
+            if (parameterType.getKind() == TypeKind.BOOLEAN) {
+                line(out, 2, UNSAFE + ".putBoolean(null, wOffset + " + wOffsetDelta + "L, arg" + i + ");");
+                wOffsetDelta += primitiveMemorySize(parameterType);
+            } else if (parameterType.getKind().isPrimitive()) {
+                line(out, 2, UNSAFE + ".put" + capitalize(parameterType.toString()) + "(wOffset + " + wOffsetDelta +
+                        "L, arg" + i + ");");
+                wOffsetDelta += primitiveMemorySize(parameterType);
+            } else {
+                line(out, 2, "this.writeReference(arrayReferenceBaseIndex + " + arrayReferenceBaseIndexDelta++ +
+                        "L, arg" + i + ");");
+            }
+        }
+        line(out, 2, "this.writeRelease(wOffset, " + type + ");");
+        if (returnType.getKind() != TypeKind.VOID) {
+            line(out, 2, "return " + awaitReply(returnType) + ";");
+        }
+        line(out, 1, "}\n");
+    }
+
+    private void process(StringBuilder out, String simpleName, String iFaceName, List<ExecutableElement> methods) {
+        line(out, 1, "@Override");
+        line(out, 1, "public int process(" + iFaceName + " impl, int limit) {");
+        line(out, 2, "int i = 0;");
+        line(out, 2, "for (; i < limit; i++) {");
+        line(out, 3, "final long rOffset = this.readAcquire();");
+        line(out, 3, "if (rOffset == org.jctools.channels.proxy.ProxyChannelRingBuffer.EOF) {");
+        line(out, 4, "break;");
+        line(out, 3, "}");
+        line(out, 3, "switch (" + UNSAFE + ".getInt(rOffset)) {");
+        int type = START_TYPE_ID;
+        for (ExecutableElement method : methods) {
+            line(out, 3, "case " + type++ + ": {");
+            List<? extends VariableElement> parameters = method.getParameters();
+            boolean containsReferences = false;
+            for (VariableElement parameter : parameters) {
+                containsReferences |= !parameter.asType().getKind().isPrimitive();
+            }
+            if (containsReferences) {
+                line(out, 4, "final long arrayReferenceBaseIndex = this.consumerReferenceArrayIndex(rOffset);");
+            }
+            int rOffsetDelta = 4;
+            int arrayReferenceBaseIndexDelta = 0;
+            StringBuilder call = new StringBuilder("impl.").append(method.getSimpleName()).append('(');
+            for (int i = 0; i < parameters.size(); i++) {
+                TypeMirror parameterType = parameters.get(i).asType();
+                String name = typeName(parameterType);
+                if (parameterType.getKind() == TypeKind.BOOLEAN) {
+                    line(out, 4, "final boolean arg" + i + " = " + UNSAFE + ".getBoolean(null, rOffset + " +
+                            rOffsetDelta + "L);");
+                    rOffsetDelta += primitiveMemorySize(parameterType);
+                } else if (parameterType.getKind().isPrimitive()) {
+                    line(out, 4, "final " + name + " arg" + i + " = " + UNSAFE + ".get" + capitalize(name) +
+                            "(rOffset + " + rOffsetDelta + "L);");
+                    rOffsetDelta += primitiveMemorySize(parameterType);
+                } else {
+                    line(out, 4, "final " + name + " arg" + i + " = (" + name + ") this.readReference(" +
+                            "arrayReferenceBaseIndex + " + arrayReferenceBaseIndexDelta++ + "L);");
+                }
+                call.append(i == 0 ? "" : ", ").append("arg").append(i);
+            }
+            call.append(')');
+            TypeMirror returnType = method.getReturnType();
+            if (returnType.getKind() != TypeKind.VOID) {
+                // the message is released by the caller once it read the reply
+                line(out, 4, "try {");
+                line(out, 5, FACTORY + ".reply(" +
+                        (returnType.getKind() == TypeKind.BOOLEAN ? call + " ? 1 : 0" : call.toString()) +
+                        ", this, rOffset);");
+                line(out, 4, "} catch (Throwable t) {");
+                line(out, 5, FACTORY + ".replyFailure(t, this, rOffset);");
+                line(out, 4, "}");
+                line(out, 4, "break;");
+                line(out, 3, "}");
+                continue;
+            }
+            line(out, 4, "this.readRelease(rOffset);");
+            if (method.getThrownTypes().isEmpty()) {
+                line(out, 4, call + ";");
+            } else {
+                // the runtime generated byte code does not need to declare checked exceptions, rethrow as is
+                line(out, 4, "try {");
+                line(out, 5, call + ";");
+                line(out, 4, "} catch (Throwable t) {");
+                line(out, 5, "throw " + simpleName + ".<RuntimeException>sneakyThrow(t);");
+                line(out, 4, "}");
+            }
+            line(out, 4, "break;");
+            line(out, 3, "}");
+        }
+        line(out, 3, "}");
+        line(out, 2, "}");
+        line(out, 2, "return i;");
+        line(out, 1, "}");
+        for (ExecutableElement method : methods) {
+            if (!method.getThrownTypes().isEmpty() && method.getReturnType().getKind() == TypeKind.VOID) {
+                line(out, 0, "");
+                line(out, 1, "@SuppressWarnings(\"unchecked\")");
+                line(out, 1, "private static <T extends Throwable> T sneakyThrow(Throwable t) throws T {");
+                line(out, 2, "throw (T) t;");
+                line(out, 1, "}");
+                break;
+            }
+        }
+    }
+
+    private String awaitReply(TypeMirror returnType) {
+        String args = "(this, wOffset, waitStrategy)";
+        switch (returnType.getKind()) {
+            case BOOLEAN:
+                return FACTORY + ".awaitIntReply" + args + " != 0";
+            case BYTE:
+            case SHORT:
+            case CHAR:
+                return "(" + returnType + ") " + FACTORY + ".awaitIntReply" + args;
+            case INT:
+            case LONG:
+            case FLOAT:
+            case DOUBLE:
+                return FACTORY + ".await" + capitalize(returnType.toString()) + "Reply" + args;
+            default:
+                return "(" + typeName(returnType) + ") " + FACTORY + ".awaitReferenceReply" + args;
+        }
+    }
+
+    private static void line(StringBuilder out, int indent, String line) {
+        for (int i = 0; i < indent; i++) {
+            out.append(INDENT_LEVEL);
+        }
+        out.append(line).append('\n');
+    }
+}
@@ -84,9 +84,13 @@ public final class JavaParsingAtomicArrayQueueGenerator extends JavaParsingAtomi
 
         String start = originalQueueName.substring(0, 4);
         String end = originalQueueName.substring(4);
-        if ((start.equals("Spsc") || start.equals("Spmc") || start.equals("Mpsc") || start.equals("Mpmc"))
-                && end.startsWith("ArrayQueue")) {
-            return start + "Atomic" + end;
+        if ((start.equals("Spsc") || start.equals("Spmc") || start.equals("Mpsc") || start.equals("Mpmc"))) {
+            if (end.startsWith("ArrayQueue")) {
+                return start + "Atomic" + end;
+            }
+            if (end.startsWith("RelaxedArrayQueue")) {
+                return start + "RelaxedAtomic" + end.substring("Relaxed".length());
+            }
         }
 
         return originalQueueName;
@@ -100,6 +104,14 @@ public final class JavaParsingAtomicArrayQueueGenerator extends JavaParsingAtomi
             return "C_INDEX_UPDATER";
         case "producerLimit":
             return "P_LIMIT_UPDATER";
+        case "activeCycleId":
+            return "ACTIVE_CYCLE_ID_UPDATER";
+        case "consumerPosition":
+            return "C_POS_UPDATER";
+        case "producerFirstCycleClaim":
+            return "P_FIRST_CYCLE_CLAIM_UPDATER";
+        case "producerSecondCycleClaim":
+            return "P_SECOND_CYCLE_CLAIM_UPDATER";
         default:
             throw new IllegalArgumentException("Unhandled field: " + fieldName);
         }
@@ -121,9 +133,24 @@ public final class JavaParsingAtomicArrayQueueGenerator extends JavaParsingAtomi
         cu.addImport(importDeclaration("java.util.concurrent.atomic.AtomicReferenceArray"));
         cu.addImport(importDeclaration("java.util.concurrent.atomic.AtomicLongArray"));
         cu.addImport(importDeclaration("org.jctools.queues.MessagePassingQueueUtil"));
+        if (implementsMessagePassingQueue(cu)) {
+            // queues not extending AtomicReferenceArrayQueue name the interface directly
+            cu.addImport(importDeclaration("org.jctools.queues.MessagePassingQueue"));
+        }
         cu.addImport(staticImportDeclaration("org.jctools.queues.atomic.AtomicQueueUtil.*"));
     }
 
+    private boolean implementsMessagePassingQueue(CompilationUnit cu) {
+        for (ClassOrInterfaceDeclaration type : cu.findAll(ClassOrInterfaceDeclaration.class)) {
+            for (ClassOrInterfaceType implemented : type.getImplementedTypes()) {
+                if ("MessagePassingQueue".equals(implemented.getNameAsString())) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
     /**
      * Given a variable declaration of some sort, check it's name and type and
      * if it looks like any of the key type changes between unsafe and atomic
@@ -195,10 +222,11 @@ public final class JavaParsingAtomicArrayQueueGenerator extends JavaParsingAtomi
 
     /**
      * For each method accessor to a field, add in the calls necessary to
-     * AtomicFieldUpdaters. Only methods start with so/cas/sv/lv/lp followed by
-     * the field name are processed. Clearly <code>lv<code>, <code>lp<code> and
-     * <code>sv<code> are simple field accesses with only <code>so and <code>cas
-     * <code> using the AtomicFieldUpdaters.
+     * AtomicFieldUpdaters. Only methods start with so/cas/getAndAdd/sv/lv/lp
+     * followed by the field name are processed. Clearly <code>lv<code>,
+     * <code>lp<code> and <code>sv<code> are simple field accesses with only
+     * <code>so<code>, <code>cas<code> and <code>getAndAdd<code> using the
+     * AtomicFieldUpdaters.
      *
      * @param n
      *            the AST node for the containing class
@@ -237,6 +265,10 @@ public final class JavaParsingAtomicArrayQueueGenerator extends JavaParsingAtomi
                         String expectedValueName = "expect";
                         method.setBody(
                                 fieldUpdaterCompareAndSet(fieldUpdaterFieldName, expectedValueName, newValueName));
+                    } else if (methodName.startsWith("getAndAdd")) {
+                        usesFieldUpdater = true;
+                        String fieldUpdaterFieldName = fieldUpdaterFieldName(variableName);
+                        method.setBody(fieldUpdaterGetAndAdd(fieldUpdaterFieldName, "delta"));
                     } else if (methodName.startsWith("sv")) {
                         method.setBody(fieldAssignment(variableName, newValueName));
                     } else if (methodName.startsWith("lv") || methodName.startsWith("lp")) {
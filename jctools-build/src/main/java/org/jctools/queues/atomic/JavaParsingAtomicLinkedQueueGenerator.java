@@ -2,6 +2,7 @@ package org.jctools.queues.atomic;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Optional;
 
 import com.github.javaparser.ast.CompilationUnit;
 import com.github.javaparser.ast.ImportDeclaration;
@@ -20,6 +21,7 @@ import com.github.javaparser.ast.expr.MethodCallExpr;
 import com.github.javaparser.ast.expr.Name;
 import com.github.javaparser.ast.expr.NameExpr;
 import com.github.javaparser.ast.expr.ObjectCreationExpr;
+import com.github.javaparser.ast.expr.SimpleName;
 import com.github.javaparser.ast.expr.StringLiteralExpr;
 import com.github.javaparser.ast.expr.ThisExpr;
 import com.github.javaparser.ast.nodeTypes.NodeWithType;
@@ -194,6 +196,8 @@ public final class JavaParsingAtomicLinkedQueueGenerator extends JavaParsingAtom
             node.setType(simpleParametricType("LinkedQueueAtomicNode", "E"));
         } else if (isRefArray(type, "E")) {
             node.setType(atomicRefArrayType((ArrayType) type));
+        } else if (isRefArrayQueue(type, "SpscArrayQueue")) {
+            node.setType(atomicRefArrayQueueType("SpscAtomicArrayQueue"));
         }
     }
 
@@ -344,6 +348,23 @@ public final class JavaParsingAtomicLinkedQueueGenerator extends JavaParsingAtom
         return out;
     }
 
+    /**
+     * Queues of buffers, e.g. the pool of recycled chunks, hold atomic arrays in the atomic version.
+     */
+    private boolean isRefArrayQueue(Type in, String queueClassName) {
+        if (!isRefType(in, queueClassName)) {
+            return false;
+        }
+        Optional<NodeList<Type>> typeArgs = ((ClassOrInterfaceType) in).getTypeArguments();
+        return typeArgs.isPresent() && typeArgs.get().size() == 1 && isRefArray(typeArgs.get().get(0), "E");
+    }
+
+    private ClassOrInterfaceType atomicRefArrayQueueType(String queueClassName) {
+        NodeList<Type> typeArgs = new NodeList<>();
+        typeArgs.add(simpleParametricType("AtomicReferenceArray", "E"));
+        return new ClassOrInterfaceType(null, new SimpleName(queueClassName), typeArgs);
+    }
+
     private void processSpecialNodeTypes(MethodDeclaration node) {
         processSpecialNodeTypes(node, node.getNameAsString());
     }
@@ -354,6 +375,8 @@ public final class JavaParsingAtomicLinkedQueueGenerator extends JavaParsingAtom
             node.setType(simpleParametricType("LinkedQueueAtomicNode", "E"));
         } else if (isRefArray(type, "E")) {
             node.setType(atomicRefArrayType((ArrayType) type));
+        } else if (isRefArrayQueue(type, "SpscArrayQueue")) {
+            node.setType(atomicRefArrayQueueType("SpscAtomicArrayQueue"));
         }
     }
 
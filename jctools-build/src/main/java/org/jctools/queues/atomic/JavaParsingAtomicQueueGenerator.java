@@ -195,6 +195,21 @@ abstract class JavaParsingAtomicQueueGenerator extends VoidVisitorAdapter<Void>
         return body;
     }
 
+    /**
+     * Generates something like
+     * <code>return P_INDEX_UPDATER.getAndAdd(this, delta)</code>
+     *
+     * @param fieldUpdaterFieldName
+     * @param deltaName
+     * @return
+     */
+    protected BlockStmt fieldUpdaterGetAndAdd(String fieldUpdaterFieldName, String deltaName) {
+        BlockStmt body = new BlockStmt();
+        body.addStatement(new ReturnStmt(
+                methodCallExpr(fieldUpdaterFieldName, "getAndAdd", new ThisExpr(), new NameExpr(deltaName))));
+        return body;
+    }
+
     protected MethodCallExpr methodCallExpr(String owner, String method, Expression... args) {
         MethodCallExpr methodCallExpr = new MethodCallExpr(new NameExpr(owner), method);
         for (Expression expr : args) {
@@ -0,0 +1,174 @@
+package org.jctools.queues.unpadded;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.regex.Pattern;
+
+import com.github.javaparser.JavaParser;
+import com.github.javaparser.ast.CompilationUnit;
+import com.github.javaparser.ast.ImportDeclaration;
+import com.github.javaparser.ast.Modifier;
+import com.github.javaparser.ast.PackageDeclaration;
+import com.github.javaparser.ast.body.ClassOrInterfaceDeclaration;
+import com.github.javaparser.ast.body.ConstructorDeclaration;
+import com.github.javaparser.ast.body.FieldDeclaration;
+import com.github.javaparser.ast.body.MethodDeclaration;
+import com.github.javaparser.ast.body.VariableDeclarator;
+import com.github.javaparser.ast.comments.Comment;
+import com.github.javaparser.ast.comments.JavadocComment;
+import com.github.javaparser.ast.expr.Name;
+import com.github.javaparser.ast.type.ClassOrInterfaceType;
+import com.github.javaparser.ast.visitor.VoidVisitorAdapter;
+
+/**
+ * Generates a copy of the array queues with the padding fields stripped, for use cases where the footprint of many
+ * lightly used queues matters more than false sharing between their producer and consumer. Padding classes are kept
+ * (empty) so the class hierarchy and field accessors of the original are unchanged.
+ */
+public final class JavaParsingUnpaddedQueueGenerator extends VoidVisitorAdapter<Void> {
+    private static final String INDENT_LEVEL = "    ";
+    private static final String GEN_DIRECTIVE_METHOD_IGNORE = "$gen:ignore";
+    private static final Pattern PADDING_FIELD = Pattern.compile("b[0-7]{3}");
+    private static final String[] QUEUES_PACKAGE_IMPORTS = {
+        "org.jctools.queues.IndexedQueueSizeUtil",
+        "org.jctools.queues.IndexedQueueSizeUtil.IndexedQueue",
+        "org.jctools.queues.MessagePassingQueue",
+        "org.jctools.queues.MessagePassingQueue.Consumer",
+        "org.jctools.queues.MessagePassingQueue.ExitCondition",
+        "org.jctools.queues.MessagePassingQueue.Supplier",
+        "org.jctools.queues.MessagePassingQueue.WaitStrategy",
+        "org.jctools.queues.MessagePassingQueueUtil",
+        "org.jctools.queues.QueueProgressIndicators",
+        "org.jctools.queues.SupportsIterator"
+    };
+
+    private final String sourceFileName;
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 2) {
+            throw new IllegalArgumentException("Usage: outputDirectory inputSourceFiles");
+        }
+
+        File outputDirectory = new File(args[0]);
+
+        for (int i = 1; i < args.length; i++) {
+            File file = new File(args[i]);
+            System.out.println("Processing " + file);
+            CompilationUnit cu = new JavaParser().parse(file).getResult().get();
+            JavaParsingUnpaddedQueueGenerator generator = new JavaParsingUnpaddedQueueGenerator(file.getName());
+            generator.visit(cu, null);
+
+            generator.organiseImports(cu);
+
+            String outputFileName = translateQueueName(file.getName().replace(".java", "")) + ".java";
+
+            try (FileWriter writer = new FileWriter(new File(outputDirectory, outputFileName))) {
+                writer.write(cu.toString());
+            }
+
+            System.out.println("Saved to " + outputFileName);
+        }
+    }
+
+    JavaParsingUnpaddedQueueGenerator(String sourceFileName) {
+        this.sourceFileName = sourceFileName;
+    }
+
+    @Override
+    public void visit(PackageDeclaration n, Void arg) {
+        super.visit(n, arg);
+        n.setName("org.jctools.queues.unpadded");
+    }
+
+    @Override
+    public void visit(ConstructorDeclaration n, Void arg) {
+        super.visit(n, arg);
+        n.setName(translateQueueName(n.getNameAsString()));
+    }
+
+    @Override
+    public void visit(ClassOrInterfaceType n, Void arg) {
+        super.visit(n, arg);
+        // covers parent classes, class literals (field offsets) and casts
+        n.setName(translateQueueName(n.getNameAsString()));
+    }
+
+    @Override
+    public void visit(ClassOrInterfaceDeclaration node, Void arg) {
+        super.visit(node, arg);
+
+        node.setName(translateQueueName(node.getNameAsString()));
+
+        removePaddingFields(node);
+
+        for (MethodDeclaration method : node.getMethods()) {
+            if (isIgnored(method)) {
+                method.remove();
+            }
+        }
+
+        node.setJavadocComment(formatMultilineJavadoc(0,
+                "NOTE: This class was automatically generated by "
+                        + JavaParsingUnpaddedQueueGenerator.class.getName(),
+                "which can found in the jctools-build module. The original source file is " + sourceFileName + ".")
+                + node.getJavadocComment().orElse(new JavadocComment("")).getContent());
+    }
+
+    static String translateQueueName(String originalQueueName) {
+        if (originalQueueName.contains("ArrayQueue")) {
+            return originalQueueName.replace("ArrayQueue", "UnpaddedArrayQueue");
+        }
+        return originalQueueName;
+    }
+
+    private static void removePaddingFields(ClassOrInterfaceDeclaration node) {
+        for (FieldDeclaration field : node.getFields()) {
+            if (field.getModifiers().contains(Modifier.staticModifier())) {
+                continue;
+            }
+            boolean padding = true;
+            for (VariableDeclarator variable : field.getVariables()) {
+                padding &= PADDING_FIELD.matcher(variable.getNameAsString()).matches();
+            }
+            if (padding) {
+                field.remove();
+            }
+        }
+    }
+
+    private static boolean isIgnored(MethodDeclaration method) {
+        Optional<Comment> comment = method.getComment();
+        return comment.isPresent() && GEN_DIRECTIVE_METHOD_IGNORE.equals(comment.get().getContent().trim());
+    }
+
+    private void organiseImports(CompilationUnit cu) {
+        List<ImportDeclaration> importDecls = new ArrayList<>(cu.getImports());
+        cu.getImports().clear();
+        for (ImportDeclaration importDecl : importDecls) {
+            // same package types are now in org.jctools.queues
+            if (!importDecl.getNameAsString().startsWith("org.jctools.queues.")) {
+                cu.addImport(importDecl);
+            }
+        }
+        for (String name : QUEUES_PACKAGE_IMPORTS) {
+            cu.addImport(new ImportDeclaration(new Name(name), false, false));
+        }
+    }
+
+    private static String formatMultilineJavadoc(int indent, String... lines) {
+        String indentation = "";
+        for (int i = 0; i < indent; i++) {
+            indentation += INDENT_LEVEL;
+        }
+
+        String out = "\n";
+        for (String line : lines) {
+            out += indentation + " * " + line + "\n";
+        }
+        out += indentation + " ";
+        return out;
+    }
+}
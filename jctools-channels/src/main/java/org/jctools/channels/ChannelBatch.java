@@ -0,0 +1,38 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jctools.channels;
+
+/**
+ * A view over a contiguous range of messages read in one {@link ChannelConsumer#read(int)} call. The messages are not
+ * copied, {@link #get(int)} moves the consumer flyweight onto the requested message.
+ *
+ * NB: the batch and its elements are only readable for the lifecycle of the
+ * {@link ChannelBatchReceiver#accept(ChannelBatch)} callback.
+ *
+ * @param <E> element type
+ */
+public interface ChannelBatch<E> {
+
+    /**
+     * @return the number of messages in this batch
+     */
+    int size();
+
+    /**
+     * @param index of the message in the batch, in [0, size())
+     * @return the consumer flyweight moved to the message, the same instance is returned for every index
+     */
+    E get(int index);
+
+}
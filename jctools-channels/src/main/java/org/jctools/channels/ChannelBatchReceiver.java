@@ -0,0 +1,32 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jctools.channels;
+
+/**
+ * A receiver which, when given to {@link Channel#consumer(ChannelReceiver)}, is handed each batch read through
+ * {@link ChannelConsumer#read(int)} as a whole instead of one element at a time. Single message reads through
+ * {@link ChannelConsumer#read()} are still delivered to {@link #accept(Object)}.
+ *
+ * @param <E> element type
+ */
+public interface ChannelBatchReceiver<E> extends ChannelReceiver<E> {
+
+    /**
+     * NB: the batch is only readable for the lifecycle of this callback.
+     *
+     * @param batch the contiguous messages read in one go
+     */
+    void accept(ChannelBatch<E> batch);
+
+}
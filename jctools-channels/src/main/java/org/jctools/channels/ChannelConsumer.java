@@ -26,4 +26,24 @@ public interface ChannelConsumer {
      */
     boolean read();
 
+    /**
+     * Read up to {@code limit} messages from the channel as one batch. The batch is contiguous in the channel buffer
+     * and the consumer index is committed once for the whole batch, which is cheaper than the same number of
+     * {@link #read()} calls. Messages are passed to the receiver one at a time, or as a single {@link ChannelBatch}
+     * if the receiver is a {@link ChannelBatchReceiver}.
+     *
+     * @param limit the maximum number of messages to read
+     * @return the number of messages read, 0 if none were available
+     */
+    int read(int limit);
+
+    /**
+     * Declare the consumer idle: the next message committed by a producer calls the {@link ChannelWakeup} the channel
+     * was created with. Producers of channels created without one never wake the consumer up. The declaration lasts
+     * until the consumer is woken up, reading messages meanwhile does not cancel it.
+     *
+     * @return true if the consumer is idle and may block until woken up, false if a message is available to read
+     */
+    boolean idle();
+
 }
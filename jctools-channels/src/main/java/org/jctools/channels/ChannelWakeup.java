@@ -0,0 +1,34 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jctools.channels;
+
+/**
+ * Wakes up a channel consumer which declared itself idle through {@link ChannelConsumer#idle()}. Producers of a
+ * channel created with a wakeup call it on the first commit following the idle declaration, and otherwise leave it
+ * alone, so the consumer can block while the read path stays lock free.
+ *
+ * NB: the idle flag lives in the channel buffer, but the wakeup itself is only visible to the process it was created
+ * in.
+ *
+ * @see ParkingChannelWakeup
+ * @see SelectableChannelWakeup
+ */
+public interface ChannelWakeup {
+
+    /**
+     * Called by at most one producer per idle declaration, after the message it committed is visible to the consumer.
+     */
+    void wakeup();
+
+}
@@ -40,12 +40,15 @@ public abstract class OffHeapFixedMessageSizeRingBuffer extends ProxyChannelRing
     public static final int READ_ACQUIRE_INDICATOR = -11;
     public static final int WRITE_RELEASE_INDICATOR = -12;
     public static final int WRITE_ACQUIRE_INDICATOR = -13;
+    public static final int REPLY_READY_INDICATOR = -14;
+    public static final int REPLY_FAILED_INDICATOR = -15;
     public static final byte MESSAGE_INDICATOR_SIZE = 4;
     public static final int HEADER_SIZE = 4 * CACHE_LINE_SIZE;
 
     private final ByteBuffer buffy;
     protected final long bufferAddress;
     protected final long consumerIndexAddress;
+    protected final long consumerIdleAddress;
     protected final long producerIndexAddress;
     protected final long mask;
     protected final int messageSize;
@@ -112,11 +115,13 @@ public abstract class OffHeapFixedMessageSizeRingBuffer extends ProxyChannelRing
         }
         // Layout of the RingBuffer (assuming 64b cache line):
         // consumerIndex(8b), pad(56b) |
-        // pad(64b) |
+        // consumerIdle(4b), pad(60b) |
         // producerIndex(8b), pad(56b) |
         // pad(64b) |
         // buffer (capacity * messageSize)
         this.consumerIndexAddress = alignedAddress;
+        // written by the consumer only when going idle, kept off the consumer index line which producers read
+        this.consumerIdleAddress = this.consumerIndexAddress + CACHE_LINE_SIZE;
         this.producerIndexAddress = this.consumerIndexAddress + 2l * CACHE_LINE_SIZE;
         this.bufferAddress = alignedAddress + HEADER_SIZE;
         this.mask = actualCapacity - 1;
@@ -136,6 +141,7 @@ public abstract class OffHeapFixedMessageSizeRingBuffer extends ProxyChannelRing
         // consumer owns head
         if (isConsumer && initialize) {
             soConsumerIndex(0);
+            UNSAFE.putOrderedInt(null, consumerIdleAddress, 0);
         }
     }
 
@@ -154,6 +160,16 @@ public abstract class OffHeapFixedMessageSizeRingBuffer extends ProxyChannelRing
         return UNSAFE.getIntVolatile(null, offset) == READ_RELEASE_INDICATOR;
     }
 
+    /**
+     * A message is published in the slot: it was released by {@link #writeRelease(long)} or carries a proxy call type
+     * id. A free slot is not, and neither is a slot still owned by a proxy caller (the reply is pending or not yet
+     * read), so a consumer lapping the buffer stops there until the caller releases the slot and a producer reuses it.
+     */
+    protected final boolean isWriteReleased(long offset) {
+        final int indicator = UNSAFE.getIntVolatile(null, offset);
+        return indicator == WRITE_RELEASE_INDICATOR || indicator > 0;
+    }
+
     protected final void writeReleaseState(long offset) {
         UNSAFE.putOrderedInt(null, offset, WRITE_RELEASE_INDICATOR);
     }
@@ -170,6 +186,52 @@ public abstract class OffHeapFixedMessageSizeRingBuffer extends ProxyChannelRing
         UNSAFE.putOrderedInt(null, offset, READ_ACQUIRE_INDICATOR);
     }
 
+    /**
+     * As {@link #writeReleaseState(long)}, then call {@link ChannelWakeup#wakeup()} if the consumer declared itself
+     * idle through {@link #consumerIdle()}. Only one producer wakes the consumer up per idle declaration.
+     */
+    protected final void writeReleaseState(long offset, ChannelWakeup wakeup) {
+        // volatile store: StoreLoad between publishing the message and loading the idle flag, pairs with the flag
+        // store followed by the indicator load in consumerIdle() so that one of the two sides sees the other
+        UNSAFE.putIntVolatile(null, offset, WRITE_RELEASE_INDICATOR);
+        if (UNSAFE.getIntVolatile(null, consumerIdleAddress) != 0 &&
+                UNSAFE.compareAndSwapInt(null, consumerIdleAddress, 1, 0)) {
+            wakeup.wakeup();
+        }
+    }
+
+    /**
+     * Declare the consumer idle, the next message written through {@link #writeReleaseState(long, ChannelWakeup)}
+     * wakes it up. Only valid for single consumer buffers with the indicator of the next message to read at
+     * {@code offsetForIndex(consumerIndex)}.
+     *
+     * @return true if the consumer is idle, false if a message is available (and the consumer is not idle)
+     */
+    protected final boolean consumerIdle() {
+        UNSAFE.putIntVolatile(null, consumerIdleAddress, 1); // StoreLoad
+        if (!isWriteReleased(offsetForIndex(lpConsumerIndex()))) {
+            return true;
+        }
+        UNSAFE.putOrderedInt(null, consumerIdleAddress, 0);
+        return false;
+    }
+
+    @Override
+    protected int replyState(long offset) {
+        final int indicator = UNSAFE.getIntVolatile(null, offset);
+        if (indicator == REPLY_READY_INDICATOR) {
+            return REPLY_READY;
+        } else if (indicator == REPLY_FAILED_INDICATOR) {
+            return REPLY_FAILED;
+        }
+        return REPLY_PENDING;
+    }
+
+    @Override
+    protected void replyRelease(long offset, int replyState) {
+        UNSAFE.putOrderedInt(null, offset, replyState == REPLY_FAILED ? REPLY_FAILED_INDICATOR : REPLY_READY_INDICATOR);
+    }
+
     protected final long offsetForIndex(long currentHead) {
         return offsetForIndex(bufferAddress,  mask, messageSize, currentHead);
     }
@@ -0,0 +1,58 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jctools.channels;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Blocks the (single) consumer thread with {@link LockSupport#parkNanos(Object, long)} while the channel is empty.
+ *
+ * <pre>
+ * <code>
+ * while (running) {
+ *   if (consumer.read(limit) == 0) {
+ *     wakeup.await(consumer, 1, TimeUnit.MILLISECONDS);
+ *   }
+ * }
+ * </code>
+ * </pre>
+ */
+public final class ParkingChannelWakeup implements ChannelWakeup {
+
+    private volatile Thread waiter;
+
+    /**
+     * Park the calling thread until a message is committed, the timeout elapses, the thread is interrupted or
+     * spuriously. Returns immediately if a message is already available.
+     *
+     * @param consumer the consumer the calling thread reads from, of a channel created with this wakeup
+     */
+    public void await(ChannelConsumer consumer, long timeout, TimeUnit unit) {
+        // published before the idle flag, so a producer seeing the flag sees the waiter
+        waiter = Thread.currentThread();
+        if (consumer.idle()) {
+            LockSupport.parkNanos(this, unit.toNanos(timeout));
+        }
+    }
+
+    @Override
+    public void wakeup() {
+        final Thread waiter = this.waiter;
+        if (waiter != null) {
+            LockSupport.unpark(waiter);
+        }
+    }
+
+}
@@ -0,0 +1,90 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jctools.channels;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Pipe;
+import java.nio.channels.SelectableChannel;
+import java.nio.channels.Selector;
+
+/**
+ * Signals the consumer through a {@link Pipe}, so that a thread serving both a channel and NIO channels can wait on a
+ * single {@link Selector}:
+ *
+ * <pre>
+ * <code>
+ * wakeup.selectableChannel().register(selector, SelectionKey.OP_READ);
+ * while (running) {
+ *   if (consumer.read(limit) == 0 &amp;&amp; consumer.idle()) {
+ *     selector.select();
+ *   }
+ *   for (SelectionKey key : selector.selectedKeys()) {
+ *     if (key.channel() == wakeup.selectableChannel()) {
+ *       wakeup.clear();
+ *     } else {
+ *       // other I/O
+ *     }
+ *   }
+ *   selector.selectedKeys().clear();
+ * }
+ * </code>
+ * </pre>
+ */
+public final class SelectableChannelWakeup implements ChannelWakeup, Closeable {
+
+    private final Pipe pipe;
+    private final ByteBuffer drain = ByteBuffer.allocate(64);
+
+    public SelectableChannelWakeup() throws IOException {
+        pipe = Pipe.open();
+        pipe.source().configureBlocking(false);
+        pipe.sink().configureBlocking(false);
+    }
+
+    /**
+     * @return the non blocking channel which becomes readable when the consumer is woken up
+     */
+    public SelectableChannel selectableChannel() {
+        return pipe.source();
+    }
+
+    /**
+     * Consume the pending signals, to be called by the consumer thread when {@link #selectableChannel()} is selected.
+     */
+    public void clear() throws IOException {
+        final ByteBuffer drain = this.drain;
+        do {
+            drain.clear();
+        } while (pipe.source().read(drain) > 0);
+    }
+
+    @Override
+    public void wakeup() {
+        try {
+            // a full pipe is fine, the consumer is already signalled
+            pipe.sink().write(ByteBuffer.wrap(new byte[1]));
+        } catch (IOException e) {
+            throw new IllegalStateException("Failed to signal the consumer", e);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        pipe.source().close();
+        pipe.sink().close();
+    }
+
+}
@@ -0,0 +1,28 @@
+package org.jctools.channels;
+
+import org.jctools.queues.MessagePassingQueue;
+
+/**
+ * Bridges the {@link MessagePassingQueue.WaitStrategy} implementations in jctools-core (busy spin, backoff, spin then
+ * park, adaptive) to channels.
+ */
+public final class WaitStrategies {
+
+    private WaitStrategies() {
+    }
+
+    public static WaitStrategy of(final MessagePassingQueue.WaitStrategy waitStrategy) {
+        if (waitStrategy == null) {
+            throw new NullPointerException("waitStrategy is null");
+        }
+        if (waitStrategy instanceof WaitStrategy) {
+            return (WaitStrategy) waitStrategy;
+        }
+        return new WaitStrategy() {
+            @Override
+            public int idle(int idleCounter) {
+                return waitStrategy.idle(idleCounter);
+            }
+        };
+    }
+}
@@ -1,6 +1,13 @@
 package org.jctools.channels;
 
-public interface WaitStrategy {
+import org.jctools.queues.MessagePassingQueue;
+
+/**
+ * The channel flavour of {@link MessagePassingQueue.WaitStrategy}: any channel wait strategy can be used with queues,
+ * and the queue strategies (e.g. {@link org.jctools.queues.BackoffWaitStrategy}) can be used with channels through
+ * {@link WaitStrategies#of(MessagePassingQueue.WaitStrategy)}.
+ */
+public interface WaitStrategy extends MessagePassingQueue.WaitStrategy {
     /**
      * This method can implement static or dynamic backoff. Dynamic backoff will rely on the counter for
      * estimating how long the caller has been idling. The expected usage is:
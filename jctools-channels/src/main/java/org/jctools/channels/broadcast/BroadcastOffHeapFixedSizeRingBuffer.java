@@ -0,0 +1,369 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jctools.channels.broadcast;
+
+import static org.jctools.util.PortableJvmInfo.CACHE_LINE_SIZE;
+import static org.jctools.util.UnsafeAccess.SUPPORTS_FENCES;
+import static org.jctools.util.UnsafeAccess.UNSAFE;
+import static org.jctools.util.UnsafeDirectByteBuffer.alignedSlice;
+import static org.jctools.util.UnsafeDirectByteBuffer.allocateAlignedByteBuffer;
+
+import java.nio.ByteBuffer;
+
+import org.jctools.channels.OffHeapFixedMessageSizeRingBuffer;
+import org.jctools.util.Pow2;
+import org.jctools.util.RangeUtil;
+import org.jctools.util.UnsafeDirectByteBuffer;
+
+/**
+ * Broadcast protocol:
+ * - Single producer, every message is read by each of up to {@code maxReaders} readers, each {@link Reader} tracks its
+ * own cursor
+ * - Fixed message size
+ * - Each message is preceded by a long sequence holding the index of the message in the slot, the producer marks a
+ * slot it is overwriting with {@link #WRITING} first
+ * - Gating mode: the producer does not overwrite messages not yet read by the slowest reader, it sees a full buffer
+ * instead
+ * - Overwrite mode: the producer never waits, a reader that falls a full buffer behind detects that it has been lapped
+ * when acquiring or releasing a message, skips to the latest message and counts the messages it missed
+ * <p>
+ * Layout: the producer index and reader cursors use the same padded header lines as
+ * {@link OffHeapFixedMessageSizeRingBuffer}, followed by capacity slots of sequence(8b) | message | pad to 8b
+ * <p>
+ * The fences use the JDK 8 {@code Unsafe} fence methods when available, and a volatile store to a field of the
+ * fencing side (a full fence on HotSpot) on older runtimes.
+ */
+public class BroadcastOffHeapFixedSizeRingBuffer {
+    public static final long EOF = 0;
+    public static final int SEQUENCE_SIZE = 8;
+    public static final long WRITING = -1;
+    private static final long NOT_WRITTEN = -2;
+    private static final long UNUSED_CURSOR = -1;
+    private static final int CURSOR_SIZE = 2 * CACHE_LINE_SIZE;
+
+    private final ByteBuffer buffy;
+    protected final long producerIndexAddress;
+    protected final long cursorsAddress;
+    protected final long bufferAddress;
+    protected final long mask;
+    protected final int slotSize;
+    protected final int maxReaders;
+    protected final boolean overwrite;
+
+    // producer only, the index below which the slowest reader was when last checked plus the capacity
+    private long producerLimit;
+    // producer only, fence fallback before JDK 8
+    private volatile int producerFence;
+
+    protected static int slotSize(final int messageSize) {
+        return (int) Pow2.align(SEQUENCE_SIZE + messageSize, SEQUENCE_SIZE);
+    }
+
+    protected static int headerSize(final int maxReaders) {
+        return OffHeapFixedMessageSizeRingBuffer.HEADER_SIZE + maxReaders * CURSOR_SIZE;
+    }
+
+    public static int getRequiredBufferSize(final int capacity, final int messageSize, final int maxReaders) {
+        return headerSize(maxReaders) + Pow2.roundToPowerOfTwo(capacity) * slotSize(messageSize);
+    }
+
+    /**
+     * @param overwrite true for the producer to overwrite unread messages rather than wait for the slowest reader
+     */
+    public BroadcastOffHeapFixedSizeRingBuffer(final int capacity, final int messageSize, final int maxReaders,
+            final boolean overwrite) {
+        this(allocateAlignedByteBuffer(getRequiredBufferSize(capacity, messageSize, maxReaders), CACHE_LINE_SIZE),
+                Pow2.roundToPowerOfTwo(capacity),
+                true,
+                messageSize,
+                maxReaders,
+                overwrite);
+    }
+
+    /**
+     * This is to be used for an IPC broadcast with the direct buffer used being a memory mapped file.
+     *
+     * @param buff
+     * @param capacity in messages, actual capacity will be rounded up to the next power of 2
+     * @param initialize true for the producer side, false for readers attaching to an initialized buffer
+     */
+    protected BroadcastOffHeapFixedSizeRingBuffer(final ByteBuffer buff,
+            final int capacity,
+            final boolean initialize,
+            final int messageSize,
+            final int maxReaders,
+            final boolean overwrite) {
+        RangeUtil.checkPositive(maxReaders, "maxReaders");
+        final int actualCapacity = Pow2.roundToPowerOfTwo(capacity);
+        this.slotSize = slotSize(messageSize);
+        this.maxReaders = maxReaders;
+        this.overwrite = overwrite;
+        this.buffy = alignedSlice(headerSize(maxReaders) + actualCapacity * slotSize, CACHE_LINE_SIZE, buff);
+
+        final long alignedAddress = UnsafeDirectByteBuffer.getAddress(buffy);
+        if (alignedAddress % CACHE_LINE_SIZE != 0) {
+            throw new IllegalStateException("buffer is expected to be cache line aligned by now");
+        }
+        // Layout of the RingBuffer (assuming 64b cache line):
+        // pad(128b) |
+        // producerIndex(8b), pad(56b) |
+        // pad(64b) |
+        // cursor(8b), pad(120b) | * maxReaders
+        // buffer (capacity * slotSize)
+        this.producerIndexAddress = alignedAddress + 2l * CACHE_LINE_SIZE;
+        this.cursorsAddress = alignedAddress + OffHeapFixedMessageSizeRingBuffer.HEADER_SIZE;
+        this.bufferAddress = alignedAddress + headerSize(maxReaders);
+        this.mask = actualCapacity - 1;
+
+        if (initialize) {
+            for (int i = 0; i < maxReaders; i++) {
+                soCursor(cursorAddress(i), UNUSED_CURSOR);
+            }
+            for (int i = 0; i < actualCapacity; i++) {
+                soSequence(slotForIndex(i), NOT_WRITTEN);
+            }
+            soProducerIndex(0);
+        }
+        producerLimit = lvProducerIndex() + actualCapacity;
+    }
+
+    public final int capacity() {
+        return (int) (mask + 1);
+    }
+
+    public final boolean isOverwrite() {
+        return overwrite;
+    }
+
+    /**
+     * @return the number of messages written so far
+     */
+    public final long producerIndex() {
+        return lvProducerIndex();
+    }
+
+    /**
+     * Producer only.
+     *
+     * @return the address of the message to write, or EOF if gated by the slowest reader
+     */
+    public final long writeAcquire() {
+        final long producerIndex = lpProducerIndex();
+        final long slot = slotForIndex(producerIndex);
+        if (overwrite) {
+            soSequence(slot, WRITING);
+            // readers validating a message they read must not see the new content without the marker
+            if (SUPPORTS_FENCES) {
+                UNSAFE.storeFence();
+            } else {
+                producerFence = 1;
+            }
+        } else if (producerIndex >= producerLimit) {
+            // StoreLoad: the ordered producer index store of the last writeRelease must be visible before the cursors
+            // are scanned, pairing with the volatile cursor store then producer index load in newReader. Only paid
+            // when the cached limit is reached, rather than making every writeRelease a volatile store.
+            if (SUPPORTS_FENCES) {
+                UNSAFE.fullFence();
+            } else {
+                producerFence = 1;
+            }
+            producerLimit = minCursor(producerIndex) + capacity();
+            if (producerIndex >= producerLimit) {
+                return EOF;
+            }
+        }
+        return slot + SEQUENCE_SIZE;
+    }
+
+    /**
+     * Producer only, publishes the message to all the readers.
+     *
+     * @param offset the address returned by the preceding {@link #writeAcquire()}
+     */
+    public final void writeRelease(long offset) {
+        final long producerIndex = lpProducerIndex();
+        soSequence(offset - SEQUENCE_SIZE, producerIndex); // StoreStore
+        soProducerIndex(producerIndex + 1);
+    }
+
+    private long minCursor(long producerIndex) {
+        long min = producerIndex;
+        for (int i = 0; i < maxReaders; i++) {
+            final long cursor = lvCursor(cursorAddress(i));
+            if (cursor != UNUSED_CURSOR && cursor < min) {
+                min = cursor;
+            }
+        }
+        return min;
+    }
+
+    /**
+     * Join as a new reader, starting with the next message written.
+     *
+     * @throws IllegalStateException if {@code maxReaders} readers are already attached
+     */
+    public Reader newReader() {
+        for (int i = 0; i < maxReaders; i++) {
+            final long cursorAddress = cursorAddress(i);
+            if (lvCursor(cursorAddress) == UNUSED_CURSOR &&
+                    UNSAFE.compareAndSwapLong(null, cursorAddress, UNUSED_CURSOR, lvProducerIndex())) {
+                long cursor;
+                if (!overwrite) {
+                    // in gating mode the cursor must be visible to the producer before it moves past it: the
+                    // producer index not changing around the cursor store means no gating check missed it, as the
+                    // producer fences between its index store and its cursor scan (see writeAcquire)
+                    do {
+                        cursor = lvProducerIndex();
+                        UNSAFE.putLongVolatile(null, cursorAddress, cursor);
+                    } while (cursor != lvProducerIndex());
+                } else {
+                    cursor = lvCursor(cursorAddress);
+                }
+                return new Reader(cursorAddress, cursor);
+            }
+        }
+        throw new IllegalStateException("Already " + maxReaders + " readers attached");
+    }
+
+    /**
+     * A reader cursor, to be used by a single thread.
+     */
+    public final class Reader {
+        private final long cursorAddress;
+        private long index;
+        private long missed;
+        private boolean closed;
+        // fence fallback before JDK 8
+        private volatile int readerFence;
+
+        Reader(long cursorAddress, long index) {
+            this.cursorAddress = cursorAddress;
+            this.index = index;
+        }
+
+        /**
+         * @return the address of the next message to read, or EOF if none is available (or this reader was lapped)
+         */
+        public long readAcquire() {
+            final long index = this.index;
+            final long slot = slotForIndex(index);
+            if (lvSequence(slot) == index) {
+                return slot + SEQUENCE_SIZE;
+            }
+            final long producerIndex = lvProducerIndex();
+            if (producerIndex <= index) {
+                return EOF;
+            }
+            // the message was published since the sequence load, or overwritten since
+            if (lvSequence(slot) == index) {
+                return slot + SEQUENCE_SIZE;
+            }
+            lapped(producerIndex);
+            return EOF;
+        }
+
+        /**
+         * @param offset the address returned by the preceding {@link #readAcquire()}
+         * @return true if the message was intact while read, false if it was overwritten meanwhile (overwrite mode
+         * only) in which case whatever was read must be discarded
+         */
+        public boolean readRelease(long offset) {
+            final long index = this.index;
+            if (overwrite) {
+                // the message loads must not be reordered after the sequence check
+                if (SUPPORTS_FENCES) {
+                    UNSAFE.loadFence();
+                } else {
+                    readerFence = 1;
+                }
+                if (lvSequence(offset - SEQUENCE_SIZE) != index) {
+                    lapped(lvProducerIndex());
+                    return false;
+                }
+            }
+            this.index = index + 1;
+            soCursor(cursorAddress, index + 1);
+            return true;
+        }
+
+        private void lapped(long producerIndex) {
+            // skip to the latest message, the ones in between are likely overwritten already
+            final long latest = Math.max(producerIndex - 1, index);
+            missed += latest - index;
+            index = latest;
+            soCursor(cursorAddress, latest);
+        }
+
+        /**
+         * @return the number of messages skipped because this reader was lapped by the producer
+         */
+        public long missed() {
+            return missed;
+        }
+
+        /**
+         * @return the number of messages written but not yet read by this reader, may exceed the capacity in
+         * overwrite mode
+         */
+        public long available() {
+            return lvProducerIndex() - index;
+        }
+
+        /**
+         * Detach this reader, the producer is no longer gated by it.
+         */
+        public void close() {
+            if (!closed) {
+                closed = true;
+                soCursor(cursorAddress, UNUSED_CURSOR);
+            }
+        }
+    }
+
+    protected final long slotForIndex(long index) {
+        return bufferAddress + (index & mask) * slotSize;
+    }
+
+    private long cursorAddress(int reader) {
+        return cursorsAddress + (long) reader * CURSOR_SIZE;
+    }
+
+    protected final long lpProducerIndex() {
+        return UNSAFE.getLong(null, producerIndexAddress);
+    }
+
+    protected final long lvProducerIndex() {
+        return UNSAFE.getLongVolatile(null, producerIndexAddress);
+    }
+
+    protected final void soProducerIndex(final long value) {
+        UNSAFE.putOrderedLong(null, producerIndexAddress, value);
+    }
+
+    protected final long lvSequence(long slot) {
+        return UNSAFE.getLongVolatile(null, slot);
+    }
+
+    protected final void soSequence(long slot, long value) {
+        UNSAFE.putOrderedLong(null, slot, value);
+    }
+
+    private static long lvCursor(long cursorAddress) {
+        return UNSAFE.getLongVolatile(null, cursorAddress);
+    }
+
+    private static void soCursor(long cursorAddress, long value) {
+        UNSAFE.putOrderedLong(null, cursorAddress, value);
+    }
+}
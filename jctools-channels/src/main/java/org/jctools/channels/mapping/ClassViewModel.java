@@ -62,13 +62,26 @@ public class ClassViewModel {
     }
 
     public List<Variable> fields() {
-        int fieldOffset = SpscOffHeapFixedSizeRingBuffer.MESSAGE_INDICATOR_SIZE;
+        // nested structs have no message indicator
+        int fieldOffset = StructFlyweight.class.isAssignableFrom(implementationParent) ?
+                0 : SpscOffHeapFixedSizeRingBuffer.MESSAGE_INDICATOR_SIZE;
         List<Variable> fields = new ArrayList<Variable>();
         for (Method method : inspector.getters) {
-            Primitive type = Primitive.of(method.getReturnType());
+            Class<?> returnType = method.getReturnType();
             String name = method.getName().substring(3);
-            fields.add(new Variable(type.javaEquivalent.getName(), name, fieldOffset, type.unsafeMethodSuffix()));
-            fieldOffset += type.sizeInBytes;
+            if (returnType == CharSequence.class) {
+                fields.add(new Variable(returnType.getName(), name, fieldOffset, "", Variable.Kind.CHARS,
+                        inspector.inlineLength(method)));
+            } else if (returnType == InlineBytes.class) {
+                fields.add(new Variable(returnType.getName(), name, fieldOffset, "", Variable.Kind.BYTES,
+                        inspector.inlineLength(method)));
+            } else if (returnType.isPrimitive()) {
+                Primitive type = Primitive.of(returnType);
+                fields.add(new Variable(type.javaEquivalent.getName(), name, fieldOffset, type.unsafeMethodSuffix()));
+            } else {
+                fields.add(new Variable(cleanClassName(returnType), name, fieldOffset, "", Variable.Kind.STRUCT, 0));
+            }
+            fieldOffset += inspector.sizeInBytes(method);
         }
         return fields;
     }
@@ -0,0 +1,108 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jctools.channels.mapping;
+
+import static org.jctools.util.UnsafeAccess.UNSAFE;
+
+/**
+ * A reusable view of a bounded byte array stored inline in an off-heap record (see {@link InlineLength}), so reading
+ * it does not allocate. The view is only valid until the flyweight it was returned by moves on to another record.
+ * <p>
+ * Layout: length(2b, -1 for null) | bytes(maxLength)
+ */
+public final class InlineBytes {
+    private static final int LENGTH_SIZE = 2;
+    private static final int NULL_LENGTH = -1;
+    private static final long BYTE_ARRAY_BASE = UNSAFE.arrayBaseOffset(byte[].class);
+
+    private final int maxLength;
+    private long address;
+
+    public InlineBytes(int maxLength) {
+        this.maxLength = maxLength;
+    }
+
+    public static int sizeInBytes(int maxLength) {
+        return LENGTH_SIZE + maxLength;
+    }
+
+    /**
+     * Copy the value into the record at address.
+     *
+     * @throws IllegalArgumentException if the value is longer than maxLength
+     */
+    public static void put(long address, int maxLength, byte[] value) {
+        if (value == null) {
+            UNSAFE.putShort(address, (short) NULL_LENGTH);
+            return;
+        }
+        final int length = value.length;
+        if (length > maxLength) {
+            throw new IllegalArgumentException("length: " + length + " (expected: <= " + maxLength + ')');
+        }
+        UNSAFE.copyMemory(value, BYTE_ARRAY_BASE, null, address + LENGTH_SIZE, length);
+        UNSAFE.putShort(address, (short) length);
+    }
+
+    /**
+     * @return this view of the record at address, or null if a null value was stored
+     */
+    public InlineBytes wrap(long address) {
+        if (UNSAFE.getShort(address) == NULL_LENGTH) {
+            return null;
+        }
+        this.address = address;
+        return this;
+    }
+
+    public int maxLength() {
+        return maxLength;
+    }
+
+    public int length() {
+        return UNSAFE.getShort(address);
+    }
+
+    public byte get(int index) {
+        if (index < 0 || index >= length()) {
+            throw new IndexOutOfBoundsException("index: " + index + ", length: " + length());
+        }
+        return UNSAFE.getByte(address + LENGTH_SIZE + index);
+    }
+
+    /**
+     * Copy the bytes out.
+     *
+     * @return the number of bytes copied, i.e. {@link #length()}
+     * @throws IndexOutOfBoundsException if dst does not have room for them
+     */
+    public int getBytes(byte[] dst, int dstOffset) {
+        final int length = length();
+        if (dstOffset < 0 || dstOffset + length > dst.length) {
+            throw new IndexOutOfBoundsException("dstOffset: " + dstOffset + ", length: " + length +
+                    ", dst.length: " + dst.length);
+        }
+        UNSAFE.copyMemory(null, address + LENGTH_SIZE, dst, BYTE_ARRAY_BASE + dstOffset, length);
+        return length;
+    }
+
+    /**
+     * Allocates a copy, the view itself is only valid while the record is.
+     */
+    public byte[] toByteArray() {
+        final byte[] bytes = new byte[length()];
+        getBytes(bytes, 0);
+        return bytes;
+    }
+}
@@ -0,0 +1,124 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jctools.channels.mapping;
+
+import static org.jctools.util.UnsafeAccess.UNSAFE;
+
+/**
+ * A reusable view of a bounded char sequence stored inline in an off-heap record (see {@link InlineLength}), so reading
+ * it does not allocate. The view is only valid until the flyweight it was returned by moves on to another record.
+ * <p>
+ * Layout: length(2b, -1 for null) | chars(maxLength * 2b)
+ */
+public final class InlineCharSequence implements CharSequence {
+    private static final int LENGTH_SIZE = 2;
+    private static final int NULL_LENGTH = -1;
+
+    private final int maxLength;
+    private long address;
+
+    public InlineCharSequence(int maxLength) {
+        this.maxLength = maxLength;
+    }
+
+    public static int sizeInBytes(int maxLength) {
+        return LENGTH_SIZE + maxLength * 2;
+    }
+
+    /**
+     * Copy the value into the record at address.
+     *
+     * @throws IllegalArgumentException if the value is longer than maxLength
+     */
+    public static void put(long address, int maxLength, CharSequence value) {
+        if (value == null) {
+            UNSAFE.putShort(address, (short) NULL_LENGTH);
+            return;
+        }
+        final int length = value.length();
+        if (length > maxLength) {
+            throw new IllegalArgumentException("length: " + length + " (expected: <= " + maxLength + ')');
+        }
+        final long charsAddress = address + LENGTH_SIZE;
+        for (int i = 0; i < length; i++) {
+            UNSAFE.putChar(charsAddress + i * 2L, value.charAt(i));
+        }
+        UNSAFE.putShort(address, (short) length);
+    }
+
+    /**
+     * @return this view of the record at address, or null if a null value was stored
+     */
+    public InlineCharSequence wrap(long address) {
+        if (UNSAFE.getShort(address) == NULL_LENGTH) {
+            return null;
+        }
+        this.address = address;
+        return this;
+    }
+
+    public int maxLength() {
+        return maxLength;
+    }
+
+    @Override
+    public int length() {
+        return UNSAFE.getShort(address);
+    }
+
+    @Override
+    public char charAt(int index) {
+        if (index < 0 || index >= length()) {
+            throw new IndexOutOfBoundsException("index: " + index + ", length: " + length());
+        }
+        return UNSAFE.getChar(address + LENGTH_SIZE + index * 2L);
+    }
+
+    /**
+     * @return true if the view holds the same chars as the given value, without allocating
+     */
+    public boolean contentEquals(CharSequence value) {
+        final int length = length();
+        if (value == null || value.length() != length) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (charAt(i) != value.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Allocates a copy, the view itself is only valid while the record is.
+     */
+    @Override
+    public CharSequence subSequence(int start, int end) {
+        return toString().subSequence(start, end);
+    }
+
+    /**
+     * Allocates a copy, the view itself is only valid while the record is.
+     */
+    @Override
+    public String toString() {
+        final int length = length();
+        final char[] chars = new char[length];
+        for (int i = 0; i < length; i++) {
+            chars[i] = UNSAFE.getChar(address + LENGTH_SIZE + i * 2L);
+        }
+        return new String(chars);
+    }
+}
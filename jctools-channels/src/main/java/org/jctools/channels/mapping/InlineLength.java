@@ -0,0 +1,36 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jctools.channels.mapping;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Bounds a variable length field so it can be stored inline in the fixed size record: a {@link CharSequence} getter
+ * (with a {@link CharSequence} setter) is stored as up to {@link #value()} chars, an {@link InlineBytes} getter (with a
+ * {@code byte[]} setter) as up to {@link #value()} bytes. Either way the record holds a short length followed by the
+ * maximum number of elements, so setting a longer value fails.
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.METHOD)
+public @interface InlineLength {
+    /**
+     * @return the maximum number of chars or bytes stored
+     */
+    int value();
+}
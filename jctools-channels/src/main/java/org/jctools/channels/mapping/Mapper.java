@@ -17,6 +17,8 @@ import static org.jctools.channels.mapping.Primitive.simplifyType;
 
 import java.lang.reflect.Constructor;
 import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import javax.tools.Diagnostic;
 
@@ -27,16 +29,48 @@ import org.jctools.util.Template;
 
 public class Mapper<S> {
 
+    // nested struct flyweight classes by struct interface, compiled once
+    private static final ConcurrentMap<Class<?>, Class<?>> STRUCT_FLYWEIGHTS =
+            new ConcurrentHashMap<Class<?>, Class<?>>();
+
     private final boolean debugEnabled;
     private final TypeInspector inspector;
     private final Class<S> structInterface;
-    private final SimpleCompiler compiler;
+    // created on first use, not needed (nor a JDK) when the flyweights are pre-generated
+    private SimpleCompiler compiler;
 
     public Mapper(Class<S> structInterface, boolean debugEnabled) {
         this.debugEnabled = debugEnabled;
         this.structInterface = structInterface;
         inspector = new TypeInspector(structInterface);
-        compiler = new SimpleCompiler();
+    }
+
+    /**
+     * @return the binary name of a flyweight class generated ahead of time (see {@link GenerateFlyweights})
+     */
+    public static String flyweightClassName(Class<?> implementationParent, Class<?> structInterface) {
+        return structInterface.getName() + "$JCTools$" + implementationParent.getSimpleName();
+    }
+
+    /**
+     * Used by the generated flyweights of structs with nested struct fields.
+     *
+     * @return a new flyweight for the nested struct, to be moved to the nested record
+     */
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    public static StructFlyweight newStructFlyweight(Class<?> structInterface) {
+        Class<?> implementation = STRUCT_FLYWEIGHTS.get(structInterface);
+        if (implementation == null) {
+            StructFlyweight flyweight = (StructFlyweight) new Mapper(structInterface, false).newFlyweight(
+                    StructFlyweight.class, "StructFlyweightTemplate.java");
+            STRUCT_FLYWEIGHTS.putIfAbsent(structInterface, flyweight.getClass());
+            return flyweight;
+        }
+        try {
+            return (StructFlyweight) implementation.newInstance();
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
     }
 
     /**
@@ -47,12 +81,23 @@ public class Mapper<S> {
     }
 
     public <I> I newFlyweight(Class<I> implementationParent, String templateFileName, Object... args) {
+        I preGenerated = newPreGeneratedFlyweight(implementationParent, args);
+        if (preGenerated != null) {
+            return preGenerated;
+        }
         Template template = Template.fromFile(implementationParent, templateFileName);
         return newFlyweight(implementationParent, templateFileName, template, args);
     }
 
     public <I> I newFlyweight(Class<I> implementationParent, String templateFileName, Template template, Object... args) {
+        I preGenerated = newPreGeneratedFlyweight(implementationParent, args);
+        if (preGenerated != null) {
+            return preGenerated;
+        }
         Class<?>[] constructorParameterTypes = getTypes(args);
+        if (compiler == null) {
+            compiler = new SimpleCompiler();
+        }
         ClassViewModel model = new ClassViewModel(implementationParent, constructorParameterTypes, structInterface,
                 inspector);
         String source = template.render(model);
@@ -62,6 +107,22 @@ public class Mapper<S> {
         return instantiateImplementation(constructorParameterTypes, model.className(), result, args);
     }
 
+    @SuppressWarnings("unchecked")
+    private <I> I newPreGeneratedFlyweight(Class<I> implementationParent, Object[] args) {
+        final Class<I> implementation;
+        try {
+            implementation = (Class<I>) Class.forName(flyweightClassName(implementationParent, structInterface), true,
+                    structInterface.getClassLoader());
+        } catch (ClassNotFoundException e) {
+            return null;
+        }
+        try {
+            return implementation.getConstructor(getTypes(args)).newInstance(args);
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+    }
+
     private void debugLogSource(String source) {
         if (debugEnabled) {
             System.err.println("---------------------------------------");
@@ -0,0 +1,28 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jctools.channels.mapping;
+
+/**
+ * The parent of nested struct flyweights: a getter returning a struct interface returns a flyweight of this type moved
+ * to the nested record, so nested structs are read and written in place.
+ */
+public abstract class StructFlyweight {
+
+    protected long pointer;
+
+    public void moveTo(final long pointer) {
+        this.pointer = pointer;
+    }
+
+}
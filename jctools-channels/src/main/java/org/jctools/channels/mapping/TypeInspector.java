@@ -16,8 +16,10 @@ package org.jctools.channels.mapping;
 import java.lang.reflect.Method;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import static java.lang.reflect.Modifier.isAbstract;
 import static java.util.Arrays.asList;
@@ -28,15 +30,25 @@ public class TypeInspector {
     
     final List<Method> getters;
     final Map<String, Method> setters;
+    // nested struct getters
+    final Map<Method, TypeInspector> structs;
     
     public TypeInspector(Class<?> flyweightClass) {
+        this(flyweightClass, new HashSet<Class<?>>());
+    }
+
+    private TypeInspector(Class<?> flyweightClass, Set<Class<?>> enclosing) {
         this.flyweightClass = flyweightClass;
         if(!flyweightClass.isInterface())
         	throw new InvalidInterfaceException("Your flyweight class must be an interface");
-        
-        getters = findGetters();
+        if (!enclosing.add(flyweightClass))
+            throw new InvalidInterfaceException(flyweightClass.getName() + " contains itself");
+
+        structs = new HashMap<Method, TypeInspector>();
+        getters = findGetters(enclosing);
         setters = findSetters();
         checkRemainingMethods(flyweightClass);
+        enclosing.remove(flyweightClass);
     }
 
 	private void checkRemainingMethods(Class<?> klass) {
@@ -48,7 +60,7 @@ public class TypeInspector {
 				throw new InvalidInterfaceException(klass.getName() + " has abstract methods that are neither getters nor setters");
 	}
 
-	private List<Method> findGetters() {
+	private List<Method> findGetters(Set<Class<?>> enclosing) {
         List<Method> methods = new ArrayList<Method>();
         for (Method method : flyweightClass.getDeclaredMethods()) {
             String name = method.getName();
@@ -56,12 +68,33 @@ public class TypeInspector {
                 continue;
 
 			ensureAbstract(method);
-            returnsPrimitive(method);
             hasNoParameters(method);
+            Class<?> returnType = method.getReturnType();
+            if (isInline(returnType)) {
+                inlineLength(method);
+            } else if (returnType.isInterface()) {
+                structs.put(method, new TypeInspector(returnType, enclosing));
+            } else {
+                returnsPrimitive(method);
+            }
             methods.add(method);
         }
         return methods;
     }
+
+    private static boolean isInline(Class<?> type) {
+        return type == CharSequence.class || type == InlineBytes.class;
+    }
+
+    int inlineLength(Method getter) {
+        InlineLength inlineLength = getter.getAnnotation(InlineLength.class);
+        if (inlineLength == null)
+            throw new InvalidInterfaceException(getter.getName() + " is an inline getter without an @InlineLength");
+        if (inlineLength.value() < 0 || inlineLength.value() > Short.MAX_VALUE)
+            throw new InvalidInterfaceException(getter.getName() + " has an @InlineLength out of the [0, " +
+                    Short.MAX_VALUE + "] range");
+        return inlineLength.value();
+    }
 	
     private void ensureAbstract(Method method) {
 		if (!isAbstract(method.getModifiers()))
@@ -75,7 +108,8 @@ public class TypeInspector {
 
     private void returnsPrimitive(Method method) {
         if (!method.getReturnType().isPrimitive())
-        	throw new InvalidInterfaceException(method.getName() + " is a getter that doesn't return a primitive");
+        	throw new InvalidInterfaceException(method.getName() +
+        	        " is a getter that doesn't return a primitive, an inline type or a struct interface");
     }
 
     Primitive getReturn(Method method) {
@@ -90,21 +124,40 @@ public class TypeInspector {
 
             ensureAbstract(method);
             returnsVoid(method);
-            hasOnePrimitiveParameter(method);
+            hasOneValueParameter(method);
             methods.put(method.getName(), method);
         }
         return methods;
 	}
 
-    private void hasOnePrimitiveParameter(Method method) {
+    private void hasOneValueParameter(Method method) {
 		Class<?>[] parameters = method.getParameterTypes();
 		if (parameters.length != 1)
 			throw new InvalidInterfaceException(method.getName() + " is a setter with more than one parameter");
 		
-		if (!parameters[0].isPrimitive())
-			throw new InvalidInterfaceException(method.getName() + " is a setter with a non-primitive parameter");
+		Class<?> parameter = parameters[0];
+		if (!parameter.isPrimitive() && parameter != CharSequence.class && parameter != byte[].class)
+			throw new InvalidInterfaceException(method.getName() +
+			        " is a setter with a parameter that is not a primitive, CharSequence or byte[]");
+		if (!matchesGetter(method, parameter))
+		    throw new InvalidInterfaceException(method.getName() + " is a setter that does not match its getter");
 	}
 
+    private boolean matchesGetter(Method setter, Class<?> parameter) {
+        String name = setter.getName().replaceFirst("set", "get");
+        for (Method getter : getters) {
+            if (getter.getName().equals(name)) {
+                Class<?> type = getter.getReturnType();
+                return type == parameter ||
+                        (type == CharSequence.class && parameter == CharSequence.class) ||
+                        (type == InlineBytes.class && parameter == byte[].class) ||
+                        (type.isPrimitive() && parameter.isPrimitive());
+            }
+        }
+        // setters without getters are left for the compiler to report
+        return true;
+    }
+
 	private void returnsVoid(Method method) {
 		if (method.getReturnType() != Void.TYPE)
 			throw new InvalidInterfaceException(method.getName() + " is a setter that doesn't return void");
@@ -113,11 +166,23 @@ public class TypeInspector {
 	public int getSizeInBytes() {
         int total = 0;
         for (Method getter : getters) {
-            total += getReturn(getter).sizeInBytes;
+            total += sizeInBytes(getter);
         }
         return total;
     }
 
+    int sizeInBytes(Method getter) {
+        Class<?> type = getter.getReturnType();
+        if (type == CharSequence.class) {
+            return InlineCharSequence.sizeInBytes(inlineLength(getter));
+        } else if (type == InlineBytes.class) {
+            return InlineBytes.sizeInBytes(inlineLength(getter));
+        } else if (structs.containsKey(getter)) {
+            return structs.get(getter).getSizeInBytes();
+        }
+        return getReturn(getter).sizeInBytes;
+    }
+
 	public Method setterFor(Method getter) {
 		String name = getter.getName().replaceFirst("get", "set");
 		Method method = setters.get(name);
@@ -1,17 +1,65 @@
 package org.jctools.channels.mapping;
 
+import static java.util.Collections.emptyList;
+import static java.util.Collections.singletonList;
+
+import java.util.List;
+
 public final class Variable {
 
+    public enum Kind {
+        PRIMITIVE,
+        /** bounded char sequence, stored inline */
+        CHARS,
+        /** bounded byte array, stored inline */
+        BYTES,
+        /** nested struct interface, stored inline */
+        STRUCT
+    }
+
     public final String type;
     public final String name;
     public final int fieldOffset;
     public final String unsafeMethodSuffix;
+    public final Kind kind;
+    public final int maxLength;
 
     public Variable(String type, String name, int fieldOffset, String unsafeMethodSuffix) {
+        this(type, name, fieldOffset, unsafeMethodSuffix, Kind.PRIMITIVE, 0);
+    }
+
+    public Variable(String type, String name, int fieldOffset, String unsafeMethodSuffix, Kind kind, int maxLength) {
         this.type = type;
         this.name = name;
         this.fieldOffset = fieldOffset;
         this.unsafeMethodSuffix = unsafeMethodSuffix;
+        this.kind = kind;
+        this.maxLength = maxLength;
+    }
+
+    // Template sections, rendered once for the matching kind and skipped otherwise
+
+    public List<Variable> primitive() {
+        return ifKind(Kind.PRIMITIVE);
+    }
+
+    public List<Variable> chars() {
+        return ifKind(Kind.CHARS);
+    }
+
+    public List<Variable> bytes() {
+        return ifKind(Kind.BYTES);
+    }
+
+    public List<Variable> struct() {
+        return ifKind(Kind.STRUCT);
+    }
+
+    private List<Variable> ifKind(Kind kind) {
+        if (this.kind == kind) {
+            return singletonList(this);
+        }
+        return emptyList();
     }
 
 }
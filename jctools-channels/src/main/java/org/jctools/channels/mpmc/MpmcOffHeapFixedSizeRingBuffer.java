@@ -0,0 +1,173 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jctools.channels.mpmc;
+
+import static org.jctools.util.UnsafeAccess.UNSAFE;
+import static org.jctools.util.UnsafeDirectByteBuffer.allocateAlignedByteBuffer;
+
+import java.nio.ByteBuffer;
+
+import org.jctools.channels.OffHeapFixedMessageSizeRingBuffer;
+import org.jctools.util.PortableJvmInfo;
+import org.jctools.util.Pow2;
+
+/**
+ * Channel protocol:
+ * - Fixed message size
+ * - Each message is preceded by a long sequence, the Vyukov MPMC slot 'phase' indicator as used by
+ * {@code ConcurrentSequencedCircularArrayQueue}: a slot is free for the producer of index {@code i} when its sequence
+ * is {@code i} and ready for the consumer of index {@code i} when it is {@code i + 1}
+ * - The message type indicator and message follow the sequence, the offsets handed out point at the indicator so the
+ * message layout is the same as for the other ring buffers
+ * <p>
+ * Slot layout: sequence(8b) | indicator(4b) | message | pad to 8b
+ */
+public class MpmcOffHeapFixedSizeRingBuffer extends OffHeapFixedMessageSizeRingBuffer {
+    public static final int SEQUENCE_SIZE = 8;
+
+    /**
+     * @return the primitive message size to hand to the super class so that each slot fits a sequence, the message
+     * indicator and the message, and sequences stay 8b aligned
+     */
+    protected static int sequencedMessageSize(final int messageSize) {
+        return (int) Pow2.align(SEQUENCE_SIZE + MESSAGE_INDICATOR_SIZE + messageSize, SEQUENCE_SIZE) -
+                MESSAGE_INDICATOR_SIZE;
+    }
+
+    public static int getRequiredBufferSize(final int capacity, final int messageSize) {
+        return OffHeapFixedMessageSizeRingBuffer.getRequiredBufferSize(capacity, sequencedMessageSize(messageSize));
+    }
+
+    public MpmcOffHeapFixedSizeRingBuffer(final int capacity, final int messageSize, int referenceMessageSize) {
+        this(allocateAlignedByteBuffer(getRequiredBufferSize(capacity, messageSize), PortableJvmInfo.CACHE_LINE_SIZE),
+                Pow2.roundToPowerOfTwo(capacity),
+                true,
+                true,
+                true,
+                messageSize,
+                createReferenceArray(capacity, referenceMessageSize),
+                referenceMessageSize);
+    }
+
+    /**
+     * This is to be used for an IPC queue with the direct buffer used being a memory mapped file.
+     *
+     * @param buff
+     * @param capacity
+     */
+    protected MpmcOffHeapFixedSizeRingBuffer(final ByteBuffer buff,
+            final int capacity,
+            final boolean isProducer,
+            final boolean isConsumer,
+            final boolean initialize,
+            final int messageSize,
+            final Object[] references,
+            final int referenceMessageSize) {
+        super(buff, capacity, isProducer, isConsumer, initialize, sequencedMessageSize(messageSize), references,
+                referenceMessageSize);
+        if (isProducer && initialize) {
+            // overwrites the indicators written by the super class, these now live after the sequence
+            final int actualCapacity = capacity();
+            for (int i = 0; i < actualCapacity; i++) {
+                final long slot = offsetForIndex(i);
+                readReleaseState(slot + SEQUENCE_SIZE);
+                soSequence(slot, i);
+            }
+        }
+    }
+
+    @Override
+    protected long writeAcquire() {
+        long producerIndex;
+        long slot;
+        do {
+            producerIndex = lvProducerIndex(); // LoadLoad
+            slot = offsetForIndex(producerIndex);
+            final long delta = lvSequence(slot) - producerIndex;
+            if (delta < 0) {
+                // the slot is still in use by a consumer of the previous lap: full
+                return EOF;
+            } else if (delta > 0) {
+                // another producer claimed this index, go around again
+                continue;
+            }
+        } while (!casProducerIndex(producerIndex, producerIndex + 1));
+        return slot + SEQUENCE_SIZE;
+    }
+
+    @Override
+    protected final void writeRelease(long offset) {
+        writeReleaseState(offset);
+        publish(offset - SEQUENCE_SIZE);
+    }
+
+    @Override
+    protected final void writeRelease(long offset, int callTypeId) {
+        assert callTypeId != 0;
+        UNSAFE.putInt(null, offset, callTypeId);
+        publish(offset - SEQUENCE_SIZE);
+    }
+
+    private void publish(long slot) {
+        // the slot sequence is owned by the producer which acquired it: i -> i + 1
+        soSequence(slot, lpSequence(slot) + 1); // StoreStore
+    }
+
+    @Override
+    protected final long readAcquire() {
+        long consumerIndex;
+        long slot;
+        do {
+            consumerIndex = lvConsumerIndex(); // LoadLoad
+            slot = offsetForIndex(consumerIndex);
+            final long delta = lvSequence(slot) - (consumerIndex + 1);
+            if (delta < 0) {
+                // not yet published: empty
+                return EOF;
+            } else if (delta > 0) {
+                // another consumer claimed this index, go around again
+                continue;
+            }
+        } while (!casConsumerIndex(consumerIndex, consumerIndex + 1));
+        return slot + SEQUENCE_SIZE;
+    }
+
+    @Override
+    protected final void readRelease(long offset) {
+        readReleaseState(offset);
+        final long slot = offset - SEQUENCE_SIZE;
+        // the slot sequence is owned by the consumer which acquired it: i + 1 -> i + capacity
+        soSequence(slot, lpSequence(slot) + mask); // StoreStore
+    }
+
+    protected final long lpSequence(long slot) {
+        return UNSAFE.getLong(null, slot);
+    }
+
+    protected final long lvSequence(long slot) {
+        return UNSAFE.getLongVolatile(null, slot);
+    }
+
+    protected final void soSequence(long slot, long value) {
+        UNSAFE.putOrderedLong(null, slot, value);
+    }
+
+    private boolean casProducerIndex(final long expected, long update) {
+        return UNSAFE.compareAndSwapLong(null, producerIndexAddress, expected, update);
+    }
+
+    private boolean casConsumerIndex(final long expected, long update) {
+        return UNSAFE.compareAndSwapLong(null, consumerIndexAddress, expected, update);
+    }
+}
@@ -16,6 +16,7 @@ package org.jctools.channels.mpsc;
 import java.nio.ByteBuffer;
 
 import org.jctools.channels.ChannelProducer;
+import org.jctools.channels.ChannelWakeup;
 
 /**
  * Package Scoped: not part of public API.
@@ -25,6 +26,7 @@ import org.jctools.channels.ChannelProducer;
 public abstract class MpscChannelProducer<E> extends MpscOffHeapFixedSizeRingBuffer implements ChannelProducer<E> {
 
     protected long pointer;
+    private ChannelWakeup wakeup;
 
     public MpscChannelProducer(
         final ByteBuffer buffer,
@@ -44,8 +46,19 @@ public abstract class MpscChannelProducer<E> extends MpscOffHeapFixedSizeRingBuf
         if (pointer == EOF)
             return false;
 
-        writeRelease(pointer);
+        if (wakeup == null) {
+            writeRelease(pointer);
+        } else {
+            writeReleaseState(pointer, wakeup);
+        }
         return true;
     }
 
+    /**
+     * Set once, before the producer is published.
+     */
+    final void wakeup(ChannelWakeup wakeup) {
+        this.wakeup = wakeup;
+    }
+
 }
@@ -0,0 +1,371 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jctools.channels.mpsc;
+
+import static org.jctools.util.UnsafeAccess.UNSAFE;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.concurrent.TimeUnit;
+
+import org.jctools.util.Pow2;
+import org.jctools.util.RangeUtil;
+import org.jctools.util.UnsafeDirectByteBuffer;
+
+/**
+ * Channel protocol:
+ * - Multiple producers, possibly in several processes, single consumer over a memory mapped file
+ * - Fixed message size
+ * - Each message is preceded by a long state word holding the index of the message in the slot and its status, the
+ * slot moves from FREE to CLAIMED to WRITTEN through CAS, the consumer frees it for the next index once read
+ * - A producer process may die between claiming a slot and committing it: the consumer gives up on a slot which stays
+ * claimed (or claimed through the producer index but not yet marked) for longer than {@code claimTimeout}, CASes it to
+ * ABANDONED and skips it. A producer which was merely slow then fails its commit, see {@link #writeRelease(long)}.
+ * <p>
+ * The claim timeout must be longer than any live producer may take between {@link #writeAcquire()} and
+ * {@link #writeRelease(long)}: a producer still writing an abandoned message may corrupt the message next written to
+ * the same slot. Its commit fails regardless, as it only succeeds from the exact state word of its claim.
+ * <p>
+ * Layout of the file (independent of the cache line size, so that all processes agree):
+ * magic(4b), capacity(4b), messageSize(4b), pad(116b) |
+ * consumerIndex(8b), pad(120b) |
+ * producerIndex(8b), pad(120b) |
+ * buffer (capacity * (state(8b) | message | pad to 8b))
+ */
+public class MpscMappedFileRingBuffer implements Closeable {
+    public static final long EOF = 0;
+    public static final int STATE_SIZE = 8;
+    public static final int HEADER_SIZE = 3 * 128;
+
+    private static final int MAGIC = 0x4A43544D;
+    private static final int MAGIC_OFFSET = 0;
+    private static final int CAPACITY_OFFSET = 4;
+    private static final int MESSAGE_SIZE_OFFSET = 8;
+    private static final int CONSUMER_INDEX_OFFSET = 128;
+    private static final int PRODUCER_INDEX_OFFSET = 2 * 128;
+
+    private static final long FREE = 0;
+    private static final long CLAIMED = 1;
+    private static final long WRITTEN = 2;
+    private static final long ABANDONED = 3;
+
+    private final RandomAccessFile file;
+    // referenced to keep the mapping alive
+    private final MappedByteBuffer buffy;
+    protected final long consumerIndexAddress;
+    protected final long producerIndexAddress;
+    protected final long bufferAddress;
+    protected final long mask;
+    protected final int messageSize;
+    protected final int slotSize;
+
+    // per instance, the first index that may not be claimed before rereading the consumer index
+    private volatile long producerLimit;
+
+    // consumer only
+    private final boolean isConsumer;
+    private final long claimTimeoutNanos;
+    private long consumerCursor;
+    private long stalledIndex = -1;
+    private long stalledSinceNanos;
+    private long abandoned;
+
+    protected static int slotSize(final int messageSize) {
+        return (int) Pow2.align(STATE_SIZE + messageSize, STATE_SIZE);
+    }
+
+    public static long getRequiredFileSize(final int capacity, final int messageSize) {
+        return HEADER_SIZE + (long) Pow2.roundToPowerOfTwo(capacity) * slotSize(messageSize);
+    }
+
+    /**
+     * Create (or truncate) and initialize the file, to be called by the consumer process before any producer attaches.
+     *
+     * @param capacity     in messages, rounded up to the next power of 2
+     * @param claimTimeout how long a claimed slot may stay uncommitted before the consumer skips it
+     */
+    public static MpscMappedFileRingBuffer createConsumer(File file, int capacity, int messageSize, long claimTimeout,
+            TimeUnit unit) throws IOException {
+        RangeUtil.checkPositive(capacity, "capacity");
+        RangeUtil.checkPositive(messageSize, "messageSize");
+        RangeUtil.checkPositive(claimTimeout, "claimTimeout");
+        final RandomAccessFile raf = new RandomAccessFile(file, "rw");
+        try {
+            raf.setLength(0);
+            return new MpscMappedFileRingBuffer(raf, Pow2.roundToPowerOfTwo(capacity), messageSize, true,
+                    unit.toNanos(claimTimeout));
+        } catch (IOException e) {
+            raf.close();
+            throw e;
+        } catch (RuntimeException e) {
+            raf.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Attach a producer to a file initialized by {@link #createConsumer}, the instance may be shared by the producer
+     * threads of the process.
+     *
+     * @throws IllegalStateException if the file is not (yet) initialized
+     */
+    public static MpscMappedFileRingBuffer attachProducer(File file) throws IOException {
+        final RandomAccessFile raf = new RandomAccessFile(file, "rw");
+        try {
+            if (raf.length() < HEADER_SIZE) {
+                throw new IllegalStateException("Not an initialized ring buffer: " + file);
+            }
+            final MappedByteBuffer header = raf.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, HEADER_SIZE);
+            final long headerAddress = UnsafeDirectByteBuffer.getAddress(header);
+            if (UNSAFE.getIntVolatile(null, headerAddress + MAGIC_OFFSET) != MAGIC) {
+                throw new IllegalStateException("Not an initialized ring buffer: " + file);
+            }
+            final int capacity = UNSAFE.getInt(headerAddress + CAPACITY_OFFSET);
+            final int messageSize = UNSAFE.getInt(headerAddress + MESSAGE_SIZE_OFFSET);
+            if (raf.length() < getRequiredFileSize(capacity, messageSize)) {
+                throw new IllegalStateException("Truncated ring buffer: " + file);
+            }
+            return new MpscMappedFileRingBuffer(raf, capacity, messageSize, false, 0);
+        } catch (IOException e) {
+            raf.close();
+            throw e;
+        } catch (RuntimeException e) {
+            raf.close();
+            throw e;
+        }
+    }
+
+    private MpscMappedFileRingBuffer(final RandomAccessFile file,
+            final int capacity,
+            final int messageSize,
+            final boolean isConsumer,
+            final long claimTimeoutNanos) throws IOException {
+        this.file = file;
+        this.messageSize = messageSize;
+        this.slotSize = slotSize(messageSize);
+        this.mask = capacity - 1;
+        this.isConsumer = isConsumer;
+        this.claimTimeoutNanos = claimTimeoutNanos;
+        // mappings are page aligned, so the state words and indices are naturally aligned
+        this.buffy = file.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, getRequiredFileSize(capacity, messageSize));
+        final long address = UnsafeDirectByteBuffer.getAddress(buffy);
+        this.consumerIndexAddress = address + CONSUMER_INDEX_OFFSET;
+        this.producerIndexAddress = address + PRODUCER_INDEX_OFFSET;
+        this.bufferAddress = address + HEADER_SIZE;
+
+        if (isConsumer) {
+            UNSAFE.putInt(address + CAPACITY_OFFSET, capacity);
+            UNSAFE.putInt(address + MESSAGE_SIZE_OFFSET, messageSize);
+            for (long i = 0; i < capacity; i++) {
+                soState(slotForIndex(i), state(i, FREE));
+            }
+            soConsumerIndex(0);
+            soProducerIndex(0);
+            // StoreStore: producers attaching see the magic last
+            UNSAFE.putIntVolatile(null, address + MAGIC_OFFSET, MAGIC);
+        }
+        producerLimit = lvConsumerIndex() + capacity;
+    }
+
+    public final int capacity() {
+        return (int) (mask + 1);
+    }
+
+    public final int messageSize() {
+        return messageSize;
+    }
+
+    /**
+     * @return the number of messages claimed but not yet read, including abandoned ones not yet skipped
+     */
+    public final int size() {
+        return (int) (lvProducerIndex() - lvConsumerIndex());
+    }
+
+    public final boolean isEmpty() {
+        return lvProducerIndex() == lvConsumerIndex();
+    }
+
+    /**
+     * @return the claim to pass to {@link #messageOffset(long)} and {@link #writeRelease(long)}, or EOF if the buffer
+     * is full
+     */
+    public final long writeAcquire() {
+        while (true) {
+            long producerLimit = this.producerLimit;
+            long producerIndex;
+            do {
+                producerIndex = lvProducerIndex();
+                if (producerIndex >= producerLimit) {
+                    producerLimit = lvConsumerIndex() + mask + 1;
+                    if (producerIndex >= producerLimit) {
+                        return EOF;
+                    }
+                    this.producerLimit = producerLimit;
+                }
+            } while (!casProducerIndex(producerIndex, producerIndex + 1));
+            // the claimed state word is never EOF and tells the slot owner apart from later laps
+            final long claim = state(producerIndex, CLAIMED);
+            if (casState(slotForIndex(producerIndex), state(producerIndex, FREE), claim)) {
+                return claim;
+            }
+            // we stalled between the two CASes for longer than the claim timeout and the consumer gave up on the
+            // slot, claim another
+        }
+    }
+
+    /**
+     * @param claim returned by the preceding {@link #writeAcquire()}
+     * @return the address of the message to write
+     */
+    public final long messageOffset(long claim) {
+        return slotForIndex(index(claim)) + STATE_SIZE;
+    }
+
+    /**
+     * @param claim returned by the preceding {@link #writeAcquire()}
+     * @return true if the message is committed, false if the consumer gave up on it and it is lost, in which case the
+     * slot may already belong to a later index and its state is left alone
+     */
+    public final boolean writeRelease(long claim) {
+        return casState(slotForIndex(index(claim)), claim, state(index(claim), WRITTEN));
+    }
+
+    /**
+     * Consumer only, messages are read one at a time: every acquired message must be released before the next one is
+     * acquired.
+     *
+     * @return the address of the next message to read, or EOF if none is available, or if the next claimed message
+     * is not yet committed and has not timed out
+     */
+    public final long readAcquire() {
+        if (!isConsumer) {
+            throw new IllegalStateException("Not the consumer");
+        }
+        while (true) {
+            final long index = consumerCursor;
+            final long slot = slotForIndex(index);
+            final long state = lvState(slot);
+            if (state == state(index, WRITTEN)) {
+                consumerCursor = index + 1;
+                return slot + STATE_SIZE;
+            }
+            if (index >= lvProducerIndex()) {
+                return EOF;
+            }
+            // claimed, possibly marked claimed, but not committed
+            final long now = System.nanoTime();
+            if (stalledIndex != index) {
+                stalledIndex = index;
+                stalledSinceNanos = now;
+                return EOF;
+            }
+            if (now - stalledSinceNanos < claimTimeoutNanos) {
+                return EOF;
+            }
+            if (casState(slot, state, state(index, ABANDONED))) {
+                abandoned++;
+                release(slot, index);
+            }
+            // else the producer just moved the slot along, go around
+        }
+    }
+
+    /**
+     * Consumer only.
+     *
+     * @param offset the address returned by the preceding {@link #readAcquire()}
+     */
+    public final void readRelease(long offset) {
+        final long index = consumerCursor - 1;
+        assert offset - STATE_SIZE == slotForIndex(index) && lvConsumerIndex() == index : "release out of order";
+        release(offset - STATE_SIZE, index);
+    }
+
+    private void release(long slot, long index) {
+        consumerCursor = index + 1;
+        soState(slot, state(index + mask + 1, FREE));
+        // StoreStore: a producer seeing the new consumer index sees the slot free
+        soConsumerIndex(index + 1);
+    }
+
+    /**
+     * Consumer only.
+     *
+     * @return the number of messages skipped because their producer did not commit them within the claim timeout
+     */
+    public final long abandoned() {
+        return abandoned;
+    }
+
+    /**
+     * Close the file, the mapping is released once this instance is garbage collected.
+     */
+    @Override
+    public void close() throws IOException {
+        file.close();
+    }
+
+    private static long state(long index, long status) {
+        return (index << 2) | status;
+    }
+
+    private static long index(long state) {
+        return state >>> 2;
+    }
+
+    private static long status(long state) {
+        return state & 3;
+    }
+
+    protected final long slotForIndex(long index) {
+        return bufferAddress + (index & mask) * slotSize;
+    }
+
+    protected final long lvConsumerIndex() {
+        return UNSAFE.getLongVolatile(null, consumerIndexAddress);
+    }
+
+    protected final void soConsumerIndex(final long value) {
+        UNSAFE.putOrderedLong(null, consumerIndexAddress, value);
+    }
+
+    protected final long lvProducerIndex() {
+        return UNSAFE.getLongVolatile(null, producerIndexAddress);
+    }
+
+    protected final void soProducerIndex(final long value) {
+        UNSAFE.putOrderedLong(null, producerIndexAddress, value);
+    }
+
+    private boolean casProducerIndex(final long expected, long update) {
+        return UNSAFE.compareAndSwapLong(null, producerIndexAddress, expected, update);
+    }
+
+    protected final long lvState(long slot) {
+        return UNSAFE.getLongVolatile(null, slot);
+    }
+
+    protected final void soState(long slot, long value) {
+        UNSAFE.putOrderedLong(null, slot, value);
+    }
+
+    private static boolean casState(long slot, long expected, long update) {
+        return UNSAFE.compareAndSwapLong(null, slot, expected, update);
+    }
+}
@@ -0,0 +1,192 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jctools.channels.pipeline;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.jctools.channels.ChannelProducer;
+import org.jctools.queues.MessagePassingQueue;
+import org.jctools.util.Pow2;
+import org.jctools.util.RangeUtil;
+
+/**
+ * A pipeline of {@link Stage}s sharing one ring of pre-allocated events, as an alternative to a chain of queues
+ * between processing steps: events are not copied from stage to stage, and each stage publishes its progress with a
+ * single ordered store per batch instead of an offer/poll pair per event.
+ * <p>
+ * Each stage advances its own sequence, gated on the sequences of the stages it depends on. Dependencies form a
+ * graph, e.g. a diamond where two stages process the events decoded by a first one in parallel, and a last stage
+ * waits for both. The single producer claims, mutates and commits events through {@link #producer()}, it is gated by
+ * the stages no other stage depends on so that events are only reused once every stage is done with them.
+ * <p>
+ * Stages must all be added before the first event is claimed.
+ * <pre>
+ * <code>
+ * Pipeline&lt;Order&gt; pipeline = new Pipeline&lt;Order&gt;(1024, orderFactory);
+ * Stage&lt;Order&gt; decode = pipeline.addStage(decoder);
+ * Stage&lt;Order&gt; enrich = pipeline.addStage(enricher, decode);
+ * Stage&lt;Order&gt; risk = pipeline.addStage(riskCheck, decode);
+ * Stage&lt;Order&gt; persist = pipeline.addStage(persister, enrich, risk);
+ * </code>
+ * </pre>
+ *
+ * @param <E> event type
+ */
+public final class Pipeline<E> {
+
+    final Object[] events;
+    final long mask;
+    private final Sequence published = new Sequence();
+    private final List<Stage<E>> stages = new ArrayList<Stage<E>>();
+    private final PipelineProducer producer = new PipelineProducer();
+    // set by the producer on the first claim, stages can no longer be added
+    private volatile Sequence[] gating;
+
+    /**
+     * @param capacity the number of events, rounded up to the next power of 2
+     * @param factory creates the events, called capacity times up front
+     */
+    public Pipeline(int capacity, MessagePassingQueue.Supplier<E> factory) {
+        RangeUtil.checkPositive(capacity, "capacity");
+        final int actualCapacity = Pow2.roundToPowerOfTwo(capacity);
+        events = new Object[actualCapacity];
+        for (int i = 0; i < actualCapacity; i++) {
+            events[i] = factory.get();
+        }
+        mask = actualCapacity - 1;
+    }
+
+    public int capacity() {
+        return (int) (mask + 1);
+    }
+
+    /**
+     * @param handler the processing of this stage
+     * @param dependsOn the stages that must be done with an event before this stage processes it, none for a stage
+     * that processes events as they are committed by the producer
+     * @return the new stage, to be driven by its own thread
+     * @throws IllegalStateException if the producer already started
+     * @throws IllegalArgumentException if a dependency belongs to another pipeline
+     */
+    public synchronized Stage<E> addStage(StageHandler<E> handler, Stage<E>... dependsOn) {
+        if (null == handler) {
+            throw new NullPointerException("handler is null");
+        }
+        if (gating != null) {
+            throw new IllegalStateException("Stages can not be added once the producer started");
+        }
+        final Sequence[] upstream;
+        if (dependsOn.length == 0) {
+            upstream = new Sequence[] { published };
+        } else {
+            upstream = new Sequence[dependsOn.length];
+            for (int i = 0; i < dependsOn.length; i++) {
+                if (dependsOn[i].pipeline() != this) {
+                    throw new IllegalArgumentException("Stage does not belong to this pipeline");
+                }
+                upstream[i] = dependsOn[i].sequence;
+            }
+        }
+        final Stage<E> stage = new Stage<E>(this, handler, upstream);
+        stages.add(stage);
+        return stage;
+    }
+
+    /**
+     * @return the single producer of this pipeline, to be used by a single thread
+     */
+    public ChannelProducer<E> producer() {
+        return producer;
+    }
+
+    /**
+     * @return the number of events committed by the producer so far
+     */
+    public long published() {
+        return published.lvValue();
+    }
+
+    @SuppressWarnings("unchecked")
+    E event(Object[] events, long mask, long index) {
+        return (E) events[(int) (index & mask)];
+    }
+
+    private synchronized Sequence[] freeze() {
+        if (gating == null) {
+            final Set<Sequence> upstreamOfAStage = new HashSet<Sequence>();
+            for (Stage<E> stage : stages) {
+                for (Sequence s : stage.upstream()) {
+                    upstreamOfAStage.add(s);
+                }
+            }
+            final List<Sequence> terminal = new ArrayList<Sequence>();
+            for (Stage<E> stage : stages) {
+                if (!upstreamOfAStage.contains(stage.sequence)) {
+                    terminal.add(stage.sequence);
+                }
+            }
+            gating = terminal.toArray(new Sequence[terminal.size()]);
+        }
+        return gating;
+    }
+
+    private final class PipelineProducer implements ChannelProducer<E> {
+        // producer thread only
+        private long producerIndex;
+        private long producerLimit;
+        private E current;
+
+        @Override
+        public boolean claim() {
+            if (current != null) {
+                return true;
+            }
+            final long producerIndex = this.producerIndex;
+            if (producerIndex >= producerLimit) {
+                Sequence[] gating = Pipeline.this.gating;
+                if (gating == null) {
+                    gating = freeze();
+                }
+                long min = producerIndex;
+                for (Sequence s : gating) {
+                    min = Math.min(min, s.lvValue());
+                }
+                producerLimit = min + capacity();
+                if (producerIndex >= producerLimit) {
+                    return false;
+                }
+            }
+            current = event(events, mask, producerIndex);
+            return true;
+        }
+
+        @Override
+        public E currentElement() {
+            return current;
+        }
+
+        @Override
+        public boolean commit() {
+            if (current == null) {
+                return false;
+            }
+            current = null;
+            published.soValue(++producerIndex); // StoreStore
+            return true;
+        }
+    }
+}
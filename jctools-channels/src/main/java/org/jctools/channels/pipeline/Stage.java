@@ -0,0 +1,87 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jctools.channels.pipeline;
+
+/**
+ * A processing step of a {@link Pipeline}, to be driven by a single thread calling {@link #process(int)}. A stage
+ * processes events in order, once all of its upstream stages (or the producer, for a stage without dependencies) are
+ * done with them.
+ *
+ * @param <E> event type
+ */
+public final class Stage<E> {
+
+    private final Pipeline<E> pipeline;
+    private final StageHandler<E> handler;
+    private final Sequence[] upstream;
+    final Sequence sequence = new Sequence();
+
+    Stage(Pipeline<E> pipeline, StageHandler<E> handler, Sequence[] upstream) {
+        this.pipeline = pipeline;
+        this.handler = handler;
+        this.upstream = upstream;
+    }
+
+    Pipeline<E> pipeline() {
+        return pipeline;
+    }
+
+    Sequence[] upstream() {
+        return upstream;
+    }
+
+    /**
+     * Process up to {@code limit} events available from upstream, committing this stage's progress once for the
+     * whole batch. If the handler throws the events up to and including the failed one are committed as processed
+     * and the exception is propagated.
+     *
+     * @return the number of events processed, 0 if none was available
+     */
+    public int process(int limit) {
+        final long current = sequence.lpValue();
+        // one load of the upstream sequences per batch
+        final long available = minUpstream();
+        if (current >= available) {
+            return 0;
+        }
+        final long end = Math.min(available, current + limit);
+        final Object[] events = pipeline.events;
+        final long mask = pipeline.mask;
+        long index = current;
+        try {
+            for (; index < end; index++) {
+                handler.onEvent(pipeline.event(events, mask, index), index, index == end - 1);
+            }
+        } finally {
+            sequence.soValue(index == end ? end : index + 1); // StoreStore
+        }
+        return (int) (end - current);
+    }
+
+    /**
+     * @return the number of events processed by this stage so far
+     */
+    public long processed() {
+        return sequence.lvValue();
+    }
+
+    private long minUpstream() {
+        final Sequence[] upstream = this.upstream;
+        long min = upstream[0].lvValue();
+        for (int i = 1; i < upstream.length; i++) {
+            min = Math.min(min, upstream[i].lvValue());
+        }
+        return min;
+    }
+}
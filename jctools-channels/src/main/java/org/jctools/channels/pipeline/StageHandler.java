@@ -0,0 +1,33 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jctools.channels.pipeline;
+
+/**
+ * The processing done by a {@link Stage} of a {@link Pipeline}, implemented by end users.
+ *
+ * @param <E> event type
+ */
+public interface StageHandler<E> {
+
+    /**
+     * NB: the event is only safe to access for the lifecycle of this callback, it is reused once all the stages are
+     * done with it.
+     *
+     * @param event the event, as left by the producer and the upstream stages
+     * @param sequence the index of the event in the pipeline, starting at 0
+     * @param endOfBatch true for the last event of the batch being processed
+     */
+    void onEvent(E event, long sequence, boolean endOfBatch);
+
+}
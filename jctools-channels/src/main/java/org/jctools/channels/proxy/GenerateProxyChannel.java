@@ -0,0 +1,43 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jctools.channels.proxy;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+import org.jctools.channels.mpsc.MpscOffHeapFixedSizeRingBuffer;
+import org.jctools.channels.spsc.SpscOffHeapFixedSizeRingBuffer;
+
+/**
+ * Marks an interface for ahead of time proxy channel generation. With the jctools-build annotation processor on the
+ * compile path, a proxy channel class is generated for each of the {@link #backends()}, named
+ * {@code <interface binary name>$JCTools$ProxyChannel$<backend simple name>} in the interface's package.
+ * {@link ProxyChannelFactory#createProxy} instantiates the pre-generated class when present and only falls back to
+ * runtime byte code generation when it is not, so no class is defined at runtime (e.g. on native images).
+ */
+@Documented
+@Retention(RetentionPolicy.CLASS)
+@Target(ElementType.TYPE)
+public @interface GenerateProxyChannel {
+    /**
+     * @return the back ends to generate proxy channels for, each must define a
+     * {@code (int capacity, int primitiveMessageSize, int referenceMessageSize)} constructor
+     */
+    Class<? extends ProxyChannelRingBuffer>[] backends() default {
+            SpscOffHeapFixedSizeRingBuffer.class,
+            MpscOffHeapFixedSizeRingBuffer.class };
+}
@@ -7,7 +7,9 @@ import java.util.ArrayList;
 import java.util.List;
 
 import org.jctools.channels.WaitStrategy;
+import org.jctools.channels.mpmc.MpmcOffHeapFixedSizeRingBuffer;
 import org.jctools.channels.mpsc.MpscOffHeapFixedSizeRingBuffer;
+import org.jctools.channels.spmc.SpmcOffHeapFixedSizeRingBuffer;
 import org.jctools.channels.spsc.SpscOffHeapFixedSizeRingBuffer;
 import org.jctools.util.UnsafeAccess;
 import org.objectweb.asm.ClassReader;
@@ -24,6 +26,11 @@ import sun.misc.Unsafe;
 public class ProxyChannelFactory {
     private static final int START_TYPE_ID = 10;
 
+    /**
+     * Replies are written where the arguments were, after the call type id
+     */
+    private static final long REPLY_OFFSET = 4;
+
     /**
      * The index of the 'this' object in instance methods
      */
@@ -46,6 +53,104 @@ public class ProxyChannelFactory {
         }
         return wOffset;
     }
+
+    /*
+     * Calls with a return value: the caller waits for the consumer to write the reply in place of the call, reads it and
+     * then releases the message. The message slot is the correlation slot, so no allocation is needed, but the caller
+     * must not be the thread processing the channel.
+     */
+
+    public static int awaitIntReply(ProxyChannelRingBuffer channelBackend, long offset, WaitStrategy waitStrategy) {
+        awaitReply(channelBackend, offset, waitStrategy);
+        final int reply = UnsafeAccess.UNSAFE.getInt(offset + REPLY_OFFSET);
+        channelBackend.readRelease(offset);
+        return reply;
+    }
+
+    public static long awaitLongReply(ProxyChannelRingBuffer channelBackend, long offset, WaitStrategy waitStrategy) {
+        awaitReply(channelBackend, offset, waitStrategy);
+        final long reply = UnsafeAccess.UNSAFE.getLong(offset + REPLY_OFFSET);
+        channelBackend.readRelease(offset);
+        return reply;
+    }
+
+    public static float awaitFloatReply(ProxyChannelRingBuffer channelBackend, long offset, WaitStrategy waitStrategy) {
+        awaitReply(channelBackend, offset, waitStrategy);
+        final float reply = UnsafeAccess.UNSAFE.getFloat(offset + REPLY_OFFSET);
+        channelBackend.readRelease(offset);
+        return reply;
+    }
+
+    public static double awaitDoubleReply(ProxyChannelRingBuffer channelBackend, long offset, WaitStrategy waitStrategy) {
+        awaitReply(channelBackend, offset, waitStrategy);
+        final double reply = UnsafeAccess.UNSAFE.getDouble(offset + REPLY_OFFSET);
+        channelBackend.readRelease(offset);
+        return reply;
+    }
+
+    public static Object awaitReferenceReply(ProxyChannelRingBuffer channelBackend, long offset, WaitStrategy waitStrategy) {
+        awaitReply(channelBackend, offset, waitStrategy);
+        final long index = channelBackend.producerReferenceArrayIndex(offset);
+        final Object reply = channelBackend.readReference(index);
+        channelBackend.writeReference(index, null);
+        channelBackend.readRelease(offset);
+        return reply;
+    }
+
+    private static void awaitReply(ProxyChannelRingBuffer channelBackend, long offset, WaitStrategy waitStrategy) {
+        int idleCounter = 0;
+        int replyState;
+        while ((replyState = channelBackend.replyState(offset)) == ProxyChannelRingBuffer.REPLY_PENDING) {
+            idleCounter = waitStrategy.idle(idleCounter);
+        }
+        if (replyState == ProxyChannelRingBuffer.REPLY_FAILED) {
+            final long index = channelBackend.producerReferenceArrayIndex(offset);
+            final Throwable failure = (Throwable) channelBackend.readReference(index);
+            channelBackend.writeReference(index, null);
+            channelBackend.readRelease(offset);
+            throw ProxyChannelFactory.<RuntimeException>sneakyThrow(failure);
+        }
+    }
+
+    /*
+     * The reply value comes first, followed by the consumer's channel and offset, to be callable straight after the
+     * call to the implementation returned.
+     */
+
+    public static void reply(int value, ProxyChannelRingBuffer channelBackend, long offset) {
+        UnsafeAccess.UNSAFE.putInt(offset + REPLY_OFFSET, value);
+        channelBackend.replyRelease(offset, ProxyChannelRingBuffer.REPLY_READY);
+    }
+
+    public static void reply(long value, ProxyChannelRingBuffer channelBackend, long offset) {
+        UnsafeAccess.UNSAFE.putLong(offset + REPLY_OFFSET, value);
+        channelBackend.replyRelease(offset, ProxyChannelRingBuffer.REPLY_READY);
+    }
+
+    public static void reply(float value, ProxyChannelRingBuffer channelBackend, long offset) {
+        UnsafeAccess.UNSAFE.putFloat(offset + REPLY_OFFSET, value);
+        channelBackend.replyRelease(offset, ProxyChannelRingBuffer.REPLY_READY);
+    }
+
+    public static void reply(double value, ProxyChannelRingBuffer channelBackend, long offset) {
+        UnsafeAccess.UNSAFE.putDouble(offset + REPLY_OFFSET, value);
+        channelBackend.replyRelease(offset, ProxyChannelRingBuffer.REPLY_READY);
+    }
+
+    public static void reply(Object value, ProxyChannelRingBuffer channelBackend, long offset) {
+        channelBackend.writeReference(channelBackend.consumerReferenceArrayIndex(offset), value);
+        channelBackend.replyRelease(offset, ProxyChannelRingBuffer.REPLY_READY);
+    }
+
+    public static void replyFailure(Throwable failure, ProxyChannelRingBuffer channelBackend, long offset) {
+        channelBackend.writeReference(channelBackend.consumerReferenceArrayIndex(offset), failure);
+        channelBackend.replyRelease(offset, ProxyChannelRingBuffer.REPLY_FAILED);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T extends Throwable> T sneakyThrow(Throwable t) throws T {
+        throw (T) t;
+    }
     
     /**
      * Create a default single producer single consumer (SPSC) proxy channel.
@@ -90,6 +195,52 @@ public class ProxyChannelFactory {
                 waitStrategy,
                 MpscOffHeapFixedSizeRingBuffer.class);
     }
+
+    /**
+     * Create a default single producer multi consumer (SPMC) proxy channel. Each call is processed by exactly one of
+     * the threads calling {@link ProxyChannel#process(Object, int)}.
+     * 
+     * @param capacity
+     *            The minimum capacity for unprocessed invocations the channel
+     *            should support
+     * @param iFace
+     *            Interface the proxy must implement
+     * @param waitStrategy
+     *            A wait strategy to be invoked when the backing data structure
+     *            is full
+     * @return A proxy channel instance
+     */
+    public static <E> ProxyChannel<E> createSpmcProxy(int capacity,
+            Class<E> iFace,
+            WaitStrategy waitStrategy) {
+        return createProxy(capacity,
+                iFace,
+                waitStrategy,
+                SpmcOffHeapFixedSizeRingBuffer.class);
+    }
+
+    /**
+     * Create a default multi producer multi consumer (MPMC) proxy channel. Each call is processed by exactly one of
+     * the threads calling {@link ProxyChannel#process(Object, int)}.
+     * 
+     * @param capacity
+     *            The minimum capacity for unprocessed invocations the channel
+     *            should support
+     * @param iFace
+     *            Interface the proxy must implement
+     * @param waitStrategy
+     *            A wait strategy to be invoked when the backing data structure
+     *            is full
+     * @return A proxy channel instance
+     */
+    public static <E> ProxyChannel<E> createMpmcProxy(int capacity,
+            Class<E> iFace,
+            WaitStrategy waitStrategy) {
+        return createProxy(capacity,
+                iFace,
+                waitStrategy,
+                MpmcOffHeapFixedSizeRingBuffer.class);
+    }
     
     /**
      * Create a proxy channel using a user supplied back end.
@@ -118,12 +269,14 @@ public class ProxyChannelFactory {
         
         
 
-        String generatedName = Type.getInternalName(iFace) + "$JCTools$ProxyChannel$" + backendType.getSimpleName();
-        Class<?> preExisting = findExisting(generatedName, iFace);
+        // pre-generated (see GenerateProxyChannel) or already defined, no byte code generation needed
+        Class<?> preExisting = findExisting(proxyClassName(iFace, backendType), iFace);
         if (preExisting != null) {
             return instantiate(preExisting, capacity, waitStrategy);
         }
 
+        String generatedName = Type.getInternalName(iFace) + "$JCTools$ProxyChannel$" + backendType.getSimpleName();
+
         List<Method> relevantMethods = findRelevantMethods(iFace);
         if (relevantMethods.isEmpty()) {
             throw new IllegalArgumentException("Does not declare any abstract methods: " + iFace);
@@ -144,6 +297,14 @@ public class ProxyChannelFactory {
                     referenceCount++;
                 }
             }
+            Class<?> returnType = method.getReturnType();
+            if (returnType != void.class) {
+                // room for the reply, a failure is replied as a reference
+                if (returnType.isPrimitive()) {
+                    primitiveMethodSize = Math.max(primitiveMethodSize, primitiveMemorySize(returnType));
+                }
+                referenceCount = Math.max(referenceCount, 1);
+            }
             primitiveMessageSize = Math.max(primitiveMessageSize, primitiveMethodSize);
             referenceMessageSize = Math.max(referenceMessageSize, referenceCount);
         }
@@ -200,6 +361,14 @@ public class ProxyChannelFactory {
         return relevantMethods;
     }
 
+    /**
+     * @return the binary name of the proxy channel class for the interface and back end, either generated ahead of
+     * time (see {@link GenerateProxyChannel}) or at runtime
+     */
+    public static String proxyClassName(Class<?> iFace, Class<? extends ProxyChannelRingBuffer> backendType) {
+        return iFace.getName() + "$JCTools$ProxyChannel$" + backendType.getSimpleName();
+    }
+
     private static Class<?> findExisting(String generatedName, Class<?> iFace) {
         try {
             String className = generatedName.replace("/", ".");
@@ -291,6 +460,14 @@ public class ProxyChannelFactory {
             // case <index>:
             methodVisitor.visitLabel(cases[index]);
             Method method = methods.get(index);
+            boolean replies = method.getReturnType() != void.class;
+
+            // try {
+            Label tryStart = new Label(), tryEnd = new Label(), catchHandler = new Label();
+            if (replies) {
+                methodVisitor.visitTryCatchBlock(tryStart, tryEnd, catchHandler, Type.getInternalName(Throwable.class));
+                methodVisitor.visitLabel(tryStart);
+            }
 
             // #PUSH: impl
             methodVisitor.visitVarInsn(Opcodes.ALOAD, localIndexOfImpl);
@@ -328,8 +505,10 @@ public class ProxyChannelFactory {
             }
             // #END
 
-            // this.readRelease(rOffset);
-            readRelease(methodVisitor, localIndexOfROffset, backendType);
+            if (!replies) {
+                // this.readRelease(rOffset);
+                readRelease(methodVisitor, localIndexOfROffset, backendType);
+            }
 
             // method.invoke(impl, <args>);
             methodVisitor.visitMethodInsn(Opcodes.INVOKEINTERFACE,
@@ -338,6 +517,30 @@ public class ProxyChannelFactory {
                     Type.getMethodDescriptor(method),
                     true);
 
+            if (replies) {
+                // ProxyChannelFactory.reply(<result>, this, rOffset); the message is released by the caller
+                methodVisitor.visitVarInsn(Opcodes.ALOAD, LOCALS_INDEX_THIS);
+                methodVisitor.visitVarInsn(Opcodes.LLOAD, localIndexOfROffset);
+                methodVisitor.visitMethodInsn(Opcodes.INVOKESTATIC,
+                        Type.getInternalName(ProxyChannelFactory.class),
+                        "reply",
+                        methodDescriptor(void.class, replyType(method.getReturnType()), ProxyChannelRingBuffer.class, long.class),
+                        false);
+                methodVisitor.visitLabel(tryEnd);
+                // break;
+                methodVisitor.visitJumpInsn(Opcodes.GOTO, endOfSwitch);
+
+                // } catch (Throwable t) { ProxyChannelFactory.replyFailure(t, this, rOffset); }
+                methodVisitor.visitLabel(catchHandler);
+                methodVisitor.visitVarInsn(Opcodes.ALOAD, LOCALS_INDEX_THIS);
+                methodVisitor.visitVarInsn(Opcodes.LLOAD, localIndexOfROffset);
+                methodVisitor.visitMethodInsn(Opcodes.INVOKESTATIC,
+                        Type.getInternalName(ProxyChannelFactory.class),
+                        "replyFailure",
+                        methodDescriptor(void.class, Throwable.class, ProxyChannelRingBuffer.class, long.class),
+                        false);
+            }
+
             // break;
             methodVisitor.visitJumpInsn(Opcodes.GOTO, endOfSwitch);
         }
@@ -513,10 +716,6 @@ public class ProxyChannelFactory {
             String generatedName,
             Class<? extends ProxyChannelRingBuffer> backendType) {
 
-        if (method.getReturnType() != void.class) {
-            throw new IllegalArgumentException("Method does not return void: " + method);
-        }
-
         String[] exceptions = new String[method.getExceptionTypes().length];
         int index = 0;
         for (Class<?> exceptionType : method.getExceptionTypes()) {
@@ -592,8 +791,27 @@ public class ProxyChannelFactory {
         // this.writeRelease(wOffset, #TYPE);
         writeRelease(methodVisitor, localIndexOfWOffset, type, backendType);
 
-        // return;
-        methodVisitor.visitInsn(Opcodes.RETURN);
+        Class<?> returnType = method.getReturnType();
+        if (returnType == void.class) {
+            // return;
+            methodVisitor.visitInsn(Opcodes.RETURN);
+        } else {
+            // return ProxyChannelFactory.await[type]Reply(this, wOffset, this.waitStrategy);
+            Class<?> replyType = replyType(returnType);
+            methodVisitor.visitVarInsn(Opcodes.ALOAD, LOCALS_INDEX_THIS);
+            methodVisitor.visitVarInsn(Opcodes.LLOAD, localIndexOfWOffset);
+            methodVisitor.visitVarInsn(Opcodes.ALOAD, LOCALS_INDEX_THIS);
+            methodVisitor.visitFieldInsn(Opcodes.GETFIELD, generatedName, "waitStrategy", Type.getDescriptor(WaitStrategy.class));
+            methodVisitor.visitMethodInsn(Opcodes.INVOKESTATIC,
+                    Type.getInternalName(ProxyChannelFactory.class),
+                    awaitReplyMethodName(replyType),
+                    methodDescriptor(replyType, ProxyChannelRingBuffer.class, long.class, WaitStrategy.class),
+                    false);
+            if (replyType == Object.class && returnType != Object.class) {
+                methodVisitor.visitTypeInsn(Opcodes.CHECKCAST, Type.getInternalName(returnType));
+            }
+            methodVisitor.visitInsn(Type.getType(returnType).getOpcode(Opcodes.IRETURN));
+        }
 
         // complete method, ASM computes size requirement.
         methodVisitor.visitMaxs(-1, -1);
@@ -728,6 +946,26 @@ public class ProxyChannelFactory {
                 false);
     }
 
+    /**
+     * @return the type a return value is replied as: int for the int sized primitives, Object for references
+     */
+    private static Class<?> replyType(Class<?> returnType) {
+        if (!returnType.isPrimitive()) {
+            return Object.class;
+        }
+        if (returnType == long.class || returnType == float.class || returnType == double.class) {
+            return returnType;
+        }
+        return int.class;
+    }
+
+    private static String awaitReplyMethodName(Class<?> replyType) {
+        if (replyType == Object.class) {
+            return "awaitReferenceReply";
+        }
+        return "await" + Character.toUpperCase(replyType.getName().charAt(0)) + replyType.getName().substring(1) + "Reply";
+    }
+
     private static int primitiveMemorySize(Class<?> type) {
         if (!type.isPrimitive()) {
             throw new IllegalArgumentException("Cannot handle non-primtive parameter type: " + type);
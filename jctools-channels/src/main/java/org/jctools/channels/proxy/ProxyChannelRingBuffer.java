@@ -6,6 +6,13 @@ package org.jctools.channels.proxy;
 public abstract class ProxyChannelRingBuffer {
     public static final long EOF = 0;
 
+    /*
+     * Reply states of a call with a return value, see replyState
+     */
+    public static final int REPLY_PENDING = 0;
+    public static final int REPLY_READY = 1;
+    public static final int REPLY_FAILED = 2;
+
     /**
      * Acquire an offset to write to. If there's no space available a wait
      * strategy may be used.
@@ -74,4 +81,30 @@ public abstract class ProxyChannelRingBuffer {
      */
     protected abstract Object readReference(long index);
 
+    /**
+     * Volatile load of the reply state of a call with a return value. The message at offset doubles as the
+     * correlation slot: the consumer writes the return value (or the exception thrown) in place of the arguments and
+     * hands the message back to the caller, which {@link #readRelease(long)}s it once the reply is read.
+     * 
+     * @param offset
+     *            the offset the caller acquired for writing the call
+     * @return one of {@link #REPLY_PENDING}, {@link #REPLY_READY}, {@link #REPLY_FAILED}
+     */
+    protected int replyState(long offset) {
+        throw new UnsupportedOperationException(getClass().getName() + " does not support calls with return values");
+    }
+
+    /**
+     * Ordered store of the reply state for the message at offset, used by the consumer instead of
+     * {@link #readRelease(long)} for calls with a return value.
+     * 
+     * @param offset
+     *            the offset that was acquired for reading
+     * @param replyState
+     *            {@link #REPLY_READY} or {@link #REPLY_FAILED}
+     */
+    protected void replyRelease(long offset, int replyState) {
+        throw new UnsupportedOperationException(getClass().getName() + " does not support calls with return values");
+    }
+
 }
@@ -0,0 +1,71 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jctools.channels.spmc;
+
+import static org.jctools.util.UnsafeDirectByteBuffer.allocateAlignedByteBuffer;
+
+import java.nio.ByteBuffer;
+
+import org.jctools.channels.mpmc.MpmcOffHeapFixedSizeRingBuffer;
+import org.jctools.util.PortableJvmInfo;
+import org.jctools.util.Pow2;
+
+/**
+ * Channel protocol:
+ * - Fixed message size
+ * - Same slot sequences as {@link MpmcOffHeapFixedSizeRingBuffer}, consumers compete for messages
+ * - The single producer owns the producer index and claims slots without a CAS
+ */
+public class SpmcOffHeapFixedSizeRingBuffer extends MpmcOffHeapFixedSizeRingBuffer {
+
+    public SpmcOffHeapFixedSizeRingBuffer(final int capacity, final int messageSize, int referenceMessageSize) {
+        this(allocateAlignedByteBuffer(getRequiredBufferSize(capacity, messageSize), PortableJvmInfo.CACHE_LINE_SIZE),
+                Pow2.roundToPowerOfTwo(capacity),
+                true,
+                true,
+                true,
+                messageSize,
+                createReferenceArray(capacity, referenceMessageSize),
+                referenceMessageSize);
+    }
+
+    /**
+     * This is to be used for an IPC queue with the direct buffer used being a memory mapped file.
+     *
+     * @param buff
+     * @param capacity
+     */
+    protected SpmcOffHeapFixedSizeRingBuffer(final ByteBuffer buff,
+            final int capacity,
+            final boolean isProducer,
+            final boolean isConsumer,
+            final boolean initialize,
+            final int messageSize,
+            final Object[] references,
+            final int referenceMessageSize) {
+        super(buff, capacity, isProducer, isConsumer, initialize, messageSize, references, referenceMessageSize);
+    }
+
+    @Override
+    protected final long writeAcquire() {
+        final long producerIndex = lpProducerIndex();
+        final long slot = offsetForIndex(producerIndex);
+        if (lvSequence(slot) != producerIndex) {
+            // the slot is still in use by a consumer of the previous lap: full
+            return EOF;
+        }
+        soProducerIndex(producerIndex + 1); // StoreStore
+        return slot + SEQUENCE_SIZE;
+    }
+}
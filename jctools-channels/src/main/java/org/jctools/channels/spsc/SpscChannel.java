@@ -17,6 +17,7 @@ import org.jctools.channels.Channel;
 import org.jctools.channels.ChannelConsumer;
 import org.jctools.channels.ChannelProducer;
 import org.jctools.channels.ChannelReceiver;
+import org.jctools.channels.ChannelWakeup;
 import org.jctools.channels.mapping.Mapper;
 import org.jctools.util.Pow2;
 import org.jctools.util.Template;
@@ -46,6 +47,17 @@ public final class SpscChannel<E> implements Channel<E> {
      */
     // TODO: take an initialize parameter
     public SpscChannel(final ByteBuffer buffer, final int requestedCapacity, final Class<E> type) {
+        this(buffer, requestedCapacity, type, null);
+    }
+
+    /**
+     * As above, with producers waking up the consumer through the given wakeup when it declared itself idle (see
+     * {@link ChannelConsumer#idle()}).
+     *
+     * @param wakeup may be null, in which case the consumer is never woken up
+     */
+    public SpscChannel(final ByteBuffer buffer, final int requestedCapacity, final Class<E> type,
+            final ChannelWakeup wakeup) {
         this.requestedCapacity = requestedCapacity;
         this.maximumCapacity = getMaximumCapacity(requestedCapacity);
         this.buffer = buffer;
@@ -56,6 +68,7 @@ public final class SpscChannel<E> implements Channel<E> {
         checkByteBuffer();
 
         producer = newProducer(type, buffer, maximumCapacity, elementSize);
+        producer.wakeup(wakeup);
     }
 
     private int getMaximumCapacity(int requestedCapacity) {
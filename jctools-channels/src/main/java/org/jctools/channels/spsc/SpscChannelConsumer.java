@@ -13,6 +13,8 @@
  */
 package org.jctools.channels.spsc;
 
+import org.jctools.channels.ChannelBatch;
+import org.jctools.channels.ChannelBatchReceiver;
 import org.jctools.channels.ChannelConsumer;
 import org.jctools.channels.ChannelReceiver;
 
@@ -24,9 +26,12 @@ import java.nio.ByteBuffer;
 public abstract class SpscChannelConsumer<E> extends SpscOffHeapFixedSizeRingBuffer implements ChannelConsumer {
 
     protected final ChannelReceiver<E> receiver;
+    private final ChannelBatchReceiver<E> batchReceiver;
+    private final Batch batch;
 
     protected long pointer;
 
+    @SuppressWarnings("unchecked")
     public SpscChannelConsumer(
             final ByteBuffer buffer,
             final int capacity,
@@ -36,7 +41,61 @@ public abstract class SpscChannelConsumer<E> extends SpscOffHeapFixedSizeRingBuf
         super(buffer, capacity, false, true, false, messageSize, null, 0);
 
         this.receiver = receiver;
+        this.batchReceiver = receiver instanceof ChannelBatchReceiver ? (ChannelBatchReceiver<E>) receiver : null;
+        this.batch = new Batch();
         this.pointer = EOF;
     }
 
+    @Override
+    public final int read(int limit) {
+        final long first = offsetForIndex(lpConsumerIndex());
+        final int count = readAcquire(limit);
+        if (count == 0) {
+            return 0;
+        }
+        if (batchReceiver != null) {
+            batch.first = first;
+            batch.size = count;
+            batchReceiver.accept(batch);
+        } else {
+            long pointer = first;
+            for (int i = 0; i < count; i++, pointer += messageSize) {
+                this.pointer = pointer;
+                receiver.accept(element());
+            }
+        }
+        readRelease(first, count);
+        return count;
+    }
+
+    @Override
+    public final boolean idle() {
+        return consumerIdle();
+    }
+
+    @SuppressWarnings("unchecked")
+    private E element() {
+        // the generated subclass is the flyweight
+        return (E) this;
+    }
+
+    private final class Batch implements ChannelBatch<E> {
+        long first;
+        int size;
+
+        @Override
+        public int size() {
+            return size;
+        }
+
+        @Override
+        public E get(int index) {
+            if (index < 0 || index >= size) {
+                throw new IndexOutOfBoundsException("index: " + index + " (expected: >= 0 and < " + size + ')');
+            }
+            pointer = first + (long) index * messageSize;
+            return element();
+        }
+    }
+
 }
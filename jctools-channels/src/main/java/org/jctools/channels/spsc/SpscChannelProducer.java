@@ -14,6 +14,7 @@
 package org.jctools.channels.spsc;
 
 import org.jctools.channels.ChannelProducer;
+import org.jctools.channels.ChannelWakeup;
 
 import java.nio.ByteBuffer;
 
@@ -25,6 +26,7 @@ import java.nio.ByteBuffer;
 public abstract class SpscChannelProducer<E> extends SpscOffHeapFixedSizeRingBuffer implements ChannelProducer<E> {
 
     protected long pointer;
+    private ChannelWakeup wakeup;
 
     public SpscChannelProducer(
         final ByteBuffer buffer,
@@ -44,8 +46,19 @@ public abstract class SpscChannelProducer<E> extends SpscOffHeapFixedSizeRingBuf
         if (pointer == EOF)
             return false;
 
-        writeRelease(pointer);
+        if (wakeup == null) {
+            writeRelease(pointer);
+        } else {
+            writeReleaseState(pointer, wakeup);
+        }
         return true;
     }
 
+    /**
+     * Set once, before the producer is published.
+     */
+    final void wakeup(ChannelWakeup wakeup) {
+        this.wakeup = wakeup;
+    }
+
 }
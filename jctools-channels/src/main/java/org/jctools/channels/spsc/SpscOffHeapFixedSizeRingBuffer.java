@@ -130,7 +130,7 @@ public class SpscOffHeapFixedSizeRingBuffer extends OffHeapFixedMessageSizeRingB
     protected final long readAcquire() {
         final long consumerIndex = lpConsumerIndex();
         final long consumerOffset = offsetForIndex(consumerIndex);
-        if (isReadReleased(consumerOffset)) {
+        if (!isWriteReleased(consumerOffset)) {
             return EOF;
         }
         soConsumerIndex(consumerIndex + 1); // StoreStore
@@ -144,6 +144,38 @@ public class SpscOffHeapFixedSizeRingBuffer extends OffHeapFixedMessageSizeRingB
 
     }
 
+    /**
+     * Acquire up to {@code limit} consecutive messages for reading, starting at {@link #lpConsumerIndex()}. The batch
+     * stops at the end of the buffer so that the messages are contiguous, and the consumer index is committed once.
+     *
+     * @return the number of messages acquired, 0 if none is available
+     */
+    protected final int readAcquire(int limit) {
+        final long consumerIndex = lpConsumerIndex();
+        final int contiguous = (int) Math.min(limit, mask + 1 - (consumerIndex & mask));
+        long offset = offsetForIndex(consumerIndex);
+        int count = 0;
+        while (count < contiguous && isWriteReleased(offset)) {
+            count++;
+            offset += messageSize;
+        }
+        if (count != 0) {
+            soConsumerIndex(consumerIndex + count); // StoreStore
+        }
+        return count;
+    }
+
+    /**
+     * @param offset the base address of the first message of a batch acquired by {@link #readAcquire(int)}
+     * @param count the number of messages in the batch
+     */
+    protected final void readRelease(long offset, int count) {
+        // in index order, the producer takes a released slot to mean all the slots before it are released
+        for (int i = 0; i < count; i++, offset += messageSize) {
+            readReleaseState(offset);
+        }
+    }
+
     private long lpLookAheadCache() {
         return UNSAFE.getLong(null, producerLookAheadCacheAddress);
     }
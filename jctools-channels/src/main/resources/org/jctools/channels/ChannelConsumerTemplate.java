@@ -28,7 +28,7 @@ public class {{className}}
         return true;
     }
 
-    {{#fields}}
+    {{#fields}}{{#primitive}}
         public {{type}} get{{name}}() {
             return UNSAFE.get{{unsafeMethodSuffix}}(pointer + {{fieldOffset}}L);
         }
@@ -36,6 +36,36 @@ public class {{className}}
         public void set{{name}}({{type}} value) {
             UNSAFE.put{{unsafeMethodSuffix}}(pointer + {{fieldOffset}}L, value);
         }
-    {{/fields}}
+    {{/primitive}}{{#chars}}
+        private final org.jctools.channels.mapping.InlineCharSequence {{name}}View =
+                new org.jctools.channels.mapping.InlineCharSequence({{maxLength}});
+
+        public CharSequence get{{name}}() {
+            return {{name}}View.wrap(pointer + {{fieldOffset}}L);
+        }
+
+        public void set{{name}}(CharSequence value) {
+            org.jctools.channels.mapping.InlineCharSequence.put(pointer + {{fieldOffset}}L, {{maxLength}}, value);
+        }
+    {{/chars}}{{#bytes}}
+        private final org.jctools.channels.mapping.InlineBytes {{name}}View =
+                new org.jctools.channels.mapping.InlineBytes({{maxLength}});
+
+        public org.jctools.channels.mapping.InlineBytes get{{name}}() {
+            return {{name}}View.wrap(pointer + {{fieldOffset}}L);
+        }
+
+        public void set{{name}}(byte[] value) {
+            org.jctools.channels.mapping.InlineBytes.put(pointer + {{fieldOffset}}L, {{maxLength}}, value);
+        }
+    {{/bytes}}{{#struct}}
+        private final org.jctools.channels.mapping.StructFlyweight {{name}}View =
+                org.jctools.channels.mapping.Mapper.newStructFlyweight({{type}}.class);
+
+        public {{type}} get{{name}}() {
+            {{name}}View.moveTo(pointer + {{fieldOffset}}L);
+            return ({{type}}) {{name}}View;
+        }
+    {{/struct}}{{/fields}}
 
 }
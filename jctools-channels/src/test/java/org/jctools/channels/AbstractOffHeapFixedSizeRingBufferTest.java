@@ -51,4 +51,31 @@ public class AbstractOffHeapFixedSizeRingBufferTest {
 		assertEquals(EOF, rb.readAcquire());
     }
 
+    public static void testWrapAround(OffHeapFixedMessageSizeRingBuffer rb) {
+        for (int lap = 0; lap < 3; lap++) {
+            for (int i = 0; i < rb.capacity(); i++) {
+                long offset = rb.writeAcquire();
+                assertNotEquals(EOF, offset);
+                UNSAFE.putLong(offset + 4, lap * 100 + i);
+                rb.writeRelease(offset);
+            }
+            // full
+            assertEquals(EOF, rb.writeAcquire());
+            assertEquals(rb.capacity(), rb.size());
+
+            // an acquired, but not yet released, slot cannot be claimed by producers
+            long held = rb.readAcquire();
+            assertEquals(lap * 100, UNSAFE.getLong(held + 4));
+            for (int i = 1; i < rb.capacity(); i++) {
+                long offset = rb.readAcquire();
+                assertEquals(lap * 100 + i, UNSAFE.getLong(offset + 4));
+                rb.readRelease(offset);
+            }
+            assertEquals(EOF, rb.readAcquire());
+            assertEquals(EOF, rb.writeAcquire());
+            rb.readRelease(held);
+            assertTrue(rb.isEmpty());
+        }
+    }
+
 }
@@ -0,0 +1,185 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jctools.channels;
+
+import static org.junit.Assert.*;
+
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.jctools.channels.mpsc.MpscChannel;
+import org.jctools.channels.spsc.SpscChannel;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+
+@RunWith(Parameterized.class)
+public class ChannelWakeupTest {
+
+    @Parameterized.Parameters(name = "{0}")
+    public static Collection<Object[]> parameters() {
+        return Arrays.asList(new Object[] { "spsc" }, new Object[] { "mpsc" });
+    }
+
+    private final String type;
+
+    public ChannelWakeupTest(String type) {
+        this.type = type;
+    }
+
+    private Channel<Ping> newChannel(ChannelWakeup wakeup) {
+        ByteBuffer buffer = ByteBuffer.allocateDirect(64 * 1024);
+        return "spsc".equals(type) ? new SpscChannel<Ping>(buffer, 64, Ping.class, wakeup)
+                : new MpscChannel<Ping>(buffer, 64, Ping.class, wakeup);
+    }
+
+    @Test
+    public void shouldNotBeIdleWithMessagesToRead() throws Exception {
+        CountingWakeup wakeup = new CountingWakeup();
+        Channel<Ping> channel = newChannel(wakeup);
+        ChannelConsumer consumer = channel.consumer(new Receiver());
+        send(channel.producer(), 1);
+        assertFalse(consumer.idle());
+        send(channel.producer(), 1);
+        assertEquals(0, wakeup.count.get());
+
+        assertEquals(2, consumer.read(16));
+        assertTrue(consumer.idle());
+        assertEquals(0, wakeup.count.get());
+        // only the first commit after the idle declaration wakes up the consumer
+        send(channel.producer(), 3);
+        assertEquals(1, wakeup.count.get());
+        assertEquals(3, consumer.read(16));
+        send(channel.producer(), 1);
+        assertEquals(1, wakeup.count.get());
+    }
+
+    @Test
+    public void shouldNotWakeUpWithoutAWakeup() throws Exception {
+        Channel<Ping> channel = newChannel(null);
+        ChannelConsumer consumer = channel.consumer(new Receiver());
+        assertTrue(consumer.idle());
+        send(channel.producer(), 1);
+        assertTrue(consumer.read());
+    }
+
+    @Test(timeout = 30000)
+    public void shouldWakeUpAParkedConsumer() throws Exception {
+        final ParkingChannelWakeup wakeup = new ParkingChannelWakeup();
+        final Channel<Ping> channel = newChannel(wakeup);
+        final int messages = 1000;
+        Thread producer = new Thread() {
+            @Override
+            public void run() {
+                ChannelProducer<Ping> producer = channel.producer();
+                for (int i = 0; i < messages; i++) {
+                    while (!producer.claim()) {
+                        Thread.yield();
+                    }
+                    producer.currentElement().setValue(i);
+                    producer.commit();
+                    if (i % 100 == 0) {
+                        // let the consumer park
+                        pause(5);
+                    }
+                }
+            }
+        };
+        Receiver receiver = new Receiver();
+        ChannelConsumer consumer = channel.consumer(receiver);
+        producer.start();
+        long start = System.nanoTime();
+        while (receiver.received < messages) {
+            if (consumer.read(16) == 0) {
+                // a lost wakeup would stall the consumer for the whole timeout
+                wakeup.await(consumer, 10, TimeUnit.SECONDS);
+            }
+        }
+        producer.join();
+        assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(10));
+    }
+
+    @Test(timeout = 30000)
+    public void shouldSelectTheWakeup() throws Exception {
+        SelectableChannelWakeup wakeup = new SelectableChannelWakeup();
+        Selector selector = Selector.open();
+        try {
+            wakeup.selectableChannel().register(selector, SelectionKey.OP_READ);
+            Channel<Ping> channel = newChannel(wakeup);
+            ChannelConsumer consumer = channel.consumer(new Receiver());
+
+            send(channel.producer(), 1);
+            assertEquals(0, selector.selectNow());
+            assertTrue(consumer.read());
+
+            assertTrue(consumer.idle());
+            assertEquals(0, selector.selectNow());
+            send(channel.producer(), 2);
+            assertEquals(1, selector.select(10000));
+            selector.selectedKeys().clear();
+            wakeup.clear();
+            assertEquals(0, selector.selectNow());
+            assertEquals(2, consumer.read(16));
+        } finally {
+            selector.close();
+            wakeup.close();
+        }
+    }
+
+    private static void send(ChannelProducer<Ping> producer, int count) {
+        for (int i = 0; i < count; i++) {
+            assertTrue(producer.claim());
+            producer.currentElement().setValue(i);
+            assertTrue(producer.commit());
+        }
+    }
+
+    private static void pause(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static final class CountingWakeup implements ChannelWakeup {
+        final AtomicInteger count = new AtomicInteger();
+
+        @Override
+        public void wakeup() {
+            count.incrementAndGet();
+        }
+    }
+
+    private static final class Receiver implements ChannelReceiver<Ping> {
+        int received;
+
+        @Override
+        public void accept(Ping element) {
+            received++;
+        }
+    }
+
+    public interface Ping {
+
+        long getValue();
+
+        void setValue(long value);
+    }
+}
@@ -0,0 +1,181 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jctools.channels.broadcast;
+
+import static org.jctools.channels.broadcast.BroadcastOffHeapFixedSizeRingBuffer.EOF;
+import static org.jctools.util.UnsafeAccess.UNSAFE;
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.jctools.channels.broadcast.BroadcastOffHeapFixedSizeRingBuffer.Reader;
+import org.junit.Test;
+
+public class BroadcastOffHeapFixedSizeRingBufferTest {
+
+    @Test
+    public void testEveryReaderSeesEveryMessage() {
+        BroadcastOffHeapFixedSizeRingBuffer rb = new BroadcastOffHeapFixedSizeRingBuffer(8, 12, 4, false);
+        Reader fast = rb.newReader();
+        Reader slow = rb.newReader();
+        assertEquals(EOF, fast.readAcquire());
+
+        assertEquals(8, write(rb, 0, 100));
+        assertEquals(8, fast.available());
+        assertEquals(8, read(fast, 0, 100));
+        // gated by the slow reader
+        assertEquals(EOF, rb.writeAcquire());
+        assertEquals(EOF, fast.readAcquire());
+
+        assertEquals(5, read(slow, 0, 5));
+        assertEquals(5, write(rb, 8, 100));
+        assertEquals(13, read(slow, 5, 100));
+        assertEquals(13, read(fast, 8, 100));
+        assertEquals(0, fast.missed());
+        assertEquals(0, slow.missed());
+    }
+
+    @Test
+    public void testClosedReaderDoesNotGateTheProducer() {
+        BroadcastOffHeapFixedSizeRingBuffer rb = new BroadcastOffHeapFixedSizeRingBuffer(8, 12, 1, false);
+        Reader reader = rb.newReader();
+        assertEquals(8, write(rb, 0, 100));
+        assertEquals(EOF, rb.writeAcquire());
+        try {
+            rb.newReader();
+            fail();
+        } catch (IllegalStateException expected) {
+        }
+        reader.close();
+        assertEquals(100, write(rb, 8, 100));
+
+        // a late reader starts with the next message
+        reader = rb.newReader();
+        assertEquals(EOF, reader.readAcquire());
+        assertEquals(8, write(rb, 108, 100));
+        assertEquals(116, read(reader, 108, 100));
+    }
+
+    @Test
+    public void testLappedReaderSkipsToTheLatestMessage() {
+        BroadcastOffHeapFixedSizeRingBuffer rb = new BroadcastOffHeapFixedSizeRingBuffer(8, 12, 2, true);
+        Reader reader = rb.newReader();
+        assertEquals(4, write(rb, 0, 4));
+        assertEquals(2, read(reader, 0, 2));
+
+        // never gated
+        assertEquals(20, write(rb, 4, 20));
+        assertEquals(EOF, reader.readAcquire());
+        assertEquals(21, reader.missed());
+        assertEquals(24, read(reader, 23, 100));
+        assertEquals(EOF, reader.readAcquire());
+    }
+
+    @Test
+    public void testOverwrittenWhileReading() {
+        BroadcastOffHeapFixedSizeRingBuffer rb = new BroadcastOffHeapFixedSizeRingBuffer(8, 12, 2, true);
+        Reader reader = rb.newReader();
+        assertEquals(1, write(rb, 0, 1));
+        long offset = reader.readAcquire();
+        assertNotEquals(EOF, offset);
+        assertEquals(8, write(rb, 1, 8));
+        // the message read may be torn, it must be discarded
+        assertFalse(reader.readRelease(offset));
+        assertEquals(8, reader.missed());
+        assertEquals(9, read(reader, 8, 100));
+    }
+
+    @Test(timeout = 30000)
+    public void testConcurrentReaders() throws Exception {
+        final BroadcastOffHeapFixedSizeRingBuffer rb = new BroadcastOffHeapFixedSizeRingBuffer(64, 12, 4, false);
+        final int messages = 100000;
+        final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+        List<Thread> threads = new ArrayList<Thread>();
+        for (int r = 0; r < 3; r++) {
+            final Reader reader = rb.newReader();
+            threads.add(new Thread() {
+                @Override
+                public void run() {
+                    try {
+                        for (long expected = 0; expected < messages;) {
+                            final long offset = reader.readAcquire();
+                            if (offset == EOF) {
+                                Thread.yield();
+                                continue;
+                            }
+                            assertEquals(expected, UNSAFE.getLong(offset));
+                            assertEquals((int) expected, UNSAFE.getInt(offset + 8));
+                            assertTrue(reader.readRelease(offset));
+                            expected++;
+                        }
+                    } catch (Throwable t) {
+                        failure.set(t);
+                    }
+                }
+            });
+        }
+        for (Thread t : threads) {
+            t.start();
+        }
+        for (long i = 0; i < messages;) {
+            final long offset = rb.writeAcquire();
+            if (offset == EOF) {
+                Thread.yield();
+                continue;
+            }
+            UNSAFE.putLong(offset, i);
+            UNSAFE.putInt(offset + 8, (int) i);
+            rb.writeRelease(offset);
+            i++;
+        }
+        for (Thread t : threads) {
+            t.join();
+        }
+        assertNull(failure.get());
+    }
+
+    /**
+     * @return the next value to write, stops early if the producer is gated
+     */
+    private static long write(BroadcastOffHeapFixedSizeRingBuffer rb, long from, int count) {
+        long value = from;
+        for (int i = 0; i < count; i++) {
+            final long offset = rb.writeAcquire();
+            if (offset == EOF) {
+                break;
+            }
+            UNSAFE.putLong(offset, value++);
+            rb.writeRelease(offset);
+        }
+        return value - from;
+    }
+
+    /**
+     * @return the next value expected, stops when no message is available
+     */
+    private static long read(Reader reader, long from, int count) {
+        long expected = from;
+        for (int i = 0; i < count; i++) {
+            final long offset = reader.readAcquire();
+            if (offset == EOF) {
+                break;
+            }
+            assertEquals(expected++, UNSAFE.getLong(offset));
+            assertTrue(reader.readRelease(offset));
+        }
+        return expected;
+    }
+}
@@ -0,0 +1,164 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jctools.channels.mapping;
+
+import static org.junit.Assert.*;
+
+import java.nio.ByteBuffer;
+
+import org.jctools.channels.ChannelConsumer;
+import org.jctools.channels.ChannelProducer;
+import org.jctools.channels.ChannelReceiver;
+import org.jctools.channels.spsc.SpscChannel;
+import org.jctools.util.UnsafeAccess;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class InlineFieldsTest {
+
+    // price(8) + symbol(2 + 8 * 2) + flags(2 + 4) + 2 * leg(8 + 4 + 2 + 3 * 2)
+    private static final int QUOTE_SIZE_IN_BYTES = 4 + 8 + 18 + 6 + 2 * 20;
+
+    private long startAddress;
+    private Mapper<Quote> mapper;
+
+    @Before
+    public void malloc() {
+        startAddress = UnsafeAccess.UNSAFE.allocateMemory(QUOTE_SIZE_IN_BYTES);
+        mapper = new Mapper<Quote>(Quote.class, false);
+    }
+
+    @After
+    public void free() {
+        UnsafeAccess.UNSAFE.freeMemory(startAddress);
+    }
+
+    @Test
+    public void shouldLayoutInlineAndNestedFields() {
+        assertEquals(QUOTE_SIZE_IN_BYTES, 4 + new TypeInspector(Quote.class).getSizeInBytes());
+    }
+
+    @Test
+    public void shouldReadAndWriteInlineAndNestedFields() {
+        Quote writer = (Quote) mapper.newFlyweight(StubFlyweight.class, "StubTemplate.java", startAddress);
+        Quote reader = (Quote) mapper.newFlyweight(StubFlyweight.class, "StubTemplate.java", startAddress);
+
+        writer.setPrice(42L);
+        writer.setSymbol("JCTOOLS");
+        writer.setFlags(new byte[] { 1, -1 });
+        writer.getBid().setPrice(1.5);
+        writer.getBid().setSize(100);
+        writer.getBid().setVenue("LSE");
+        writer.getAsk().setPrice(1.75);
+        writer.getAsk().setSize(200);
+        writer.getAsk().setVenue(null);
+
+        assertEquals(42L, reader.getPrice());
+        assertEquals("JCTOOLS", reader.getSymbol().toString());
+        assertTrue(((InlineCharSequence) reader.getSymbol()).contentEquals("JCTOOLS"));
+        assertEquals(2, reader.getFlags().length());
+        assertEquals(-1, reader.getFlags().get(1));
+        assertArrayEquals(new byte[] { 1, -1 }, reader.getFlags().toByteArray());
+        assertEquals(1.5, reader.getBid().getPrice(), 0);
+        assertEquals(100, reader.getBid().getSize());
+        assertEquals("LSE", reader.getBid().getVenue().toString());
+        assertEquals(1.75, reader.getAsk().getPrice(), 0);
+        assertEquals(200, reader.getAsk().getSize());
+        assertNull(reader.getAsk().getVenue());
+
+        // views are reused rather than allocated per read
+        assertSame(reader.getSymbol(), reader.getSymbol());
+        assertSame(reader.getBid(), reader.getBid());
+
+        writer.setSymbol("");
+        assertEquals(0, reader.getSymbol().length());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldRejectValuesLongerThanTheBound() {
+        Quote writer = (Quote) mapper.newFlyweight(StubFlyweight.class, "StubTemplate.java", startAddress);
+        writer.setSymbol("TOO LONG!");
+    }
+
+    @Test
+    public void shouldSendInlineAndNestedFieldsThroughAChannel() {
+        SpscChannel<Quote> channel = new SpscChannel<Quote>(ByteBuffer.allocateDirect(64 * 1024), 8, Quote.class);
+        ChannelProducer<Quote> producer = channel.producer();
+        for (int i = 0; i < 4; i++) {
+            assertTrue(producer.claim());
+            Quote quote = producer.currentElement();
+            quote.setPrice(i);
+            quote.setSymbol("SYM" + i);
+            quote.setFlags(new byte[i]);
+            quote.getBid().setSize(i * 10);
+            quote.getAsk().setVenue("V" + i);
+            assertTrue(producer.commit());
+        }
+        final int[] read = new int[1];
+        ChannelConsumer consumer = channel.consumer(new ChannelReceiver<Quote>() {
+            @Override
+            public void accept(Quote quote) {
+                final int i = read[0]++;
+                assertEquals(i, quote.getPrice());
+                assertEquals("SYM" + i, quote.getSymbol().toString());
+                assertEquals(i, quote.getFlags().length());
+                assertEquals(i * 10, quote.getBid().getSize());
+                assertEquals("V" + i, quote.getAsk().getVenue().toString());
+            }
+        });
+        while (consumer.read()) {
+        }
+        assertEquals(4, read[0]);
+    }
+
+    // ---------------------------------------------------
+
+    public interface Quote {
+
+        long getPrice();
+
+        void setPrice(long value);
+
+        @InlineLength(8)
+        CharSequence getSymbol();
+
+        void setSymbol(CharSequence value);
+
+        @InlineLength(4)
+        InlineBytes getFlags();
+
+        void setFlags(byte[] value);
+
+        Leg getBid();
+
+        Leg getAsk();
+    }
+
+    public interface Leg {
+
+        double getPrice();
+
+        void setPrice(double value);
+
+        int getSize();
+
+        void setSize(int value);
+
+        @InlineLength(3)
+        CharSequence getVenue();
+
+        void setVenue(CharSequence value);
+    }
+}
@@ -27,7 +27,8 @@ public class InvalidInterfaceTest {
 	@Parameters
 	public static Collection<Object[]> data() {
 		return Arrays.asList(new Object[][] { { NoGettersOrSetters.class }, { InvalidReturnGetter.class }, { ParameterGetter.class },
-				{ InvalidReturnSetter.class }, { NoParameterSetter.class }, });
+				{ InvalidReturnSetter.class }, { NoParameterSetter.class }, { UnboundedInlineGetter.class },
+				{ MismatchedInlineSetter.class }, { SelfContainingStruct.class }, { NestedStructSetter.class }, });
 	}
 
 	private Class<?> representingKlass;
@@ -63,4 +64,25 @@ public class InvalidInterfaceTest {
 		void setFoo();
 	}
 
+	public interface UnboundedInlineGetter {
+		CharSequence getFoo();
+	}
+
+	public interface MismatchedInlineSetter {
+		@InlineLength(4)
+		CharSequence getFoo();
+
+		void setFoo(byte[] foo);
+	}
+
+	public interface SelfContainingStruct {
+		SelfContainingStruct getFoo();
+	}
+
+	public interface NestedStructSetter {
+		InvalidReturnGetter getFoo();
+
+		void setFoo(int foo);
+	}
+
 }
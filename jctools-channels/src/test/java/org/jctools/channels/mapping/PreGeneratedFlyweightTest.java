@@ -0,0 +1,93 @@
+package org.jctools.channels.mapping;
+
+import static org.junit.Assert.*;
+
+import java.nio.ByteBuffer;
+
+import org.jctools.channels.ChannelConsumer;
+import org.jctools.channels.ChannelProducer;
+import org.jctools.channels.ChannelReceiver;
+import org.jctools.channels.mpsc.MpscChannel;
+import org.jctools.channels.mpsc.MpscChannelProducer;
+import org.jctools.channels.spsc.SpscChannel;
+import org.jctools.channels.spsc.SpscChannelProducer;
+import org.junit.Test;
+
+public class PreGeneratedFlyweightTest {
+
+    @GenerateFlyweights
+    public interface Quote {
+
+        boolean getBid();
+
+        void setBid(boolean value);
+
+        byte getVenue();
+
+        void setVenue(byte value);
+
+        long getPrice();
+
+        void setPrice(long value);
+
+        double getSize();
+
+        void setSize(double value);
+    }
+
+    @Test
+    public void spscChannelUsesThePreGeneratedFlyweights() {
+        SpscChannel<Quote> channel = new SpscChannel<Quote>(ByteBuffer.allocateDirect(64 * 1024), 16, Quote.class);
+        assertEquals(Mapper.flyweightClassName(SpscChannelProducer.class, Quote.class),
+                channel.producer().getClass().getName());
+        assertRoundTrip(channel.producer(), new Reader() {
+            @Override
+            ChannelConsumer consumer(ChannelReceiver<Quote> receiver) {
+                return channel.consumer(receiver);
+            }
+        });
+    }
+
+    @Test
+    public void mpscChannelUsesThePreGeneratedFlyweights() {
+        MpscChannel<Quote> channel = new MpscChannel<Quote>(ByteBuffer.allocateDirect(64 * 1024), 16, Quote.class);
+        assertEquals(Mapper.flyweightClassName(MpscChannelProducer.class, Quote.class),
+                channel.producer().getClass().getName());
+        assertRoundTrip(channel.producer(), new Reader() {
+            @Override
+            ChannelConsumer consumer(ChannelReceiver<Quote> receiver) {
+                return channel.consumer(receiver);
+            }
+        });
+    }
+
+    private abstract static class Reader {
+        abstract ChannelConsumer consumer(ChannelReceiver<Quote> receiver);
+    }
+
+    private static void assertRoundTrip(ChannelProducer<Quote> producer, Reader reader) {
+        for (int i = 0; i < 10; i++) {
+            assertTrue(producer.claim());
+            Quote quote = producer.currentElement();
+            quote.setBid((i & 1) == 0);
+            quote.setVenue((byte) -i);
+            quote.setPrice(Long.MAX_VALUE - i);
+            quote.setSize(i + 0.5);
+            assertTrue(producer.commit());
+        }
+        final int[] read = new int[1];
+        ChannelConsumer consumer = reader.consumer(new ChannelReceiver<Quote>() {
+            @Override
+            public void accept(Quote quote) {
+                final int i = read[0]++;
+                assertEquals((i & 1) == 0, quote.getBid());
+                assertEquals((byte) -i, quote.getVenue());
+                assertEquals(Long.MAX_VALUE - i, quote.getPrice());
+                assertEquals(i + 0.5, quote.getSize(), 0);
+            }
+        });
+        while (consumer.read()) {
+        }
+        assertEquals(10, read[0]);
+    }
+}
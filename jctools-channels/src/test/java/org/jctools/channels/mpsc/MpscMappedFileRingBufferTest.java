@@ -0,0 +1,212 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jctools.channels.mpsc;
+
+import static org.jctools.channels.mpsc.MpscMappedFileRingBuffer.EOF;
+import static org.jctools.util.UnsafeAccess.UNSAFE;
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class MpscMappedFileRingBufferTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private File file;
+    private MpscMappedFileRingBuffer consumer;
+
+    @Before
+    public void create() throws IOException {
+        file = folder.newFile("ring");
+        consumer = MpscMappedFileRingBuffer.createConsumer(file, 8, 12, 50, TimeUnit.MILLISECONDS);
+    }
+
+    @After
+    public void close() throws IOException {
+        consumer.close();
+    }
+
+    @Test
+    public void testProducersAttachedToTheFileAreReadInOrder() throws IOException {
+        assertEquals(8, consumer.capacity());
+        assertEquals(EOF, consumer.readAcquire());
+        try (MpscMappedFileRingBuffer p1 = MpscMappedFileRingBuffer.attachProducer(file);
+             MpscMappedFileRingBuffer p2 = MpscMappedFileRingBuffer.attachProducer(file)) {
+            assertEquals(12, p1.messageSize());
+            for (int i = 0; i < 8; i++) {
+                assertTrue(write(i % 2 == 0 ? p1 : p2, i));
+            }
+            assertEquals(EOF, p1.writeAcquire());
+            assertEquals(8, p2.size());
+
+            assertEquals(0, read(consumer));
+            assertTrue(write(p2, 8));
+            for (int i = 1; i <= 8; i++) {
+                assertEquals(i, read(consumer));
+            }
+            assertEquals(EOF, consumer.readAcquire());
+            assertTrue(consumer.isEmpty());
+            assertEquals(0, consumer.abandoned());
+        }
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testProducerCannotRead() throws IOException {
+        try (MpscMappedFileRingBuffer producer = MpscMappedFileRingBuffer.attachProducer(file)) {
+            producer.readAcquire();
+        }
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testAttachToUninitializedFileFails() throws IOException {
+        File other = folder.newFile("other");
+        try (RandomAccessFile raf = new RandomAccessFile(other, "rw")) {
+            raf.setLength(MpscMappedFileRingBuffer.getRequiredFileSize(8, 12));
+        }
+        MpscMappedFileRingBuffer.attachProducer(other);
+    }
+
+    @Test(timeout = 30000)
+    public void testStalledClaimIsSkippedAfterTimeout() throws Exception {
+        try (MpscMappedFileRingBuffer producer = MpscMappedFileRingBuffer.attachProducer(file)) {
+            long stalled = producer.writeAcquire();
+            assertTrue(write(producer, 1));
+            assertTrue(write(producer, 2));
+            // not before the timeout
+            assertEquals(EOF, consumer.readAcquire());
+            assertEquals(EOF, consumer.readAcquire());
+            assertEquals(1, readWaiting(consumer));
+            assertEquals(1, consumer.abandoned());
+            assertEquals(2, read(consumer));
+            // too late
+            UNSAFE.putLong(producer.messageOffset(stalled), 0);
+            assertFalse(producer.writeRelease(stalled));
+            assertEquals(EOF, consumer.readAcquire());
+            // the skipped slot is reused
+            for (int i = 0; i < 8; i++) {
+                assertTrue(write(producer, 10 + i));
+            }
+            for (int i = 0; i < 8; i++) {
+                assertEquals(10 + i, read(consumer));
+            }
+        }
+    }
+
+    @Test(timeout = 30000)
+    public void testStalledProducerCannotCommitTheSlotOfALaterIndex() throws Exception {
+        File lapped = folder.newFile("lapped");
+        try (MpscMappedFileRingBuffer reader = MpscMappedFileRingBuffer.createConsumer(lapped, 2, 12, 1,
+                TimeUnit.NANOSECONDS);
+             MpscMappedFileRingBuffer producer = MpscMappedFileRingBuffer.attachProducer(lapped)) {
+            long stalled = producer.writeAcquire();
+            assertEquals(EOF, reader.readAcquire());
+            Thread.sleep(1);
+            assertEquals(EOF, reader.readAcquire());
+            assertEquals(1, reader.abandoned());
+            assertTrue(write(producer, 1));
+            assertEquals(1, read(reader));
+
+            // the ring lapped, the stalled message slot now belongs to the next claim
+            long claim = producer.writeAcquire();
+            assertEquals(producer.messageOffset(stalled), producer.messageOffset(claim));
+            UNSAFE.putLong(producer.messageOffset(claim), 2);
+            assertFalse(producer.writeRelease(stalled));
+            assertEquals(EOF, reader.readAcquire());
+            UNSAFE.putInt(producer.messageOffset(claim) + 8, 2);
+            assertTrue(producer.writeRelease(claim));
+            assertEquals(2, read(reader));
+        }
+    }
+
+    @Test(timeout = 60000)
+    public void testCrashedProducerProcessDoesNotStallTheConsumer() throws Exception {
+        Process process = new ProcessBuilder(
+                new File(System.getProperty("java.home"), "bin/java").getPath(),
+                "-cp", System.getProperty("java.class.path"),
+                CrashingProducer.class.getName(), file.getPath(), "3")
+                .inheritIO()
+                .start();
+        assertEquals(0, process.waitFor());
+
+        try (MpscMappedFileRingBuffer producer = MpscMappedFileRingBuffer.attachProducer(file)) {
+            assertTrue(write(producer, 100));
+            List<Long> received = new ArrayList<>();
+            for (int i = 0; i < 4; i++) {
+                received.add(readWaiting(consumer));
+            }
+            assertEquals(Arrays.asList(0L, 1L, 2L, 100L), received);
+            assertEquals(1, consumer.abandoned());
+            assertEquals(EOF, consumer.readAcquire());
+        }
+    }
+
+    /**
+     * Writes some messages then dies half way through writing the next one.
+     */
+    public static class CrashingProducer {
+        public static void main(String[] args) throws IOException {
+            MpscMappedFileRingBuffer producer = MpscMappedFileRingBuffer.attachProducer(new File(args[0]));
+            final int messages = Integer.parseInt(args[1]);
+            for (int i = 0; i < messages; i++) {
+                write(producer, i);
+            }
+            long claim = producer.writeAcquire();
+            UNSAFE.putLong(producer.messageOffset(claim), -1);
+            Runtime.getRuntime().halt(0);
+        }
+    }
+
+    private static boolean write(MpscMappedFileRingBuffer rb, long value) {
+        long claim = rb.writeAcquire();
+        if (claim == EOF) {
+            return false;
+        }
+        long offset = rb.messageOffset(claim);
+        UNSAFE.putLong(offset, value);
+        UNSAFE.putInt(offset + 8, (int) value);
+        return rb.writeRelease(claim);
+    }
+
+    private static long read(MpscMappedFileRingBuffer rb) {
+        long offset = rb.readAcquire();
+        assertNotEquals(EOF, offset);
+        long value = UNSAFE.getLong(offset);
+        assertEquals((int) value, UNSAFE.getInt(offset + 8));
+        rb.readRelease(offset);
+        return value;
+    }
+
+    private static long readWaiting(MpscMappedFileRingBuffer rb) throws InterruptedException {
+        long offset;
+        while ((offset = rb.readAcquire()) == EOF) {
+            Thread.sleep(1);
+        }
+        long value = UNSAFE.getLong(offset);
+        rb.readRelease(offset);
+        return value;
+    }
+}
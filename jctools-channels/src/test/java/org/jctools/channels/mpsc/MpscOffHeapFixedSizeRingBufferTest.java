@@ -13,6 +13,12 @@
  */
 package org.jctools.channels.mpsc;
 
+import static org.jctools.channels.OffHeapFixedMessageSizeRingBuffer.EOF;
+import static org.jctools.util.UnsafeAccess.UNSAFE;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
 import org.jctools.channels.AbstractOffHeapFixedSizeRingBufferTest;
 import org.junit.Test;
 
@@ -32,4 +38,38 @@ public class MpscOffHeapFixedSizeRingBufferTest extends AbstractOffHeapFixedSize
         test(rb);
     }
 
+    @Test
+    public void testBatch() {
+        MpscOffHeapFixedSizeRingBuffer rb = new MpscOffHeapFixedSizeRingBuffer(16, 8, 0);
+        // offsets by index, as handed out to the producer
+        long[] offsets = new long[16];
+        long produced = 0;
+        long consumed = 0;
+        assertEquals(0, rb.readAcquire(16));
+        for (int lap = 0; lap < 3; lap++) {
+            for (int i = 0; i < 12; i++) {
+                long offset = rb.writeAcquire();
+                assertNotEquals(EOF, offset);
+                UNSAFE.putLong(offset + 4, produced);
+                offsets[(int) (produced++ & 15)] = offset;
+                rb.writeRelease(offset);
+            }
+            while (consumed < produced) {
+                long first = offsets[(int) (consumed & 15)];
+                int count = rb.readAcquire(16);
+                // a batch is contiguous, it stops at the end of the buffer
+                assertTrue(count > 0 && count <= 16 - (consumed & 15));
+                assertEquals(produced - consumed - count, rb.size());
+                for (int i = 0; i < count; i++) {
+                    assertEquals(first + i * 12, offsets[(int) ((consumed + i) & 15)]);
+                    assertEquals(consumed + i, UNSAFE.getLong(first + i * 12 + 4));
+                }
+                rb.readRelease(first, count);
+                consumed += count;
+            }
+            assertTrue(rb.isEmpty());
+            assertEquals(0, rb.readAcquire(16));
+        }
+    }
+
 }
@@ -0,0 +1,215 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jctools.channels.pipeline;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.jctools.channels.ChannelProducer;
+import org.junit.Test;
+
+public class PipelineTest {
+
+    private final Pipeline<Order> pipeline = new Pipeline<Order>(8, Order::new);
+    private final ChannelProducer<Order> producer = pipeline.producer();
+
+    @Test
+    public void stagesProcessEventsInOrderAfterTheirUpstream() {
+        List<String> log = new ArrayList<>();
+        Stage<Order> decode = pipeline.addStage((order, sequence, endOfBatch) -> {
+            order.price = order.raw * 10;
+            log.add("decode " + sequence);
+        });
+        Stage<Order> enrich = pipeline.addStage((order, sequence, endOfBatch) -> {
+            order.notional = order.price * 2;
+            log.add("enrich " + sequence);
+        }, decode);
+
+        assertEquals(2, publish(0, 2));
+        assertEquals(0, enrich.process(10));
+        assertEquals(2, decode.process(10));
+        assertEquals(2, enrich.process(10));
+        assertEquals(0, enrich.process(10));
+        assertEquals(2, enrich.processed());
+        assertEquals(2, pipeline.published());
+        assertEquals(asList("decode 0", "decode 1", "enrich 0", "enrich 1"), log);
+    }
+
+    @Test
+    public void producerIsGatedByTheLastStages() {
+        Stage<Order> decode = pipeline.addStage((order, sequence, endOfBatch) -> order.price = order.raw);
+        Stage<Order> persist = pipeline.addStage((order, sequence, endOfBatch) -> {
+            assertEquals(sequence, order.price);
+        }, decode);
+
+        assertEquals(8, publish(0, 100));
+        assertFalse(producer.claim());
+        assertEquals(8, decode.process(100));
+        // still gated by persist
+        assertFalse(producer.claim());
+        assertEquals(3, persist.process(3));
+        assertEquals(3, publish(8, 100));
+        assertEquals(3, decode.process(100));
+        assertEquals(8, persist.process(100));
+    }
+
+    @Test
+    public void diamondJoinsWaitForAllUpstreamStages() {
+        final List<Long> joined = new ArrayList<>();
+        Stage<Order> decode = pipeline.addStage((order, sequence, endOfBatch) -> order.price = order.raw);
+        Stage<Order> left = pipeline.addStage((order, sequence, endOfBatch) -> order.notional = order.price * 2,
+            decode);
+        Stage<Order> right = pipeline.addStage((order, sequence, endOfBatch) -> order.risk = order.price * 3,
+            decode);
+        Stage<Order> join = pipeline.addStage((order, sequence, endOfBatch) -> {
+            assertEquals(order.price * 2, order.notional);
+            assertEquals(order.price * 3, order.risk);
+            joined.add(sequence);
+        }, left, right);
+
+        assertEquals(4, publish(1, 4));
+        assertEquals(4, decode.process(100));
+        assertEquals(4, left.process(100));
+        assertEquals(0, join.process(100));
+        assertEquals(2, right.process(2));
+        assertEquals(2, join.process(100));
+        assertEquals(2, right.process(100));
+        assertEquals(2, join.process(100));
+        assertEquals(asList(0L, 1L, 2L, 3L), joined);
+    }
+
+    @Test
+    public void batchesEndWithEndOfBatch() {
+        final List<Boolean> ends = new ArrayList<>();
+        Stage<Order> stage = pipeline.addStage((order, sequence, endOfBatch) -> ends.add(endOfBatch));
+        publish(0, 5);
+        assertEquals(3, stage.process(3));
+        assertEquals(2, stage.process(3));
+        assertEquals(asList(false, false, true, false, true), ends);
+    }
+
+    @Test
+    public void failedEventIsCommittedAsProcessed() {
+        Stage<Order> stage = pipeline.addStage((order, sequence, endOfBatch) -> {
+            if (sequence == 1) {
+                throw new IllegalStateException("boom");
+            }
+        });
+        publish(0, 4);
+        try {
+            stage.process(10);
+            fail();
+        } catch (IllegalStateException expected) {
+        }
+        assertEquals(2, stage.processed());
+        assertEquals(2, stage.process(10));
+    }
+
+    @Test
+    public void stagesCanNotBeAddedOnceStarted() {
+        Stage<Order> stage = pipeline.addStage((order, sequence, endOfBatch) -> {
+        });
+        publish(0, 1);
+        try {
+            pipeline.addStage((order, sequence, endOfBatch) -> {
+            }, stage);
+            fail();
+        } catch (IllegalStateException expected) {
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void dependenciesMustBelongToThePipeline() {
+        Stage<Order> foreign = new Pipeline<Order>(8, Order::new).addStage((order, sequence, endOfBatch) -> {
+        });
+        pipeline.addStage((order, sequence, endOfBatch) -> {
+        }, foreign);
+    }
+
+    @Test(timeout = 30000)
+    public void concurrentStages() throws Exception {
+        final Pipeline<Order> pipeline = new Pipeline<Order>(64, Order::new);
+        final int events = 100000;
+        final AtomicReference<Throwable> failure = new AtomicReference<>();
+        final long[] sum = new long[1];
+        Stage<Order> decode = pipeline.addStage((order, sequence, endOfBatch) -> order.price = order.raw + 1);
+        Stage<Order> left = pipeline.addStage((order, sequence, endOfBatch) -> order.notional = order.price * 2,
+            decode);
+        Stage<Order> right = pipeline.addStage((order, sequence, endOfBatch) -> order.risk = order.price * 3,
+            decode);
+        Stage<Order> persist = pipeline.addStage((order, sequence, endOfBatch) -> {
+            if (order.raw != sequence || order.notional != 2 * (sequence + 1) || order.risk != 3 * (sequence + 1)) {
+                failure.compareAndSet(null, new AssertionError("bad event " + sequence));
+            }
+            sum[0] += order.raw;
+        }, left, right);
+
+        List<Thread> threads = new ArrayList<>();
+        for (Stage<Order> stage : asList(decode, left, right, persist)) {
+            threads.add(new Thread(() -> {
+                try {
+                    while (stage.processed() < events) {
+                        if (stage.process(16) == 0) {
+                            Thread.yield();
+                        }
+                    }
+                } catch (Throwable t) {
+                    failure.compareAndSet(null, t);
+                }
+            }));
+        }
+        for (Thread t : threads) {
+            t.start();
+        }
+        ChannelProducer<Order> producer = pipeline.producer();
+        for (int i = 0; i < events; ) {
+            if (!producer.claim()) {
+                Thread.yield();
+                continue;
+            }
+            producer.currentElement().raw = i++;
+            producer.commit();
+        }
+        for (Thread t : threads) {
+            t.join();
+        }
+        assertNull(failure.get());
+        assertEquals((long) events * (events - 1) / 2, sum[0]);
+    }
+
+    private int publish(long from, int count) {
+        int published = 0;
+        while (published < count && producer.claim()) {
+            producer.currentElement().raw = from + published;
+            assertTrue(producer.commit());
+            published++;
+        }
+        return published;
+    }
+
+    @SafeVarargs
+    private static <T> List<T> asList(T... values) {
+        return java.util.Arrays.asList(values);
+    }
+
+    static final class Order {
+        long raw;
+        long price;
+        long notional;
+        long risk;
+    }
+}
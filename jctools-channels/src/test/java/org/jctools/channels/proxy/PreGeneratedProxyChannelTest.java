@@ -0,0 +1,80 @@
+package org.jctools.channels.proxy;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.jctools.channels.mpsc.MpscOffHeapFixedSizeRingBuffer;
+import org.jctools.channels.spsc.SpscOffHeapFixedSizeRingBuffer;
+import org.junit.Test;
+
+public class PreGeneratedProxyChannelTest {
+
+    @GenerateProxyChannel
+    public interface Orders {
+
+        void add(long id, boolean buy, double price, String symbol);
+
+        void cancel(long id);
+
+        void flush() throws IOException;
+    }
+
+    private static final class RecordingOrders implements Orders {
+        final List<String> calls = new ArrayList<String>();
+
+        @Override
+        public void add(long id, boolean buy, double price, String symbol) {
+            calls.add("add " + id + " " + buy + " " + price + " " + symbol);
+        }
+
+        @Override
+        public void cancel(long id) {
+            calls.add("cancel " + id);
+        }
+
+        @Override
+        public void flush() throws IOException {
+            throw new IOException("flush " + calls.size());
+        }
+    }
+
+    @Test
+    public void spscProxyIsPreGenerated() throws Exception {
+        assertProxyIsPreGeneratedAndWorks(SpscOffHeapFixedSizeRingBuffer.class);
+    }
+
+    @Test
+    public void mpscProxyIsPreGenerated() throws Exception {
+        assertProxyIsPreGeneratedAndWorks(MpscOffHeapFixedSizeRingBuffer.class);
+    }
+
+    private void assertProxyIsPreGeneratedAndWorks(Class<? extends ProxyChannelRingBuffer> backend) throws Exception {
+        ProxyChannel<Orders> channel = ProxyChannelFactory.createProxy(16, Orders.class, idleCounter -> 0, backend);
+        assertEquals(ProxyChannelFactory.proxyClassName(Orders.class, backend), channel.getClass().getName());
+        assertFalse(channel.getClass().isSynthetic());
+
+        Orders proxy = channel.proxy();
+        proxy.add(Long.MIN_VALUE, true, 1.5, "JCT");
+        proxy.add(7, false, -2.25, null);
+        proxy.cancel(7);
+        proxy.flush();
+
+        RecordingOrders impl = new RecordingOrders();
+        assertEquals(3, channel.process(impl, 3));
+        assertEquals("add " + Long.MIN_VALUE + " true 1.5 JCT", impl.calls.get(0));
+        assertEquals("add 7 false -2.25 null", impl.calls.get(1));
+        assertEquals("cancel 7", impl.calls.get(2));
+        try {
+            channel.process(impl, 1);
+            fail();
+        } catch (Exception expected) {
+            // rethrown as is, although process does not declare it
+            assertTrue(expected instanceof IOException);
+            assertEquals("flush 3", expected.getMessage());
+        }
+        assertEquals(0, channel.process(impl, 1));
+    }
+}
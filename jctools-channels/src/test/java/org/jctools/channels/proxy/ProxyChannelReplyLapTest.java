@@ -0,0 +1,104 @@
+package org.jctools.channels.proxy;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.jctools.channels.mpsc.MpscOffHeapFixedSizeRingBuffer;
+import org.jctools.channels.spsc.SpscOffHeapFixedSizeRingBuffer;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+
+/**
+ * A caller slow to read its reply keeps its slot: the consumer lapping the buffer must not take that slot for a new
+ * call, and must process the call written there once the caller released it.
+ */
+@RunWith(Parameterized.class)
+public class ProxyChannelReplyLapTest {
+
+    public interface Svc {
+        int get();
+
+        void ping();
+    }
+
+    @Parameterized.Parameters(name = "{0}")
+    public static Collection<Object[]> parameters() {
+        List<Object[]> list = new ArrayList<>();
+        list.add(new Object[] { SpscOffHeapFixedSizeRingBuffer.class.getSimpleName(), SpscOffHeapFixedSizeRingBuffer.class });
+        list.add(new Object[] { MpscOffHeapFixedSizeRingBuffer.class.getSimpleName(), MpscOffHeapFixedSizeRingBuffer.class });
+        return list;
+    }
+
+    private final Class<? extends ProxyChannelRingBuffer> backend;
+
+    public ProxyChannelReplyLapTest(String name, Class<? extends ProxyChannelRingBuffer> backend) {
+        this.backend = backend;
+    }
+
+    @Test(timeout = 30000)
+    public void consumerDoesNotLapOntoAnUnreadReply() throws Exception {
+        final CountDownLatch callerWaiting = new CountDownLatch(1);
+        final CountDownLatch replyMayBeRead = new CountDownLatch(1);
+        final Thread[] caller = new Thread[1];
+        final ProxyChannel<Svc> channel = ProxyChannelFactory.createProxy(4, Svc.class, (idleCounter) -> {
+            if (Thread.currentThread() == caller[0] && callerWaiting.getCount() != 0) {
+                callerWaiting.countDown();
+                try {
+                    replyMayBeRead.await();
+                } catch (InterruptedException e) {
+                    throw new IllegalStateException(e);
+                }
+            }
+            Thread.yield();
+            return idleCounter + 1;
+        }, backend);
+        final AtomicInteger pings = new AtomicInteger();
+        final AtomicInteger reply = new AtomicInteger();
+        final Svc impl = new Svc() {
+            @Override
+            public int get() {
+                try {
+                    // reply only once the caller is parked, so it is late to read it
+                    callerWaiting.await();
+                } catch (InterruptedException e) {
+                    throw new IllegalStateException(e);
+                }
+                return 42;
+            }
+
+            @Override
+            public void ping() {
+                pings.incrementAndGet();
+            }
+        };
+        caller[0] = new Thread(() -> reply.set(channel.proxy().get()));
+        caller[0].start();
+
+        while (channel.process(impl, 1) == 0) {
+            Thread.yield();
+        }
+        final int capacity = channel.capacity();
+        final Svc proxy = channel.proxy();
+        for (int i = 0; i < capacity - 1; i++) {
+            proxy.ping();
+        }
+        assertEquals(capacity - 1, channel.process(impl, capacity));
+        // the next slot still holds the unread reply
+        assertEquals(0, channel.process(impl, 1));
+        assertEquals(capacity - 1, pings.get());
+
+        replyMayBeRead.countDown();
+        caller[0].join();
+        assertEquals(42, reply.get());
+        proxy.ping();
+        assertEquals(1, channel.process(impl, 1));
+        assertEquals(capacity, pings.get());
+        assertEquals(0, channel.process(impl, 1));
+    }
+}
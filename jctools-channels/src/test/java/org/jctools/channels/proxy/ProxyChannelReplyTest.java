@@ -0,0 +1,213 @@
+package org.jctools.channels.proxy;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.jctools.channels.mpmc.MpmcOffHeapFixedSizeRingBuffer;
+import org.jctools.channels.mpsc.MpscOffHeapFixedSizeRingBuffer;
+import org.jctools.channels.spmc.SpmcOffHeapFixedSizeRingBuffer;
+import org.jctools.channels.spsc.SpscOffHeapFixedSizeRingBuffer;
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+
+@RunWith(Parameterized.class)
+public class ProxyChannelReplyTest {
+
+    public interface Calculator {
+
+        int add(int x, int y);
+
+        long negate(long x);
+
+        boolean isPositive(double x);
+
+        byte narrow(int x);
+
+        char charAt(String s, int index);
+
+        float half(float x);
+
+        double twice(double x);
+
+        String concat(String a, Object b);
+
+        void record(int x);
+
+        Object fail(String message) throws IOException;
+    }
+
+    @GenerateProxyChannel(backends = {
+            SpscOffHeapFixedSizeRingBuffer.class,
+            MpscOffHeapFixedSizeRingBuffer.class,
+            SpmcOffHeapFixedSizeRingBuffer.class,
+            MpmcOffHeapFixedSizeRingBuffer.class })
+    public interface PreGeneratedCalculator extends Calculator {
+    }
+
+    private static final class CalculatorImpl implements PreGeneratedCalculator {
+        final AtomicInteger recorded = new AtomicInteger();
+
+        @Override
+        public int add(int x, int y) {
+            return x + y;
+        }
+
+        @Override
+        public long negate(long x) {
+            return -x;
+        }
+
+        @Override
+        public boolean isPositive(double x) {
+            return x > 0;
+        }
+
+        @Override
+        public byte narrow(int x) {
+            return (byte) x;
+        }
+
+        @Override
+        public char charAt(String s, int index) {
+            return s.charAt(index);
+        }
+
+        @Override
+        public float half(float x) {
+            return x / 2;
+        }
+
+        @Override
+        public double twice(double x) {
+            return x * 2;
+        }
+
+        @Override
+        public String concat(String a, Object b) {
+            return a + b;
+        }
+
+        @Override
+        public void record(int x) {
+            recorded.addAndGet(x);
+        }
+
+        @Override
+        public Object fail(String message) throws IOException {
+            throw new IOException(message);
+        }
+    }
+
+    @Parameterized.Parameters(name = "{0} pre-generated={1}")
+    public static Collection<Object[]> parameters() {
+        List<Object[]> list = new ArrayList<>();
+        for (Class<?> backend : new Class<?>[] {
+                SpscOffHeapFixedSizeRingBuffer.class,
+                MpscOffHeapFixedSizeRingBuffer.class,
+                SpmcOffHeapFixedSizeRingBuffer.class,
+                MpmcOffHeapFixedSizeRingBuffer.class }) {
+            list.add(new Object[] { backend.getSimpleName(), false, backend });
+            list.add(new Object[] { backend.getSimpleName(), true, backend });
+        }
+        return list;
+    }
+
+    private final ProxyChannel<Calculator> channel;
+    private final CalculatorImpl impl = new CalculatorImpl();
+    private final Thread consumer;
+    private volatile boolean running = true;
+
+    @SuppressWarnings("unchecked")
+    public ProxyChannelReplyTest(String name, boolean preGenerated, Class<? extends ProxyChannelRingBuffer> backend) {
+        Class<? extends Calculator> iFace = preGenerated ? PreGeneratedCalculator.class : Calculator.class;
+        channel = (ProxyChannel<Calculator>) ProxyChannelFactory.createProxy(16, iFace, (idleCounter) -> {
+            Thread.yield();
+            return idleCounter + 1;
+        }, backend);
+        assertEquals(ProxyChannelFactory.proxyClassName(iFace, backend), channel.getClass().getName());
+        assertEquals(!preGenerated, channel.getClass().isSynthetic());
+        consumer = new Thread(() -> {
+            while (running) {
+                if (channel.process(impl, 16) == 0) {
+                    Thread.yield();
+                }
+            }
+        });
+        consumer.start();
+    }
+
+    @After
+    public void stop() throws InterruptedException {
+        running = false;
+        consumer.join();
+    }
+
+    @Test(timeout = 30000)
+    public void callsReturnTheImplementationResults() throws Exception {
+        Calculator proxy = channel.proxy();
+        assertEquals(3, proxy.add(1, 2));
+        assertEquals(Long.MIN_VALUE + 1, proxy.negate(Long.MAX_VALUE));
+        assertTrue(proxy.isPositive(0.5));
+        assertFalse(proxy.isPositive(-0.5));
+        assertEquals((byte) -1, proxy.narrow(255));
+        assertEquals('\u20ac', proxy.charAt("x\u20ac", 1));
+        assertEquals(1.25f, proxy.half(2.5f), 0);
+        assertEquals(-5.0, proxy.twice(-2.5), 0);
+        assertEquals("a1", proxy.concat("a", 1));
+        assertEquals("nullnull", proxy.concat(null, null));
+        proxy.record(5);
+        // replies are ordered after the earlier void call
+        assertEquals(0, proxy.add(0, 0));
+        assertEquals(5, impl.recorded.get());
+        assertEquals(0, channel.size());
+    }
+
+    @Test(timeout = 30000)
+    public void exceptionsAreRethrownToTheCaller() throws Exception {
+        Calculator proxy = channel.proxy();
+        try {
+            proxy.fail("boom");
+            fail();
+        } catch (IOException expected) {
+            assertEquals("boom", expected.getMessage());
+        }
+        // the channel is still usable
+        assertEquals(7, proxy.add(3, 4));
+        assertEquals(0, channel.size());
+    }
+
+    @Test(timeout = 30000)
+    public void concurrentCallersGetTheirOwnReplies() throws Exception {
+        final int callers = channel instanceof SpscOffHeapFixedSizeRingBuffer ||
+                channel instanceof SpmcOffHeapFixedSizeRingBuffer ? 1 : 3;
+        final int calls = 5000;
+        final AtomicInteger wrongReplies = new AtomicInteger();
+        List<Thread> threads = new ArrayList<>();
+        for (int c = 0; c < callers; c++) {
+            final long base = c * 1000000L;
+            threads.add(new Thread(() -> {
+                Calculator proxy = channel.proxy();
+                for (int i = 0; i < calls; i++) {
+                    if (proxy.negate(base + i) != -(base + i) || !("" + i).equals(proxy.concat("", i))) {
+                        wrongReplies.incrementAndGet();
+                    }
+                }
+            }));
+        }
+        for (Thread t : threads) {
+            t.start();
+        }
+        for (Thread t : threads) {
+            t.join();
+        }
+        assertEquals(0, wrongReplies.get());
+        assertEquals(0, channel.size());
+    }
+}
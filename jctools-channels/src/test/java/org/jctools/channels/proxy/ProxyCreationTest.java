@@ -3,15 +3,24 @@ package org.jctools.channels.proxy;
 import static org.hamcrest.Matchers.instanceOf;
 import static org.junit.Assert.assertThat;
 
+import org.jctools.channels.WaitStrategies;
 import org.jctools.channels.WaitStrategy;
+import org.jctools.channels.mpmc.MpmcOffHeapFixedSizeRingBuffer;
 import org.jctools.channels.mpsc.MpscOffHeapFixedSizeRingBuffer;
 import org.jctools.channels.proxy.DemoIFace.CustomType;
+import org.jctools.channels.spmc.SpmcOffHeapFixedSizeRingBuffer;
 import org.jctools.channels.spsc.SpscOffHeapFixedSizeRingBuffer;
+import org.jctools.queues.BackoffWaitStrategy;
 import org.junit.Assert;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
 public class ProxyCreationTest {
     private static final class ThrowExceptionOnFullQueue implements WaitStrategy {
         private static final String MESSAGE = "queue is full";
@@ -38,6 +47,41 @@ public class ProxyCreationTest {
         assertThat(proxyChannel.proxyInstance(proxy), instanceOf(DemoIFace.class));
     }
 
+    @Test
+    public void testGeneratedProxyWithQueueWaitStrategy() {
+        ProxyChannel<DemoIFace> proxyChannel =
+                ProxyChannelFactory.createSpscProxy(10, DemoIFace.class, WaitStrategies.of(new BackoffWaitStrategy()));
+        proxyChannel.proxy().call1(1, 2);
+        final int[] calls = new int[1];
+        proxyChannel.process(new DemoIFace() {
+            @Override
+            public void call1(int x, int y) {
+                calls[0]++;
+            }
+
+            @Override
+            public void call2(float x, double y, boolean z) {
+            }
+
+            @Override
+            public void call3() {
+            }
+
+            @Override
+            public void call4(Object x, CustomType y) {
+            }
+
+            @Override
+            public void call5(CustomType x, int y, CustomType z) {
+            }
+
+            @Override
+            public void call6(int x, CustomType[] y, CustomType... z) {
+            }
+        }, 1);
+        Assert.assertEquals(1, calls[0]);
+    }
+
     @Test
     public void givenGeneratedProxyUsingSpscReferenceChannel_whenCallMethods_expectAllCallsAreProxied() throws Exception {
         util_givenGeneratedProxyUsingReferenceChannel_whenCallMethods_expectAllCallsAreProxied(SpscOffHeapFixedSizeRingBuffer.class);
@@ -48,6 +92,103 @@ public class ProxyCreationTest {
         util_givenGeneratedProxyUsingReferenceChannel_whenCallMethods_expectAllCallsAreProxied(MpscOffHeapFixedSizeRingBuffer.class);
     }
 
+    @Test
+    public void givenGeneratedProxyUsingSpmcReferenceChannel_whenCallMethods_expectAllCallsAreProxied() throws Exception {
+        util_givenGeneratedProxyUsingReferenceChannel_whenCallMethods_expectAllCallsAreProxied(SpmcOffHeapFixedSizeRingBuffer.class);
+    }
+
+    @Test
+    public void givenGeneratedProxyUsingMpmcReferenceChannel_whenCallMethods_expectAllCallsAreProxied() throws Exception {
+        util_givenGeneratedProxyUsingReferenceChannel_whenCallMethods_expectAllCallsAreProxied(MpmcOffHeapFixedSizeRingBuffer.class);
+    }
+
+    @Test(timeout = 30000)
+    public void givenSpmcProxy_whenCallsAreProcessedByManyThreads_expectEachCallProcessedOnce() throws Exception {
+        util_givenMultiConsumerProxy_whenCallsAreProcessedByManyThreads_expectEachCallProcessedOnce(
+                ProxyChannelFactory.createSpmcProxy(64, DemoIFace.class, (idleCounter) -> {
+                    Thread.yield();
+                    return idleCounter + 1;
+                }), 1);
+    }
+
+    @Test(timeout = 30000)
+    public void givenMpmcProxy_whenCallsAreProcessedByManyThreads_expectEachCallProcessedOnce() throws Exception {
+        util_givenMultiConsumerProxy_whenCallsAreProcessedByManyThreads_expectEachCallProcessedOnce(
+                ProxyChannelFactory.createMpmcProxy(64, DemoIFace.class, (idleCounter) -> {
+                    Thread.yield();
+                    return idleCounter + 1;
+                }), 3);
+    }
+
+    private static void util_givenMultiConsumerProxy_whenCallsAreProcessedByManyThreads_expectEachCallProcessedOnce(
+            ProxyChannel<DemoIFace> proxyChannel, int producers) throws Exception {
+        final int consumers = 3;
+        final int callsPerProducer = 20000;
+        final int calls = producers * callsPerProducer;
+        final AtomicInteger processed = new AtomicInteger();
+        final AtomicLong sum = new AtomicLong();
+        final AtomicInteger wrongArguments = new AtomicInteger();
+        final DemoIFace handler = new DemoIFace() {
+            @Override
+            public void call1(int x, int y) {
+                if (y != -x) {
+                    wrongArguments.incrementAndGet();
+                }
+                sum.addAndGet(x);
+                processed.incrementAndGet();
+            }
+
+            @Override
+            public void call2(float x, double y, boolean z) {
+            }
+
+            @Override
+            public void call3() {
+            }
+
+            @Override
+            public void call4(Object x, CustomType y) {
+            }
+
+            @Override
+            public void call5(CustomType x, int y, CustomType z) {
+            }
+
+            @Override
+            public void call6(int x, CustomType[] y, CustomType... z) {
+            }
+        };
+        List<Thread> threads = new ArrayList<>();
+        for (int c = 0; c < consumers; c++) {
+            threads.add(new Thread(() -> {
+                while (processed.get() < calls) {
+                    if (proxyChannel.process(handler, 16) == 0) {
+                        Thread.yield();
+                    }
+                }
+            }));
+        }
+        for (int p = 0; p < producers; p++) {
+            final int base = p * callsPerProducer;
+            threads.add(new Thread(() -> {
+                DemoIFace proxy = proxyChannel.proxy();
+                for (int i = 1; i <= callsPerProducer; i++) {
+                    proxy.call1(base + i, -(base + i));
+                }
+            }));
+        }
+        for (Thread t : threads) {
+            t.start();
+        }
+        for (Thread t : threads) {
+            t.join();
+        }
+        Assert.assertEquals(calls, processed.get());
+        Assert.assertEquals(0, wrongArguments.get());
+        Assert.assertEquals((long) calls * (calls + 1) / 2, sum.get());
+        Assert.assertEquals(0, proxyChannel.size());
+    }
+
     private static void util_givenGeneratedProxyUsingReferenceChannel_whenCallMethods_expectAllCallsAreProxied(
             Class<? extends ProxyChannelRingBuffer> backend) {
         ProxyChannel<DemoIFace> proxyChannel =
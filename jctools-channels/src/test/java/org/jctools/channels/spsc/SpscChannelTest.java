@@ -13,12 +13,17 @@
  */
 package org.jctools.channels.spsc;
 
+import org.jctools.channels.ChannelBatch;
+import org.jctools.channels.ChannelBatchReceiver;
 import org.jctools.channels.ChannelConsumer;
 import org.jctools.channels.ChannelProducer;
 import org.jctools.channels.ChannelReceiver;
 import org.junit.Test;
 
 import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 
 import static org.junit.Assert.*;
 
@@ -102,6 +107,84 @@ public class SpscChannelTest {
         assertTrue(channel.size() <= MAXIMUM_CAPACITY);
     }
 
+    @Test
+    public void shouldReadABatch() {
+        final List<Integer> read = new ArrayList<Integer>();
+        ChannelConsumer consumer = channel.consumer(new ChannelReceiver<Example>() {
+            public void accept(Example element) {
+                read.add(element.getFoo());
+            }
+        });
+        assertEquals(0, consumer.read(4));
+
+        write(0, 6);
+        assertEquals(4, consumer.read(4));
+        assertSize(2);
+        assertEquals(2, consumer.read(4));
+        assertEmpty();
+        assertEquals(0, consumer.read(4));
+        assertEquals(asList(0, 6), read);
+    }
+
+    @Test
+    public void shouldStopABatchAtTheEndOfTheBuffer() {
+        final List<Integer> read = new ArrayList<Integer>();
+        final List<Integer> batchSizes = new ArrayList<Integer>();
+        ChannelConsumer consumer = channel.consumer(new ChannelBatchReceiver<Example>() {
+            public void accept(Example element) {
+                read.add(element.getFoo());
+            }
+
+            public void accept(ChannelBatch<Example> batch) {
+                batchSizes.add(batch.size());
+                for (int i = 0; i < batch.size(); i++) {
+                    read.add(batch.get(i).getFoo());
+                }
+            }
+        });
+
+        write(0, 12);
+        assertEquals(12, consumer.read(MAXIMUM_CAPACITY));
+        write(12, 8);
+        // 4 messages left before the buffer wraps around
+        assertEquals(4, consumer.read(MAXIMUM_CAPACITY));
+        assertTrue(consumer.read());
+        assertEquals(3, consumer.read(MAXIMUM_CAPACITY));
+        assertEmpty();
+        assertEquals(asList(0, 20), read);
+        assertEquals(Arrays.asList(12, 4, 3), batchSizes);
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void shouldNotReadOutsideOfABatch() {
+        ChannelConsumer consumer = channel.consumer(new ChannelBatchReceiver<Example>() {
+            public void accept(Example element) {
+            }
+
+            public void accept(ChannelBatch<Example> batch) {
+                batch.get(batch.size());
+            }
+        });
+        write(0, 2);
+        consumer.read(2);
+    }
+
+    private void write(int from, int count) {
+        for (int i = from; i < from + count; i++) {
+            assertTrue(producer.claim());
+            producer.currentElement().setFoo(i);
+            assertTrue(producer.commit());
+        }
+    }
+
+    private static List<Integer> asList(int from, int count) {
+        List<Integer> list = new ArrayList<Integer>();
+        for (int i = from; i < from + count; i++) {
+            list.add(i);
+        }
+        return list;
+    }
+
     private void assertSize(int expectedSize) {
         assertEquals(expectedSize, channel.size());
     }
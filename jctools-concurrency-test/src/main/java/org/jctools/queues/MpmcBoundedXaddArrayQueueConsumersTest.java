@@ -0,0 +1,40 @@
+package org.jctools.queues;
+
+import org.openjdk.jcstress.annotations.Actor;
+import org.openjdk.jcstress.annotations.JCStressTest;
+import org.openjdk.jcstress.annotations.Outcome;
+import org.openjdk.jcstress.annotations.State;
+import org.openjdk.jcstress.infra.results.IntResult2;
+
+import static org.openjdk.jcstress.annotations.Expect.ACCEPTABLE;
+import static org.openjdk.jcstress.annotations.Expect.FORBIDDEN;
+
+/**
+ * Two consumers race for the only element, after a lap of the rings: exactly one of them must get it.
+ */
+@JCStressTest
+@Outcome(id = "2, -1", expect = ACCEPTABLE, desc = "actor1 got the element.")
+@Outcome(id = "-1, 2", expect = ACCEPTABLE, desc = "actor2 got the element.")
+@Outcome(expect = FORBIDDEN, desc = "Lost or duplicated element.")
+@State
+public class MpmcBoundedXaddArrayQueueConsumersTest {
+    private final MpmcBoundedXaddArrayQueue<Integer> queue = new MpmcBoundedXaddArrayQueue<>(1);
+
+    public MpmcBoundedXaddArrayQueueConsumersTest() {
+        queue.offer(1);
+        queue.poll();
+        queue.offer(2);
+    }
+
+    @Actor
+    public void actor1(IntResult2 result) {
+        Integer e = queue.poll();
+        result.r1 = e == null ? -1 : e;
+    }
+
+    @Actor
+    public void actor2(IntResult2 result) {
+        Integer e = queue.poll();
+        result.r2 = e == null ? -1 : e;
+    }
+}
@@ -0,0 +1,39 @@
+package org.jctools.queues;
+
+import org.openjdk.jcstress.annotations.Actor;
+import org.openjdk.jcstress.annotations.JCStressTest;
+import org.openjdk.jcstress.annotations.Outcome;
+import org.openjdk.jcstress.annotations.State;
+import org.openjdk.jcstress.infra.results.IntResult2;
+
+import static org.openjdk.jcstress.annotations.Expect.ACCEPTABLE;
+import static org.openjdk.jcstress.annotations.Expect.FORBIDDEN;
+
+/**
+ * A producer offers two elements while a consumer polls twice: elements must be seen in FIFO order, and offers
+ * complete when they return so there is no half published element to skip.
+ */
+@JCStressTest
+@Outcome(id = "-1, -1", expect = ACCEPTABLE, desc = "Consumer ran first.")
+@Outcome(id = "-1, 1", expect = ACCEPTABLE, desc = "First element offered between polls.")
+@Outcome(id = "1, -1", expect = ACCEPTABLE, desc = "Second element not yet offered.")
+@Outcome(id = "1, 2", expect = ACCEPTABLE, desc = "Producer ran first.")
+@Outcome(expect = FORBIDDEN, desc = "Out of order or lost element.")
+@State
+public class MpmcBoundedXaddArrayQueueProducerConsumerTest {
+    private final MpmcBoundedXaddArrayQueue<Integer> queue = new MpmcBoundedXaddArrayQueue<>(2);
+
+    @Actor
+    public void actor1() {
+        queue.offer(1);
+        queue.offer(2);
+    }
+
+    @Actor
+    public void actor2(IntResult2 result) {
+        Integer e1 = queue.poll();
+        Integer e2 = queue.poll();
+        result.r1 = e1 == null ? -1 : e1;
+        result.r2 = e2 == null ? -1 : e2;
+    }
+}
@@ -0,0 +1,44 @@
+package org.jctools.queues;
+
+import org.openjdk.jcstress.annotations.Actor;
+import org.openjdk.jcstress.annotations.Arbiter;
+import org.openjdk.jcstress.annotations.JCStressTest;
+import org.openjdk.jcstress.annotations.Outcome;
+import org.openjdk.jcstress.annotations.State;
+import org.openjdk.jcstress.infra.results.IntResult3;
+
+import static org.openjdk.jcstress.annotations.Expect.ACCEPTABLE;
+import static org.openjdk.jcstress.annotations.Expect.FORBIDDEN;
+
+/**
+ * Two producers race for the last free slot: exactly one of them must succeed, and its element must be the one polled.
+ */
+@JCStressTest
+@Outcome(id = "1, 0, 1", expect = ACCEPTABLE, desc = "actor1 got the slot.")
+@Outcome(id = "0, 1, 2", expect = ACCEPTABLE, desc = "actor2 got the slot.")
+@Outcome(expect = FORBIDDEN, desc = "Both or neither offered, or the wrong element polled.")
+@State
+public class MpmcBoundedXaddArrayQueueProducersTest {
+    private final MpmcBoundedXaddArrayQueue<Integer> queue = new MpmcBoundedXaddArrayQueue<>(2);
+
+    public MpmcBoundedXaddArrayQueueProducersTest() {
+        queue.offer(0);
+    }
+
+    @Actor
+    public void actor1(IntResult3 result) {
+        result.r1 = queue.offer(1) ? 1 : 0;
+    }
+
+    @Actor
+    public void actor2(IntResult3 result) {
+        result.r2 = queue.offer(2) ? 1 : 0;
+    }
+
+    @Arbiter
+    public void arbiter(IntResult3 result) {
+        queue.poll();
+        Integer e = queue.poll();
+        result.r3 = e == null ? -1 : e;
+    }
+}
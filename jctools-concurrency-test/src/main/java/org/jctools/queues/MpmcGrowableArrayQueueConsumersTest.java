@@ -0,0 +1,42 @@
+package org.jctools.queues;
+
+import org.openjdk.jcstress.annotations.Actor;
+import org.openjdk.jcstress.annotations.JCStressTest;
+import org.openjdk.jcstress.annotations.Outcome;
+import org.openjdk.jcstress.annotations.State;
+import org.openjdk.jcstress.infra.results.IntResult2;
+
+import static org.openjdk.jcstress.annotations.Expect.ACCEPTABLE;
+import static org.openjdk.jcstress.annotations.Expect.FORBIDDEN;
+
+/**
+ * Two consumers race for the only element, which sits behind a JUMP in the first buffer: exactly one of them must
+ * get it.
+ */
+@JCStressTest
+@Outcome(id = "2, -1", expect = ACCEPTABLE, desc = "actor1 got the element.")
+@Outcome(id = "-1, 2", expect = ACCEPTABLE, desc = "actor2 got the element.")
+@Outcome(expect = FORBIDDEN, desc = "Lost or duplicated element.")
+@State
+public class MpmcGrowableArrayQueueConsumersTest {
+    private final MpmcGrowableArrayQueue<Integer> queue = new MpmcGrowableArrayQueue<>(2, 8);
+
+    public MpmcGrowableArrayQueueConsumersTest() {
+        queue.offer(1);
+        // the first buffer is full, this one resizes
+        queue.offer(2);
+        queue.poll();
+    }
+
+    @Actor
+    public void actor1(IntResult2 result) {
+        Integer e = queue.poll();
+        result.r1 = e == null ? -1 : e;
+    }
+
+    @Actor
+    public void actor2(IntResult2 result) {
+        Integer e = queue.poll();
+        result.r2 = e == null ? -1 : e;
+    }
+}
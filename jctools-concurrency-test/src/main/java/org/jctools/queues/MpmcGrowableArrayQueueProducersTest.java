@@ -0,0 +1,51 @@
+package org.jctools.queues;
+
+import org.openjdk.jcstress.annotations.Actor;
+import org.openjdk.jcstress.annotations.Arbiter;
+import org.openjdk.jcstress.annotations.JCStressTest;
+import org.openjdk.jcstress.annotations.Outcome;
+import org.openjdk.jcstress.annotations.State;
+import org.openjdk.jcstress.infra.results.IntResult2;
+
+import static org.openjdk.jcstress.annotations.Expect.ACCEPTABLE;
+import static org.openjdk.jcstress.annotations.Expect.FORBIDDEN;
+
+/**
+ * Two producers race on a full first buffer, one of them resizes: both elements must be polled after the initial one.
+ */
+@JCStressTest
+@Outcome(id = "1, 2", expect = ACCEPTABLE, desc = "actor1 first.")
+@Outcome(id = "2, 1", expect = ACCEPTABLE, desc = "actor2 first.")
+@Outcome(expect = FORBIDDEN, desc = "Lost or duplicated element.")
+@State
+public class MpmcGrowableArrayQueueProducersTest {
+    private final MpmcGrowableArrayQueue<Integer> queue = new MpmcGrowableArrayQueue<>(2, 8);
+
+    public MpmcGrowableArrayQueueProducersTest() {
+        queue.offer(0);
+    }
+
+    @Actor
+    public void actor1() {
+        queue.offer(1);
+    }
+
+    @Actor
+    public void actor2() {
+        queue.offer(2);
+    }
+
+    @Arbiter
+    public void arbiter(IntResult2 result) {
+        if (queue.poll() != 0) {
+            return;
+        }
+        Integer e = queue.poll();
+        result.r1 = e == null ? -1 : e;
+        e = queue.poll();
+        result.r2 = e == null ? -1 : e;
+        if (queue.poll() != null) {
+            result.r1 = -1;
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package org.jctools.queues;
+
+import org.openjdk.jcstress.annotations.Actor;
+import org.openjdk.jcstress.annotations.Arbiter;
+import org.openjdk.jcstress.annotations.JCStressTest;
+import org.openjdk.jcstress.annotations.Outcome;
+import org.openjdk.jcstress.annotations.State;
+import org.openjdk.jcstress.infra.results.IntResult3;
+
+import static org.openjdk.jcstress.annotations.Expect.ACCEPTABLE;
+import static org.openjdk.jcstress.annotations.Expect.FORBIDDEN;
+
+/**
+ * A batch fill races a single offer: the batch claim must not overlap the offer claim, and the batch must keep its
+ * order.
+ */
+@JCStressTest
+@Outcome(id = "2, 1, 123", expect = ACCEPTABLE, desc = "fill claimed first.")
+@Outcome(id = "2, 1, 312", expect = ACCEPTABLE, desc = "offer claimed first.")
+@Outcome(id = "2, 1, 132", expect = ACCEPTABLE, desc = "fill split its batch around the offer.")
+@Outcome(expect = FORBIDDEN, desc = "Lost, duplicated or reordered elements.")
+@State
+public class MpscRelaxedArrayQueueFillProducersTest {
+    private final MpscRelaxedArrayQueue<Integer> queue = new MpscRelaxedArrayQueue<>(4);
+    private int next = 1;
+
+    @Actor
+    public void actor1(IntResult3 result) {
+        result.r1 = queue.fill(() -> next++, 2);
+    }
+
+    @Actor
+    public void actor2(IntResult3 result) {
+        result.r2 = queue.offer(3) ? 1 : 0;
+    }
+
+    @Arbiter
+    public void arbiter(IntResult3 result) {
+        int polled = 0;
+        Integer e;
+        while ((e = queue.poll()) != null) {
+            polled = polled * 10 + e;
+        }
+        result.r3 = polled;
+    }
+}
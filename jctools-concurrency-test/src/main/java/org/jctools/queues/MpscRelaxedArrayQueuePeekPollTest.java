@@ -0,0 +1,37 @@
+package org.jctools.queues;
+
+import org.openjdk.jcstress.annotations.Actor;
+import org.openjdk.jcstress.annotations.JCStressTest;
+import org.openjdk.jcstress.annotations.Outcome;
+import org.openjdk.jcstress.annotations.State;
+import org.openjdk.jcstress.infra.results.IntResult2;
+
+import static org.openjdk.jcstress.annotations.Expect.ACCEPTABLE;
+import static org.openjdk.jcstress.annotations.Expect.FORBIDDEN;
+
+/**
+ * The strict peek and poll wait for a claimed but not yet visible element: once peek has seen an element the poll
+ * that follows must return it.
+ */
+@JCStressTest
+@Outcome(id = "-1, -1", expect = ACCEPTABLE, desc = "Consumer ran first.")
+@Outcome(id = "-1, 1", expect = ACCEPTABLE, desc = "Element offered between peek and poll.")
+@Outcome(id = "1, 1", expect = ACCEPTABLE, desc = "Producer ran first.")
+@Outcome(expect = FORBIDDEN, desc = "Peeked element not polled.")
+@State
+public class MpscRelaxedArrayQueuePeekPollTest {
+    private final MpscRelaxedArrayQueue<Integer> queue = new MpscRelaxedArrayQueue<>(2);
+
+    @Actor
+    public void actor1() {
+        queue.offer(1);
+    }
+
+    @Actor
+    public void actor2(IntResult2 result) {
+        Integer peeked = queue.peek();
+        Integer polled = queue.poll();
+        result.r1 = peeked == null ? -1 : peeked;
+        result.r2 = polled == null ? -1 : polled;
+    }
+}
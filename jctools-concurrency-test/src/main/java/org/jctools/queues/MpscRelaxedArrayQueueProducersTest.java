@@ -0,0 +1,46 @@
+package org.jctools.queues;
+
+import org.openjdk.jcstress.annotations.Actor;
+import org.openjdk.jcstress.annotations.Arbiter;
+import org.openjdk.jcstress.annotations.JCStressTest;
+import org.openjdk.jcstress.annotations.Outcome;
+import org.openjdk.jcstress.annotations.State;
+import org.openjdk.jcstress.infra.results.IntResult3;
+
+import static org.openjdk.jcstress.annotations.Expect.ACCEPTABLE;
+import static org.openjdk.jcstress.annotations.Expect.FORBIDDEN;
+
+/**
+ * Two producers race for the last slot of a cycle: one of them claims the end of the cycle and has to rotate before
+ * retrying. The queue is empty so both offers must succeed, and both elements must be polled.
+ */
+@JCStressTest
+@Outcome(id = "1, 1, 12", expect = ACCEPTABLE, desc = "actor1 got the last slot of the cycle.")
+@Outcome(id = "1, 1, 21", expect = ACCEPTABLE, desc = "actor2 got the last slot of the cycle.")
+@Outcome(expect = FORBIDDEN, desc = "An offer failed or an element was lost.")
+@State
+public class MpscRelaxedArrayQueueProducersTest {
+    private final MpscRelaxedArrayQueue<Integer> queue = new MpscRelaxedArrayQueue<>(2);
+
+    public MpscRelaxedArrayQueueProducersTest() {
+        queue.offer(0);
+        queue.poll();
+    }
+
+    @Actor
+    public void actor1(IntResult3 result) {
+        result.r1 = queue.offer(1) ? 1 : 0;
+    }
+
+    @Actor
+    public void actor2(IntResult3 result) {
+        result.r2 = queue.offer(2) ? 1 : 0;
+    }
+
+    @Arbiter
+    public void arbiter(IntResult3 result) {
+        Integer e1 = queue.poll();
+        Integer e2 = queue.poll();
+        result.r3 = (e1 == null ? 0 : e1) * 10 + (e2 == null ? 0 : e2);
+    }
+}
@@ -0,0 +1,39 @@
+package org.jctools.queues;
+
+import org.openjdk.jcstress.annotations.Actor;
+import org.openjdk.jcstress.annotations.JCStressTest;
+import org.openjdk.jcstress.annotations.Outcome;
+import org.openjdk.jcstress.annotations.State;
+import org.openjdk.jcstress.infra.results.IntResult2;
+
+import static org.openjdk.jcstress.annotations.Expect.ACCEPTABLE;
+import static org.openjdk.jcstress.annotations.Expect.FORBIDDEN;
+
+/**
+ * The producer crosses a chunk boundary while a consumer polls: elements must be seen in FIFO order and fully
+ * published, the queue is empty only if nothing was offered yet.
+ */
+@JCStressTest
+@Outcome(id = "-1, -1", expect = ACCEPTABLE, desc = "Consumer ran first.")
+@Outcome(id = "-1, 1", expect = ACCEPTABLE, desc = "First element published between polls.")
+@Outcome(id = "1, -1", expect = ACCEPTABLE, desc = "Second element not yet published.")
+@Outcome(id = "1, 2", expect = ACCEPTABLE, desc = "Producer ran first.")
+@Outcome(expect = FORBIDDEN, desc = "Out of order or lost element.")
+@State
+public class SpmcUnboundedXaddArrayQueueProducerConsumerTest {
+    private final SpmcUnboundedXaddArrayQueue<Integer> queue = new SpmcUnboundedXaddArrayQueue<>(1, 0);
+
+    @Actor
+    public void actor1() {
+        queue.offer(1);
+        queue.offer(2);
+    }
+
+    @Actor
+    public void actor2(IntResult2 result) {
+        Integer e1 = queue.poll();
+        Integer e2 = queue.poll();
+        result.r1 = e1 == null ? -1 : e1;
+        result.r2 = e2 == null ? -1 : e2;
+    }
+}
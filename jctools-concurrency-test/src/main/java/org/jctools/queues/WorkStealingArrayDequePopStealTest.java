@@ -0,0 +1,38 @@
+package org.jctools.queues;
+
+import org.openjdk.jcstress.annotations.Actor;
+import org.openjdk.jcstress.annotations.JCStressTest;
+import org.openjdk.jcstress.annotations.Outcome;
+import org.openjdk.jcstress.annotations.State;
+import org.openjdk.jcstress.infra.results.IntResult2;
+
+import static org.openjdk.jcstress.annotations.Expect.ACCEPTABLE;
+import static org.openjdk.jcstress.annotations.Expect.FORBIDDEN;
+
+/**
+ * The owner pops and a thief steals the last element of the deque: exactly one of them must get it.
+ */
+@JCStressTest
+@Outcome(id = "1, -1", expect = ACCEPTABLE, desc = "The owner popped the element.")
+@Outcome(id = "-1, 1", expect = ACCEPTABLE, desc = "The thief stole the element.")
+@Outcome(expect = FORBIDDEN, desc = "Lost or duplicated element.")
+@State
+public class WorkStealingArrayDequePopStealTest {
+    private final WorkStealingArrayDeque<Integer> deque = new WorkStealingArrayDeque<>(2);
+
+    public WorkStealingArrayDequePopStealTest() {
+        deque.push(1);
+    }
+
+    @Actor
+    public void owner(IntResult2 result) {
+        Integer e = deque.pop();
+        result.r1 = e == null ? -1 : e;
+    }
+
+    @Actor
+    public void thief(IntResult2 result) {
+        Integer e = deque.steal();
+        result.r2 = e == null ? -1 : e;
+    }
+}
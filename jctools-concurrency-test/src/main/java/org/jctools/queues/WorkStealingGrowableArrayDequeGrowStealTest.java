@@ -0,0 +1,43 @@
+package org.jctools.queues;
+
+import org.openjdk.jcstress.annotations.Actor;
+import org.openjdk.jcstress.annotations.JCStressTest;
+import org.openjdk.jcstress.annotations.Outcome;
+import org.openjdk.jcstress.annotations.State;
+import org.openjdk.jcstress.infra.results.IntResult2;
+
+import static org.openjdk.jcstress.annotations.Expect.ACCEPTABLE;
+import static org.openjdk.jcstress.annotations.Expect.FORBIDDEN;
+
+/**
+ * The owner grows the buffer and then pops everything back while a thief steals: the oldest element must be taken
+ * exactly once, either by the thief or by the owner's last pop.
+ */
+@JCStressTest
+@Outcome(id = "1, -1", expect = ACCEPTABLE, desc = "The owner popped the oldest element.")
+@Outcome(id = "-1, 1", expect = ACCEPTABLE, desc = "The thief stole the oldest element.")
+@Outcome(expect = FORBIDDEN, desc = "Lost, duplicated or out of order element.")
+@State
+public class WorkStealingGrowableArrayDequeGrowStealTest {
+    private final WorkStealingGrowableArrayDeque<Integer> deque = new WorkStealingGrowableArrayDeque<>(2, 8);
+
+    public WorkStealingGrowableArrayDequeGrowStealTest() {
+        deque.push(1);
+    }
+
+    @Actor
+    public void owner(IntResult2 result) {
+        deque.push(2);
+        deque.push(3);
+        deque.pop();
+        deque.pop();
+        Integer e = deque.pop();
+        result.r1 = e == null ? -1 : e;
+    }
+
+    @Actor
+    public void thief(IntResult2 result) {
+        Integer e = deque.steal();
+        result.r2 = e == null ? -1 : e;
+    }
+}
@@ -0,0 +1,121 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jctools.queues;
+
+import org.jctools.util.RangeUtil;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Spin then park with a spin limit tuned from recent arrivals: when an idle period ends while spinning late in the
+ * spin phase, or right after parking, the spin limit grows; when periods end long after parking (sparse arrivals) or
+ * very early in the spin phase, it shrinks. A busy queue thus settles on spinning just long enough to catch the
+ * typical inter-arrival gap, an idle queue on parking quickly. The park phase uses exponentially growing timed parks,
+ * no signalling is needed.
+ * <p>
+ * The strategy infers the end of an idle period from the caller resetting the idle counter to 0, as in the
+ * {@link MessagePassingQueue.WaitStrategy} usage pattern. An instance holds per thread state and supports a single
+ * waiting thread.
+ * <p>
+ * 调整规则（上一个空闲周期结束时的idleCounter记为n，当前自旋上限为limit）：
+ * 1. n > limit / 2 且 n <= limit + 1：元素在自旋后半段或第一次park期间到达，多自旋一点就能避免park，limit翻倍。
+ * 2. n > limit + 1：经历了多次park，到达间隔较长，自旋是浪费，limit减半。
+ * 3. n < limit / 4：到达间隔远小于limit，limit减少1/8。
+ * limit始终在[minSpins, maxSpins]之间。
+ */
+public final class AdaptiveWaitStrategy implements MessagePassingQueue.WaitStrategy
+{
+    private final int minSpins;
+    private final int maxSpins;
+    private final long minParkNanos;
+    private final long maxParkNanos;
+    // waiting thread only
+    private int spinLimit;
+    private int lastIdleCounter;
+
+    /**
+     * Spin limit in [16, 64K], parks from 1us up to 1ms.
+     */
+    public AdaptiveWaitStrategy()
+    {
+        this(16, 64 * 1024, TimeUnit.MICROSECONDS.toNanos(1), TimeUnit.MILLISECONDS.toNanos(1));
+    }
+
+    public AdaptiveWaitStrategy(int minSpins, int maxSpins, long minParkNanos, long maxParkNanos)
+    {
+        RangeUtil.checkPositive(minSpins, "minSpins");
+        RangeUtil.checkGreaterThanOrEqual(maxSpins, minSpins, "maxSpins");
+        RangeUtil.checkPositive(minParkNanos, "minParkNanos");
+        if (maxParkNanos < minParkNanos)
+        {
+            throw new IllegalArgumentException("maxParkNanos: " + maxParkNanos + " (expected: >= " + minParkNanos + ')');
+        }
+        this.minSpins = minSpins;
+        this.maxSpins = maxSpins;
+        this.minParkNanos = minParkNanos;
+        this.maxParkNanos = maxParkNanos;
+        this.spinLimit = minSpins;
+    }
+
+    /**
+     * @return the current spin limit, for monitoring (only exact when called by the waiting thread)
+     */
+    public int spinLimit()
+    {
+        return spinLimit;
+    }
+
+    @Override
+    public int idle(int idleCounter)
+    {
+        if (idleCounter == 0 && lastIdleCounter != 0)
+        {
+            adapt(lastIdleCounter);
+        }
+        final int spinLimit = this.spinLimit;
+        if (idleCounter < spinLimit)
+        {
+            BusySpinWaitStrategy.onSpinWait();
+        }
+        else
+        {
+            final int shift = idleCounter - spinLimit;
+            // 移位不能溢出为负数
+            final long parkNanos = shift >= Long.numberOfLeadingZeros(minParkNanos) - 1 ?
+                maxParkNanos : Math.min(minParkNanos << shift, maxParkNanos);
+            LockSupport.parkNanos(this, parkNanos);
+        }
+        final int next = idleCounter == Integer.MAX_VALUE ? idleCounter : idleCounter + 1;
+        lastIdleCounter = next;
+        return next;
+    }
+
+    private void adapt(int idleCalls)
+    {
+        final int spinLimit = this.spinLimit;
+        if (idleCalls > spinLimit + 1)
+        {
+            this.spinLimit = Math.max(spinLimit >> 1, minSpins);
+        }
+        else if (idleCalls > spinLimit >> 1)
+        {
+            this.spinLimit = (int) Math.min((long) spinLimit << 1, maxSpins);
+        }
+        else if (idleCalls < spinLimit >> 2)
+        {
+            this.spinLimit = Math.max(spinLimit - (spinLimit >> 3), minSpins);
+        }
+    }
+}
@@ -0,0 +1,86 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jctools.queues;
+
+import org.jctools.util.RangeUtil;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Progressive backoff: spin (with a spin wait hint), then yield, then park for exponentially growing periods up to a
+ * maximum. The idle counter tracks the phase, so the strategy is stateless and may be shared between threads.
+ * <p>
+ * 退让分为三个阶段：
+ * 1. [0, spins)：自旋，延迟最低，占满一个核。
+ * 2. [spins, spins + yields)：Thread.yield()，让出CPU但线程仍然可运行。对虚拟线程友好的配置应将yields设为0。
+ * 3. 之后：parkNanos，从minParkNanos开始每次翻倍直到maxParkNanos。唤醒延迟上限为maxParkNanos，但空闲时几乎不占CPU。
+ */
+public final class BackoffWaitStrategy implements MessagePassingQueue.WaitStrategy
+{
+    private final int spins;
+    private final int spinsAndYields;
+    private final long minParkNanos;
+    private final long maxParkNanos;
+
+    /**
+     * 100 spins, 10 yields, then parks from 1us up to 1ms.
+     */
+    public BackoffWaitStrategy()
+    {
+        this(100, 10, TimeUnit.MICROSECONDS.toNanos(1), TimeUnit.MILLISECONDS.toNanos(1));
+    }
+
+    public BackoffWaitStrategy(int spins, int yields, long minParkNanos, long maxParkNanos)
+    {
+        RangeUtil.checkPositiveOrZero(spins, "spins");
+        RangeUtil.checkPositiveOrZero(yields, "yields");
+        RangeUtil.checkPositive(minParkNanos, "minParkNanos");
+        if (maxParkNanos < minParkNanos)
+        {
+            throw new IllegalArgumentException("maxParkNanos: " + maxParkNanos + " (expected: >= " + minParkNanos + ')');
+        }
+        this.spins = spins;
+        this.spinsAndYields = spins + yields;
+        this.minParkNanos = minParkNanos;
+        this.maxParkNanos = maxParkNanos;
+    }
+
+    @Override
+    public int idle(int idleCounter)
+    {
+        if (idleCounter < spins)
+        {
+            BusySpinWaitStrategy.onSpinWait();
+        }
+        else if (idleCounter < spinsAndYields)
+        {
+            Thread.yield();
+        }
+        else
+        {
+            final int shift = idleCounter - spinsAndYields;
+            // 移位不能溢出为负数
+            final long parkNanos = shift >= Long.numberOfLeadingZeros(minParkNanos) - 1 ?
+                maxParkNanos : Math.min(minParkNanos << shift, maxParkNanos);
+            LockSupport.parkNanos(parkNanos);
+            // 计数器停在最长park阶段，避免溢出
+            if (idleCounter == Integer.MAX_VALUE)
+            {
+                return idleCounter;
+            }
+        }
+        return idleCounter + 1;
+    }
+}
@@ -0,0 +1,857 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jctools.queues;
+
+import org.jctools.queues.IndexedQueueSizeUtil.IndexedQueue;
+import org.jctools.util.PortableJvmInfo;
+import org.jctools.util.Pow2;
+import org.jctools.util.RangeUtil;
+
+import java.util.AbstractQueue;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import static org.jctools.queues.LinkedArrayQueueUtil.length;
+import static org.jctools.queues.LinkedArrayQueueUtil.modifiedCalcCircularRefElementOffset;
+import static org.jctools.util.UnsafeAccess.UNSAFE;
+import static org.jctools.util.UnsafeAccess.fieldOffset;
+import static org.jctools.util.UnsafeLongArrayAccess.*;
+import static org.jctools.util.UnsafeRefArrayAccess.*;
+
+
+abstract class BaseMpmcLinkedArrayQueuePad1<E> extends AbstractQueue<E> implements IndexedQueue
+{
+    /**
+     * 缓存行填充，避免{@code producerIndex}上产生伪共享
+     */
+    byte b000,b001,b002,b003,b004,b005,b006,b007;//  8b
+    byte b010,b011,b012,b013,b014,b015,b016,b017;// 16b
+    byte b020,b021,b022,b023,b024,b025,b026,b027;// 24b
+    byte b030,b031,b032,b033,b034,b035,b036,b037;// 32b
+    byte b040,b041,b042,b043,b044,b045,b046,b047;// 40b
+    byte b050,b051,b052,b053,b054,b055,b056,b057;// 48b
+    byte b060,b061,b062,b063,b064,b065,b066,b067;// 56b
+    byte b070,b071,b072,b073,b074,b075,b076,b077;// 64b
+    byte b100,b101,b102,b103,b104,b105,b106,b107;// 72b
+    byte b110,b111,b112,b113,b114,b115,b116,b117;// 80b
+    byte b120,b121,b122,b123,b124,b125,b126,b127;// 88b
+    byte b130,b131,b132,b133,b134,b135,b136,b137;// 96b
+    byte b140,b141,b142,b143,b144,b145,b146,b147;//104b
+    byte b150,b151,b152,b153,b154,b155,b156,b157;//112b
+    byte b160,b161,b162,b163,b164,b165,b166,b167;//120b
+    byte b170,b171,b172,b173,b174,b175,b176,b177;//128b
+}
+
+// $gen:ordered-fields
+abstract class BaseMpmcLinkedArrayQueueProducerFields<E> extends BaseMpmcLinkedArrayQueuePad1<E>
+{
+    private final static long P_INDEX_OFFSET = fieldOffset(BaseMpmcLinkedArrayQueueProducerFields.class, "producerIndex");
+
+    /**
+     * 生产者索引 - 与{@link BaseMpscLinkedArrayQueue}一致，真正的索引为{@code producerIndex >> 1}，
+     * 最低位为1表示某个生产者正在进行resize。
+     */
+    private volatile long producerIndex;
+
+    @Override
+    public final long lvProducerIndex()
+    {
+        return producerIndex;
+    }
+
+    /**
+     * 只有获得resize权的生产者（或resize失败时的回滚）使用该方法更新索引。
+     */
+    final void soProducerIndex(long newValue)
+    {
+        UNSAFE.putOrderedLong(this, P_INDEX_OFFSET, newValue);
+    }
+
+    final boolean casProducerIndex(long expect, long newValue)
+    {
+        return UNSAFE.compareAndSwapLong(this, P_INDEX_OFFSET, expect, newValue);
+    }
+}
+
+abstract class BaseMpmcLinkedArrayQueuePad2<E> extends BaseMpmcLinkedArrayQueueProducerFields<E>
+{
+    /**
+     * 缓存行填充，避免{@code consumerIndex}和{@code producerIndex}上产生伪共享。
+     */
+    byte b000,b001,b002,b003,b004,b005,b006,b007;//  8b
+    byte b010,b011,b012,b013,b014,b015,b016,b017;// 16b
+    byte b020,b021,b022,b023,b024,b025,b026,b027;// 24b
+    byte b030,b031,b032,b033,b034,b035,b036,b037;// 32b
+    byte b040,b041,b042,b043,b044,b045,b046,b047;// 40b
+    byte b050,b051,b052,b053,b054,b055,b056,b057;// 48b
+    byte b060,b061,b062,b063,b064,b065,b066,b067;// 56b
+    byte b070,b071,b072,b073,b074,b075,b076,b077;// 64b
+    byte b100,b101,b102,b103,b104,b105,b106,b107;// 72b
+    byte b110,b111,b112,b113,b114,b115,b116,b117;// 80b
+    byte b120,b121,b122,b123,b124,b125,b126,b127;// 88b
+    byte b130,b131,b132,b133,b134,b135,b136,b137;// 96b
+    byte b140,b141,b142,b143,b144,b145,b146,b147;//104b
+    byte b150,b151,b152,b153,b154,b155,b156,b157;//112b
+    byte b160,b161,b162,b163,b164,b165,b166,b167;//120b
+    byte b170,b171,b172,b173,b174,b175,b176,b177;//128b
+}
+
+// $gen:ordered-fields
+abstract class BaseMpmcLinkedArrayQueueConsumerFields<E> extends BaseMpmcLinkedArrayQueuePad2<E>
+{
+    private final static long C_INDEX_OFFSET = fieldOffset(BaseMpmcLinkedArrayQueueConsumerFields.class, "consumerIndex");
+    private final static long C_BUFFER_OFFSET = fieldOffset(BaseMpmcLinkedArrayQueueConsumerFields.class, "consumerBuffer");
+
+    /**
+     * 消费者索引 - 多消费者，因此先CAS竞争索引，再取出元素并归还槽位。
+     * 与MPSC不同，索引更新时槽位尚未清理，生产者不能依赖消费者索引判断槽位是否可写，而是依赖槽位的序号。
+     */
+    private volatile long consumerIndex;
+    /**
+     * 消费者当前消费的数组 - 多个消费者共享，因此必须是volatile的，且只能前进（CAS）。
+     * 数组的掩码由数组长度计算，这样就只需要读取一个字段。
+     */
+    private volatile E[] consumerBuffer;
+
+    @Override
+    public final long lvConsumerIndex()
+    {
+        return consumerIndex;
+    }
+
+    final boolean casConsumerIndex(long expect, long newValue)
+    {
+        return UNSAFE.compareAndSwapLong(this, C_INDEX_OFFSET, expect, newValue);
+    }
+
+    final E[] lvConsumerBuffer()
+    {
+        return consumerBuffer;
+    }
+
+    final void spConsumerBuffer(E[] newValue)
+    {
+        UNSAFE.putObject(this, C_BUFFER_OFFSET, newValue);
+    }
+
+    /**
+     * 遇见跳点的消费者可能有多个（也可能有已经落后的消费者），CAS保证消费者数组只会前进，不会回退。
+     */
+    final boolean casConsumerBuffer(E[] expect, E[] newValue)
+    {
+        return UNSAFE.compareAndSwapObject(this, C_BUFFER_OFFSET, expect, newValue);
+    }
+}
+
+abstract class BaseMpmcLinkedArrayQueuePad3<E> extends BaseMpmcLinkedArrayQueueConsumerFields<E>
+{
+    byte b000,b001,b002,b003,b004,b005,b006,b007;//  8b
+    byte b010,b011,b012,b013,b014,b015,b016,b017;// 16b
+    byte b020,b021,b022,b023,b024,b025,b026,b027;// 24b
+    byte b030,b031,b032,b033,b034,b035,b036,b037;// 32b
+    byte b040,b041,b042,b043,b044,b045,b046,b047;// 40b
+    byte b050,b051,b052,b053,b054,b055,b056,b057;// 48b
+    byte b060,b061,b062,b063,b064,b065,b066,b067;// 56b
+    byte b070,b071,b072,b073,b074,b075,b076,b077;// 64b
+    byte b100,b101,b102,b103,b104,b105,b106,b107;// 72b
+    byte b110,b111,b112,b113,b114,b115,b116,b117;// 80b
+    byte b120,b121,b122,b123,b124,b125,b126,b127;// 88b
+    byte b130,b131,b132,b133,b134,b135,b136,b137;// 96b
+    byte b140,b141,b142,b143,b144,b145,b146,b147;//104b
+    byte b150,b151,b152,b153,b154,b155,b156,b157;//112b
+    byte b160,b161,b162,b163,b164,b165,b166,b167;//120b
+    byte b170,b171,b172,b173,b174,b175,b176,b177;//128b
+}
+
+// $gen:ordered-fields
+abstract class BaseMpmcLinkedArrayQueueColdProducerFields<E> extends BaseMpmcLinkedArrayQueuePad3<E>
+{
+    private final static long P_LIMIT_OFFSET = fieldOffset(BaseMpmcLinkedArrayQueueColdProducerFields.class, "producerLimit");
+
+    /**
+     * 在重新读取消费者索引之前，第一个不可用的生产者索引，作用同{@link BaseMpscLinkedArrayQueue}。
+     */
+    private volatile long producerLimit;
+    /**
+     * 生产者当前使用的数组的掩码，与索引一样进行了左移。
+     */
+    protected long producerMask;
+    /**
+     * 生产者当前使用的数组 - 在resize时会更新。
+     */
+    protected E[] producerBuffer;
+
+    final long lvProducerLimit()
+    {
+        return producerLimit;
+    }
+
+    final boolean casProducerLimit(long expect, long newValue)
+    {
+        return UNSAFE.compareAndSwapLong(this, P_LIMIT_OFFSET, expect, newValue);
+    }
+
+    final void soProducerLimit(long newValue)
+    {
+        UNSAFE.putOrderedLong(this, P_LIMIT_OFFSET, newValue);
+    }
+}
+
+
+/**
+ * {@link BaseMpscLinkedArrayQueue}的多消费者版本，生产者的竞争与resize协议（奇数索引作为resize锁、旧数组中的跳点、
+ * 额外槽位中指向下一个数组的指针）保持不变。
+ * <p>
+ * 多消费者带来两个问题：
+ * 1. 消费者CAS竞争索引之后才取出元素，因此"元素为null"不能再表示槽位可写，下一轮的生产者可能覆盖尚未取走的元素，
+ * 下一轮的消费者也可能取到上一轮的旧元素。
+ * 因此每个数组附带一个序号数组（同{@link MpmcArrayQueue}），序号等于{@code index}表示槽位可写，
+ * 等于{@code index + 1}表示元素已发布，消费者取走元素后将序号推进到下一轮。
+ * 2. 消费者当前的数组是共享的。遇见跳点的消费者先CAS推进{@code consumerBuffer}，但不推进索引：
+ * 跳点所在索引的元素就在下一个数组的相同索引上，由之后的消费者按普通元素竞争。
+ * 消费者总是先读取索引再读取数组，因此读到的数组最多"超前"到当前索引所在的跳点，而这正是该索引的元素所在的数组。
+ * <p>
+ * 数组布局：{@code [0, capacity)}为元素，{@code capacity}为下一个数组的指针，{@code capacity + 1}为序号数组。
+ *
+ * An MPMC array queue which starts at <i>initialCapacity</i> and grows to <i>maxCapacity</i> in linked chunks.
+ * The producer side resize protocol is the one of {@link BaseMpscLinkedArrayQueue}, consumers claim elements by
+ * CAS on the consumer index and slots are handed over between producers and consumers by a sequence per slot.
+ */
+abstract class BaseMpmcLinkedArrayQueue<E> extends BaseMpmcLinkedArrayQueueColdProducerFields<E>
+    implements MessagePassingQueue<E>, QueueProgressIndicators
+{
+    // No post padding here, subclasses must add
+    /**
+     * 跳点标记，表示当前索引对应的元素在下一个数组。
+     */
+    private static final Object JUMP = new Object();
+
+    private static final int CONTINUE_TO_P_INDEX_CAS = 0;
+    private static final int RETRY = 1;
+    private static final int QUEUE_FULL = 2;
+    private static final int QUEUE_RESIZE = 3;
+
+    /**
+     * @param initialCapacity the queue initial capacity. If chunk size is fixed this will be the chunk size.
+     *                        Must be 2 or more.
+     */
+    public BaseMpmcLinkedArrayQueue(final int initialCapacity)
+    {
+        RangeUtil.checkGreaterThanOrEqual(initialCapacity, 2, "initialCapacity");
+
+        int p2capacity = Pow2.roundToPowerOfTwo(initialCapacity);
+        // leave lower bit of mask clear
+        long mask = (p2capacity - 1) << 1;
+        E[] buffer = allocateBuffer(p2capacity, 0);
+        producerBuffer = buffer;
+        producerMask = mask;
+        spConsumerBuffer(buffer);
+        soProducerLimit(mask); // we know it's all empty to start with
+    }
+
+    /**
+     * 分配一个新数组，其第一个元素的索引为{@code firstIndex}：
+     * 序号数组初始化为{@code [firstIndex, firstIndex + 2 * capacity)}，即第一轮的所有槽位都是可写的。
+     */
+    private static <E> E[] allocateBuffer(int capacity, long firstIndex)
+    {
+        final E[] buffer = allocateRefArray(capacity + 2);
+        final long[] sequenceBuffer = allocateLongArray(capacity);
+        final long mask = ((long) capacity - 1) << 1;
+        for (long i = firstIndex; i < firstIndex + 2L * capacity; i += 2)
+        {
+            spLongElement(sequenceBuffer, calcSequenceOffset(i, mask), i);
+        }
+        spRefElement(buffer, sequenceArrayOffset(mask), sequenceBuffer);
+        return buffer;
+    }
+
+    static int bufferCapacity(Object[] buffer)
+    {
+        return length(buffer) - 2;
+    }
+
+    private static long bufferMask(Object[] buffer)
+    {
+        return ((long) bufferCapacity(buffer) - 1) << 1;
+    }
+
+    private static long nextArrayOffset(long mask)
+    {
+        return modifiedCalcCircularRefElementOffset(mask + 2, Long.MAX_VALUE);
+    }
+
+    private static long sequenceArrayOffset(long mask)
+    {
+        return modifiedCalcCircularRefElementOffset(mask + 4, Long.MAX_VALUE);
+    }
+
+    /**
+     * 序号数组在数组发布之前写入，之后不再改变，因此普通读即可。
+     */
+    private static long[] sequenceBuffer(Object[] buffer, long mask)
+    {
+        return (long[]) lpRefElement(buffer, sequenceArrayOffset(mask));
+    }
+
+    /**
+     * 同{@link LinkedArrayQueueUtil#modifiedCalcCircularRefElementOffset(long, long)}，索引是左移过的。
+     */
+    private static long calcSequenceOffset(long index, long mask)
+    {
+        return LONG_ARRAY_BASE + ((index & mask) << (LONG_ELEMENT_SHIFT - 1));
+    }
+
+    @Override
+    public int size()
+    {
+        // NOTE: because indices are on even numbers we cannot use the size util.
+        long after = lvConsumerIndex();
+        long size;
+        while (true)
+        {
+            final long before = after;
+            final long currentProducerIndex = lvProducerIndex();
+            after = lvConsumerIndex();
+            if (before == after)
+            {
+                size = ((currentProducerIndex - after) >> 1);
+                break;
+            }
+        }
+        if (size > Integer.MAX_VALUE)
+        {
+            return Integer.MAX_VALUE;
+        }
+        else
+        {
+            return (int) size;
+        }
+    }
+
+    @Override
+    public boolean isEmpty()
+    {
+        // Order matters!
+        // Loading consumer before producer allows for producer increments after consumer index is read.
+        return (this.lvConsumerIndex() == this.lvProducerIndex());
+    }
+
+    @Override
+    public String toString()
+    {
+        return this.getClass().getName();
+    }
+
+    @Override
+    public boolean offer(final E e)
+    {
+        if (null == e)
+        {
+            throw new NullPointerException();
+        }
+
+        long mask;
+        E[] buffer;
+        long pIndex;
+
+        while (true)
+        {
+            long producerLimit = lvProducerLimit();
+            pIndex = lvProducerIndex();
+            // lower bit is indicative of resize, if we see it we spin until it's cleared
+            if ((pIndex & 1) == 1)
+            {
+                continue;
+            }
+            // mask/buffer may get changed by resizing -> only use for array access after successful CAS.
+            mask = this.producerMask;
+            buffer = this.producerBuffer;
+
+            if (pIndex >= producerLimit)
+            {
+                int result = offerSlowPath(mask, pIndex, producerLimit);
+                switch (result)
+                {
+                    case CONTINUE_TO_P_INDEX_CAS:
+                        break;
+                    case RETRY:
+                        continue;
+                    case QUEUE_FULL:
+                        return false;
+                    case QUEUE_RESIZE:
+                        resize(mask, buffer, pIndex, e, null);
+                        return true;
+                }
+            }
+
+            if (casProducerIndex(pIndex, pIndex + 2))
+            {
+                break;
+            }
+        }
+        writeElement(buffer, mask, pIndex, e);
+        return true;
+    }
+
+    /**
+     * 生产者已经获得了{@code pIndex}，等待上一轮的消费者归还槽位后填充元素并发布。
+     * <p>
+     * {@code producerLimit}保证了上一轮的元素已经被某个消费者竞争到（消费者索引已越过），
+     * 因此这里的自旋只会等待该消费者完成清理，不会等待新的消费者到来。
+     */
+    private static <E> void writeElement(E[] buffer, long mask, long pIndex, Object e)
+    {
+        final long[] sequenceBuffer = sequenceBuffer(buffer, mask);
+        final long seqOffset = calcSequenceOffset(pIndex, mask);
+        while (lvLongElement(sequenceBuffer, seqOffset) != pIndex)
+        {
+            // the consumer of the previous lap has claimed the slot, but has yet to release it
+        }
+        soRefElement(buffer, modifiedCalcCircularRefElementOffset(pIndex, mask), e);
+        soLongElement(sequenceBuffer, seqOffset, pIndex + 1); // release element
+    }
+
+    /**
+     * We do not inline resize into this method because we do not resize on fill.
+     */
+    private int offerSlowPath(long mask, long pIndex, long producerLimit)
+    {
+        final long cIndex = lvConsumerIndex();
+        long bufferCapacity = getCurrentBufferCapacity(mask);
+
+        if (cIndex + bufferCapacity > pIndex)
+        {
+            if (!casProducerLimit(producerLimit, cIndex + bufferCapacity))
+            {
+                // retry from top
+                return RETRY;
+            }
+            else
+            {
+                // continue to pIndex CAS
+                return CONTINUE_TO_P_INDEX_CAS;
+            }
+        }
+        // full and cannot grow
+        else if (availableInQueue(pIndex, cIndex) <= 0)
+        {
+            // offer should return false;
+            return QUEUE_FULL;
+        }
+        // grab index for resize -> set lower bit
+        else if (casProducerIndex(pIndex, pIndex + 1))
+        {
+            // trigger a resize
+            return QUEUE_RESIZE;
+        }
+        else
+        {
+            // failed resize attempt, retry from top
+            return RETRY;
+        }
+    }
+
+    /**
+     * @return available elements in queue * 2
+     */
+    protected abstract long availableInQueue(long pIndex, long cIndex);
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * This implementation is correct for multiple consumer threads.
+     */
+    @Override
+    public E poll()
+    {
+        return poll(false);
+    }
+
+    @Override
+    public E relaxedPoll()
+    {
+        return poll(true);
+    }
+
+    /**
+     * 消费者必须先读取索引再读取数组，原因见类注释。
+     */
+    @SuppressWarnings("unchecked")
+    private E poll(boolean relaxed)
+    {
+        while (true)
+        {
+            final long cIndex = lvConsumerIndex();
+            final E[] buffer = lvConsumerBuffer();
+            final long mask = bufferMask(buffer);
+            final long[] sequenceBuffer = sequenceBuffer(buffer, mask);
+            final long seqOffset = calcSequenceOffset(cIndex, mask);
+            final long seq = lvLongElement(sequenceBuffer, seqOffset);
+            final long expectedSeq = cIndex + 1;
+            if (seq == expectedSeq)
+            {
+                final long offset = modifiedCalcCircularRefElementOffset(cIndex, mask);
+                // 序号发布之后、归还之前，槽位上的元素不会改变
+                final Object e = lvRefElement(buffer, offset);
+                if (e == JUMP)
+                {
+                    // 元素在下一个数组的相同索引上，推进数组后重试，索引由取走该元素的消费者推进
+                    casConsumerBuffer(buffer, nextBuffer(buffer, mask));
+                    continue;
+                }
+                if (casConsumerIndex(cIndex, cIndex + 2))
+                {
+                    soRefElement(buffer, offset, null);
+                    // 槽位归还给下一轮的生产者
+                    soLongElement(sequenceBuffer, seqOffset, cIndex + mask + 2); // release slot
+                    return (E) e;
+                }
+            }
+            else if (seq < expectedSeq)
+            {
+                // 元素尚未发布：队列为空，或生产者已获得索引（或正在resize）但尚未填充元素
+                if (relaxed || cIndex == lvProducerIndex())
+                {
+                    return null;
+                }
+                // poll() == null iff queue is empty, spin until the element is visible
+            }
+            // seq > expectedSeq: another consumer got here first, retry
+        }
+    }
+
+    @Override
+    public E peek()
+    {
+        return peek(false);
+    }
+
+    @Override
+    public E relaxedPeek()
+    {
+        return peek(true);
+    }
+
+    @SuppressWarnings("unchecked")
+    private E peek(boolean relaxed)
+    {
+        while (true)
+        {
+            final long cIndex = lvConsumerIndex();
+            final E[] buffer = lvConsumerBuffer();
+            final long mask = bufferMask(buffer);
+            final long seq = lvLongElement(sequenceBuffer(buffer, mask), calcSequenceOffset(cIndex, mask));
+            final long expectedSeq = cIndex + 1;
+            if (seq == expectedSeq)
+            {
+                final Object e = lvRefElement(buffer, modifiedCalcCircularRefElementOffset(cIndex, mask));
+                if (e == JUMP)
+                {
+                    casConsumerBuffer(buffer, nextBuffer(buffer, mask));
+                    continue;
+                }
+                // 为null表示已被其它消费者取走，重试
+                if (e != null)
+                {
+                    return (E) e;
+                }
+            }
+            else if (seq < expectedSeq && (relaxed || cIndex == lvProducerIndex()))
+            {
+                return null;
+            }
+        }
+    }
+
+    /**
+     * 指针在跳点之前写入，因此看见跳点的消费者一定能看见下一个数组。
+     */
+    @SuppressWarnings("unchecked")
+    private E[] nextBuffer(final E[] buffer, final long mask)
+    {
+        return (E[]) lvRefElement(buffer, nextArrayOffset(mask));
+    }
+
+    @Override
+    public long currentProducerIndex()
+    {
+        return lvProducerIndex() / 2;
+    }
+
+    @Override
+    public long currentConsumerIndex()
+    {
+        return lvConsumerIndex() / 2;
+    }
+
+    @Override
+    public abstract int capacity();
+
+    @Override
+    public boolean relaxedOffer(E e)
+    {
+        return offer(e);
+    }
+
+    @Override
+    public int fill(Supplier<E> s)
+    {
+        long result = 0;// result is a long because we want to have a safepoint check at regular intervals
+        final int capacity = capacity();
+        do
+        {
+            final int filled = fill(s, PortableJvmInfo.RECOMENDED_OFFER_BATCH);
+            if (filled == 0)
+            {
+                return (int) result;
+            }
+            result += filled;
+        }
+        while (result <= capacity);
+        return (int) result;
+    }
+
+    @Override
+    public int fill(Supplier<E> s, int limit)
+    {
+        if (null == s)
+            throw new IllegalArgumentException("supplier is null");
+        if (limit < 0)
+            throw new IllegalArgumentException("limit is negative:" + limit);
+        if (limit == 0)
+            return 0;
+
+        long mask;
+        E[] buffer;
+        long pIndex;
+        int claimedSlots;
+        while (true)
+        {
+            long producerLimit = lvProducerLimit();
+            pIndex = lvProducerIndex();
+            // lower bit is indicative of resize, if we see it we spin until it's cleared
+            if ((pIndex & 1) == 1)
+            {
+                continue;
+            }
+            // mask/buffer may get changed by resizing -> only use for array access after successful CAS.
+            mask = this.producerMask;
+            buffer = this.producerBuffer;
+
+            long batchIndex = Math.min(producerLimit, pIndex + 2l * limit); //  -> producerLimit >= batchIndex
+            if (pIndex >= producerLimit)
+            {
+                int result = offerSlowPath(mask, pIndex, producerLimit);
+                switch (result)
+                {
+                    case CONTINUE_TO_P_INDEX_CAS:
+                        // offer slow path verifies only one slot ahead, we cannot rely on indication here
+                    case RETRY:
+                        continue;
+                    case QUEUE_FULL:
+                        return 0;
+                    case QUEUE_RESIZE:
+                        resize(mask, buffer, pIndex, null, s);
+                        return 1;
+                }
+            }
+
+            // claim limit slots at once
+            if (casProducerIndex(pIndex, batchIndex))
+            {
+                claimedSlots = (int) ((batchIndex - pIndex) / 2);
+                break;
+            }
+        }
+
+        for (int i = 0; i < claimedSlots; i++)
+        {
+            writeElement(buffer, mask, pIndex + 2l * i, s.get());
+        }
+        return claimedSlots;
+    }
+
+    @Override
+    public void fill(Supplier<E> s, WaitStrategy wait, ExitCondition exit)
+    {
+        MessagePassingQueueUtil.fill(this, s, wait, exit);
+    }
+
+    @Override
+    public int drain(Consumer<E> c)
+    {
+        return drain(c, capacity());
+    }
+
+    @Override
+    public int drain(Consumer<E> c, int limit)
+    {
+        return MessagePassingQueueUtil.drain(this, c, limit);
+    }
+
+    @Override
+    public void drain(Consumer<E> c, WaitStrategy wait, ExitCondition exit)
+    {
+        MessagePassingQueueUtil.drain(this, c, wait, exit);
+    }
+
+    /**
+     * Get an iterator for this queue. This method is thread safe.
+     * <p>
+     * The iterator provides a best-effort snapshot of the elements in the queue.
+     * The returned iterator is not guaranteed to return elements in queue order,
+     * and races with the consumer thread may cause gaps in the sequence of returned elements.
+     * Like {link #relaxedPoll}, the iterator may not immediately return newly inserted elements.
+     *
+     * @return The iterator.
+     */
+    @Override
+    public Iterator<E> iterator()
+    {
+        // 先读取索引再读取数组
+        final long cIndex = lvConsumerIndex();
+        return new WeakIterator<E>(lvConsumerBuffer(), cIndex, lvProducerIndex());
+    }
+
+    private static class WeakIterator<E> implements Iterator<E>
+    {
+        private final long pIndex;
+        private long nextIndex;
+        private E nextElement;
+        private E[] currentBuffer;
+        private long mask;
+
+        WeakIterator(E[] currentBuffer, long cIndex, long pIndex)
+        {
+            this.pIndex = pIndex;
+            this.nextIndex = cIndex;
+            setBuffer(currentBuffer);
+            nextElement = getNext();
+        }
+
+        @Override
+        public void remove()
+        {
+            throw new UnsupportedOperationException("remove");
+        }
+
+        @Override
+        public boolean hasNext()
+        {
+            return nextElement != null;
+        }
+
+        @Override
+        public E next()
+        {
+            final E e = nextElement;
+            if (e == null)
+            {
+                throw new NoSuchElementException();
+            }
+            nextElement = getNext();
+            return e;
+        }
+
+        private void setBuffer(E[] buffer)
+        {
+            this.currentBuffer = buffer;
+            this.mask = bufferMask(buffer);
+        }
+
+        @SuppressWarnings("unchecked")
+        private E getNext()
+        {
+            final long pIndex = this.pIndex & ~1L;
+            while (nextIndex < pIndex)
+            {
+                final long index = nextIndex;
+                nextIndex += 2;
+                final long[] sequenceBuffer = sequenceBuffer(currentBuffer, mask);
+                final long seqOffset = calcSequenceOffset(index, mask);
+                if (lvLongElement(sequenceBuffer, seqOffset) != index + 1)
+                {
+                    // consumed or not yet published
+                    continue;
+                }
+                final Object e = lvRefElement(currentBuffer, modifiedCalcCircularRefElementOffset(index, mask));
+                if (lvLongElement(sequenceBuffer, seqOffset) != index + 1)
+                {
+                    // the slot moved on while we were reading it
+                    continue;
+                }
+                if (e == JUMP)
+                {
+                    setBuffer((E[]) lvRefElement(currentBuffer, nextArrayOffset(mask)));
+                    nextIndex = index;
+                    continue;
+                }
+                return (E) e;
+            }
+            return null;
+        }
+    }
+
+    /**
+     * 与{@link BaseMpscLinkedArrayQueue}的resize相同：新元素写入新数组，旧数组链接新数组并在{@code pIndex}处写入跳点。
+     * 区别在于旧数组的槽位可能还未被上一轮的消费者归还，因此跳点写入前同样需要等待序号。
+     */
+    private void resize(long oldMask, E[] oldBuffer, long pIndex, E e, Supplier<E> s)
+    {
+        assert (e != null && s == null) || (e == null || s != null);
+        final int newBufferCapacity = getNextBufferCapacity(oldBuffer);
+        final E[] newBuffer;
+        try
+        {
+            newBuffer = allocateBuffer(newBufferCapacity, pIndex);
+        }
+        catch (OutOfMemoryError oom)
+        {
+            assert lvProducerIndex() == pIndex + 1;
+            soProducerIndex(pIndex);
+            throw oom;
+        }
+
+        final long newMask = ((long) newBufferCapacity - 1) << 1;
+        // element in new array, the new buffer is not visible yet
+        writeElement(newBuffer, newMask, pIndex, e == null ? s.get() : e);
+        producerBuffer = newBuffer;
+        producerMask = newMask;
+        soRefElement(oldBuffer, nextArrayOffset(oldMask), newBuffer);// buffer linked
+
+        final long cIndex = lvConsumerIndex();
+        final long availableInQueue = availableInQueue(pIndex, cIndex);
+        RangeUtil.checkPositive(availableInQueue, "availableInQueue");
+
+        // Invalidate racing CASs
+        // We never set the limit beyond the bounds of a buffer
+        soProducerLimit(pIndex + Math.min(newMask, availableInQueue));
+
+        // make resize visible to the other producers
+        soProducerIndex(pIndex + 2);
+
+        // INDEX visible before ELEMENT, consistent with consumer expectation
+
+        // make resize visible to consumer
+        writeElement(oldBuffer, oldMask, pIndex, JUMP);
+    }
+
+    /**
+     * @return the capacity (in elements) of the next buffer
+     */
+    protected abstract int getNextBufferCapacity(E[] buffer);
+
+    protected abstract long getCurrentBufferCapacity(long mask);
+}
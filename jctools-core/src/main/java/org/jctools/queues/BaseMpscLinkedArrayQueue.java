@@ -309,15 +309,40 @@ abstract class BaseMpscLinkedArrayQueue<E> extends BaseMpscLinkedArrayQueueColdP
      * 获得resize权（此时其它生产者需要等待resize完成）
      */
     private static final int QUEUE_RESIZE = 3;
+    /**
+     * 获得resize权，并切换回初始大小的数组（见{@link #shouldShrink(long, long, long)}）
+     */
+    private static final int QUEUE_SHRINK = 4;
 
+    /**
+     * 初始数组的长度，缩容时使用
+     */
+    private final int initialBufferLength;
+    /**
+     * 消费者归还的已消费完的数组，供生产者扩容时复用，为null表示不复用。
+     * 消费者是唯一的生产方，而扩容的生产者之间由resize锁串行化，因此是单消费方。
+     */
+    private final SpscArrayQueue<E[]> freeBuffersPool;
 
     /**
      * @param initialCapacity the queue initial capacity. If chunk size is fixed this will be the chunk size.
      *                        Must be 2 or more.
      */
     public BaseMpscLinkedArrayQueue(final int initialCapacity)
+    {
+        this(initialCapacity, 0);
+    }
+
+    /**
+     * @param initialCapacity  the queue initial capacity. If chunk size is fixed this will be the chunk size.
+     *                         Must be 2 or more.
+     * @param maxPooledBuffers the maximum number of consumed buffers kept around to be reused when the producers
+     *                         link a new buffer, 0 disables pooling
+     */
+    BaseMpscLinkedArrayQueue(final int initialCapacity, final int maxPooledBuffers)
     {
         RangeUtil.checkGreaterThanOrEqual(initialCapacity, 2, "initialCapacity");
+        RangeUtil.checkPositiveOrZero(maxPooledBuffers, "maxPooledBuffers");
 
         int p2capacity = Pow2.roundToPowerOfTwo(initialCapacity);
         // mask需要和index一样左移1位
@@ -326,6 +351,8 @@ abstract class BaseMpscLinkedArrayQueue<E> extends BaseMpscLinkedArrayQueueColdP
         // 额外的一个空间（最后一个槽位）用于存储下一个数组的指针
         // need extra element to point at next array
         E[] buffer = allocateRefArray(p2capacity + 1);
+        initialBufferLength = p2capacity + 1;
+        freeBuffersPool = maxPooledBuffers == 0 ? null : new SpscArrayQueue<E[]>(maxPooledBuffers);
         producerBuffer = buffer;
         producerMask = mask;
         consumerBuffer = buffer;
@@ -457,7 +484,10 @@ abstract class BaseMpscLinkedArrayQueue<E> extends BaseMpscLinkedArrayQueueColdP
                         return false;
                     case QUEUE_RESIZE:
                         // 获取扩容权，进行扩容
-                        resize(mask, buffer, pIndex, e, null);
+                        resize(mask, buffer, pIndex, e, null, getNextBufferSize(buffer));
+                        return true;
+                    case QUEUE_SHRINK:
+                        resize(mask, buffer, pIndex, e, null, initialBufferLength);
                         return true;
                 }
             }
@@ -527,6 +557,7 @@ abstract class BaseMpscLinkedArrayQueue<E> extends BaseMpscLinkedArrayQueueColdP
         if (e == JUMP)
         {
             final E[] nextBuffer = nextBuffer(buffer, mask);
+            recycleBuffer(buffer, offset);
             return newBufferPoll(nextBuffer, index);
         }
 
@@ -571,7 +602,9 @@ abstract class BaseMpscLinkedArrayQueue<E> extends BaseMpscLinkedArrayQueueColdP
         if (e == JUMP)
         {
             // 元素为跳点标记，则更新消费的数组，然后从新数组中peek元素
-            return newBufferPeek(nextBuffer(buffer, mask), index);
+            final E[] nextBuffer = nextBuffer(buffer, mask);
+            recycleBuffer(buffer, offset);
+            return newBufferPeek(nextBuffer, index);
         }
         // 普通元素或null
         return (E) e;
@@ -591,6 +624,12 @@ abstract class BaseMpscLinkedArrayQueue<E> extends BaseMpscLinkedArrayQueueColdP
 
         if (cIndex + bufferCapacity > pIndex)
         {
+            // 数组尚有空间，但占用长期偏低，切换回初始大小的数组（与扩容一样需要获得resize权）
+            // 此时pIndex对应的槽位一定已被消费，可以写入跳点
+            if (shouldShrink(mask, pIndex, cIndex))
+            {
+                return casProducerIndex(pIndex, pIndex + 1) ? QUEUE_SHRINK : RETRY;
+            }
             // 走到这，表示当前数组尚有可用空间，不必扩容
             // Q: 为什么使用CAS更新？
             // A: 使用CAS更新，可以确保不会覆盖resize对producerLimit的写入，但是允许了resize覆盖这里对producerLimit的写入，详情请查看resize中的注释。
@@ -661,6 +700,40 @@ abstract class BaseMpscLinkedArrayQueue<E> extends BaseMpscLinkedArrayQueueColdP
         return nextBuffer;
     }
 
+    /**
+     * 消费者越过跳点时，旧数组中索引小于跳点的元素都已被消费（并清除），生产者也不会再写入旧数组，
+     * 因此清除跳点之后，除指针槽位外整个数组都为null，可以交给生产者复用。
+     * 指针槽位不必清除：复用该数组的resize总是在写入跳点之前写入指针。
+     * <p>
+     * 注意：被复用的数组可能仍被某个{@link WeakIterator}持有，因此开启复用后迭代器可能返回乱序的元素。
+     */
+    private void recycleBuffer(final E[] buffer, final long offset)
+    {
+        final SpscArrayQueue<E[]> pool = freeBuffersPool;
+        if (pool != null)
+        {
+            spRefElement(buffer, offset, null);
+            pool.offer(buffer);
+        }
+    }
+
+    /**
+     * 优先复用消费者归还的数组，长度不匹配（growable）的数组直接丢弃
+     */
+    private E[] pooledOrNewBuffer(final int length)
+    {
+        final SpscArrayQueue<E[]> pool = freeBuffersPool;
+        if (pool != null)
+        {
+            final E[] buffer = pool.poll();
+            if (buffer != null && length(buffer) == length)
+            {
+                return buffer;
+            }
+        }
+        return allocateRefArray(length);
+    }
+
     private static long nextArrayOffset(long mask)
     {
         // mask + 2 >> 1  => length - 1 即数组最后一个元素
@@ -741,6 +814,7 @@ abstract class BaseMpscLinkedArrayQueue<E> extends BaseMpscLinkedArrayQueueColdP
         {
             // 元素是跳点，更新当前消费数组为下一个数组，并从新数组中poll元素
             final E[] nextBuffer = nextBuffer(buffer, mask);
+            recycleBuffer(buffer, offset);
             return newBufferPoll(nextBuffer, index);
         }
         // 元素为普通元素，生产者进行了安全发布，因此可直接消费
@@ -763,7 +837,9 @@ abstract class BaseMpscLinkedArrayQueue<E> extends BaseMpscLinkedArrayQueueColdP
         if (e == JUMP)
         {
             // e为跳点，表示需要更新当前消费数组，并从新数组中peek元素
-            return newBufferPeek(nextBuffer(buffer, mask), index);
+            final E[] nextBuffer = nextBuffer(buffer, mask);
+            recycleBuffer(buffer, offset);
+            return newBufferPeek(nextBuffer, index);
         }
         // null或普通元素，可直接返回（生产者保证了安全发布）
         return (E) e;
@@ -842,7 +918,10 @@ abstract class BaseMpscLinkedArrayQueue<E> extends BaseMpscLinkedArrayQueueColdP
                     case QUEUE_FULL:
                         return 0;
                     case QUEUE_RESIZE:
-                        resize(mask, buffer, pIndex, null, s);
+                        resize(mask, buffer, pIndex, null, s, getNextBufferSize(buffer));
+                        return 1;
+                    case QUEUE_SHRINK:
+                        resize(mask, buffer, pIndex, null, s, initialBufferLength);
                         return 1;
                 }
             }
@@ -1012,15 +1091,15 @@ abstract class BaseMpscLinkedArrayQueue<E> extends BaseMpscLinkedArrayQueueColdP
      * @param oldMask   当前（旧）数组对应的mask
      * @param oldBuffer 当前（旧）数组
      * @param pIndex    当前生产者索引（奇数，最低位为1）
+     * @param newBufferLength 新数组的长度，扩容时为{@link #getNextBufferSize(Object[])}，缩容时为初始长度
      */
-    private void resize(long oldMask, E[] oldBuffer, long pIndex, E e, Supplier<E> s)
+    private void resize(long oldMask, E[] oldBuffer, long pIndex, E e, Supplier<E> s, int newBufferLength)
     {
         assert (e != null && s == null) || (e == null || s != null);
-        int newBufferLength = getNextBufferSize(oldBuffer);
         final E[] newBuffer;
         try
         {
-            newBuffer = allocateRefArray(newBufferLength);
+            newBuffer = pooledOrNewBuffer(newBufferLength);
         }
         catch (OutOfMemoryError oom)
         {
@@ -1098,4 +1177,23 @@ abstract class BaseMpscLinkedArrayQueue<E> extends BaseMpscLinkedArrayQueueColdP
      * @return current buffer capacity for elements (excluding next pointer and jump entry) * 2
      */
     protected abstract long getCurrentBufferCapacity(long mask);
+
+    /**
+     * 生产者在刷新{@code producerLimit}时调用（当前数组尚有空间），返回true则切换回初始大小的数组。
+     * 该方法由多个生产者并发调用，实现只能依赖启发式的状态。
+     *
+     * @return true if the producers should move on to a buffer of the initial size
+     */
+    protected boolean shouldShrink(long mask, long pIndex, long cIndex)
+    {
+        return false;
+    }
+
+    /**
+     * @return the length of the buffer the queue was created with (inclusive of next array pointer)
+     */
+    protected final int getInitialBufferSize()
+    {
+        return initialBufferLength;
+    }
 }
@@ -226,6 +226,12 @@ abstract class BaseSpscLinkedArrayQueue<E> extends BaseSpscLinkedArrayQueueProdu
      */
     private static final Object JUMP = new Object();
 
+    /**
+     * 消费者归还的已消费完的数组，供生产者链接新数组时复用，为null表示不复用（由子类在构造时设置）。
+     * 消费者是唯一的生产方，生产者是唯一的消费方。
+     */
+    SpscArrayQueue<E[]> freeBuffersPool;
+
     @Override
     public final Iterator<E> iterator()
     {
@@ -568,6 +574,7 @@ abstract class BaseSpscLinkedArrayQueue<E> extends BaseSpscLinkedArrayQueueProdu
     {
         // 更新当前消费数组为下一个数组，同时更新对应的掩码
         E[] nextBuffer = lvNextArrayAndUnlink(buffer);
+        recycleBuffer(buffer, calcCircularRefElementOffset(index, consumerMask));
         consumerBuffer = nextBuffer;
         final long mask = length(nextBuffer) - 2;
         consumerMask = mask;
@@ -581,6 +588,7 @@ abstract class BaseSpscLinkedArrayQueue<E> extends BaseSpscLinkedArrayQueueProdu
     {
         // 更新当前消费数组为下一个数组，同时更新对应的掩码
         E[] nextBuffer = lvNextArrayAndUnlink(buffer);
+        recycleBuffer(buffer, calcCircularRefElementOffset(index, consumerMask));
         consumerBuffer = nextBuffer;
         final long mask = length(nextBuffer) - 2;
         consumerMask = mask;
@@ -599,4 +607,37 @@ abstract class BaseSpscLinkedArrayQueue<E> extends BaseSpscLinkedArrayQueueProdu
             return n;
         }
     }
+
+    /**
+     * 消费者越过跳点时，旧数组中的元素都已被消费（并清除），指针也已断开，清除跳点后整个数组都为null，可以交给生产者复用。
+     *
+     * @param buffer     已消费完的数组
+     * @param offset     跳点在旧数组中的偏移量
+     */
+    private void recycleBuffer(final E[] buffer, final long offset)
+    {
+        final SpscArrayQueue<E[]> pool = freeBuffersPool;
+        if (pool != null)
+        {
+            spRefElement(buffer, offset, null);
+            pool.offer(buffer);
+        }
+    }
+
+    /**
+     * 生产者链接新数组时，优先复用消费者归还的数组
+     */
+    final E[] pooledOrNewBuffer(final int length)
+    {
+        final SpscArrayQueue<E[]> pool = freeBuffersPool;
+        if (pool != null)
+        {
+            final E[] buffer = pool.poll();
+            if (buffer != null && length(buffer) == length)
+            {
+                return buffer;
+            }
+        }
+        return allocateRefArray(length);
+    }
 }
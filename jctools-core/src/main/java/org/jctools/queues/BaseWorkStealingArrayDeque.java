@@ -0,0 +1,466 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jctools.queues;
+
+import org.jctools.queues.MessagePassingQueue.Consumer;
+import org.jctools.util.Pow2;
+import org.jctools.util.RangeUtil;
+
+import static org.jctools.util.UnsafeAccess.UNSAFE;
+import static org.jctools.util.UnsafeAccess.fieldOffset;
+import static org.jctools.util.UnsafeRefArrayAccess.*;
+
+abstract class WorkStealingArrayDequePad0<E>
+{
+    /**
+     * 缓存行填充，保护下面的{@code bottom}
+     */
+    byte b000,b001,b002,b003,b004,b005,b006,b007;//  8b
+    byte b010,b011,b012,b013,b014,b015,b016,b017;// 16b
+    byte b020,b021,b022,b023,b024,b025,b026,b027;// 24b
+    byte b030,b031,b032,b033,b034,b035,b036,b037;// 32b
+    byte b040,b041,b042,b043,b044,b045,b046,b047;// 40b
+    byte b050,b051,b052,b053,b054,b055,b056,b057;// 48b
+    byte b060,b061,b062,b063,b064,b065,b066,b067;// 56b
+    byte b070,b071,b072,b073,b074,b075,b076,b077;// 64b
+    byte b100,b101,b102,b103,b104,b105,b106,b107;// 72b
+    byte b110,b111,b112,b113,b114,b115,b116,b117;// 80b
+    byte b120,b121,b122,b123,b124,b125,b126,b127;// 88b
+    byte b130,b131,b132,b133,b134,b135,b136,b137;// 96b
+    byte b140,b141,b142,b143,b144,b145,b146,b147;//104b
+    byte b150,b151,b152,b153,b154,b155,b156,b157;//112b
+    byte b160,b161,b162,b163,b164,b165,b166,b167;//120b
+    byte b170,b171,b172,b173,b174,b175,b176,b177;//128b
+}
+
+// $gen:ordered-fields
+abstract class WorkStealingArrayDequeBottomField<E> extends WorkStealingArrayDequePad0<E>
+{
+    private final static long BOTTOM_OFFSET = fieldOffset(WorkStealingArrayDequeBottomField.class, "bottom");
+
+    /**
+     * 所有者（owner）在这一端push/pop，小于该索引的元素（且不小于{@code top}）是尚未被取走的元素。
+     * 只有所有者线程会修改该值，窃取者（thief）只读。
+     */
+    private volatile long bottom;
+
+    final long lvBottom()
+    {
+        return bottom;
+    }
+
+    /**
+     * loadPlainBottom
+     * 只有所有者线程会修改该值，因此所有者线程可以使用Plain模式读取。
+     */
+    final long lpBottom()
+    {
+        return UNSAFE.getLong(this, BOTTOM_OFFSET);
+    }
+
+    /**
+     * storeOrderedBottom
+     * push时使用：先填充元素，再发布bottom，窃取者看见bottom即可确定元素已填充。
+     */
+    final void soBottom(long newValue)
+    {
+        UNSAFE.putOrderedLong(this, BOTTOM_OFFSET, newValue);
+    }
+
+    /**
+     * storeVolatileBottom
+     * pop时使用：所有者先"预定"bottom-1，再读取top，这里需要StoreLoad屏障，
+     * 否则所有者与窃取者可能同时认为自己拿到了同一个元素（Chase-Lev算法中的关键点）。
+     */
+    final void svBottom(long newValue)
+    {
+        bottom = newValue;
+    }
+}
+
+// $gen:ordered-fields
+abstract class WorkStealingArrayDequeOwnerFields<E> extends WorkStealingArrayDequeBottomField<E>
+{
+    private final static long BUFFER_OFFSET = fieldOffset(WorkStealingArrayDequeOwnerFields.class, "buffer");
+
+    /**
+     * 所有者缓存的{@code top}，同{@link SpscArrayQueue}中的producerLimit，
+     * 只有在按照缓存值判断队列可能已满时才读取{@code top}，从而避免所有者频繁读取窃取者竞争的缓存行。
+     */
+    protected long topCache;
+    /**
+     * 可增长版本中所有者会替换该数组，窃取者必须在读取{@code bottom}之后以volatile模式读取。
+     */
+    private E[] buffer;
+
+    final E[] lvBuffer()
+    {
+        return (E[]) UNSAFE.getObjectVolatile(this, BUFFER_OFFSET);
+    }
+
+    final E[] lpBuffer()
+    {
+        return (E[]) UNSAFE.getObject(this, BUFFER_OFFSET);
+    }
+
+    /**
+     * 扩容时使用：新数组在发布{@code bottom}之前发布，因此看见新bottom的窃取者一定可以看见新数组。
+     */
+    final void soBuffer(E[] newValue)
+    {
+        UNSAFE.putOrderedObject(this, BUFFER_OFFSET, newValue);
+    }
+}
+
+abstract class WorkStealingArrayDequePad1<E> extends WorkStealingArrayDequeOwnerFields<E>
+{
+    byte b000,b001,b002,b003,b004,b005,b006,b007;//  8b
+    byte b010,b011,b012,b013,b014,b015,b016,b017;// 16b
+    byte b020,b021,b022,b023,b024,b025,b026,b027;// 24b
+    byte b030,b031,b032,b033,b034,b035,b036,b037;// 32b
+    byte b040,b041,b042,b043,b044,b045,b046,b047;// 40b
+    byte b050,b051,b052,b053,b054,b055,b056,b057;// 48b
+    byte b060,b061,b062,b063,b064,b065,b066,b067;// 56b
+    byte b070,b071,b072,b073,b074,b075,b076,b077;// 64b
+    byte b100,b101,b102,b103,b104,b105,b106,b107;// 72b
+    byte b110,b111,b112,b113,b114,b115,b116,b117;// 80b
+    byte b120,b121,b122,b123,b124,b125,b126,b127;// 88b
+    byte b130,b131,b132,b133,b134,b135,b136,b137;// 96b
+    byte b140,b141,b142,b143,b144,b145,b146,b147;//104b
+    byte b150,b151,b152,b153,b154,b155,b156,b157;//112b
+    byte b160,b161,b162,b163,b164,b165,b166,b167;//120b
+    // byte b170,b171,b172,b173,b174,b175,b176,b177;//128b
+}
+
+// $gen:ordered-fields
+abstract class WorkStealingArrayDequeTopField<E> extends WorkStealingArrayDequePad1<E>
+{
+    private final static long TOP_OFFSET = fieldOffset(WorkStealingArrayDequeTopField.class, "top");
+
+    /**
+     * 窃取者在这一端steal，所有者只在取最后一个元素时才会与窃取者竞争该值。
+     * 该值只增不减。
+     */
+    private volatile long top;
+
+    final long lvTop()
+    {
+        return top;
+    }
+
+    final boolean casTop(long expect, long newValue)
+    {
+        return UNSAFE.compareAndSwapLong(this, TOP_OFFSET, expect, newValue);
+    }
+}
+
+abstract class WorkStealingArrayDequePad2<E> extends WorkStealingArrayDequeTopField<E>
+{
+    byte b000,b001,b002,b003,b004,b005,b006,b007;//  8b
+    byte b010,b011,b012,b013,b014,b015,b016,b017;// 16b
+    byte b020,b021,b022,b023,b024,b025,b026,b027;// 24b
+    byte b030,b031,b032,b033,b034,b035,b036,b037;// 32b
+    byte b040,b041,b042,b043,b044,b045,b046,b047;// 40b
+    byte b050,b051,b052,b053,b054,b055,b056,b057;// 48b
+    byte b060,b061,b062,b063,b064,b065,b066,b067;// 56b
+    byte b070,b071,b072,b073,b074,b075,b076,b077;// 64b
+    byte b100,b101,b102,b103,b104,b105,b106,b107;// 72b
+    byte b110,b111,b112,b113,b114,b115,b116,b117;// 80b
+    byte b120,b121,b122,b123,b124,b125,b126,b127;// 88b
+    byte b130,b131,b132,b133,b134,b135,b136,b137;// 96b
+    byte b140,b141,b142,b143,b144,b145,b146,b147;//104b
+    byte b150,b151,b152,b153,b154,b155,b156,b157;//112b
+    byte b160,b161,b162,b163,b164,b165,b166,b167;//120b
+    // byte b170,b171,b172,b173,b174,b175,b176,b177;//128b
+}
+
+/**
+ * Chase-Lev风格的工作窃取双端队列：所有者（owner）线程在bottom端push/pop（LIFO），
+ * 任意数量的窃取者（thief）线程在top端steal（FIFO）。
+ * <p>
+ * 和{@link SpmcArrayQueue}相比：所有者同时是生产者和一个消费者，但它只在取最后一个元素时才需要CAS，
+ * 其余情况下pop只需要一次volatile写（StoreLoad屏障）；窃取者之间通过CAS {@code top}竞争。
+ * <p>
+ * 元素的清理：所有者pop时会清理对应槽位，窃取者在CAS {@code top}成功之后以CAS（期望值为它取走的元素）清理对应槽位。
+ * 此时所有者可能已经开始重用该槽位，因此所有者只在槽位为空时直接写入，否则以CAS替换其中残留的元素，
+ * 并且从不把与残留元素相同的引用写入该槽位，这样窃取者的清理不会误删新元素（ABA）。
+ * <p>
+ * A Chase-Lev style work-stealing deque: the owner thread pushes and pops at the bottom (LIFO), any number of thief
+ * threads steal from the top (FIFO). The owner only races with thieves (CAS on top) when taking the last element.
+ * <br>
+ * See: "Dynamic Circular Work-Stealing Deque" (Chase, Lev 2005) and "Correct and Efficient Work-Stealing for Weak
+ * Memory Models" (Lê, Pop, Cohen, Zappa Nardelli 2013).
+ * <p>
+ * Method ownership:
+ * <ul>
+ * <li>{@link #push(Object)}, {@link #pop()}, {@link #clear()}: owner thread only.
+ * <li>{@link #steal()}, {@link #steal(MessagePassingQueue.Consumer, int)},
+ * {@link #stealHalf(MessagePassingQueue.Consumer)}: any thread but the owner.
+ * <li>{@link #size()}, {@link #isEmpty()}, {@link #capacity()}: any thread, the result is an estimate.
+ * </ul>
+ */
+public abstract class BaseWorkStealingArrayDeque<E> extends WorkStealingArrayDequePad2<E>
+{
+    BaseWorkStealingArrayDeque(int initialCapacity)
+    {
+        RangeUtil.checkGreaterThanOrEqual(initialCapacity, 2, "initialCapacity");
+        final E[] buffer = allocateRefArray(Pow2.roundToPowerOfTwo(initialCapacity));
+        soBuffer(buffer);
+    }
+
+    /**
+     * 当按照最新的{@code top}判断数组已满时调用，只有所有者线程会调用该方法。
+     *
+     * @param buffer the current (full) buffer
+     * @param bottom the current bottom index
+     * @param top    the latest observed top index
+     * @return the buffer to push into, or null if the deque is at its maximum capacity
+     */
+    abstract E[] onFull(E[] buffer, long bottom, long top);
+
+    /**
+     * @return the maximum number of elements this deque can hold
+     */
+    public abstract int capacity();
+
+    /**
+     * Owner only: push an element to the bottom of the deque.
+     *
+     * @param e not null, will throw NPE if it is
+     * @return true if the element was added, false if the deque is at its maximum capacity (or, transiently, if the
+     * same element is still being stolen from the slot it would be written to)
+     */
+    public boolean push(E e)
+    {
+        if (null == e)
+        {
+            throw new NullPointerException();
+        }
+        final long b = lpBottom();
+        E[] buffer = lpBuffer();
+        if (b - topCache >= buffer.length)
+        {
+            // 按照缓存值判断可能已满，读取最新的top
+            final long t = lvTop();
+            topCache = t;
+            if (b - t >= buffer.length)
+            {
+                buffer = onFull(buffer, b, t);
+                if (buffer == null)
+                {
+                    return false;
+                }
+            }
+        }
+        // 元素由接下来对bottom的Ordered写发布，窃取者只在看见bottom之后才读取元素
+        // the element is published by the ordered store of bottom
+        final long offset = calcCircularRefElementOffset(b, buffer.length - 1);
+        final E stolen = lvRefElement(buffer, offset);
+        if (stolen != null && !replaceStolen(buffer, offset, stolen, e))
+        {
+            return false;
+        }
+        if (stolen == null)
+        {
+            spRefElement(buffer, offset, e);
+        }
+        soBottom(b + 1);
+        return true;
+    }
+
+    /**
+     * 槽位中残留着已被窃取的元素：窃取者尚未清理它，或者扩容时拷贝了一个正在被窃取的元素。
+     * 以CAS替换，与窃取者的清理CAS竞争；新元素与残留元素是同一个引用时不能写入，否则窃取者的清理会删掉新元素。
+     *
+     * @return true if {@code e} was written to the slot
+     */
+    private static <E> boolean replaceStolen(E[] buffer, long offset, E stolen, E e)
+    {
+        if (stolen == e)
+        {
+            return false;
+        }
+        if (!UNSAFE.compareAndSwapObject(buffer, offset, stolen, e))
+        {
+            // 窃取者刚刚清理了该槽位，只有所有者会再写入
+            spRefElement(buffer, offset, e);
+        }
+        return true;
+    }
+
+    /**
+     * 窃取者在CAS {@code top}成功之后清理槽位，只有槽位中仍然是它取走的元素时才清理（见{@link #replaceStolen}）。
+     */
+    private static <E> void clearStolen(E[] buffer, long offset, E e)
+    {
+        UNSAFE.compareAndSwapObject(buffer, offset, e, null);
+    }
+
+    /**
+     * Owner only: pop an element from the bottom of the deque (LIFO).
+     *
+     * @return the most recently pushed element, or null if the deque is empty (or the last element was stolen)
+     */
+    public E pop()
+    {
+        final long b = lpBottom() - 1;
+        final E[] buffer = lpBuffer();
+        // 先预定bottom-1，再读取top：volatile写保证了StoreLoad顺序
+        // reserve the bottom slot before reading top, requires a StoreLoad barrier
+        svBottom(b);
+        final long t = lvTop();
+        if (t > b)
+        {
+            // empty, restore bottom
+            soBottom(b + 1);
+            return null;
+        }
+        final long offset = calcCircularRefElementOffset(b, buffer.length - 1);
+        E e = lpRefElement(buffer, offset);
+        if (t == b)
+        {
+            // 最后一个元素：需要与窃取者竞争top
+            // last element, race the thieves for it
+            if (casTop(t, t + 1))
+            {
+                spRefElement(buffer, offset, null);
+                topCache = t + 1;
+            }
+            else
+            {
+                e = null;
+            }
+            soBottom(b + 1);
+            return e;
+        }
+        // t < b: 窃取者不可能再拿到b对应的元素
+        spRefElement(buffer, offset, null);
+        return e;
+    }
+
+    /**
+     * Thief: steal an element from the top of the deque (FIFO).
+     * <p>
+     * This method returns null if the deque is empty or if another thread (thief or owner) won the race for the top
+     * element, the caller may retry.
+     *
+     * @return the least recently pushed element, or null if none was taken
+     */
+    public E steal()
+    {
+        final long t = lvTop();
+        // top必须先于bottom读取，数组必须后于bottom读取（见soBuffer）
+        final long b = lvBottom();
+        if (t >= b)
+        {
+            return null;
+        }
+        final E[] buffer = lvBuffer();
+        // 必须在CAS之前读取元素：CAS成功之后所有者可能立即重用该槽位
+        // the element must be read before the CAS, the slot may be reused by the owner as soon as top moves
+        final long offset = calcCircularRefElementOffset(t, buffer.length - 1);
+        final E e = lvRefElement(buffer, offset);
+        if (!casTop(t, t + 1))
+        {
+            return null;
+        }
+        assert e != null;
+        clearStolen(buffer, offset, e);
+        return e;
+    }
+
+    /**
+     * Thief: steal up to {@code limit} elements from the top of the deque, in FIFO order.
+     * <p>
+     * Each element is claimed with its own CAS on top: claiming a range with a single CAS is not safe against the
+     * owner popping the same range without synchronization. Lost races are retried while the deque is not empty.
+     *
+     * @return the number of stolen elements
+     */
+    public int steal(Consumer<E> c, int limit)
+    {
+        if (null == c)
+            throw new IllegalArgumentException("c is null");
+        if (limit < 0)
+            throw new IllegalArgumentException("limit is negative: " + limit);
+        int stolen = 0;
+        while (stolen < limit)
+        {
+            final long t = lvTop();
+            final long b = lvBottom();
+            if (t >= b)
+            {
+                break;
+            }
+            final E[] buffer = lvBuffer();
+            final long offset = calcCircularRefElementOffset(t, buffer.length - 1);
+            final E e = lvRefElement(buffer, offset);
+            if (casTop(t, t + 1))
+            {
+                clearStolen(buffer, offset, e);
+                c.accept(e);
+                stolen++;
+            }
+        }
+        return stolen;
+    }
+
+    /**
+     * Thief: steal half (rounded up) of the elements observed in the deque, in FIFO order.
+     * Useful to balance load between the owner and an idle thief with a single call.
+     *
+     * @return the number of stolen elements
+     */
+    public int stealHalf(Consumer<E> c)
+    {
+        final long size = lvBottom() - lvTop();
+        if (size <= 0)
+        {
+            return 0;
+        }
+        return steal(c, (int) Math.min(Integer.MAX_VALUE, (size + 1) >> 1));
+    }
+
+    /**
+     * Owner only: pop all the elements.
+     */
+    public void clear()
+    {
+        while (pop() != null || !isEmpty())
+        {
+            // if you stare into the void
+        }
+    }
+
+    public int size()
+    {
+        final long size = lvBottom() - lvTop();
+        if (size <= 0)
+        {
+            return 0;
+        }
+        return (int) Math.min(size, capacity());
+    }
+
+    public boolean isEmpty()
+    {
+        return lvBottom() <= lvTop();
+    }
+
+    @Override
+    public String toString()
+    {
+        return this.getClass().getName();
+    }
+}
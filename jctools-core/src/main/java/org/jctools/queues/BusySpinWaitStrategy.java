@@ -0,0 +1,85 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jctools.queues;
+
+import java.lang.reflect.Method;
+
+/**
+ * Busy spin: never gives up the CPU, lowest wakeup latency at the cost of a fully used core while idle. Each idle call
+ * issues a spin wait hint ({@code Thread.onSpinWait()}, i.e. PAUSE on x86) when running on JDK 9+.
+ * <p>
+ * 该策略是无状态的，可以在多个线程之间共享。
+ */
+public final class BusySpinWaitStrategy implements MessagePassingQueue.WaitStrategy
+{
+    public static final BusySpinWaitStrategy INSTANCE = new BusySpinWaitStrategy();
+
+    private static final Runnable NO_HINT = new Runnable()
+    {
+        @Override
+        public void run()
+        {
+        }
+    };
+
+    /**
+     * 源码级别为1.6，无法直接调用（JDK9才有的）Thread.onSpinWait()。类初始化时通过反射（只执行一次）用LambdaMetafactory
+     * 生成一个直接调用Thread.onSpinWait()的Runnable，调用点是static final常量，JIT可以内联并生成PAUSE指令；
+     * 每次都用Method.invoke则不能保证这一点（参数数组、反射访问器）。在JDK 8及以下为空操作。
+     */
+    private static final Runnable ON_SPIN_WAIT = spinWaitHint();
+
+    private static Runnable spinWaitHint()
+    {
+        try
+        {
+            Thread.class.getMethod("onSpinWait");
+            final Class<?> methodHandles = Class.forName("java.lang.invoke.MethodHandles");
+            final Class<?> lookupClass = Class.forName("java.lang.invoke.MethodHandles$Lookup");
+            final Class<?> methodType = Class.forName("java.lang.invoke.MethodType");
+            final Class<?> methodHandle = Class.forName("java.lang.invoke.MethodHandle");
+            final Method methodTypeOf = methodType.getMethod("methodType", Class.class);
+            final Object voidType = methodTypeOf.invoke(null, void.class);
+            final Object lookup = methodHandles.getMethod("lookup").invoke(null);
+            final Object target = lookupClass.getMethod("findStatic", Class.class, String.class, methodType)
+                .invoke(lookup, Thread.class, "onSpinWait", voidType);
+            final Object callSite = Class.forName("java.lang.invoke.LambdaMetafactory")
+                .getMethod("metafactory", lookupClass, String.class, methodType, methodType, methodHandle, methodType)
+                .invoke(null, lookup, "run", methodTypeOf.invoke(null, Runnable.class), voidType, target, voidType);
+            final Object factory = callSite.getClass().getMethod("getTarget").invoke(callSite);
+            return (Runnable) methodHandle.getMethod("invokeWithArguments", Object[].class)
+                .invoke(factory, (Object) new Object[0]);
+        }
+        catch (Throwable noHint)
+        {
+            // JDK 8 or older, or a restricted runtime
+            return NO_HINT;
+        }
+    }
+
+    /**
+     * A spin loop hint, {@code Thread.onSpinWait()} on JDK 9+ and a no-op on older JVMs.
+     */
+    public static void onSpinWait()
+    {
+        ON_SPIN_WAIT.run();
+    }
+
+    @Override
+    public int idle(int idleCounter)
+    {
+        onSpinWait();
+        return idleCounter + 1;
+    }
+}
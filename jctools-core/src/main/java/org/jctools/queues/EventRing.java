@@ -0,0 +1,80 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jctools.queues;
+
+/**
+ * A bounded ring of events allocated once, up front, and reused for every message: producers {@link #claim()} a slot,
+ * mutate its event in place through {@link #event(long)} and {@link #publish(long)} it, the consumer processes events
+ * in place and releases their slots for reuse. Unlike the reference queues no object changes hands, so once created
+ * the ring produces no garbage on either side.
+ * <p>
+ * The events are only safe to access between claim and publish for producers, and between acquire and release for
+ * the consumer.
+ *
+ * @param <E> event type
+ */
+public interface EventRing<E>
+{
+    /**
+     * Returned by {@link #claim()} when the ring is full.
+     */
+    long FULL = -1;
+
+    /**
+     * @return the sequence of the claimed slot, or {@link #FULL} if all the slots are in use
+     */
+    long claim();
+
+    /**
+     * @param sequence a claimed (producers) or acquired (consumer) sequence
+     * @return the event of the slot, to be mutated or read in place
+     */
+    E event(long sequence);
+
+    /**
+     * Make the event of a claimed slot visible to the consumer.
+     *
+     * @param sequence as returned by {@link #claim()}
+     */
+    void publish(long sequence);
+
+    /**
+     * Consumer only: process up to {@code limit} published events in place and release their slots, once for the whole
+     * batch. If the consumer throws the events up to and including the failed one are released.
+     *
+     * @return the number of events processed
+     */
+    int drain(MessagePassingQueue.Consumer<E> c, int limit);
+
+    /**
+     * Consumer only: acquire the next published event, to be processed in place and then {@link #release()}d.
+     *
+     * @return the next published event, or null if none is available
+     */
+    E acquire();
+
+    /**
+     * Consumer only: release the slot of the event returned by the last {@link #acquire()}.
+     */
+    void release();
+
+    int capacity();
+
+    /**
+     * @return the number of claimed or published slots not yet released, a snapshot which may be stale
+     */
+    int size();
+
+    boolean isEmpty();
+}
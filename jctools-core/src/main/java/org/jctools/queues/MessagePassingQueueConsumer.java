@@ -0,0 +1,68 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jctools.queues;
+
+import org.jctools.queues.MessagePassingQueue.Consumer;
+
+/**
+ * A consumer side handle onto a {@link MessagePassingQueue}. Handles are owned by a single consumer thread and may
+ * cache queue state (e.g. a producer index snapshot used for emptiness checks) that would otherwise be re-read from
+ * shared fields on every call. A handle is NOT thread safe, each consumer thread should acquire its own.
+ *
+ * @param <T> the event/message type
+ */
+public interface MessagePassingQueueConsumer<T>
+{
+    /**
+     * See {@link MessagePassingQueue#poll()}.
+     *
+     * @return a message from the queue if one is available, {@code null} iff empty
+     */
+    T poll();
+
+    /**
+     * See {@link MessagePassingQueue#relaxedPoll()}.
+     *
+     * @return a message from the queue if one is available, {@code null} if unable to poll
+     */
+    T relaxedPoll();
+
+    /**
+     * See {@link MessagePassingQueue#peek()}.
+     *
+     * @return a message from the queue if one is available, {@code null} iff empty
+     */
+    T peek();
+
+    /**
+     * See {@link MessagePassingQueue#relaxedPeek()}.
+     *
+     * @return a message from the queue if one is available, {@code null} if unable to peek
+     */
+    T relaxedPeek();
+
+    /**
+     * See {@link MessagePassingQueue#drain(Consumer, int)}.
+     *
+     * @return the number of polled elements
+     * @throws IllegalArgumentException c is {@code null}
+     * @throws IllegalArgumentException if limit is negative
+     */
+    int drain(Consumer<T> c, int limit);
+
+    /**
+     * @return the queue this handle consumes from
+     */
+    MessagePassingQueue<T> queue();
+}
@@ -0,0 +1,59 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jctools.queues;
+
+import org.jctools.queues.MessagePassingQueue.Supplier;
+
+/**
+ * A producer side handle onto a {@link MessagePassingQueue}. Handles are owned by a single producer thread and may
+ * cache queue state (e.g. the producer limit) that would otherwise be re-read from, or written to, shared fields on
+ * every call. A handle is NOT thread safe, each producer thread should acquire its own.
+ * <p>
+ * Elements offered through a handle are visible to consumers of the originating queue, and the handle may be freely
+ * mixed with calls made directly on the queue from other producers.
+ *
+ * @param <T> the event/message type
+ */
+public interface MessagePassingQueueProducer<T>
+{
+    /**
+     * See {@link MessagePassingQueue#offer(Object)}.
+     *
+     * @param e not {@code null}, will throw NPE if it is
+     * @return true if element was inserted into the queue, false iff full
+     */
+    boolean offer(T e);
+
+    /**
+     * See {@link MessagePassingQueue#relaxedOffer(Object)}.
+     *
+     * @param e not {@code null}, will throw NPE if it is
+     * @return true if element was inserted into the queue, false if unable to offer
+     */
+    boolean relaxedOffer(T e);
+
+    /**
+     * See {@link MessagePassingQueue#fill(Supplier, int)}.
+     *
+     * @return the number of offered elements
+     * @throws IllegalArgumentException s is {@code null}
+     * @throws IllegalArgumentException if limit is negative
+     */
+    int fill(Supplier<T> s, int limit);
+
+    /**
+     * @return the queue this handle produces to
+     */
+    MessagePassingQueue<T> queue();
+}
@@ -74,6 +74,24 @@ abstract class MpUnboundedXaddArrayQueueProducerFields<E> extends MpUnboundedXad
     {
         return UNSAFE.getAndAddLong(this, P_INDEX_OFFSET, delta);
     }
+
+    /**
+     * loadPlainProducerIndex
+     * 仅当是单生产者模型时，生产者线程可以使用该方法读取。
+     */
+    final long lpProducerIndex()
+    {
+        return UNSAFE.getLong(this, P_INDEX_OFFSET);
+    }
+
+    /**
+     * storeOrderedProducerIndex
+     * 仅当是单生产者模型时使用：生产者先发布元素，再发布索引，需要保证原子存储 和 对消费者尽快可见。
+     */
+    final void soProducerIndex(long newValue)
+    {
+        UNSAFE.putOrderedLong(this, P_INDEX_OFFSET, newValue);
+    }
 }
 
 abstract class MpUnboundedXaddArrayQueuePad2<E> extends MpUnboundedXaddArrayQueueProducerFields<E>
@@ -534,7 +552,7 @@ abstract class MpUnboundedXaddArrayQueue<R extends MpUnboundedXaddChunk<R,E>, E>
      * @param prevChunk      该chunk的上一个chunk
      * @param nextChunkIndex 下一个chunk的索引（编号）
      */
-    private R newOrPooledChunk(R prevChunk, long nextChunkIndex)
+    final R newOrPooledChunk(R prevChunk, long nextChunkIndex)
     {
         R newChunk = freeChunksPool.poll();
         if (newChunk != null)
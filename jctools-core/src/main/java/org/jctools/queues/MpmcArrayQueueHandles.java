@@ -0,0 +1,189 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jctools.queues;
+
+import static org.jctools.util.UnsafeLongArrayAccess.*;
+import static org.jctools.util.UnsafeRefArrayAccess.*;
+
+/**
+ * Producer and consumer handles for {@link MpmcArrayQueue}, see {@link MpmcArrayQueue#newProducer()} and
+ * {@link MpmcArrayQueue#newConsumer()}.
+ * <p>
+ * {@link MpmcArrayQueue#offer(Object)} and {@link MpmcArrayQueue#poll()} already cache the opposite index for the
+ * duration of a call, the handles carry that snapshot across calls. Indexes only move forward, so a stale snapshot
+ * can only under-estimate and is re-read before reporting the queue full/empty.
+ */
+final class MpmcArrayQueueHandles
+{
+    private MpmcArrayQueueHandles()
+    {
+    }
+
+    static final class Producer<E> implements MessagePassingQueueProducer<E>
+    {
+        private final MpmcArrayQueue<E> queue;
+        private long consumerIndex;
+
+        Producer(MpmcArrayQueue<E> queue)
+        {
+            this.queue = queue;
+        }
+
+        @Override
+        public boolean offer(E e)
+        {
+            if (null == e)
+            {
+                throw new NullPointerException();
+            }
+            final MpmcArrayQueue<E> queue = this.queue;
+            final long mask = queue.mask;
+            final long capacity = mask + 1;
+            final long[] sBuffer = queue.sequenceBuffer;
+
+            long pIndex;
+            long seqOffset;
+            long seq;
+            long cIndex = this.consumerIndex;
+            do
+            {
+                pIndex = queue.lvProducerIndex();
+                seqOffset = calcCircularLongElementOffset(pIndex, mask);
+                seq = lvLongElement(sBuffer, seqOffset);
+                if (seq < pIndex)
+                {
+                    if (pIndex - capacity >= cIndex && // test against cached cIndex
+                        pIndex - capacity >= (cIndex = queue.lvConsumerIndex())) // test against latest cIndex
+                    {
+                        this.consumerIndex = cIndex;
+                        return false;
+                    }
+                    else
+                    {
+                        seq = pIndex + 1; // (+) hack to make it go around again without CAS
+                    }
+                }
+            }
+            while (seq > pIndex || // another producer has moved the sequence(or +)
+                !queue.casProducerIndex(pIndex, pIndex + 1)); // failed to increment
+            this.consumerIndex = cIndex;
+
+            spRefElement(queue.buffer, calcCircularRefElementOffset(pIndex, mask), e);
+            soLongElement(sBuffer, seqOffset, pIndex + 1);
+            return true;
+        }
+
+        @Override
+        public boolean relaxedOffer(E e)
+        {
+            return queue.relaxedOffer(e);
+        }
+
+        @Override
+        public int fill(MessagePassingQueue.Supplier<E> s, int limit)
+        {
+            return queue.fill(s, limit);
+        }
+
+        @Override
+        public MessagePassingQueue<E> queue()
+        {
+            return queue;
+        }
+    }
+
+    static final class Consumer<E> implements MessagePassingQueueConsumer<E>
+    {
+        private final MpmcArrayQueue<E> queue;
+        private long producerIndex;
+
+        Consumer(MpmcArrayQueue<E> queue)
+        {
+            this.queue = queue;
+        }
+
+        @Override
+        public E poll()
+        {
+            final MpmcArrayQueue<E> queue = this.queue;
+            final long[] sBuffer = queue.sequenceBuffer;
+            final long mask = queue.mask;
+
+            long cIndex;
+            long seq;
+            long seqOffset;
+            long expectedSeq;
+            long pIndex = this.producerIndex;
+            do
+            {
+                cIndex = queue.lvConsumerIndex();
+                seqOffset = calcCircularLongElementOffset(cIndex, mask);
+                seq = lvLongElement(sBuffer, seqOffset);
+                expectedSeq = cIndex + 1;
+                if (seq < expectedSeq)
+                {
+                    if (cIndex >= pIndex && // test against cached pIndex
+                        cIndex == (pIndex = queue.lvProducerIndex())) // update pIndex if we must
+                    {
+                        this.producerIndex = pIndex;
+                        return null;
+                    }
+                    else
+                    {
+                        seq = expectedSeq + 1; // trip another go around
+                    }
+                }
+            }
+            while (seq > expectedSeq || // another consumer beat us to it
+                !queue.casConsumerIndex(cIndex, cIndex + 1)); // failed the CAS
+            this.producerIndex = pIndex;
+
+            final long offset = calcCircularRefElementOffset(cIndex, mask);
+            final E e = lpRefElement(queue.buffer, offset);
+            spRefElement(queue.buffer, offset, null);
+            soLongElement(sBuffer, seqOffset, cIndex + mask + 1);
+            return e;
+        }
+
+        @Override
+        public E relaxedPoll()
+        {
+            return queue.relaxedPoll();
+        }
+
+        @Override
+        public E peek()
+        {
+            return queue.peek();
+        }
+
+        @Override
+        public E relaxedPeek()
+        {
+            return queue.relaxedPeek();
+        }
+
+        @Override
+        public int drain(MessagePassingQueue.Consumer<E> c, int limit)
+        {
+            return queue.drain(c, limit);
+        }
+
+        @Override
+        public MessagePassingQueue<E> queue()
+        {
+            return queue;
+        }
+    }
+}
@@ -0,0 +1,242 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jctools.queues;
+
+import static org.jctools.util.UnsafeRefArrayAccess.*;
+
+import java.util.AbstractQueue;
+import java.util.Iterator;
+
+import org.jctools.util.Pow2;
+import org.jctools.util.RangeUtil;
+import org.jctools.util.UnsafeAccess;
+
+/**
+ * A bounded MPMC queue where producers and consumers take tickets through getAndAdd rather than CAS loops on shared
+ * indexes, after the Scalable Circular Queue (SCQ) of Nikolaev (DISC 2019).
+ * <p>
+ * The elements live in a plain array, their slots are handed out through two {@link XaddIndexRing}s of slot indexes:
+ * an offer dequeues a free slot from the free ring, stores the element and enqueues the slot in the allocated ring, a
+ * poll does the reverse. Both rings are twice the capacity in size, which is what lets a getAndAdd ticket which finds
+ * its ring slot unusable simply take the next ticket. Under contention this degrades far more gently than the CAS
+ * retry loops of {@link MpmcArrayQueue}, at the cost of two ring operations per message.
+ * <p>
+ * Unlike {@link MpmcArrayQueue} an offer or poll completes once it returns: there is no claimed but not yet visible
+ * slot for a peek or poll to spin on, the relaxed methods are therefore the same as the strict ones. FIFO order holds
+ * between messages whose offers do not overlap. {@link #size()} is an estimate under contention, exact when quiescent.
+ * <p>
+ * Requires {@code Unsafe::getAndAddLong} (JDK 8+).
+ */
+public class MpmcBoundedXaddArrayQueue<E> extends AbstractQueue<E> implements MessagePassingQueue<E>
+{
+    private final E[] buffer;
+    private final XaddIndexRing allocated;
+    private final XaddIndexRing free;
+
+    /**
+     * @param capacity rounded up to the next power of 2
+     */
+    public MpmcBoundedXaddArrayQueue(int capacity)
+    {
+        if (!UnsafeAccess.SUPPORTS_GET_AND_ADD_LONG)
+        {
+            throw new IllegalStateException("Unsafe::getAndAddLong support (JDK 8+) is required for this queue to work");
+        }
+        RangeUtil.checkPositive(capacity, "capacity");
+        RangeUtil.checkLessThanOrEqual(capacity, Pow2.MAX_POW2 / 2, "capacity");
+        final int actualCapacity = Pow2.roundToPowerOfTwo(capacity);
+        buffer = allocateRefArray(actualCapacity);
+        allocated = new XaddIndexRing(actualCapacity, false);
+        free = new XaddIndexRing(actualCapacity, true);
+    }
+
+    @Override
+    public boolean offer(E e)
+    {
+        if (null == e)
+        {
+            throw new NullPointerException();
+        }
+        final int index = free.dequeue();
+        if (index == XaddIndexRing.EMPTY)
+        {
+            return false;
+        }
+        // 由allocated.enqueue中的CAS发布
+        spRefElement(buffer, calcRefElementOffset(index), e);
+        allocated.enqueue(index);
+        return true;
+    }
+
+    @Override
+    public E poll()
+    {
+        final int index = allocated.dequeue();
+        if (index == XaddIndexRing.EMPTY)
+        {
+            return null;
+        }
+        final long offset = calcRefElementOffset(index);
+        final E e = lpRefElement(buffer, offset);
+        // 由free.enqueue中的CAS发布，之后才可能被生产者再次填充
+        spRefElement(buffer, offset, null);
+        free.enqueue(index);
+        return e;
+    }
+
+    @Override
+    public E peek()
+    {
+        final E[] buffer = this.buffer;
+        final XaddIndexRing allocated = this.allocated;
+        while (true)
+        {
+            final long head = allocated.lvHead();
+            final int index = allocated.firstIndex(head);
+            final E e = index == XaddIndexRing.EMPTY ? null : lvRefElement(buffer, calcRefElementOffset(index));
+            // head没有变化，则没有出队者取走（并释放）该槽位，读到的元素有效
+            if (allocated.lvHead() == head)
+            {
+                return e;
+            }
+        }
+    }
+
+    @Override
+    public boolean relaxedOffer(E e)
+    {
+        return offer(e);
+    }
+
+    @Override
+    public E relaxedPoll()
+    {
+        return poll();
+    }
+
+    @Override
+    public E relaxedPeek()
+    {
+        return peek();
+    }
+
+    @Override
+    public int size()
+    {
+        return allocated.size();
+    }
+
+    @Override
+    public boolean isEmpty()
+    {
+        return size() == 0;
+    }
+
+    @Override
+    public int capacity()
+    {
+        return buffer.length;
+    }
+
+    @Override
+    public void clear()
+    {
+        while (poll() != null)
+        {
+            // if you stare into the void
+        }
+    }
+
+    @Override
+    public String toString()
+    {
+        return this.getClass().getName();
+    }
+
+    @Override
+    public Iterator<E> iterator()
+    {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public int drain(Consumer<E> c, int limit)
+    {
+        return MessagePassingQueueUtil.drain(this, c, limit);
+    }
+
+    @Override
+    public int fill(Supplier<E> s, int limit)
+    {
+        if (null == s)
+            throw new IllegalArgumentException("supplier is null");
+        if (limit < 0)
+            throw new IllegalArgumentException("limit is negative:" + limit);
+        final E[] buffer = this.buffer;
+        int i = 0;
+        for (; i < limit; i++)
+        {
+            // 先取得空闲槽位再调用supplier，满时不会丢失元素
+            final int index = free.dequeue();
+            if (index == XaddIndexRing.EMPTY)
+            {
+                break;
+            }
+            E e = null;
+            try
+            {
+                e = s.get();
+            }
+            finally
+            {
+                // supplier抛出异常（或返回null）时归还槽位，否则该槽位永久丢失
+                if (null == e)
+                {
+                    free.enqueue(index);
+                }
+            }
+            if (null == e)
+            {
+                throw new NullPointerException("supplier returned null");
+            }
+            spRefElement(buffer, calcRefElementOffset(index), e);
+            allocated.enqueue(index);
+        }
+        return i;
+    }
+
+    @Override
+    public int drain(Consumer<E> c)
+    {
+        return MessagePassingQueueUtil.drain(this, c);
+    }
+
+    @Override
+    public int fill(Supplier<E> s)
+    {
+        return MessagePassingQueueUtil.fillBounded(this, s);
+    }
+
+    @Override
+    public void drain(Consumer<E> c, WaitStrategy wait, ExitCondition exit)
+    {
+        MessagePassingQueueUtil.drain(this, c, wait, exit);
+    }
+
+    @Override
+    public void fill(Supplier<E> s, WaitStrategy wait, ExitCondition exit)
+    {
+        MessagePassingQueueUtil.fill(this, s, wait, exit);
+    }
+}
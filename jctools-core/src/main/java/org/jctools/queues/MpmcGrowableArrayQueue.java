@@ -0,0 +1,64 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jctools.queues;
+
+import org.jctools.util.Pow2;
+import org.jctools.util.RangeUtil;
+
+
+/**
+ * {@link MpscGrowableArrayQueue}的多消费者版本，每次扩容将块的容量加倍，直到一个块可以容纳所有的元素。
+ *
+ * An MPMC array queue which starts at <i>initialCapacity</i> and grows to <i>maxCapacity</i> in linked chunks,
+ * doubling theirs size every time until the full blown backing array is used.
+ * The queue grows only when the current chunk is full and elements are not copied on
+ * resize, instead a link to the new chunk is stored in the old chunk for the consumers to follow.
+ */
+public class MpmcGrowableArrayQueue<E> extends MpmcChunkedArrayQueue<E>
+{
+
+    public MpmcGrowableArrayQueue(int maxCapacity)
+    {
+        super(Math.max(2, Pow2.roundToPowerOfTwo(maxCapacity / 8)), maxCapacity);
+    }
+
+    /**
+     * @param initialCapacity the queue initial capacity. If chunk size is fixed this will be the chunk size.
+     *                        Must be 2 or more.
+     * @param maxCapacity     the maximum capacity will be rounded up to the closest power of 2 and will be the
+     *                        upper limit of number of elements in this queue. Must be 4 or more and round up to a larger
+     *                        power of 2 than initialCapacity.
+     */
+    public MpmcGrowableArrayQueue(int initialCapacity, int maxCapacity)
+    {
+        super(initialCapacity, maxCapacity);
+    }
+
+
+    @Override
+    protected int getNextBufferCapacity(E[] buffer)
+    {
+        final long maxSize = maxQueueCapacity / 2;
+        final int capacity = bufferCapacity(buffer);
+        RangeUtil.checkLessThanOrEqual(capacity, maxSize / 2, "buffer capacity");
+        return 2 * capacity;
+    }
+
+    @Override
+    protected long getCurrentBufferCapacity(long mask)
+    {
+        // 到达最大容量后不会再扩容，不必为JUMP预留槽位
+        return (mask + 2 == maxQueueCapacity) ? maxQueueCapacity : mask;
+    }
+}
@@ -0,0 +1,722 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jctools.queues;
+
+import org.jctools.util.RangeUtil;
+
+import java.util.AbstractQueue;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+
+import static org.jctools.util.PortableJvmInfo.CPUs;
+import static org.jctools.util.Pow2.roundToPowerOfTwo;
+import static org.jctools.util.UnsafeAccess.UNSAFE;
+import static org.jctools.util.UnsafeAccess.fieldOffset;
+
+abstract class MpmcRelaxedPriorityQueueStripeL0Pad
+{
+    /**
+     * 缓存行填充，子堆之间是独立分配的对象，避免相邻子堆的锁和堆顶产生伪共享
+     */
+    byte b000,b001,b002,b003,b004,b005,b006,b007;//  8b
+    byte b010,b011,b012,b013,b014,b015,b016,b017;// 16b
+    byte b020,b021,b022,b023,b024,b025,b026,b027;// 24b
+    byte b030,b031,b032,b033,b034,b035,b036,b037;// 32b
+    byte b040,b041,b042,b043,b044,b045,b046,b047;// 40b
+    byte b050,b051,b052,b053,b054,b055,b056,b057;// 48b
+    byte b060,b061,b062,b063,b064,b065,b066,b067;// 56b
+    byte b070,b071,b072,b073,b074,b075,b076,b077;// 64b
+    byte b100,b101,b102,b103,b104,b105,b106,b107;// 72b
+    byte b110,b111,b112,b113,b114,b115,b116,b117;// 80b
+    byte b120,b121,b122,b123,b124,b125,b126,b127;// 88b
+    byte b130,b131,b132,b133,b134,b135,b136,b137;// 96b
+    byte b140,b141,b142,b143,b144,b145,b146,b147;//104b
+    byte b150,b151,b152,b153,b154,b155,b156,b157;//112b
+    byte b160,b161,b162,b163,b164,b165,b166,b167;//120b
+    byte b170,b171,b172,b173,b174,b175,b176,b177;//128b
+}
+
+abstract class MpmcRelaxedPriorityQueueStripeFields<E> extends MpmcRelaxedPriorityQueueStripeL0Pad
+{
+    private final static long LOCK_OFFSET = fieldOffset(MpmcRelaxedPriorityQueueStripeFields.class, "lock");
+    private final static long TOP_OFFSET = fieldOffset(MpmcRelaxedPriorityQueueStripeFields.class, "top");
+    private final static long SIZE_OFFSET = fieldOffset(MpmcRelaxedPriorityQueueStripeFields.class, "size");
+
+    /**
+     * 子堆的锁，0表示空闲，1表示被占用。只使用{@link #tryLock()}，从不阻塞等待。
+     */
+    private volatile int lock;
+    /**
+     * 堆顶元素的缓存，在持有锁时更新，其它线程无锁读取，用于"二选一"时比较两个子堆。
+     */
+    private volatile E top;
+    private volatile int size;
+    /**
+     * 二叉小顶堆，只在持有锁时访问。
+     */
+    protected E[] heap;
+
+    final boolean tryLock()
+    {
+        return lock == 0 && UNSAFE.compareAndSwapInt(this, LOCK_OFFSET, 0, 1);
+    }
+
+    final void unlock()
+    {
+        // 释放语义即可：持有锁期间对堆的修改对下一个获取锁的线程可见
+        UNSAFE.putOrderedInt(this, LOCK_OFFSET, 0);
+    }
+
+    final E lvTop()
+    {
+        return top;
+    }
+
+    final void soTop(E e)
+    {
+        UNSAFE.putOrderedObject(this, TOP_OFFSET, e);
+    }
+
+    final int lvSize()
+    {
+        return size;
+    }
+
+    final int lpSize()
+    {
+        return UNSAFE.getInt(this, SIZE_OFFSET);
+    }
+
+    final void soSize(int v)
+    {
+        UNSAFE.putOrderedInt(this, SIZE_OFFSET, v);
+    }
+}
+
+/**
+ * 一个子堆：加锁的二叉堆，附带无锁可读的堆顶缓存。
+ */
+final class MpmcRelaxedPriorityQueueStripe<E> extends MpmcRelaxedPriorityQueueStripeFields<E>
+{
+    /**
+     * 缓存行填充，避免堆顶缓存和相邻对象产生伪共享
+     */
+    byte b000,b001,b002,b003,b004,b005,b006,b007;//  8b
+    byte b010,b011,b012,b013,b014,b015,b016,b017;// 16b
+    byte b020,b021,b022,b023,b024,b025,b026,b027;// 24b
+    byte b030,b031,b032,b033,b034,b035,b036,b037;// 32b
+    byte b040,b041,b042,b043,b044,b045,b046,b047;// 40b
+    byte b050,b051,b052,b053,b054,b055,b056,b057;// 48b
+    byte b060,b061,b062,b063,b064,b065,b066,b067;// 56b
+    byte b070,b071,b072,b073,b074,b075,b076,b077;// 64b
+    byte b100,b101,b102,b103,b104,b105,b106,b107;// 72b
+    byte b110,b111,b112,b113,b114,b115,b116,b117;// 80b
+    byte b120,b121,b122,b123,b124,b125,b126,b127;// 88b
+    byte b130,b131,b132,b133,b134,b135,b136,b137;// 96b
+    byte b140,b141,b142,b143,b144,b145,b146,b147;//104b
+    byte b150,b151,b152,b153,b154,b155,b156,b157;//112b
+    byte b160,b161,b162,b163,b164,b165,b166,b167;//120b
+    byte b170,b171,b172,b173,b174,b175,b176,b177;//128b
+
+    private static final int INITIAL_HEAP_CAPACITY = 16;
+
+    @SuppressWarnings("unchecked")
+    MpmcRelaxedPriorityQueueStripe()
+    {
+        heap = (E[]) new Object[INITIAL_HEAP_CAPACITY];
+    }
+
+    /**
+     * 必须持有锁。
+     */
+    void add(E e, Comparator<? super E> comparator)
+    {
+        final int size = lpSize();
+        E[] heap = this.heap;
+        if (size == heap.length)
+        {
+            this.heap = heap = Arrays.copyOf(heap, size << 1);
+        }
+        siftUp(heap, size, e, comparator);
+        soSize(size + 1);
+        soTop(heap[0]);
+    }
+
+    /**
+     * 必须持有锁。
+     *
+     * @return the smallest element in this stripe, or null if empty
+     */
+    E remove(Comparator<? super E> comparator)
+    {
+        final int size = lpSize() - 1;
+        if (size < 0)
+        {
+            return null;
+        }
+        final E[] heap = this.heap;
+        final E result = heap[0];
+        final E last = heap[size];
+        heap[size] = null;
+        if (size != 0)
+        {
+            siftDown(heap, size, last, comparator);
+        }
+        soSize(size);
+        soTop(heap[0]);
+        return result;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <E> void siftUp(E[] heap, int index, E e, Comparator<? super E> comparator)
+    {
+        while (index > 0)
+        {
+            final int parent = (index - 1) >>> 1;
+            final E p = heap[parent];
+            if (comparator == null ? ((Comparable<? super E>) e).compareTo(p) >= 0 : comparator.compare(e, p) >= 0)
+            {
+                break;
+            }
+            heap[index] = p;
+            index = parent;
+        }
+        heap[index] = e;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <E> void siftDown(E[] heap, int size, E e, Comparator<? super E> comparator)
+    {
+        int index = 0;
+        final int half = size >>> 1;
+        while (index < half)
+        {
+            int child = (index << 1) + 1;
+            E c = heap[child];
+            final int right = child + 1;
+            if (right < size &&
+                (comparator == null ? ((Comparable<? super E>) c).compareTo(heap[right]) > 0 : comparator.compare(c, heap[right]) > 0))
+            {
+                c = heap[child = right];
+            }
+            if (comparator == null ? ((Comparable<? super E>) e).compareTo(c) <= 0 : comparator.compare(e, c) <= 0)
+            {
+                break;
+            }
+            heap[index] = c;
+            index = child;
+        }
+        heap[index] = e;
+    }
+}
+
+/**
+ * A relaxed concurrent priority queue (MultiQueue): elements are spread over a power of 2 number of independently
+ * locked binary heaps (stripes), producers add to a random stripe, consumers look at the cached minimum of two random
+ * stripes and remove from the smaller one.
+ * <p>
+ * 这是一个"松弛"的优先级队列：{@link #poll()}返回的不保证是全局最小元素，而是接近最小的元素，期望的排名误差与子堆数量成正比
+ * （与{@link org.jctools.queues.spec.Ordering#KFIFO}类似的松弛概念，只不过松弛的是优先级顺序而不是插入顺序）。
+ * 只有一个子堆时，该队列是严格的优先级队列。
+ * <p>
+ * 实现要点：
+ * 1. 锁只使用tryLock，失败时换一个随机子堆重试，因此线程之间不会相互阻塞等待。
+ * 2. 每个子堆维护一个volatile的堆顶缓存，消费者无锁比较两个子堆的堆顶，只锁定较小的那个（"二选一"）。
+ * 3. {@link #drain(Consumer, int)}在一次加锁中批量移除元素，直到该子堆的堆顶大于另一个候选子堆的堆顶，
+ * 在摊薄加锁开销的同时不降低元素质量。
+ * <p>
+ * 该队列是无界的，元素需要实现{@link Comparable}，或者在构造时提供{@link Comparator}。相等的元素之间没有顺序保证。
+ */
+public class MpmcRelaxedPriorityQueue<E> extends AbstractQueue<E> implements MessagePassingQueue<E>
+{
+    private static final int DRAIN_BATCH = 32;
+
+    /**
+     * 每个线程的随机数种子和批量缓冲区，所有队列实例共享。
+     */
+    private static final ThreadLocal<ThreadState> THREAD_STATE = new ThreadLocal<ThreadState>()
+    {
+        @Override
+        protected ThreadState initialValue()
+        {
+            return new ThreadState();
+        }
+    };
+
+    private static final class ThreadState
+    {
+        int seed = (int) (Thread.currentThread().getId() * 0x9E3779B9L) | 1;
+        /**
+         * 在使用期间置为null，以免{@link Consumer}或{@link Supplier}重入时覆盖其中的元素。
+         */
+        Object[] batch = new Object[DRAIN_BATCH];
+
+        int nextInt()
+        {
+            // xorshift32
+            int x = seed;
+            x ^= x << 13;
+            x ^= x >>> 17;
+            x ^= x << 5;
+            return seed = x;
+        }
+    }
+
+    private final MpmcRelaxedPriorityQueueStripe<E>[] stripes;
+    private final int stripesMask;
+    private final Comparator<? super E> comparator;
+
+    /**
+     * Natural ordering, {@code 2 * CPUs} stripes.
+     */
+    public MpmcRelaxedPriorityQueue()
+    {
+        this(2 * CPUs, null);
+    }
+
+    /**
+     * Natural ordering.
+     *
+     * @param stripes number of heaps, rounded up to the next power of 2
+     */
+    public MpmcRelaxedPriorityQueue(int stripes)
+    {
+        this(stripes, null);
+    }
+
+    /**
+     * @param stripes    number of heaps, rounded up to the next power of 2. More stripes reduce contention but increase
+     *                   the expected rank error of {@link #poll()}, 2 per consumer/producer thread is a good default.
+     * @param comparator the ordering, or null for the natural ordering of the elements
+     */
+    @SuppressWarnings("unchecked")
+    public MpmcRelaxedPriorityQueue(int stripes, Comparator<? super E> comparator)
+    {
+        RangeUtil.checkPositive(stripes, "stripes");
+        final int length = roundToPowerOfTwo(stripes);
+        this.stripes = new MpmcRelaxedPriorityQueueStripe[length];
+        for (int i = 0; i < length; i++)
+        {
+            this.stripes[i] = new MpmcRelaxedPriorityQueueStripe<E>();
+        }
+        this.stripesMask = length - 1;
+        this.comparator = comparator;
+    }
+
+    public Comparator<? super E> comparator()
+    {
+        return comparator;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * 实现提示：随机选择一个子堆，tryLock成功则插入，失败则换一个子堆重试。
+     */
+    @Override
+    public boolean offer(final E e)
+    {
+        if (null == e)
+        {
+            throw new NullPointerException();
+        }
+        final MpmcRelaxedPriorityQueueStripe<E> stripe = lockRandomStripe(THREAD_STATE.get());
+        try
+        {
+            stripe.add(e, comparator);
+        }
+        finally
+        {
+            // 比较器抛出异常或扩容失败时也要释放锁，否则该子堆永远被占用
+            stripe.unlock();
+        }
+        return true;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * 返回的是接近最小的元素，只有当所有子堆都观察为空时才返回null。
+     */
+    @Override
+    public E poll()
+    {
+        final ThreadState state = THREAD_STATE.get();
+        final Comparator<? super E> comparator = this.comparator;
+        while (true)
+        {
+            final MpmcRelaxedPriorityQueueStripe<E> stripe = selectStripe(state);
+            if (stripe == null)
+            {
+                return null;
+            }
+            if (!stripe.tryLock())
+            {
+                // 被其它线程占用，重新选择
+                continue;
+            }
+            final E e;
+            try
+            {
+                e = stripe.remove(comparator);
+            }
+            finally
+            {
+                stripe.unlock();
+            }
+            if (e != null)
+            {
+                return e;
+            }
+            // 在选择和加锁之间被其它消费者取空，重新选择
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * 扫描所有子堆的堆顶缓存，返回其中最小的。由于是无锁读取，结果只是一个快照。
+     */
+    @Override
+    public E peek()
+    {
+        final MpmcRelaxedPriorityQueueStripe<E>[] stripes = this.stripes;
+        E min = null;
+        for (MpmcRelaxedPriorityQueueStripe<E> stripe : stripes)
+        {
+            final E e = stripe.lvTop();
+            if (e != null && (min == null || compare(e, min) < 0))
+            {
+                min = e;
+            }
+        }
+        return min;
+    }
+
+    @Override
+    public boolean relaxedOffer(E e)
+    {
+        return offer(e);
+    }
+
+    @Override
+    public E relaxedPoll()
+    {
+        return poll();
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * 返回两个随机子堆中较小的堆顶，与{@link #poll()}选择元素的方式相同。
+     */
+    @Override
+    public E relaxedPeek()
+    {
+        final MpmcRelaxedPriorityQueueStripe<E> stripe = selectStripe(THREAD_STATE.get());
+        return stripe == null ? null : stripe.lvTop();
+    }
+
+    @Override
+    public int size()
+    {
+        long size = 0;
+        for (MpmcRelaxedPriorityQueueStripe<E> stripe : stripes)
+        {
+            size += stripe.lvSize();
+        }
+        return (int) Math.min(size, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public boolean isEmpty()
+    {
+        for (MpmcRelaxedPriorityQueueStripe<E> stripe : stripes)
+        {
+            if (stripe.lvTop() != null)
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public int capacity()
+    {
+        return UNBOUNDED_CAPACITY;
+    }
+
+    @Override
+    public Iterator<E> iterator()
+    {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public String toString()
+    {
+        return this.getClass().getName();
+    }
+
+    @Override
+    public int drain(Consumer<E> c)
+    {
+        return MessagePassingQueueUtil.drain(this, c);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * 实现提示：
+     * 1. 与poll一样"二选一"，锁定堆顶较小的子堆。
+     * 2. 在一次加锁中连续移除元素（最多{@code DRAIN_BATCH}个），直到该子堆的堆顶大于另一个候选子堆的堆顶。
+     * 3. 释放锁之后再将元素交给消费者，避免消费者的耗时操作阻塞该子堆。
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public int drain(Consumer<E> c, int limit)
+    {
+        if (null == c)
+            throw new IllegalArgumentException("c is null");
+        if (limit < 0)
+            throw new IllegalArgumentException("limit is negative: " + limit);
+        if (limit == 0)
+            return 0;
+
+        final ThreadState state = THREAD_STATE.get();
+        Object[] batch = state.batch;
+        state.batch = null;
+        if (batch == null)
+        {
+            // 重入的drain/fill，使用独立的缓冲区
+            batch = new Object[DRAIN_BATCH];
+        }
+        final Comparator<? super E> comparator = this.comparator;
+        final MpmcRelaxedPriorityQueueStripe<E>[] stripes = this.stripes;
+        final int mask = stripesMask;
+        int drained = 0;
+        try
+        {
+            while (drained < limit)
+            {
+                final MpmcRelaxedPriorityQueueStripe<E> a = stripes[state.nextInt() & mask];
+                final MpmcRelaxedPriorityQueueStripe<E> b = stripes[state.nextInt() & mask];
+                final E aTop = a.lvTop();
+                final E bTop = b.lvTop();
+                MpmcRelaxedPriorityQueueStripe<E> stripe;
+                E bound;
+                if (aTop == null && bTop == null)
+                {
+                    stripe = scanForNonEmpty(state.nextInt());
+                    if (stripe == null)
+                    {
+                        break;
+                    }
+                    bound = null;
+                }
+                else if (bTop == null || (aTop != null && compare(aTop, bTop) <= 0))
+                {
+                    stripe = a;
+                    bound = bTop;
+                }
+                else
+                {
+                    stripe = b;
+                    bound = aTop;
+                }
+                if (!stripe.tryLock())
+                {
+                    continue;
+                }
+                final int max = Math.min(DRAIN_BATCH, limit - drained);
+                int count = 0;
+                try
+                {
+                    E e;
+                    do
+                    {
+                        e = stripe.remove(comparator);
+                        if (e == null)
+                        {
+                            break;
+                        }
+                        batch[count++] = e;
+                        e = stripe.lvTop();
+                    }
+                    while (count < max && e != null && (bound == null || compare(e, bound) <= 0));
+                }
+                finally
+                {
+                    stripe.unlock();
+                }
+
+                for (int i = 0; i < count; i++)
+                {
+                    final E element = (E) batch[i];
+                    batch[i] = null;
+                    c.accept(element);
+                }
+                drained += count;
+            }
+        }
+        finally
+        {
+            state.batch = batch;
+        }
+        return drained;
+    }
+
+    @Override
+    public int fill(Supplier<E> s)
+    {
+        return MessagePassingQueueUtil.fillUnbounded(this, s);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * 实现提示：先从supplier批量获取元素（不持有锁），再在一次加锁中插入同一个随机子堆。
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public int fill(Supplier<E> s, int limit)
+    {
+        if (null == s)
+            throw new IllegalArgumentException("supplier is null");
+        if (limit < 0)
+            throw new IllegalArgumentException("limit is negative: " + limit);
+        if (limit == 0)
+            return 0;
+
+        final ThreadState state = THREAD_STATE.get();
+        Object[] batch = state.batch;
+        state.batch = null;
+        if (batch == null)
+        {
+            batch = new Object[DRAIN_BATCH];
+        }
+        final Comparator<? super E> comparator = this.comparator;
+        int filled = 0;
+        int count = 0;
+        try
+        {
+            while (filled < limit)
+            {
+                final int max = Math.min(DRAIN_BATCH, limit - filled);
+                for (count = 0; count < max; count++)
+                {
+                    final E e = s.get();
+                    if (null == e)
+                    {
+                        throw new NullPointerException();
+                    }
+                    batch[count] = e;
+                }
+                final MpmcRelaxedPriorityQueueStripe<E> stripe = lockRandomStripe(state);
+                try
+                {
+                    for (int i = 0; i < count; i++)
+                    {
+                        stripe.add((E) batch[i], comparator);
+                        batch[i] = null;
+                    }
+                }
+                finally
+                {
+                    stripe.unlock();
+                }
+                filled += count;
+                count = 0;
+            }
+        }
+        finally
+        {
+            // supplier抛出异常时，不要在缓冲区中残留元素
+            Arrays.fill(batch, 0, count, null);
+            state.batch = batch;
+        }
+        return filled;
+    }
+
+    @Override
+    public void drain(Consumer<E> c, WaitStrategy wait, ExitCondition exit)
+    {
+        MessagePassingQueueUtil.drain(this, c, wait, exit);
+    }
+
+    @Override
+    public void fill(Supplier<E> s, WaitStrategy wait, ExitCondition exit)
+    {
+        MessagePassingQueueUtil.fill(this, s, wait, exit);
+    }
+
+    private MpmcRelaxedPriorityQueueStripe<E> lockRandomStripe(ThreadState state)
+    {
+        final MpmcRelaxedPriorityQueueStripe<E>[] stripes = this.stripes;
+        final int mask = stripesMask;
+        while (true)
+        {
+            final MpmcRelaxedPriorityQueueStripe<E> stripe = stripes[state.nextInt() & mask];
+            if (stripe.tryLock())
+            {
+                return stripe;
+            }
+        }
+    }
+
+    /**
+     * "二选一"：比较两个随机子堆的堆顶，返回较小的那个；两者都为空时扫描所有子堆，都为空则返回null。
+     */
+    private MpmcRelaxedPriorityQueueStripe<E> selectStripe(ThreadState state)
+    {
+        final MpmcRelaxedPriorityQueueStripe<E>[] stripes = this.stripes;
+        final int mask = stripesMask;
+        final MpmcRelaxedPriorityQueueStripe<E> a = stripes[state.nextInt() & mask];
+        final MpmcRelaxedPriorityQueueStripe<E> b = stripes[state.nextInt() & mask];
+        final E aTop = a.lvTop();
+        final E bTop = b.lvTop();
+        if (aTop == null)
+        {
+            return bTop != null ? b : scanForNonEmpty(state.nextInt());
+        }
+        if (bTop == null)
+        {
+            return a;
+        }
+        return compare(aTop, bTop) <= 0 ? a : b;
+    }
+
+    private MpmcRelaxedPriorityQueueStripe<E> scanForNonEmpty(int start)
+    {
+        final MpmcRelaxedPriorityQueueStripe<E>[] stripes = this.stripes;
+        final int mask = stripesMask;
+        for (int i = 0; i <= mask; i++)
+        {
+            final MpmcRelaxedPriorityQueueStripe<E> stripe = stripes[(start + i) & mask];
+            if (stripe.lvTop() != null)
+            {
+                return stripe;
+            }
+        }
+        return null;
+    }
+
+    @SuppressWarnings("unchecked")
+    private int compare(E a, E b)
+    {
+        return comparator == null ? ((Comparable<? super E>) a).compareTo(b) : comparator.compare(a, b);
+    }
+}
@@ -761,4 +761,28 @@ public class MpscArrayQueue<E> extends MpscArrayQueueL3Pad<E>
     {
         MessagePassingQueueUtil.fill(this, s, wait, exit);
     }
+
+    /**
+     * Creates a producer handle onto this queue for the calling producer thread. The handle caches queue state
+     * between calls and must not be shared between threads.
+     *
+     * @return a new producer handle
+     */
+    // $gen:ignore
+    public MessagePassingQueueProducer<E> newProducer()
+    {
+        return new MpscArrayQueueHandles.Producer<E>(this);
+    }
+
+    /**
+     * Creates a consumer handle onto this queue for the calling consumer thread. The handle caches queue state
+     * between calls and must not be shared between threads.
+     *
+     * @return a new consumer handle
+     */
+    // $gen:ignore
+    public MessagePassingQueueConsumer<E> newConsumer()
+    {
+        return new MpscArrayQueueHandles.Consumer<E>(this);
+    }
 }
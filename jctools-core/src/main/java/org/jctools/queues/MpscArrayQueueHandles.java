@@ -0,0 +1,220 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jctools.queues;
+
+import static org.jctools.util.UnsafeRefArrayAccess.*;
+
+/**
+ * Producer and consumer handles for {@link MpscArrayQueue}, see {@link MpscArrayQueue#newProducer()} and
+ * {@link MpscArrayQueue#newConsumer()}.
+ */
+final class MpscArrayQueueHandles
+{
+    private MpscArrayQueueHandles()
+    {
+    }
+
+    /**
+     * Keeps a handle local producer limit. The shared producer limit is a hot field: every producer reads it on each
+     * offer and whichever producer finds it stale writes it back. A handle only reads the consumer index when its own
+     * limit is exhausted and never writes the shared limit.
+     */
+    static final class Producer<E> implements MessagePassingQueueProducer<E>
+    {
+        private final MpscArrayQueue<E> queue;
+        // the consumer index is never negative, so this forces a refresh on first use
+        private long producerLimit;
+
+        Producer(MpscArrayQueue<E> queue)
+        {
+            this.queue = queue;
+        }
+
+        @Override
+        public boolean offer(E e)
+        {
+            if (null == e)
+            {
+                throw new NullPointerException();
+            }
+            final MpscArrayQueue<E> queue = this.queue;
+            final long mask = queue.mask;
+            long producerLimit = this.producerLimit;
+            long pIndex;
+            do
+            {
+                pIndex = queue.lvProducerIndex();
+                if (pIndex >= producerLimit)
+                {
+                    producerLimit = queue.lvConsumerIndex() + mask + 1;
+                    if (pIndex >= producerLimit)
+                    {
+                        this.producerLimit = producerLimit;
+                        return false; // FULL :(
+                    }
+                }
+            }
+            while (!queue.casProducerIndex(pIndex, pIndex + 1));
+            this.producerLimit = producerLimit;
+            soRefElement(queue.buffer, calcCircularRefElementOffset(pIndex, mask), e);
+            return true;
+        }
+
+        @Override
+        public boolean relaxedOffer(E e)
+        {
+            return offer(e);
+        }
+
+        @Override
+        public int fill(MessagePassingQueue.Supplier<E> s, int limit)
+        {
+            if (null == s)
+                throw new IllegalArgumentException("supplier is null");
+            if (limit < 0)
+                throw new IllegalArgumentException("limit is negative:" + limit);
+            if (limit == 0)
+                return 0;
+
+            final MpscArrayQueue<E> queue = this.queue;
+            final long mask = queue.mask;
+            long producerLimit = this.producerLimit;
+            long pIndex;
+            int actualLimit;
+            do
+            {
+                pIndex = queue.lvProducerIndex();
+                long available = producerLimit - pIndex;
+                if (available <= 0)
+                {
+                    producerLimit = queue.lvConsumerIndex() + mask + 1;
+                    available = producerLimit - pIndex;
+                    if (available <= 0)
+                    {
+                        this.producerLimit = producerLimit;
+                        return 0; // FULL :(
+                    }
+                }
+                actualLimit = Math.min((int) available, limit);
+            }
+            while (!queue.casProducerIndex(pIndex, pIndex + actualLimit));
+            this.producerLimit = producerLimit;
+            final E[] buffer = queue.buffer;
+            for (int i = 0; i < actualLimit; i++)
+            {
+                soRefElement(buffer, calcCircularRefElementOffset(pIndex + i, mask), s.get());
+            }
+            return actualLimit;
+        }
+
+        @Override
+        public MessagePassingQueue<E> queue()
+        {
+            return queue;
+        }
+    }
+
+    /**
+     * Keeps a snapshot of the producer index. When the next element is not visible the producer index only needs to
+     * be re-read if the consumer has caught up with the snapshot, as any index below it was claimed by a producer
+     * which is yet to publish its element.
+     */
+    static final class Consumer<E> implements MessagePassingQueueConsumer<E>
+    {
+        private final MpscArrayQueue<E> queue;
+        private long producerIndex;
+
+        Consumer(MpscArrayQueue<E> queue)
+        {
+            this.queue = queue;
+        }
+
+        @Override
+        public E poll()
+        {
+            final MpscArrayQueue<E> queue = this.queue;
+            final E[] buffer = queue.buffer;
+            final long cIndex = queue.lpConsumerIndex();
+            final long offset = calcCircularRefElementOffset(cIndex, queue.mask);
+            E e = lvRefElement(buffer, offset);
+            if (null == e)
+            {
+                if (isEmpty(cIndex))
+                {
+                    return null;
+                }
+                do
+                {
+                    e = lvRefElement(buffer, offset);
+                }
+                while (e == null);
+            }
+            spRefElement(buffer, offset, null);
+            queue.soConsumerIndex(cIndex + 1);
+            return e;
+        }
+
+        @Override
+        public E relaxedPoll()
+        {
+            return queue.relaxedPoll();
+        }
+
+        @Override
+        public E peek()
+        {
+            final MpscArrayQueue<E> queue = this.queue;
+            final E[] buffer = queue.buffer;
+            final long cIndex = queue.lpConsumerIndex();
+            final long offset = calcCircularRefElementOffset(cIndex, queue.mask);
+            E e = lvRefElement(buffer, offset);
+            if (null == e)
+            {
+                if (isEmpty(cIndex))
+                {
+                    return null;
+                }
+                do
+                {
+                    e = lvRefElement(buffer, offset);
+                }
+                while (e == null);
+            }
+            return e;
+        }
+
+        @Override
+        public E relaxedPeek()
+        {
+            return queue.relaxedPeek();
+        }
+
+        @Override
+        public int drain(MessagePassingQueue.Consumer<E> c, int limit)
+        {
+            return queue.drain(c, limit);
+        }
+
+        @Override
+        public MessagePassingQueue<E> queue()
+        {
+            return queue;
+        }
+
+        private boolean isEmpty(long cIndex)
+        {
+            return cIndex >= producerIndex && cIndex == (producerIndex = queue.lvProducerIndex());
+        }
+    }
+}
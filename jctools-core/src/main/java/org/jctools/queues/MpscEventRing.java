@@ -0,0 +1,394 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jctools.queues;
+
+import static org.jctools.util.UnsafeAccess.UNSAFE;
+import static org.jctools.util.UnsafeAccess.fieldOffset;
+import static org.jctools.util.UnsafeLongArrayAccess.*;
+import static org.jctools.util.UnsafeRefArrayAccess.*;
+
+import java.util.Arrays;
+
+import org.jctools.util.Pow2;
+import org.jctools.util.RangeUtil;
+
+abstract class MpscEventRingColdFields<E> implements EventRing<E>, IndexedQueueSizeUtil.IndexedQueue
+{
+    protected final long mask;
+    /**
+     * 预分配的事件，创建后不再变化，生产者与消费者原地读写事件的字段。
+     */
+    protected final E[] buffer;
+    /**
+     * 每个槽位最后一次发布的序号，初始为-1。多个生产者乱序发布，消费者以{@code marks[index] == index}判断事件是否可见，
+     * 而不是依赖{@code producerIndex}（它表示的是已声明而不是已发布的序号）。
+     */
+    protected final long[] marks;
+
+    MpscEventRingColdFields(int capacity, MessagePassingQueue.Supplier<E> factory)
+    {
+        final int actualCapacity = Pow2.roundToPowerOfTwo(RangeUtil.checkGreaterThanOrEqual(capacity, 2, "capacity"));
+        mask = actualCapacity - 1;
+        buffer = allocateRefArray(actualCapacity);
+        for (int i = 0; i < actualCapacity; i++)
+        {
+            final E event = factory.get();
+            if (null == event)
+            {
+                throw new NullPointerException("factory returned null");
+            }
+            buffer[i] = event;
+        }
+        marks = allocateLongArray(actualCapacity);
+        Arrays.fill(marks, -1);
+    }
+
+    @Override
+    public final int capacity()
+    {
+        return (int) (mask + 1);
+    }
+
+    @Override
+    public final E event(long sequence)
+    {
+        return lpRefElement(buffer, calcCircularRefElementOffset(sequence, mask));
+    }
+}
+
+abstract class MpscEventRingL1Pad<E> extends MpscEventRingColdFields<E>
+{
+    /**
+     * 缓存行填充，避免{@code buffer}{@code marks}等只读字段与{@code producerIndex}产生伪共享
+     */
+    byte b000,b001,b002,b003,b004,b005,b006,b007;//  8b
+    byte b010,b011,b012,b013,b014,b015,b016,b017;// 16b
+    byte b020,b021,b022,b023,b024,b025,b026,b027;// 24b
+    byte b030,b031,b032,b033,b034,b035,b036,b037;// 32b
+    byte b040,b041,b042,b043,b044,b045,b046,b047;// 40b
+    byte b050,b051,b052,b053,b054,b055,b056,b057;// 48b
+    byte b060,b061,b062,b063,b064,b065,b066,b067;// 56b
+    byte b070,b071,b072,b073,b074,b075,b076,b077;// 64b
+    byte b100,b101,b102,b103,b104,b105,b106,b107;// 72b
+    byte b110,b111,b112,b113,b114,b115,b116,b117;// 80b
+    byte b120,b121,b122,b123,b124,b125,b126,b127;// 88b
+    byte b130,b131,b132,b133,b134,b135,b136,b137;// 96b
+    byte b140,b141,b142,b143,b144,b145,b146,b147;//104b
+    byte b150,b151,b152,b153,b154,b155,b156,b157;//112b
+    byte b160,b161,b162,b163,b164,b165,b166,b167;//120b
+    byte b170,b171,b172,b173,b174,b175,b176,b177;//128b
+
+    MpscEventRingL1Pad(int capacity, MessagePassingQueue.Supplier<E> factory)
+    {
+        super(capacity, factory);
+    }
+}
+
+//$gen:ordered-fields
+abstract class MpscEventRingProducerIndexField<E> extends MpscEventRingL1Pad<E>
+{
+    private final static long P_INDEX_OFFSET = fieldOffset(MpscEventRingProducerIndexField.class, "producerIndex");
+
+    /**
+     * 下一个要声明的序号，生产者之间通过CAS竞争。
+     */
+    private volatile long producerIndex;
+
+    MpscEventRingProducerIndexField(int capacity, MessagePassingQueue.Supplier<E> factory)
+    {
+        super(capacity, factory);
+    }
+
+    @Override
+    public final long lvProducerIndex()
+    {
+        return producerIndex;
+    }
+
+    final boolean casProducerIndex(long expect, long newValue)
+    {
+        return UNSAFE.compareAndSwapLong(this, P_INDEX_OFFSET, expect, newValue);
+    }
+}
+
+abstract class MpscEventRingMidPad<E> extends MpscEventRingProducerIndexField<E>
+{
+    /**
+     * 缓存行填充，避免竞争激烈的{@code producerIndex}与{@code producerLimit}产生伪共享
+     */
+    byte b000,b001,b002,b003,b004,b005,b006,b007;//  8b
+    byte b010,b011,b012,b013,b014,b015,b016,b017;// 16b
+    byte b020,b021,b022,b023,b024,b025,b026,b027;// 24b
+    byte b030,b031,b032,b033,b034,b035,b036,b037;// 32b
+    byte b040,b041,b042,b043,b044,b045,b046,b047;// 40b
+    byte b050,b051,b052,b053,b054,b055,b056,b057;// 48b
+    byte b060,b061,b062,b063,b064,b065,b066,b067;// 56b
+    byte b070,b071,b072,b073,b074,b075,b076,b077;// 64b
+    byte b100,b101,b102,b103,b104,b105,b106,b107;// 72b
+    byte b110,b111,b112,b113,b114,b115,b116,b117;// 80b
+    byte b120,b121,b122,b123,b124,b125,b126,b127;// 88b
+    byte b130,b131,b132,b133,b134,b135,b136,b137;// 96b
+    byte b140,b141,b142,b143,b144,b145,b146,b147;//104b
+    byte b150,b151,b152,b153,b154,b155,b156,b157;//112b
+    byte b160,b161,b162,b163,b164,b165,b166,b167;//120b
+    byte b170,b171,b172,b173,b174,b175,b176,b177;//128b
+
+    MpscEventRingMidPad(int capacity, MessagePassingQueue.Supplier<E> factory)
+    {
+        super(capacity, factory);
+    }
+}
+
+//$gen:ordered-fields
+abstract class MpscEventRingProducerLimitField<E> extends MpscEventRingMidPad<E>
+{
+    private final static long P_LIMIT_OFFSET = fieldOffset(MpscEventRingProducerLimitField.class, "producerLimit");
+
+    /**
+     * 在重新读取消费者索引之前，第一个不可声明的序号，作用同{@link MpscArrayQueue}。
+     */
+    private volatile long producerLimit;
+
+    MpscEventRingProducerLimitField(int capacity, MessagePassingQueue.Supplier<E> factory)
+    {
+        super(capacity, factory);
+        this.producerLimit = capacity();
+    }
+
+    final long lvProducerLimit()
+    {
+        return producerLimit;
+    }
+
+    final void soProducerLimit(long newValue)
+    {
+        UNSAFE.putOrderedLong(this, P_LIMIT_OFFSET, newValue);
+    }
+}
+
+abstract class MpscEventRingL2Pad<E> extends MpscEventRingProducerLimitField<E>
+{
+    /**
+     * 缓存行填充，避免生产者字段与{@code consumerIndex}产生伪共享
+     */
+    byte b000,b001,b002,b003,b004,b005,b006,b007;//  8b
+    byte b010,b011,b012,b013,b014,b015,b016,b017;// 16b
+    byte b020,b021,b022,b023,b024,b025,b026,b027;// 24b
+    byte b030,b031,b032,b033,b034,b035,b036,b037;// 32b
+    byte b040,b041,b042,b043,b044,b045,b046,b047;// 40b
+    byte b050,b051,b052,b053,b054,b055,b056,b057;// 48b
+    byte b060,b061,b062,b063,b064,b065,b066,b067;// 56b
+    byte b070,b071,b072,b073,b074,b075,b076,b077;// 64b
+    byte b100,b101,b102,b103,b104,b105,b106,b107;// 72b
+    byte b110,b111,b112,b113,b114,b115,b116,b117;// 80b
+    byte b120,b121,b122,b123,b124,b125,b126,b127;// 88b
+    byte b130,b131,b132,b133,b134,b135,b136,b137;// 96b
+    byte b140,b141,b142,b143,b144,b145,b146,b147;//104b
+    byte b150,b151,b152,b153,b154,b155,b156,b157;//112b
+    byte b160,b161,b162,b163,b164,b165,b166,b167;//120b
+    byte b170,b171,b172,b173,b174,b175,b176,b177;//128b
+
+    MpscEventRingL2Pad(int capacity, MessagePassingQueue.Supplier<E> factory)
+    {
+        super(capacity, factory);
+    }
+}
+
+//$gen:ordered-fields
+abstract class MpscEventRingConsumerIndexField<E> extends MpscEventRingL2Pad<E>
+{
+    private final static long C_INDEX_OFFSET = fieldOffset(MpscEventRingConsumerIndexField.class, "consumerIndex");
+
+    /**
+     * 已释放的槽位数，生产者可以声明小于{@code consumerIndex + capacity}的序号。
+     */
+    private volatile long consumerIndex;
+
+    MpscEventRingConsumerIndexField(int capacity, MessagePassingQueue.Supplier<E> factory)
+    {
+        super(capacity, factory);
+    }
+
+    @Override
+    public final long lvConsumerIndex()
+    {
+        return consumerIndex;
+    }
+
+    final long lpConsumerIndex()
+    {
+        return UNSAFE.getLong(this, C_INDEX_OFFSET);
+    }
+
+    final void soConsumerIndex(long newValue)
+    {
+        UNSAFE.putOrderedLong(this, C_INDEX_OFFSET, newValue);
+    }
+}
+
+abstract class MpscEventRingL3Pad<E> extends MpscEventRingConsumerIndexField<E>
+{
+    /**
+     * 缓存行填充，避免{@code consumerIndex}与其后分配的对象产生伪共享
+     */
+    byte b000,b001,b002,b003,b004,b005,b006,b007;//  8b
+    byte b010,b011,b012,b013,b014,b015,b016,b017;// 16b
+    byte b020,b021,b022,b023,b024,b025,b026,b027;// 24b
+    byte b030,b031,b032,b033,b034,b035,b036,b037;// 32b
+    byte b040,b041,b042,b043,b044,b045,b046,b047;// 40b
+    byte b050,b051,b052,b053,b054,b055,b056,b057;// 48b
+    byte b060,b061,b062,b063,b064,b065,b066,b067;// 56b
+    byte b070,b071,b072,b073,b074,b075,b076,b077;// 64b
+    byte b100,b101,b102,b103,b104,b105,b106,b107;// 72b
+    byte b110,b111,b112,b113,b114,b115,b116,b117;// 80b
+    byte b120,b121,b122,b123,b124,b125,b126,b127;// 88b
+    byte b130,b131,b132,b133,b134,b135,b136,b137;// 96b
+    byte b140,b141,b142,b143,b144,b145,b146,b147;//104b
+    byte b150,b151,b152,b153,b154,b155,b156,b157;//112b
+    byte b160,b161,b162,b163,b164,b165,b166,b167;//120b
+    byte b170,b171,b172,b173,b174,b175,b176,b177;//128b
+
+    MpscEventRingL3Pad(int capacity, MessagePassingQueue.Supplier<E> factory)
+    {
+        super(capacity, factory);
+    }
+}
+
+/**
+ * A multi producer, single consumer {@link EventRing}.
+ * <p>
+ * Producers claim slots with a CAS on the producer index, as {@link MpscArrayQueue#offer} does, and may publish them
+ * in any order: every slot carries the sequence it was last published with and the consumer stops at the first slot
+ * not yet published for the expected sequence. A producer that stalls between claim and publish therefore holds up
+ * the consumer, much like an offer stalled before its element store does.
+ *
+ * @param <E> event type
+ */
+public class MpscEventRing<E> extends MpscEventRingL3Pad<E>
+{
+    /**
+     * @param capacity the number of events, rounded up to the next power of 2
+     * @param factory  called capacity times, up front, to fill the ring
+     */
+    public MpscEventRing(int capacity, MessagePassingQueue.Supplier<E> factory)
+    {
+        super(capacity, factory);
+    }
+
+    @Override
+    public long claim()
+    {
+        final long mask = this.mask;
+        long producerLimit = lvProducerLimit();
+        long pIndex;
+        do
+        {
+            pIndex = lvProducerIndex();
+            if (pIndex >= producerLimit)
+            {
+                producerLimit = lvConsumerIndex() + mask + 1;
+                if (pIndex >= producerLimit)
+                {
+                    return FULL;
+                }
+                // 良性竞争，同MpscArrayQueue
+                soProducerLimit(producerLimit);
+            }
+        }
+        while (!casProducerIndex(pIndex, pIndex + 1));
+        return pIndex;
+    }
+
+    @Override
+    public void publish(long sequence)
+    {
+        // StoreStore: 事件的修改先于标记对消费者可见
+        soLongElement(marks, calcCircularLongElementOffset(sequence, mask), sequence);
+    }
+
+    @Override
+    public int drain(MessagePassingQueue.Consumer<E> c, int limit)
+    {
+        if (null == c)
+        {
+            throw new IllegalArgumentException("c is null");
+        }
+        if (limit < 0)
+        {
+            throw new IllegalArgumentException("limit is negative: " + limit);
+        }
+        final long[] marks = this.marks;
+        final E[] buffer = this.buffer;
+        final long mask = this.mask;
+        final long cIndex = lpConsumerIndex();
+        final long end = cIndex + limit;
+        long index = cIndex;
+        try
+        {
+            while (index < end && lvLongElement(marks, calcCircularLongElementOffset(index, mask)) == index)
+            {
+                final E event = lpRefElement(buffer, calcCircularRefElementOffset(index, mask));
+                // 先前进再处理，异常时失败的事件也一并释放
+                index++;
+                c.accept(event);
+            }
+        }
+        finally
+        {
+            if (index != cIndex)
+            {
+                // 整批只写一次消费者索引
+                soConsumerIndex(index);
+            }
+        }
+        return (int) (index - cIndex);
+    }
+
+    @Override
+    public E acquire()
+    {
+        final long cIndex = lpConsumerIndex();
+        final long mask = this.mask;
+        if (lvLongElement(marks, calcCircularLongElementOffset(cIndex, mask)) != cIndex)
+        {
+            return null;
+        }
+        return lpRefElement(buffer, calcCircularRefElementOffset(cIndex, mask));
+    }
+
+    @Override
+    public void release()
+    {
+        final long cIndex = lpConsumerIndex();
+        assert lvLongElement(marks, calcCircularLongElementOffset(cIndex, mask)) == cIndex : "no event acquired";
+        soConsumerIndex(cIndex + 1);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Slots claimed but not yet published are included.
+     */
+    @Override
+    public int size()
+    {
+        return IndexedQueueSizeUtil.size(this);
+    }
+
+    @Override
+    public boolean isEmpty()
+    {
+        return IndexedQueueSizeUtil.isEmpty(this);
+    }
+}
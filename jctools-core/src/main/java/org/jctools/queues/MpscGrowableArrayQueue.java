@@ -32,10 +32,18 @@ import static org.jctools.queues.LinkedArrayQueueUtil.length;
  */
 public class MpscGrowableArrayQueue<E> extends MpscChunkedArrayQueue<E>
 {
+    /**
+     * 连续多少次观察到低占用后缩容，0表示不缩容
+     */
+    private final int shrinkAfterLaps;
+    /**
+     * 连续观察到低占用的次数 - 多个生产者并发（非原子）更新，只是启发式的计数，丢失更新无关紧要。
+     */
+    private int lowOccupancyLaps;
 
     public MpscGrowableArrayQueue(int maxCapacity)
     {
-        super(Math.max(2, Pow2.roundToPowerOfTwo(maxCapacity / 8)), maxCapacity);
+        this(Math.max(2, Pow2.roundToPowerOfTwo(maxCapacity / 8)), maxCapacity, 0);
     }
 
     /**
@@ -46,8 +54,27 @@ public class MpscGrowableArrayQueue<E> extends MpscChunkedArrayQueue<E>
      *                        power of 2 than initialCapacity.
      */
     public MpscGrowableArrayQueue(int initialCapacity, int maxCapacity)
+    {
+        this(initialCapacity, maxCapacity, 0);
+    }
+
+    /**
+     * 在一次突发流量将数组扩大后，如果生产者连续{@code shrinkAfterLaps}次刷新{@code producerLimit}时，
+     * 队列中的元素都不超过初始容量的一半，则切换回初始大小的数组，大数组在被消费完后即可被回收。
+     * 对于接近空的队列，每次刷新大约对应生产者在当前数组上走过一圈。
+     *
+     * @param initialCapacity the queue initial capacity. Must be 2 or more.
+     * @param maxCapacity     the maximum capacity will be rounded up to the closest power of 2 and will be the
+     *                        upper limit of number of elements in this queue. Must be 4 or more and round up to a larger
+     *                        power of 2 than initialCapacity.
+     * @param shrinkAfterLaps the number of consecutive passes over a grown buffer with at most half the initial
+     *                        capacity in the queue before going back to a buffer of the initial capacity, 0 disables
+     *                        shrinking
+     */
+    public MpscGrowableArrayQueue(int initialCapacity, int maxCapacity, int shrinkAfterLaps)
     {
         super(initialCapacity, maxCapacity);
+        this.shrinkAfterLaps = RangeUtil.checkPositiveOrZero(shrinkAfterLaps, "shrinkAfterLaps");
     }
 
 
@@ -69,4 +96,26 @@ public class MpscGrowableArrayQueue<E> extends MpscChunkedArrayQueue<E>
         // 在未到达最大容量时，需要为JUMP预留空间，因此有效容量需要会少1个(也就是位移后的mask)
         return (mask + 2 == maxQueueCapacity) ? maxQueueCapacity : mask;
     }
+
+    @Override
+    protected boolean shouldShrink(long mask, long pIndex, long cIndex)
+    {
+        if (shrinkAfterLaps == 0)
+        {
+            return false;
+        }
+        // 与mask一样都是左移过的
+        final long initialMask = (getInitialBufferSize() - 2) << 1;
+        if (mask == initialMask || pIndex - cIndex > initialMask / 2)
+        {
+            lowOccupancyLaps = 0;
+            return false;
+        }
+        if (++lowOccupancyLaps < shrinkAfterLaps)
+        {
+            return false;
+        }
+        lowOccupancyLaps = 0;
+        return true;
+    }
 }
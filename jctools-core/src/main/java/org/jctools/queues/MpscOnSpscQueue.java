@@ -0,0 +1,536 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jctools.queues;
+
+import org.jctools.util.PortableJvmInfo;
+
+import java.lang.ref.WeakReference;
+import java.util.AbstractQueue;
+import java.util.Iterator;
+
+import static org.jctools.util.UnsafeAccess.UNSAFE;
+import static org.jctools.util.UnsafeAccess.fieldOffset;
+
+abstract class MpscOnSpscL0Pad<E> extends AbstractQueue<E> implements MessagePassingQueue<E>
+{
+    byte b000,b001,b002,b003,b004,b005,b006,b007;//  8b
+    byte b010,b011,b012,b013,b014,b015,b016,b017;// 16b
+    byte b020,b021,b022,b023,b024,b025,b026,b027;// 24b
+    byte b030,b031,b032,b033,b034,b035,b036,b037;// 32b
+    byte b040,b041,b042,b043,b044,b045,b046,b047;// 40b
+    byte b050,b051,b052,b053,b054,b055,b056,b057;// 48b
+    byte b060,b061,b062,b063,b064,b065,b066,b067;// 56b
+    byte b070,b071,b072,b073,b074,b075,b076,b077;// 64b
+    byte b100,b101,b102,b103,b104,b105,b106,b107;// 72b
+    byte b110,b111,b112,b113,b114,b115,b116,b117;// 80b
+    byte b120,b121,b122,b123,b124,b125,b126,b127;// 88b
+    byte b130,b131,b132,b133,b134,b135,b136,b137;// 96b
+    byte b140,b141,b142,b143,b144,b145,b146,b147;//104b
+    byte b150,b151,b152,b153,b154,b155,b156,b157;//112b
+    byte b160,b161,b162,b163,b164,b165,b166,b167;//120b
+    byte b170,b171,b172,b173,b174,b175,b176,b177;//128b
+}
+
+abstract class MpscOnSpscFields<E> extends MpscOnSpscL0Pad<E>
+{
+    private final static long LANES_OFFSET = fieldOffset(MpscOnSpscFields.class, "lanes");
+
+    protected final int laneCapacity;
+    /**
+     * Shared by all producers once their lane is full, {@code null} if per producer FIFO order is required.
+     */
+    protected final MpscArrayQueue<E> overflow;
+    protected final ThreadLocal<Lane<E>> producerLane;
+    /**
+     * Copy on write: producers add their lane on first offer, the consumer removes retired lanes. The overflow queue,
+     * if any, is the first element and is never removed.
+     */
+    private volatile MessagePassingQueue<E>[] lanes;
+
+    @SuppressWarnings("unchecked")
+    MpscOnSpscFields(final int laneCapacity, int overflowCapacity)
+    {
+        this.laneCapacity = laneCapacity;
+        if (overflowCapacity > 0)
+        {
+            overflow = new MpscArrayQueue<E>(overflowCapacity);
+            lanes = new MessagePassingQueue[]{overflow};
+        }
+        else
+        {
+            overflow = null;
+            lanes = new MessagePassingQueue[0];
+        }
+        producerLane = new ThreadLocal<Lane<E>>()
+        {
+            @Override
+            protected Lane<E> initialValue()
+            {
+                Lane<E> lane = new Lane<E>(laneCapacity);
+                addLane(lane);
+                return lane;
+            }
+        };
+    }
+
+    final MessagePassingQueue<E>[] lvLanes()
+    {
+        return lanes;
+    }
+
+    private boolean casLanes(MessagePassingQueue<E>[] expect, MessagePassingQueue<E>[] newValue)
+    {
+        return UNSAFE.compareAndSwapObject(this, LANES_OFFSET, expect, newValue);
+    }
+
+    @SuppressWarnings("unchecked")
+    private void addLane(Lane<E> lane)
+    {
+        MessagePassingQueue<E>[] oldLanes;
+        MessagePassingQueue<E>[] newLanes;
+        do
+        {
+            oldLanes = lvLanes();
+            newLanes = new MessagePassingQueue[oldLanes.length + 1];
+            System.arraycopy(oldLanes, 0, newLanes, 0, oldLanes.length);
+            newLanes[oldLanes.length] = lane;
+        }
+        while (!casLanes(oldLanes, newLanes));
+    }
+
+    /**
+     * @return the position the lane was removed from, -1 if it was not there
+     */
+    @SuppressWarnings("unchecked")
+    final int removeLane(Lane<E> lane)
+    {
+        MessagePassingQueue<E>[] oldLanes;
+        MessagePassingQueue<E>[] newLanes;
+        do
+        {
+            oldLanes = lvLanes();
+            int i = 0;
+            final int length = oldLanes.length;
+            for (; i < length; i++)
+            {
+                if (lane == oldLanes[i])
+                {
+                    break;
+                }
+            }
+            // not here...
+            if (i == length)
+            {
+                return -1;
+            }
+            // copy over all but that element
+            newLanes = new MessagePassingQueue[length - 1];
+            System.arraycopy(oldLanes, 0, newLanes, 0, i);
+            System.arraycopy(oldLanes, i + 1, newLanes, i, length - i - 1);
+            if (casLanes(oldLanes, newLanes))
+            {
+                return i;
+            }
+        }
+        while (true);
+    }
+
+    /**
+     * A producer's lane, remembering the producer thread so the lane can be retired once the thread is gone.
+     */
+    static final class Lane<E> extends SpscArrayQueue<E>
+    {
+        private final WeakReference<Thread> owner;
+
+        Lane(int capacity)
+        {
+            super(capacity);
+            owner = new WeakReference<Thread>(Thread.currentThread());
+        }
+
+        /**
+         * Thread termination happens-before {@link Thread#isAlive()} returning false, so a dead owner's offers are
+         * all visible and the emptiness check is final.
+         */
+        boolean isRetired()
+        {
+            final Thread t = owner.get();
+            return (t == null || !t.isAlive()) && isEmpty();
+        }
+    }
+}
+
+abstract class MpscOnSpscMidPad<E> extends MpscOnSpscFields<E>
+{
+    byte b000,b001,b002,b003,b004,b005,b006,b007;//  8b
+    byte b010,b011,b012,b013,b014,b015,b016,b017;// 16b
+    byte b020,b021,b022,b023,b024,b025,b026,b027;// 24b
+    byte b030,b031,b032,b033,b034,b035,b036,b037;// 32b
+    byte b040,b041,b042,b043,b044,b045,b046,b047;// 40b
+    byte b050,b051,b052,b053,b054,b055,b056,b057;// 48b
+    byte b060,b061,b062,b063,b064,b065,b066,b067;// 56b
+    byte b070,b071,b072,b073,b074,b075,b076,b077;// 64b
+    byte b100,b101,b102,b103,b104,b105,b106,b107;// 72b
+    byte b110,b111,b112,b113,b114,b115,b116,b117;// 80b
+    byte b120,b121,b122,b123,b124,b125,b126,b127;// 88b
+    byte b130,b131,b132,b133,b134,b135,b136,b137;// 96b
+    byte b140,b141,b142,b143,b144,b145,b146,b147;//104b
+    byte b150,b151,b152,b153,b154,b155,b156,b157;//112b
+    byte b160,b161,b162,b163,b164,b165,b166,b167;//120b
+    byte b170,b171,b172,b173,b174,b175,b176,b177;//128b
+
+    MpscOnSpscMidPad(int laneCapacity, int overflowCapacity)
+    {
+        super(laneCapacity, overflowCapacity);
+    }
+}
+
+abstract class MpscOnSpscConsumerFields<E> extends MpscOnSpscMidPad<E>
+{
+    /**
+     * Lanes are checked for retirement every this many consumer calls.
+     */
+    static final int RETIRE_CHECK_INTERVAL = 1024;
+
+    /**
+     * The lane the consumer looks at next.
+     */
+    int consumerLaneIndex;
+    int consumerCalls;
+
+    MpscOnSpscConsumerFields(int laneCapacity, int overflowCapacity)
+    {
+        super(laneCapacity, overflowCapacity);
+    }
+}
+
+/**
+ * An MPSC queue made of an {@link SpscArrayQueue} per producer thread (a lane), so producers never contend with each
+ * other. A producer thread gets its lane on its first offer and the lane is retired by the consumer once the producer
+ * thread has terminated and the lane was drained, there is no background thread involved.
+ * <p>
+ * The consumer visits the lanes round robin, one element per lane visited, so a busy producer can't starve the others.
+ * Elements from one producer are consumed in the order they were offered, there is no order between producers.
+ * <p>
+ * Each producer is bounded by the lane capacity. Optionally, offers to a full lane can spill into a shared
+ * {@link MpscArrayQueue}: this absorbs bursts from a single producer at the cost of the per producer FIFO order, as the
+ * spilled elements can be consumed before or after the elements left in the lane.
+ * <p>
+ * Threads are only ever added as lanes, so this suits a bounded set of long lived producers (e.g. a thread pool). A
+ * lane lives as long as its thread, even if the thread never offers again.
+ */
+public class MpscOnSpscQueue<E> extends MpscOnSpscConsumerFields<E>
+{
+    byte b000,b001,b002,b003,b004,b005,b006,b007;//  8b
+    byte b010,b011,b012,b013,b014,b015,b016,b017;// 16b
+    byte b020,b021,b022,b023,b024,b025,b026,b027;// 24b
+    byte b030,b031,b032,b033,b034,b035,b036,b037;// 32b
+    byte b040,b041,b042,b043,b044,b045,b046,b047;// 40b
+    byte b050,b051,b052,b053,b054,b055,b056,b057;// 48b
+    byte b060,b061,b062,b063,b064,b065,b066,b067;// 56b
+    byte b070,b071,b072,b073,b074,b075,b076,b077;// 64b
+    byte b100,b101,b102,b103,b104,b105,b106,b107;// 72b
+    byte b110,b111,b112,b113,b114,b115,b116,b117;// 80b
+    byte b120,b121,b122,b123,b124,b125,b126,b127;// 88b
+    byte b130,b131,b132,b133,b134,b135,b136,b137;// 96b
+    byte b140,b141,b142,b143,b144,b145,b146,b147;//104b
+    byte b150,b151,b152,b153,b154,b155,b156,b157;//112b
+    byte b160,b161,b162,b163,b164,b165,b166,b167;//120b
+    byte b170,b171,b172,b173,b174,b175,b176,b177;//128b
+
+    /**
+     * Each producer's elements are consumed in FIFO order, an offer fails when the producer's lane is full.
+     *
+     * @param laneCapacity the capacity of each producer's lane
+     */
+    public MpscOnSpscQueue(int laneCapacity)
+    {
+        this(laneCapacity, 0);
+    }
+
+    /**
+     * @param laneCapacity the capacity of each producer's lane
+     * @param overflowCapacity the capacity of the queue shared by producers finding their lane full, 0 for none (per
+     *                         producer FIFO order)
+     */
+    public MpscOnSpscQueue(int laneCapacity, int overflowCapacity)
+    {
+        super(laneCapacity, overflowCapacity);
+    }
+
+    @Override
+    public boolean offer(final E e)
+    {
+        if (null == e)
+        {
+            throw new NullPointerException();
+        }
+        if (producerLane.get().offer(e))
+        {
+            return true;
+        }
+        final MpscArrayQueue<E> overflow = this.overflow;
+        return overflow != null && overflow.offer(e);
+    }
+
+    @Override
+    public boolean relaxedOffer(E e)
+    {
+        return offer(e);
+    }
+
+    @Override
+    public E poll()
+    {
+        final MessagePassingQueue<E>[] lanes = consumerLanes();
+        final int count = lanes.length;
+        int index = consumerLaneIndex;
+        for (int i = 0; i < count; i++)
+        {
+            final E e = lanes[index].poll();
+            index = index + 1 == count ? 0 : index + 1;
+            if (e != null)
+            {
+                consumerLaneIndex = index;
+                return e;
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public E relaxedPoll()
+    {
+        final MessagePassingQueue<E>[] lanes = consumerLanes();
+        final int count = lanes.length;
+        int index = consumerLaneIndex;
+        for (int i = 0; i < count; i++)
+        {
+            final E e = lanes[index].relaxedPoll();
+            index = index + 1 == count ? 0 : index + 1;
+            if (e != null)
+            {
+                consumerLaneIndex = index;
+                return e;
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public E peek()
+    {
+        final MessagePassingQueue<E>[] lanes = consumerLanes();
+        final int count = lanes.length;
+        int index = consumerLaneIndex;
+        for (int i = 0; i < count; i++)
+        {
+            final E e = lanes[index].peek();
+            if (e != null)
+            {
+                // the next poll starts from this lane
+                consumerLaneIndex = index;
+                return e;
+            }
+            index = index + 1 == count ? 0 : index + 1;
+        }
+        return null;
+    }
+
+    @Override
+    public E relaxedPeek()
+    {
+        final MessagePassingQueue<E>[] lanes = consumerLanes();
+        final int count = lanes.length;
+        int index = consumerLaneIndex;
+        for (int i = 0; i < count; i++)
+        {
+            final E e = lanes[index].relaxedPeek();
+            if (e != null)
+            {
+                consumerLaneIndex = index;
+                return e;
+            }
+            index = index + 1 == count ? 0 : index + 1;
+        }
+        return null;
+    }
+
+    /**
+     * Drains the lanes round robin, starting after the lane last drained by the previous call.
+     */
+    @Override
+    public int drain(Consumer<E> c, int limit)
+    {
+        if (null == c)
+            throw new IllegalArgumentException("c is null");
+        if (limit < 0)
+            throw new IllegalArgumentException("limit is negative: " + limit);
+        if (limit == 0)
+            return 0;
+
+        final MessagePassingQueue<E>[] lanes = consumerLanes();
+        final int count = lanes.length;
+        int index = consumerLaneIndex;
+        int drained = 0;
+        for (int i = 0; i < count && drained < limit; i++)
+        {
+            drained += lanes[index].drain(c, limit - drained);
+            index = index + 1 == count ? 0 : index + 1;
+        }
+        consumerLaneIndex = index;
+        return drained;
+    }
+
+    @Override
+    public int drain(Consumer<E> c)
+    {
+        return drain(c, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public void drain(Consumer<E> c, WaitStrategy wait, ExitCondition exit)
+    {
+        MessagePassingQueueUtil.drain(this, c, wait, exit);
+    }
+
+    /**
+     * Fills the calling producer's lane, and the overflow queue if there is one.
+     */
+    @Override
+    public int fill(Supplier<E> s, int limit)
+    {
+        if (null == s)
+            throw new IllegalArgumentException("supplier is null");
+        if (limit < 0)
+            throw new IllegalArgumentException("limit is negative:" + limit);
+        if (limit == 0)
+            return 0;
+
+        int filled = producerLane.get().fill(s, limit);
+        final MpscArrayQueue<E> overflow = this.overflow;
+        if (filled < limit && overflow != null)
+        {
+            filled += overflow.fill(s, limit - filled);
+        }
+        return filled;
+    }
+
+    @Override
+    public int fill(Supplier<E> s)
+    {
+        final MpscArrayQueue<E> overflow = this.overflow;
+        final int limit = laneCapacity + (overflow == null ? 0 : overflow.capacity());
+        return MessagePassingQueueUtil.fillInBatchesToLimit(this, s, PortableJvmInfo.RECOMENDED_OFFER_BATCH, limit);
+    }
+
+    @Override
+    public void fill(Supplier<E> s, WaitStrategy wait, ExitCondition exit)
+    {
+        MessagePassingQueueUtil.fill(this, s, wait, exit);
+    }
+
+    @Override
+    public int size()
+    {
+        long size = 0;
+        for (MessagePassingQueue<E> lane : lvLanes())
+        {
+            size += lane.size();
+        }
+        return (int) Math.min(size, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public boolean isEmpty()
+    {
+        for (MessagePassingQueue<E> lane : lvLanes())
+        {
+            if (!lane.isEmpty())
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Each producer is bounded by the lane capacity, but the number of producers isn't.
+     *
+     * @return {@link MessagePassingQueue#UNBOUNDED_CAPACITY}
+     */
+    @Override
+    public int capacity()
+    {
+        return UNBOUNDED_CAPACITY;
+    }
+
+    @Override
+    public Iterator<E> iterator()
+    {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public String toString()
+    {
+        return this.getClass().getName();
+    }
+
+    int lanesCount()
+    {
+        return lvLanes().length;
+    }
+
+    /**
+     * Removes the lanes of terminated producers once drained. Called from the consumer thread.
+     * <p>
+     * Removing a lane shifts the lanes after it, so the consumer lane index is shifted along with them: the consumer
+     * keeps its place in the round robin and a lane picked by {@link #peek()} is the one the next {@link #poll()} takes
+     * from. Producers only ever append lanes, so the positions seen here are not moved by concurrent offers.
+     */
+    final void retireLanes()
+    {
+        for (MessagePassingQueue<E> lane : lvLanes())
+        {
+            if (lane instanceof Lane && ((Lane<E>) lane).isRetired())
+            {
+                final int removed = removeLane((Lane<E>) lane);
+                if (removed >= 0 && removed < consumerLaneIndex)
+                {
+                    consumerLaneIndex--;
+                }
+            }
+        }
+    }
+
+    /**
+     * @return the lanes for a consumer call, with the consumer lane index within bounds
+     */
+    private MessagePassingQueue<E>[] consumerLanes()
+    {
+        if (++consumerCalls == RETIRE_CHECK_INTERVAL)
+        {
+            consumerCalls = 0;
+            retireLanes();
+        }
+        final MessagePassingQueue<E>[] lanes = lvLanes();
+        // lanes may have been retired since the last call
+        if (consumerLaneIndex >= lanes.length)
+        {
+            consumerLaneIndex = 0;
+        }
+        return lanes;
+    }
+}
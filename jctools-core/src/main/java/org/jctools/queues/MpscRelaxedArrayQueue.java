@@ -20,10 +20,8 @@
 
 package org.jctools.queues;
 
-import org.jctools.util.PortableJvmInfo;
 import org.jctools.util.Pow2;
 import org.jctools.util.RangeUtil;
-import org.jctools.util.UnsafeRefArrayAccess;
 
 import java.util.AbstractQueue;
 import java.util.Iterator;
@@ -52,6 +50,7 @@ abstract class MpscRelaxedArrayQueueL0Pad<E> extends AbstractQueue<E>
     byte b170,b171,b172,b173,b174,b175,b176,b177;//128b
 }
 
+//$gen:ordered-fields
 abstract class MpscRelaxedArrayQueueActiveCycleIdField<E> extends MpscRelaxedArrayQueueL0Pad<E>
 {
     private static final long ACTIVE_CYCLE_ID_OFFSET = fieldOffset(MpscRelaxedArrayQueueActiveCycleIdField.class, "activeCycleId");
@@ -68,14 +67,14 @@ abstract class MpscRelaxedArrayQueueActiveCycleIdField<E> extends MpscRelaxedArr
         return UNSAFE.getLongVolatile(this, ACTIVE_CYCLE_ID_OFFSET);
     }
 
-    public final boolean casActiveCycleId(long expected, long value)
+    public final boolean casActiveCycleId(long expect, long newValue)
     {
-        return UNSAFE.compareAndSwapLong(this, ACTIVE_CYCLE_ID_OFFSET, expected, value);
+        return UNSAFE.compareAndSwapLong(this, ACTIVE_CYCLE_ID_OFFSET, expect, newValue);
     }
 
-    public final void soActiveCycleId(long value)
+    public final void soActiveCycleId(long newValue)
     {
-        UNSAFE.putOrderedLong(this, ACTIVE_CYCLE_ID_OFFSET, value);
+        UNSAFE.putOrderedLong(this, ACTIVE_CYCLE_ID_OFFSET, newValue);
     }
 
 }
@@ -100,6 +99,7 @@ abstract class MpscRelaxedArrayQueueMidPad<E> extends MpscRelaxedArrayQueueActiv
     byte b170,b171,b172,b173,b174,b175,b176,b177;//128b
 }
 
+//$gen:ordered-fields
 abstract class MpscRelaxedArrayQueueProducerLimitField<E> extends MpscRelaxedArrayQueueMidPad<E>
 {
     private static final long P_LIMIT_OFFSET = fieldOffset(MpscRelaxedArrayQueueProducerLimitField.class, "producerLimit");
@@ -137,6 +137,7 @@ abstract class MpscRelaxedArrayQueueL2Pad<E> extends MpscRelaxedArrayQueueProduc
     byte b170,b171,b172,b173,b174,b175,b176,b177;//128b
 }
 
+//$gen:ordered-fields
 abstract class MpscRelaxedArrayQueueConsumerPositionField<E> extends MpscRelaxedArrayQueueL2Pad<E>
 {
     private static final long C_POS_OFFSET = fieldOffset(MpscRelaxedArrayQueueConsumerPositionField.class, "consumerPosition");
@@ -179,49 +180,85 @@ abstract class MpscRelaxedArrayQueueL3Pad<E> extends MpscRelaxedArrayQueueConsum
     byte b170,b171,b172,b173,b174,b175,b176,b177;//128b
 }
 
+//$gen:ordered-fields
 abstract class MpscRelaxedArrayQueueProducerCycleClaimFields<E> extends MpscRelaxedArrayQueueL3Pad<E>
 {
-    private static final long P_CYCLE_CLAIM_BASE;
-    private static final long ELEMENT_SHIFT;
-    static
+    private static final long P_FIRST_CYCLE_CLAIM_OFFSET =
+        fieldOffset(MpscRelaxedArrayQueueProducerCycleClaimFields.class, "producerFirstCycleClaim");
+    private static final long P_SECOND_CYCLE_CLAIM_OFFSET =
+        fieldOffset(MpscRelaxedArrayQueueProducerCycleClaimFields.class, "producerSecondCycleClaim");
+
+    // one claim per cycle, the cycle index (parity of the cycle id) selects which one is in use
+    private volatile long producerFirstCycleClaim;
+    private volatile long producerSecondCycleClaim;
+
+    final long lvProducerFirstCycleClaim()
     {
-        final long pClaim1 = fieldOffset(MpscRelaxedArrayQueueProducerCycleClaimFields.class, "producerFirstCycleClaim");
-        final long pClaim2 = fieldOffset(MpscRelaxedArrayQueueProducerCycleClaimFields.class, "producerSecondCycleClaim");
+        return producerFirstCycleClaim;
+    }
 
-        P_CYCLE_CLAIM_BASE = Math.min(pClaim1, pClaim2);
-        ELEMENT_SHIFT = Integer.numberOfTrailingZeros(Long.SIZE / Byte.SIZE);
-        if (Math.max(pClaim1, pClaim2) != calcProducerCycleClaimOffset(1))
-        {
-            throw new RuntimeException("The JVM is not packing long fields as expected!");
-        }
+    final void soProducerFirstCycleClaim(long newValue)
+    {
+        UNSAFE.putOrderedLong(this, P_FIRST_CYCLE_CLAIM_OFFSET, newValue);
+    }
+
+    final long getAndAddProducerFirstCycleClaim(long delta)
+    {
+        return UNSAFE.getAndAddLong(this, P_FIRST_CYCLE_CLAIM_OFFSET, delta);
+    }
+
+    final boolean casProducerFirstCycleClaim(long expect, long newValue)
+    {
+        return UNSAFE.compareAndSwapLong(this, P_FIRST_CYCLE_CLAIM_OFFSET, expect, newValue);
+    }
+
+    final long lvProducerSecondCycleClaim()
+    {
+        return producerSecondCycleClaim;
+    }
+
+    final void soProducerSecondCycleClaim(long newValue)
+    {
+        UNSAFE.putOrderedLong(this, P_SECOND_CYCLE_CLAIM_OFFSET, newValue);
+    }
+
+    final long getAndAddProducerSecondCycleClaim(long delta)
+    {
+        return UNSAFE.getAndAddLong(this, P_SECOND_CYCLE_CLAIM_OFFSET, delta);
     }
-    // these are treated as an array, just inlined
-    protected volatile long producerFirstCycleClaim;
-    protected volatile long producerSecondCycleClaim;
 
-    private static long calcProducerCycleClaimOffset(int index)
+    final boolean casProducerSecondCycleClaim(long expect, long newValue)
     {
-        return P_CYCLE_CLAIM_BASE + (index << ELEMENT_SHIFT);
+        return UNSAFE.compareAndSwapLong(this, P_SECOND_CYCLE_CLAIM_OFFSET, expect, newValue);
     }
 
     protected final long lvProducerCycleClaim(int cycleIndex)
     {
-        return UNSAFE.getLongVolatile(this, calcProducerCycleClaimOffset(cycleIndex));
+        return cycleIndex == 0 ? lvProducerFirstCycleClaim() : lvProducerSecondCycleClaim();
     }
 
     protected final void soProducerCycleClaim(int cycleIndex, long value)
     {
-        UNSAFE.putOrderedLong(this, calcProducerCycleClaimOffset(cycleIndex), value);
+        if (cycleIndex == 0)
+        {
+            soProducerFirstCycleClaim(value);
+        }
+        else
+        {
+            soProducerSecondCycleClaim(value);
+        }
     }
 
     protected final long getAndIncrementProducerCycleClaim(int cycleIndex)
     {
-        return UNSAFE.getAndAddLong(this, calcProducerCycleClaimOffset(cycleIndex), 1);
+        return cycleIndex == 0 ? getAndAddProducerFirstCycleClaim(1) : getAndAddProducerSecondCycleClaim(1);
     }
 
     protected final boolean casProducerCycleClaim(int cycleIndex, long expectedValue, long newValue)
     {
-        return UNSAFE.compareAndSwapLong(this, calcProducerCycleClaimOffset(cycleIndex), expectedValue, newValue);
+        return cycleIndex == 0 ?
+            casProducerFirstCycleClaim(expectedValue, newValue) :
+            casProducerSecondCycleClaim(expectedValue, newValue);
     }
 }
 
@@ -232,7 +269,19 @@ abstract class MpscRelaxedArrayQueueL4Pad<E> extends MpscRelaxedArrayQueueProduc
 }
 
 /**
- * This class is still work in progress, please do not pick up for production use just yet.
+ * A bounded MPSC queue built for heavy producer contention: producers claim slots with an XADD on the claim of the
+ * active cycle (rather than the CAS loop of {@link MpscArrayQueue}), so a contended offer never retries its claim.
+ * The buffer is split in 2 cycles and the producers rotate from one to the other when a cycle is fully claimed.
+ * <p>
+ * The price is paid at the edges:
+ * <ul>
+ * <li>The queue may report full while a few slots are still free (claims over the limit are rolled back).</li>
+ * <li>Producers stalled for a whole rotation, or very many producers on a tiny capacity, can exhaust the claim
+ * space, which is reported with an {@link IllegalStateException}.</li>
+ * <li>{@link #iterator()} is not supported.</li>
+ * </ul>
+ * {@link #fill(Supplier, int)} claims a batch of slots in one CAS when it can, falling back on single claims under
+ * contention and at the end of a cycle.
  */
 public class MpscRelaxedArrayQueue<E> extends MpscRelaxedArrayQueueL4Pad<E> implements MessagePassingQueue<E>
 {
@@ -264,7 +313,7 @@ public class MpscRelaxedArrayQueue<E> extends MpscRelaxedArrayQueueL4Pad<E> impl
     {
         RangeUtil.checkGreaterThanOrEqual(capacity, 2, "capacity");
         capacity = Pow2.roundToPowerOfTwo(capacity * 2);
-        this.buffer = (E[]) new Object[capacity];
+        this.buffer = allocateRefArray(capacity);
         this.soConsumerPosition(0);
         this.soActiveCycleId(0);
         this.mask = capacity - 1;
@@ -523,10 +572,16 @@ public class MpscRelaxedArrayQueue<E> extends MpscRelaxedArrayQueueL4Pad<E> impl
     private void soCycleElement(E[] buffer, E e, int activeCycleIndex, int positionWithinCycle, int cycleLengthLog2)
     {
         final int indexInBuffer = calcElementIndexInBuffer(positionWithinCycle, activeCycleIndex, cycleLengthLog2);
-        final long offset = UnsafeRefArrayAccess.calcRefElementOffset(indexInBuffer);
+        final long offset = calcRefElementOffset(indexInBuffer);
         soRefElement(buffer, offset, e);
     }
 
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Strict: if a producer has claimed the next slot but the element is not visible yet this spins until it is, so
+     * {@code null} is only returned when the queue is empty.
+     */
     @Override
     public E poll()
     {
@@ -568,6 +623,12 @@ public class MpscRelaxedArrayQueue<E> extends MpscRelaxedArrayQueueL4Pad<E> impl
         return e;
     }
 
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Strict: if a producer has claimed the next slot but the element is not visible yet this spins until it is, so
+     * {@code null} is only returned when the queue is empty.
+     */
     @Override
     public E peek()
     {
@@ -675,6 +736,11 @@ public class MpscRelaxedArrayQueue<E> extends MpscRelaxedArrayQueueL4Pad<E> impl
         return offer(e);
     }
 
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Never spins: returns {@code null} if the next slot is claimed but its element is not visible yet.
+     */
     @Override
     public E relaxedPoll()
     {
@@ -689,6 +755,11 @@ public class MpscRelaxedArrayQueue<E> extends MpscRelaxedArrayQueueL4Pad<E> impl
         return e;
     }
 
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Never spins: returns {@code null} if the next slot is claimed but its element is not visible yet.
+     */
     @Override
     public E relaxedPeek()
     {
@@ -708,24 +779,20 @@ public class MpscRelaxedArrayQueue<E> extends MpscRelaxedArrayQueueL4Pad<E> impl
     @Override
     public int fill(Supplier<E> s)
     {
-        long result = 0;// result is a long because we want to have a safepoint check at regular intervals
-        final int capacity = capacity();
-        do
-        {
-            final int filled = fill(s, PortableJvmInfo.RECOMENDED_OFFER_BATCH);
-            if (filled == 0)
-            {
-                return (int) result;
-            }
-            result += filled;
-        }
-        while (result <= capacity);
-        return (int) result;
+        return MessagePassingQueueUtil.fillBounded(this, s);
     }
 
     @Override
     public int drain(Consumer<E> c, int limit)
     {
+        if (null == c)
+        {
+            throw new IllegalArgumentException("c is null");
+        }
+        if (limit < 0)
+        {
+            throw new IllegalArgumentException("limit is negative: " + limit);
+        }
         final E[] buffer = this.buffer;
         final long mask = this.mask;
         for (int i = 0; i < limit; i++)
@@ -750,46 +817,75 @@ public class MpscRelaxedArrayQueue<E> extends MpscRelaxedArrayQueueL4Pad<E> impl
     @Override
     public int fill(Supplier<E> s, int limit)
     {
+        if (null == s)
+        {
+            throw new IllegalArgumentException("supplier is null");
+        }
+        if (limit < 0)
+        {
+            throw new IllegalArgumentException("limit is negative:" + limit);
+        }
         final int positionOnCycleMask = this.positionWithinCycleMask;
         final int cycleLengthLog2 = this.cycleLengthLog2;
         final int cycleLength = this.cycleLength;
         final int cycleIdBitShift = this.cycleIdBitShift;
         final E[] buffer = this.buffer;
         final long maxCycleId = this.maxCycleId;
-        final long maxPositionOnCycle = positionOnCycleMask;
 
         int i = 0;
         while (i < limit)
         {
-            final int activeCycle = activeCycleIndex(lvActiveCycleId());
-            final long producerActiveCycleClaim = lvProducerCycleClaim(activeCycle);
-            final int positionOnActiveCycle = positionWithinCycle(producerActiveCycleClaim, positionOnCycleMask);
-            final long activeCycleId = producerClaimCycleId(producerActiveCycleClaim, cycleIdBitShift);
-            final long producerPosition = producerPosition(positionOnActiveCycle, activeCycleId, cycleLengthLog2);
-            final long claimLimit = lvProducerLimit();
-            if (producerPosition >= claimLimit)
+            final long activeCycleId = lvActiveCycleId();
+            final int activeCycleIndex = activeCycleIndex(activeCycleId);
+            final long tempCycleClaim = lvProducerCycleClaim(activeCycleIndex);
+            final int tempPositionWithinCycle = positionWithinCycle(tempCycleClaim, positionOnCycleMask);
+            final long tempCycleId = producerClaimCycleId(tempCycleClaim, cycleIdBitShift);
+            if (activeCycleId != tempCycleId || tempPositionWithinCycle > cycleLength)
             {
-                //it is really full?
-                if (isFull(producerPosition))
+                // mid rotation, see offer
+                continue;
+            }
+            final long tempPosition = producerPosition(tempPositionWithinCycle, tempCycleId, cycleLengthLog2);
+            if (tempPosition >= lvProducerLimit())
+            {
+                if (isFull(tempPosition))
                 {
                     return i;
                 }
             }
-            //try to claim on the active cycle
-            final long producerCycleClaim = getAndIncrementProducerCycleClaim(activeCycle);
+            // claim in one go what fits in the active cycle and in the free space known to the producers: the CAS
+            // only succeeds on an unchanged claim, so the whole batch is valid and needs no over-claim handling
+            final int batch = (int) Math.min(
+                limit - i,
+                Math.min(cycleLength - tempPositionWithinCycle, lvProducerLimit() - tempPosition));
+            if (batch > 1)
+            {
+                if (casProducerCycleClaim(activeCycleIndex, tempCycleClaim, tempCycleClaim + batch))
+                {
+                    for (int j = 0; j < batch; j++)
+                    {
+                        soCycleElement(buffer, s.get(), activeCycleIndex, tempPositionWithinCycle + j, cycleLengthLog2);
+                    }
+                    i += batch;
+                }
+                continue;
+            }
+            // a single slot is left (or the cycle is fully claimed): claim it as offer does, so the end of a cycle
+            // still triggers the rotation
+            final long producerCycleClaim = getAndIncrementProducerCycleClaim(activeCycleIndex);
             final int positionOnCycle = positionWithinCycle(producerCycleClaim, positionOnCycleMask);
-            if (positionOnCycle >= maxPositionOnCycle)
+            if (positionOnCycle == positionOnCycleMask)
             {
                 throw new IllegalStateException(
-                    "too many over-claims: please enlarge the capacity or reduce the number of producers!");
+                    "Too many over-claims: please enlarge the capacity or reduce the number of producers!\n" +
+                        " positionWithinCycle=" + positionOnCycle);
             }
             if (positionOnCycle < cycleLength)
             {
                 final long cycleId = producerClaimCycleId(producerCycleClaim, cycleIdBitShift);
-                //it is a slow producer?
                 final boolean slowProducer = cycleId != activeCycleId;
                 if (!validateProducerClaim(
-                    activeCycle,
+                    activeCycleIndex,
                     producerCycleClaim,
                     cycleId,
                     positionOnCycle,
@@ -798,7 +894,7 @@ public class MpscRelaxedArrayQueue<E> extends MpscRelaxedArrayQueueL4Pad<E> impl
                 {
                     continue;
                 }
-                soCycleElement(buffer, s.get(), activeCycle, positionOnCycle, cycleLengthLog2);
+                soCycleElement(buffer, s.get(), activeCycleIndex, positionOnCycle, cycleLengthLog2);
                 i++;
             }
             else if (positionOnCycle == cycleLength)
@@ -813,43 +909,13 @@ public class MpscRelaxedArrayQueue<E> extends MpscRelaxedArrayQueueL4Pad<E> impl
     @Override
     public void drain(Consumer<E> c, WaitStrategy w, ExitCondition exit)
     {
-        final E[] buffer = this.buffer;
-        final long mask = this.mask;
-        long consumerPosition = lvConsumerPosition();
-
-        int counter = 0;
-        while (exit.keepRunning())
-        {
-            for (int i = 0; i < 4096; i++)
-            {
-                final long offset = calcCircularRefElementOffset(consumerPosition, mask);
-                final E e = lvRefElement(buffer, offset);// LoadLoad
-                if (null == e)
-                {
-                    counter = w.idle(counter);
-                    continue;
-                }
-                counter = 0;
-                signalConsumerProgress(consumerPosition, buffer, offset);
-                consumerPosition++;
-                c.accept(e);
-            }
-        }
+        MessagePassingQueueUtil.drain(this, c, w, exit);
     }
 
     @Override
     public void fill(Supplier<E> s, WaitStrategy w, ExitCondition exit)
     {
-        int idleCounter = 0;
-        while (exit.keepRunning())
-        {
-            if (fill(s, PortableJvmInfo.RECOMENDED_OFFER_BATCH) == 0)
-            {
-                idleCounter = w.idle(idleCounter);
-                continue;
-            }
-            idleCounter = 0;
-        }
+        MessagePassingQueueUtil.fill(this, s, w, exit);
     }
 
     private static int positionWithinCycle(long producerCycleClaim, int positionOnCycleMask)
@@ -48,6 +48,18 @@ public class MpscUnboundedArrayQueue<E> extends BaseMpscLinkedArrayQueue<E>
         super(chunkSize);
     }
 
+    /**
+     * 消费者将消费完的块交给生产者复用，突发流量过后不会为每个新块分配内存。
+     *
+     * @param chunkSize       the size of each chunk
+     * @param maxPooledChunks the maximum number of consumed chunks kept around to avoid allocation, 0 disables
+     *                        pooling. Note that the iterator may return elements out of order when pooling.
+     */
+    public MpscUnboundedArrayQueue(int chunkSize, int maxPooledChunks)
+    {
+        super(chunkSize, maxPooledChunks);
+    }
+
 
     @Override
     protected long availableInQueue(long pIndex, long cIndex)
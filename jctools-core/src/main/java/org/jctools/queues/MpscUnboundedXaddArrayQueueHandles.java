@@ -0,0 +1,156 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jctools.queues;
+
+/**
+ * Producer and consumer handles for {@link MpscUnboundedXaddArrayQueue}, see
+ * {@link MpscUnboundedXaddArrayQueue#newProducer()} and {@link MpscUnboundedXaddArrayQueue#newConsumer()}.
+ */
+final class MpscUnboundedXaddArrayQueueHandles
+{
+    private MpscUnboundedXaddArrayQueueHandles()
+    {
+    }
+
+    /**
+     * Keeps the last chunk this handle produced to. Successive claims mostly land in the same chunk, in which case
+     * the shared producer chunk is not read at all. A cached chunk matching the claimed chunk index is the right chunk
+     * even if it was recycled in the meantime: a chunk is only pooled once all of its slots were consumed, which can't
+     * happen while this handle holds an unfilled claim on it, and it is re-indexed before reuse.
+     */
+    static final class Producer<E> implements MessagePassingQueueProducer<E>
+    {
+        private final MpscUnboundedXaddArrayQueue<E> queue;
+        private MpscUnboundedXaddChunk<E> producerChunk;
+
+        Producer(MpscUnboundedXaddArrayQueue<E> queue)
+        {
+            this.queue = queue;
+        }
+
+        @Override
+        public boolean offer(E e)
+        {
+            if (null == e)
+            {
+                throw new NullPointerException();
+            }
+            final MpscUnboundedXaddArrayQueue<E> queue = this.queue;
+            final long pIndex = queue.getAndIncrementProducerIndex();
+            final int piChunkOffset = (int) (pIndex & queue.chunkMask);
+            final long piChunkIndex = pIndex >> queue.chunkShift;
+
+            MpscUnboundedXaddChunk<E> pChunk = this.producerChunk;
+            if (pChunk == null || pChunk.lvIndex() != piChunkIndex)
+            {
+                pChunk = queue.lvProducerChunk();
+                if (pChunk.lvIndex() != piChunkIndex)
+                {
+                    pChunk = queue.producerChunkForIndex(pChunk, piChunkIndex);
+                }
+                this.producerChunk = pChunk;
+            }
+            pChunk.soElement(piChunkOffset, e);
+            return true;
+        }
+
+        @Override
+        public boolean relaxedOffer(E e)
+        {
+            return offer(e);
+        }
+
+        @Override
+        public int fill(MessagePassingQueue.Supplier<E> s, int limit)
+        {
+            return queue.fill(s, limit);
+        }
+
+        @Override
+        public MessagePassingQueue<E> queue()
+        {
+            return queue;
+        }
+    }
+
+    /**
+     * Keeps a snapshot of the producer index for the emptiness check within a chunk. Moving on to the next chunk is
+     * left to the queue.
+     */
+    static final class Consumer<E> implements MessagePassingQueueConsumer<E>
+    {
+        private final MpscUnboundedXaddArrayQueue<E> queue;
+        private long producerIndex;
+
+        Consumer(MpscUnboundedXaddArrayQueue<E> queue)
+        {
+            this.queue = queue;
+        }
+
+        @Override
+        public E poll()
+        {
+            final MpscUnboundedXaddArrayQueue<E> queue = this.queue;
+            final long cIndex = queue.lpConsumerIndex();
+            final int ciChunkOffset = (int) (cIndex & queue.chunkMask);
+            if (ciChunkOffset == 0 && cIndex != 0)
+            {
+                return queue.poll();
+            }
+            final MpscUnboundedXaddChunk<E> cChunk = queue.lvConsumerChunk();
+            E e = cChunk.lvElement(ciChunkOffset);
+            if (e == null)
+            {
+                if (cIndex >= producerIndex && cIndex == (producerIndex = queue.lvProducerIndex()))
+                {
+                    return null;
+                }
+                e = cChunk.spinForElement(ciChunkOffset, false);
+            }
+            cChunk.soElement(ciChunkOffset, null);
+            queue.soConsumerIndex(cIndex + 1);
+            return e;
+        }
+
+        @Override
+        public E relaxedPoll()
+        {
+            return queue.relaxedPoll();
+        }
+
+        @Override
+        public E peek()
+        {
+            return queue.peek();
+        }
+
+        @Override
+        public E relaxedPeek()
+        {
+            return queue.relaxedPeek();
+        }
+
+        @Override
+        public int drain(MessagePassingQueue.Consumer<E> c, int limit)
+        {
+            return queue.drain(c, limit);
+        }
+
+        @Override
+        public MessagePassingQueue<E> queue()
+        {
+            return queue;
+        }
+    }
+}
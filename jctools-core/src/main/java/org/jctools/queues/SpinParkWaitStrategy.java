@@ -0,0 +1,91 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jctools.queues;
+
+import org.jctools.util.RangeUtil;
+
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Spin then park until signalled: the waiting thread spins for a number of idle calls and then parks with no timeout,
+ * the other side must call {@link #signal()} after each successful offer (or poll, for a waiting producer). Idle CPU
+ * use is zero once parked and the wakeup latency is that of an unpark, but every signal costs the signalling side a
+ * fence and, while the waiter is registered, an unpark.
+ * <p>
+ * An instance supports a single waiting thread and any number of signalling threads.
+ * <p>
+ * 唤醒协议（Dekker）：
+ * 1. 等待方进入park阶段的第一次idle调用只登记waiter（volatile写）并返回，由调用方再检查一次队列，第二次调用才真正park。
+ * 2. 通知方在offer之后执行一次volatile写（StoreLoad屏障），再读取waiter并unpark。
+ * 因此要么等待方的再检查看到了元素，要么通知方看到了waiter，不会丢失唤醒。unpark先于park发生也没关系，permit会让park立即返回。
+ * waiter在被唤醒或者开始新的空闲周期（idleCounter为0）时清除，在此之前通知方的unpark是多余的但无害。
+ */
+public final class SpinParkWaitStrategy implements MessagePassingQueue.WaitStrategy
+{
+    private final int spins;
+    private volatile Thread waiter;
+
+    public volatile int storeFence = 0;
+
+    public SpinParkWaitStrategy()
+    {
+        this(1000);
+    }
+
+    public SpinParkWaitStrategy(int spins)
+    {
+        this.spins = RangeUtil.checkPositiveOrZero(spins, "spins");
+    }
+
+    @Override
+    public int idle(int idleCounter)
+    {
+        if (idleCounter == 0 && waiter != null)
+        {
+            waiter = null;
+        }
+        if (idleCounter < spins)
+        {
+            BusySpinWaitStrategy.onSpinWait();
+            return idleCounter + 1;
+        }
+        final Thread currentThread = Thread.currentThread();
+        if (waiter != currentThread)
+        {
+            // publish before parking, the caller re-checks the queue before the next idle call
+            waiter = currentThread;
+        }
+        else
+        {
+            LockSupport.park(this);
+            waiter = null;
+        }
+        return idleCounter == Integer.MAX_VALUE ? idleCounter : idleCounter + 1;
+    }
+
+    /**
+     * Wake up the waiting thread, if any. Call after the offer/poll the waiter is waiting for.
+     */
+    public void signal()
+    {
+        // Make sure the offer is visible before checking for a waiter
+        storeFence = 1; // store load barrier
+
+        final Thread waiter = this.waiter;
+        if (waiter != null)
+        {
+            LockSupport.unpark(waiter);
+        }
+    }
+}
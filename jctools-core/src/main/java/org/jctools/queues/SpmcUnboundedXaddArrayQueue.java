@@ -0,0 +1,350 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jctools.queues;
+
+/**
+ * 以链接的chunk无限增量的Spmc数组队列，可对比{@link MpmcUnboundedXaddArrayQueue}理解。
+ * <p>
+ * 由于只有一个生产者，生产者不再需要xadd竞争producerIndex，也不再需要CAS竞争扩容（{@code producerChunkIndex}），
+ * 而是像{@link SpmcArrayQueue}一样：先发布元素，再以Ordered模式发布producerIndex。
+ * 这带来了一个额外的好处：消费者只在{@code cIndex < pIndex}时才竞争槽位，因此CAS成功后元素一定已填充，
+ * 缓存池中的chunk也不再需要{@link MpmcUnboundedXaddChunk}中的sequence数组来识别元素属于第几环。
+ * <p>
+ * An SPMC array queue which grows unbounded in linked chunks.<br>
+ * Differently from {@link MpmcUnboundedXaddArrayQueue} the single producer uses a plain store of the producer index
+ * (no XADD) and appends chunks without contention. Elements are always visible before the producer index is, so
+ * consumers gate on the producer index and need no per-slot sequence tagging to reuse pooled chunks.
+ */
+public class SpmcUnboundedXaddArrayQueue<E> extends MpUnboundedXaddArrayQueue<SpmcUnboundedXaddChunk<E>, E>
+{
+    /**
+     * @param chunkSize The buffer size to be used in each chunk of this queue
+     * @param maxPooledChunks The maximum number of reused chunks kept around to avoid allocation, chunks are pre-allocated
+     */
+    public SpmcUnboundedXaddArrayQueue(int chunkSize, int maxPooledChunks)
+    {
+        super(chunkSize, maxPooledChunks);
+    }
+
+    public SpmcUnboundedXaddArrayQueue(int chunkSize)
+    {
+        this(chunkSize, 2);
+    }
+
+    @Override
+    final SpmcUnboundedXaddChunk<E> newChunk(long index, SpmcUnboundedXaddChunk<E> prev, int chunkSize, boolean pooled)
+    {
+        return new SpmcUnboundedXaddChunk(index, prev, chunkSize, pooled);
+    }
+
+    @Override
+    public boolean offer(E e)
+    {
+        if (null == e)
+        {
+            throw new NullPointerException();
+        }
+        final long pIndex = lpProducerIndex();
+        final int piChunkOffset = (int) (pIndex & chunkMask);
+        final long piChunkIndex = pIndex >> chunkShift;
+
+        SpmcUnboundedXaddChunk<E> pChunk = lvProducerChunk();
+        if (pChunk.lvIndex() != piChunkIndex)
+        {
+            // 单生产者：不存在其它生产者抢先扩容的情况，因此这里一定是恰好需要下一个chunk
+            pChunk = appendNextChunk(pChunk, piChunkIndex);
+        }
+        writeElement(pChunk, piChunkOffset, e);
+        // 先发布元素，再发布索引，消费者看见索引即可确定元素已填充
+        soProducerIndex(pIndex + 1);
+        return true;
+    }
+
+    /**
+     * 单生产者版本的扩容，不需要像{@link #producerChunkForIndex(MpUnboundedXaddChunk, long)}那样加锁（CAS producerChunkIndex）。
+     * 注意：发布顺序与多生产者版本保持一致，先发布producerChunk，再链接next。
+     */
+    private SpmcUnboundedXaddChunk<E> appendNextChunk(SpmcUnboundedXaddChunk<E> pChunk, long nextChunkIndex)
+    {
+        assert pChunk.lvIndex() == nextChunkIndex - 1;
+        final SpmcUnboundedXaddChunk<E> next = newOrPooledChunk(pChunk, nextChunkIndex);
+        soProducerChunk(next);
+        pChunk.soNext(next);
+        soProducerChunkIndex(nextChunkIndex);
+        return next;
+    }
+
+    private static <E> void writeElement(SpmcUnboundedXaddChunk<E> pChunk, int piChunkOffset, E e)
+    {
+        if (pChunk.isPooled())
+        {
+            // 缓存池中的chunk可能被提前归还，必须等待上一环的消费者完成消费（空出槽位）
+            // wait any previous consumer to finish its job
+            pChunk.spinForElement(piChunkOffset, true);
+        }
+        pChunk.soElement(piChunkOffset, e);
+    }
+
+    @Override
+    public E poll()
+    {
+        final int chunkMask = this.chunkMask;
+        final int chunkShift = this.chunkShift;
+        long pIndex = -1; // start with bogus value, hope we don't need it
+        long cIndex;
+        SpmcUnboundedXaddChunk<E> cChunk;
+        int ciChunkOffset;
+        boolean isFirstElementOfNewChunk;
+        while (true)
+        {
+            cIndex = lvConsumerIndex();
+            if (cIndex >= pIndex && // test against cached pIndex
+                cIndex == (pIndex = lvProducerIndex())) // update pIndex if we must
+            {
+                // strict empty check, this ensures [Queue.poll() == null iff isEmpty()]
+                return null;
+            }
+            // 走到这，表示cIndex对应的元素（以及可能需要的next chunk）已经对消费者可见
+            cChunk = lvConsumerChunk();
+            ciChunkOffset = (int) (cIndex & chunkMask);
+            final long ciChunkIndex = cIndex >> chunkShift;
+            isFirstElementOfNewChunk = ciChunkOffset == 0 && cIndex != 0;
+            // 新chunk的首个元素：竞争成功的消费者负责切换chunk，因此期望看见的是上一个chunk
+            final long expectedChunkIndex = isFirstElementOfNewChunk ? ciChunkIndex - 1 : ciChunkIndex;
+            if (cChunk.lvIndex() != expectedChunkIndex)
+            {
+                // 过时的视图，或者其它消费者正在切换chunk
+                // stale view of the world, or another consumer is rotating the consumer chunk
+                continue;
+            }
+            if (casConsumerIndex(cIndex, cIndex + 1))
+            {
+                break;
+            }
+        }
+        if (isFirstElementOfNewChunk)
+        {
+            return linkNextConsumerChunkAndPoll(cChunk);
+        }
+        final E e = cChunk.lvElement(ciChunkOffset);
+        assert e != null;
+        // 生产者在重用池中的chunk时依赖于element为null，因此使用Ordered模式
+        cChunk.soElement(ciChunkOffset, null);
+        return e;
+    }
+
+    private E linkNextConsumerChunkAndPoll(SpmcUnboundedXaddChunk<E> cChunk)
+    {
+        // 生产者在发布索引之前已经链接了next，因此这里不会自旋
+        SpmcUnboundedXaddChunk<E> next;
+        while ((next = cChunk.lvNext()) == null)
+        {
+            // BURN
+        }
+        final E e = next.lvElement(0);
+        assert e != null;
+        next.soElement(0, null);
+        moveToNextConsumerChunk(cChunk, next);
+        return e;
+    }
+
+    @Override
+    public E peek()
+    {
+        final int chunkMask = this.chunkMask;
+        final int chunkShift = this.chunkShift;
+        long pIndex = -1;
+        long cIndex;
+        E e;
+        do
+        {
+            e = null;
+            cIndex = lvConsumerIndex();
+            if (cIndex >= pIndex && cIndex == (pIndex = lvProducerIndex()))
+            {
+                return null;
+            }
+            final SpmcUnboundedXaddChunk<E> cChunk = chunkForConsumerIndex(cIndex, chunkMask, chunkShift);
+            if (cChunk == null)
+            {
+                continue;
+            }
+            e = cChunk.lvElement((int) (cIndex & chunkMask));
+            // 同SpmcArrayQueue：把元素的加载夹在两次消费者索引的加载之间，索引未变化则元素一定属于cIndex
+            // sandwich the element load between 2 consumer index loads
+        }
+        while (e == null || cIndex != lvConsumerIndex());
+        return e;
+    }
+
+    /**
+     * 找到cIndex对应的chunk，视图过时（或其它消费者正在切换chunk）时返回null。
+     */
+    private SpmcUnboundedXaddChunk<E> chunkForConsumerIndex(long cIndex, int chunkMask, int chunkShift)
+    {
+        SpmcUnboundedXaddChunk<E> cChunk = lvConsumerChunk();
+        final long ciChunkIndex = cIndex >> chunkShift;
+        long ccChunkIndex = cChunk.lvIndex();
+        if ((cIndex & chunkMask) == 0 && cIndex != 0 && ccChunkIndex == ciChunkIndex - 1)
+        {
+            // 首个元素尚未被消费，consumerChunk还是上一个chunk
+            cChunk = cChunk.lvNext();
+            if (cChunk == null)
+            {
+                return null;
+            }
+            ccChunkIndex = cChunk.lvIndex();
+        }
+        return ccChunkIndex == ciChunkIndex ? cChunk : null;
+    }
+
+    @Override
+    public E relaxedPoll()
+    {
+        final long cIndex = lvConsumerIndex();
+        if (cIndex >= lvProducerIndex())
+        {
+            return null;
+        }
+        final SpmcUnboundedXaddChunk<E> cChunk = lvConsumerChunk();
+        final int ciChunkOffset = (int) (cIndex & chunkMask);
+        final long ciChunkIndex = cIndex >> chunkShift;
+        final boolean isFirstElementOfNewChunk = ciChunkOffset == 0 && cIndex != 0;
+        final long expectedChunkIndex = isFirstElementOfNewChunk ? ciChunkIndex - 1 : ciChunkIndex;
+        // 宽松版本：视图过时或竞争失败都直接返回null，而不是重试
+        if (cChunk.lvIndex() != expectedChunkIndex || !casConsumerIndex(cIndex, cIndex + 1))
+        {
+            return null;
+        }
+        if (isFirstElementOfNewChunk)
+        {
+            return linkNextConsumerChunkAndPoll(cChunk);
+        }
+        final E e = cChunk.lvElement(ciChunkOffset);
+        assert e != null;
+        cChunk.soElement(ciChunkOffset, null);
+        return e;
+    }
+
+    @Override
+    public E relaxedPeek()
+    {
+        final int chunkMask = this.chunkMask;
+        final int chunkShift = this.chunkShift;
+        long cIndex;
+        long nextConsumerIndex = lvConsumerIndex();
+        E e;
+        do
+        {
+            cIndex = nextConsumerIndex;
+            final SpmcUnboundedXaddChunk<E> cChunk = chunkForConsumerIndex(cIndex, chunkMask, chunkShift);
+            e = cChunk == null ? null : cChunk.lvElement((int) (cIndex & chunkMask));
+            // sandwich the element load between 2 consumer index loads
+            nextConsumerIndex = lvConsumerIndex();
+        }
+        while (nextConsumerIndex != cIndex);
+        return e;
+    }
+
+    @Override
+    public int drain(Consumer<E> c, int limit)
+    {
+        if (null == c)
+            throw new IllegalArgumentException("c is null");
+        if (limit < 0)
+            throw new IllegalArgumentException("limit is negative: " + limit);
+        if (limit == 0)
+            return 0;
+
+        final int chunkMask = this.chunkMask;
+        final int chunkShift = this.chunkShift;
+        final int chunkSize = chunkMask + 1;
+        int drained = 0;
+        while (drained < limit)
+        {
+            final long cIndex = lvConsumerIndex();
+            final long pIndex = lvProducerIndex();
+            if (cIndex >= pIndex)
+            {
+                break;
+            }
+            final int ciChunkOffset = (int) (cIndex & chunkMask);
+            if (ciChunkOffset == 0 && cIndex != 0)
+            {
+                // chunk的首个元素需要切换chunk，交给relaxedPoll处理
+                final E e = relaxedPoll();
+                if (e == null)
+                {
+                    break;
+                }
+                c.accept(e);
+                drained++;
+                continue;
+            }
+            final SpmcUnboundedXaddChunk<E> cChunk = lvConsumerChunk();
+            if (cChunk.lvIndex() != cIndex >> chunkShift)
+            {
+                // stale view of the world
+                continue;
+            }
+            // 同SpmcArrayQueue：尝试批量声明当前chunk中已发布的元素，但不跨越chunk边界
+            // try and claim up to 'limit' elements in one go, without crossing the chunk boundary
+            final int batch = (int) Math.min(pIndex - cIndex, Math.min(limit - drained, chunkSize - ciChunkOffset));
+            if (!casConsumerIndex(cIndex, cIndex + batch))
+            {
+                continue;
+            }
+            for (int i = 0; i < batch; i++)
+            {
+                final int offset = ciChunkOffset + i;
+                final E e = cChunk.lvElement(offset);
+                assert e != null;
+                cChunk.soElement(offset, null);
+                c.accept(e);
+            }
+            drained += batch;
+        }
+        return drained;
+    }
+
+    @Override
+    public int fill(Supplier<E> s, int limit)
+    {
+        if (null == s)
+            throw new IllegalArgumentException("supplier is null");
+        if (limit < 0)
+            throw new IllegalArgumentException("limit is negative:" + limit);
+        if (limit == 0)
+            return 0;
+
+        final int chunkMask = this.chunkMask;
+        final int chunkShift = this.chunkShift;
+        long pIndex = lpProducerIndex();
+        SpmcUnboundedXaddChunk<E> pChunk = lvProducerChunk();
+        for (int i = 0; i < limit; i++)
+        {
+            final int piChunkOffset = (int) (pIndex & chunkMask);
+            final long piChunkIndex = pIndex >> chunkShift;
+            if (pChunk.lvIndex() != piChunkIndex)
+            {
+                pChunk = appendNextChunk(pChunk, piChunkIndex);
+            }
+            writeElement(pChunk, piChunkOffset, s.get());
+            pIndex++;
+            // ordered store -> atomic and ordered for size()
+            soProducerIndex(pIndex);
+        }
+        return limit;
+    }
+}
@@ -0,0 +1,30 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jctools.queues;
+
+import org.jctools.util.InternalAPI;
+
+/**
+ * 与{@link MpmcUnboundedXaddChunk}不同，这里不需要sequence：
+ * 单生产者总是先发布元素再发布producerIndex，消费者只在{@code cIndex < pIndex}时才竞争槽位，
+ * 因此只要CAS成功，该槽位上的元素一定属于当前这一环（即使chunk来自缓存池）。
+ */
+@InternalAPI
+final class SpmcUnboundedXaddChunk<E> extends MpUnboundedXaddChunk<SpmcUnboundedXaddChunk<E>, E>
+{
+    SpmcUnboundedXaddChunk(long index, SpmcUnboundedXaddChunk<E> prev, int size, boolean pooled)
+    {
+        super(index, prev, size, pooled);
+    }
+}
@@ -0,0 +1,381 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jctools.queues;
+
+import static org.jctools.util.UnsafeAccess.UNSAFE;
+import static org.jctools.util.UnsafeAccess.fieldOffset;
+import static org.jctools.util.UnsafeRefArrayAccess.*;
+
+import org.jctools.util.Pow2;
+import org.jctools.util.RangeUtil;
+
+abstract class SpscEventRingColdFields<E> implements EventRing<E>
+{
+    protected final long mask;
+    /**
+     * 预分配的事件，创建后不再变化，生产者与消费者原地读写事件的字段。
+     */
+    protected final E[] buffer;
+
+    SpscEventRingColdFields(int capacity, MessagePassingQueue.Supplier<E> factory)
+    {
+        final int actualCapacity = Pow2.roundToPowerOfTwo(RangeUtil.checkGreaterThanOrEqual(capacity, 2, "capacity"));
+        mask = actualCapacity - 1;
+        buffer = allocateRefArray(actualCapacity);
+        for (int i = 0; i < actualCapacity; i++)
+        {
+            final E event = factory.get();
+            if (null == event)
+            {
+                throw new NullPointerException("factory returned null");
+            }
+            buffer[i] = event;
+        }
+    }
+
+    @Override
+    public final int capacity()
+    {
+        return (int) (mask + 1);
+    }
+
+    @Override
+    public final E event(long sequence)
+    {
+        return lpRefElement(buffer, calcCircularRefElementOffset(sequence, mask));
+    }
+}
+
+abstract class SpscEventRingL1Pad<E> extends SpscEventRingColdFields<E>
+{
+    /**
+     * 缓存行填充，避免{@code buffer}等只读字段与{@code producerIndex}产生伪共享
+     */
+    byte b000,b001,b002,b003,b004,b005,b006,b007;//  8b
+    byte b010,b011,b012,b013,b014,b015,b016,b017;// 16b
+    byte b020,b021,b022,b023,b024,b025,b026,b027;// 24b
+    byte b030,b031,b032,b033,b034,b035,b036,b037;// 32b
+    byte b040,b041,b042,b043,b044,b045,b046,b047;// 40b
+    byte b050,b051,b052,b053,b054,b055,b056,b057;// 48b
+    byte b060,b061,b062,b063,b064,b065,b066,b067;// 56b
+    byte b070,b071,b072,b073,b074,b075,b076,b077;// 64b
+    byte b100,b101,b102,b103,b104,b105,b106,b107;// 72b
+    byte b110,b111,b112,b113,b114,b115,b116,b117;// 80b
+    byte b120,b121,b122,b123,b124,b125,b126,b127;// 88b
+    byte b130,b131,b132,b133,b134,b135,b136,b137;// 96b
+    byte b140,b141,b142,b143,b144,b145,b146,b147;//104b
+    byte b150,b151,b152,b153,b154,b155,b156,b157;//112b
+    byte b160,b161,b162,b163,b164,b165,b166,b167;//120b
+    byte b170,b171,b172,b173,b174,b175,b176,b177;//128b
+
+    SpscEventRingL1Pad(int capacity, MessagePassingQueue.Supplier<E> factory)
+    {
+        super(capacity, factory);
+    }
+}
+
+// $gen:ordered-fields
+abstract class SpscEventRingProducerFields<E> extends SpscEventRingL1Pad<E>
+{
+    private final static long P_INDEX_OFFSET = fieldOffset(SpscEventRingProducerFields.class, "producerIndex");
+    private final static long CLAIM_INDEX_OFFSET = fieldOffset(SpscEventRingProducerFields.class, "claimIndex");
+
+    /**
+     * 已发布的事件数，消费者可以处理小于该值的序号。
+     */
+    private volatile long producerIndex;
+    /**
+     * 下一个要声明的序号，只有生产者线程写入，其它线程只在计算{@link #size()}时读取。
+     * 声明与发布之间的槽位已被生产者占用，但消费者还不可见。
+     */
+    private volatile long claimIndex;
+    /**
+     * 在重新读取消费者索引之前，第一个不可声明的序号。
+     */
+    protected long producerLimit;
+
+    SpscEventRingProducerFields(int capacity, MessagePassingQueue.Supplier<E> factory)
+    {
+        super(capacity, factory);
+    }
+
+    public final long lvProducerIndex()
+    {
+        return producerIndex;
+    }
+
+    final long lpProducerIndex()
+    {
+        return UNSAFE.getLong(this, P_INDEX_OFFSET);
+    }
+
+    final void soProducerIndex(final long newValue)
+    {
+        UNSAFE.putOrderedLong(this, P_INDEX_OFFSET, newValue);
+    }
+
+    final long lvClaimIndex()
+    {
+        return claimIndex;
+    }
+
+    final long lpClaimIndex()
+    {
+        return UNSAFE.getLong(this, CLAIM_INDEX_OFFSET);
+    }
+
+    final void soClaimIndex(final long newValue)
+    {
+        UNSAFE.putOrderedLong(this, CLAIM_INDEX_OFFSET, newValue);
+    }
+}
+
+abstract class SpscEventRingL2Pad<E> extends SpscEventRingProducerFields<E>
+{
+    /**
+     * 缓存行填充，避免生产者字段与{@code consumerIndex}产生伪共享
+     */
+    byte b000,b001,b002,b003,b004,b005,b006,b007;//  8b
+    byte b010,b011,b012,b013,b014,b015,b016,b017;// 16b
+    byte b020,b021,b022,b023,b024,b025,b026,b027;// 24b
+    byte b030,b031,b032,b033,b034,b035,b036,b037;// 32b
+    byte b040,b041,b042,b043,b044,b045,b046,b047;// 40b
+    byte b050,b051,b052,b053,b054,b055,b056,b057;// 48b
+    byte b060,b061,b062,b063,b064,b065,b066,b067;// 56b
+    byte b070,b071,b072,b073,b074,b075,b076,b077;// 64b
+    byte b100,b101,b102,b103,b104,b105,b106,b107;// 72b
+    byte b110,b111,b112,b113,b114,b115,b116,b117;// 80b
+    byte b120,b121,b122,b123,b124,b125,b126,b127;// 88b
+    byte b130,b131,b132,b133,b134,b135,b136,b137;// 96b
+    byte b140,b141,b142,b143,b144,b145,b146,b147;//104b
+    byte b150,b151,b152,b153,b154,b155,b156,b157;//112b
+    byte b160,b161,b162,b163,b164,b165,b166,b167;//120b
+    byte b170,b171,b172,b173,b174,b175,b176,b177;//128b
+
+    SpscEventRingL2Pad(int capacity, MessagePassingQueue.Supplier<E> factory)
+    {
+        super(capacity, factory);
+    }
+}
+
+// $gen:ordered-fields
+abstract class SpscEventRingConsumerFields<E> extends SpscEventRingL2Pad<E>
+{
+    private final static long C_INDEX_OFFSET = fieldOffset(SpscEventRingConsumerFields.class, "consumerIndex");
+
+    /**
+     * 已释放的槽位数，生产者可以声明小于{@code consumerIndex + capacity}的序号。
+     */
+    private volatile long consumerIndex;
+    /**
+     * 消费者上一次读到的{@code producerIndex}，只有消费者线程读写。
+     */
+    protected long producerIndexCache;
+
+    SpscEventRingConsumerFields(int capacity, MessagePassingQueue.Supplier<E> factory)
+    {
+        super(capacity, factory);
+    }
+
+    public final long lvConsumerIndex()
+    {
+        return consumerIndex;
+    }
+
+    final long lpConsumerIndex()
+    {
+        return UNSAFE.getLong(this, C_INDEX_OFFSET);
+    }
+
+    final void soConsumerIndex(final long newValue)
+    {
+        UNSAFE.putOrderedLong(this, C_INDEX_OFFSET, newValue);
+    }
+}
+
+abstract class SpscEventRingL3Pad<E> extends SpscEventRingConsumerFields<E>
+{
+    /**
+     * 缓存行填充，避免{@code consumerIndex}与其后分配的对象产生伪共享
+     */
+    byte b000,b001,b002,b003,b004,b005,b006,b007;//  8b
+    byte b010,b011,b012,b013,b014,b015,b016,b017;// 16b
+    byte b020,b021,b022,b023,b024,b025,b026,b027;// 24b
+    byte b030,b031,b032,b033,b034,b035,b036,b037;// 32b
+    byte b040,b041,b042,b043,b044,b045,b046,b047;// 40b
+    byte b050,b051,b052,b053,b054,b055,b056,b057;// 48b
+    byte b060,b061,b062,b063,b064,b065,b066,b067;// 56b
+    byte b070,b071,b072,b073,b074,b075,b076,b077;// 64b
+    byte b100,b101,b102,b103,b104,b105,b106,b107;// 72b
+    byte b110,b111,b112,b113,b114,b115,b116,b117;// 80b
+    byte b120,b121,b122,b123,b124,b125,b126,b127;// 88b
+    byte b130,b131,b132,b133,b134,b135,b136,b137;// 96b
+    byte b140,b141,b142,b143,b144,b145,b146,b147;//104b
+    byte b150,b151,b152,b153,b154,b155,b156,b157;//112b
+    byte b160,b161,b162,b163,b164,b165,b166,b167;//120b
+    byte b170,b171,b172,b173,b174,b175,b176,b177;//128b
+
+    SpscEventRingL3Pad(int capacity, MessagePassingQueue.Supplier<E> factory)
+    {
+        super(capacity, factory);
+    }
+}
+
+/**
+ * A single producer, single consumer {@link EventRing}.
+ * <p>
+ * The producer may hold several claimed slots at a time, but must publish them in the order they were claimed.
+ *
+ * @param <E> event type
+ */
+public class SpscEventRing<E> extends SpscEventRingL3Pad<E>
+{
+    /**
+     * size/isEmpty统计已声明（包括尚未发布）的槽位，与{@link MpscEventRing}一致。
+     */
+    private final IndexedQueueSizeUtil.IndexedQueue claimed = new IndexedQueueSizeUtil.IndexedQueue()
+    {
+        @Override
+        public long lvConsumerIndex()
+        {
+            return SpscEventRing.this.lvConsumerIndex();
+        }
+
+        @Override
+        public long lvProducerIndex()
+        {
+            return lvClaimIndex();
+        }
+
+        @Override
+        public int capacity()
+        {
+            return SpscEventRing.this.capacity();
+        }
+    };
+
+    /**
+     * @param capacity the number of events, rounded up to the next power of 2
+     * @param factory  called capacity times, up front, to fill the ring
+     */
+    public SpscEventRing(int capacity, MessagePassingQueue.Supplier<E> factory)
+    {
+        super(capacity, factory);
+    }
+
+    @Override
+    public long claim()
+    {
+        final long index = lpClaimIndex();
+        if (index >= producerLimit)
+        {
+            // 缓存的界限用完了，重新读取消费者索引
+            final long limit = lvConsumerIndex() + mask + 1;
+            producerLimit = limit;
+            if (index >= limit)
+            {
+                return FULL;
+            }
+        }
+        soClaimIndex(index + 1);
+        return index;
+    }
+
+    @Override
+    public void publish(long sequence)
+    {
+        assert sequence == lpProducerIndex() : "events must be published in claim order";
+        // StoreStore: 事件的修改先于索引对消费者可见
+        soProducerIndex(sequence + 1);
+    }
+
+    @Override
+    public int drain(MessagePassingQueue.Consumer<E> c, int limit)
+    {
+        if (null == c)
+        {
+            throw new IllegalArgumentException("c is null");
+        }
+        if (limit < 0)
+        {
+            throw new IllegalArgumentException("limit is negative: " + limit);
+        }
+        final long cIndex = lpConsumerIndex();
+        long available = producerIndexCache;
+        if (cIndex + limit > available)
+        {
+            available = lvProducerIndex();
+            producerIndexCache = available;
+        }
+        final long end = Math.min(available, cIndex + limit);
+        final E[] buffer = this.buffer;
+        final long mask = this.mask;
+        long index = cIndex;
+        try
+        {
+            while (index < end)
+            {
+                final E event = lpRefElement(buffer, calcCircularRefElementOffset(index, mask));
+                // 先前进再处理，异常时失败的事件也一并释放
+                index++;
+                c.accept(event);
+            }
+        }
+        finally
+        {
+            if (index != cIndex)
+            {
+                // 整批只写一次消费者索引
+                soConsumerIndex(index);
+            }
+        }
+        return (int) (end - cIndex);
+    }
+
+    @Override
+    public E acquire()
+    {
+        final long cIndex = lpConsumerIndex();
+        if (cIndex >= producerIndexCache)
+        {
+            final long available = lvProducerIndex();
+            producerIndexCache = available;
+            if (cIndex >= available)
+            {
+                return null;
+            }
+        }
+        return lpRefElement(buffer, calcCircularRefElementOffset(cIndex, mask));
+    }
+
+    @Override
+    public void release()
+    {
+        final long cIndex = lpConsumerIndex();
+        assert cIndex < producerIndexCache : "no event acquired";
+        soConsumerIndex(cIndex + 1);
+    }
+
+    @Override
+    public int size()
+    {
+        return IndexedQueueSizeUtil.size(claimed);
+    }
+
+    @Override
+    public boolean isEmpty()
+    {
+        return IndexedQueueSizeUtil.isEmpty(claimed);
+    }
+}
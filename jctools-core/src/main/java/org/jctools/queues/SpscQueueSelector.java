@@ -0,0 +1,547 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jctools.queues;
+
+import org.jctools.util.RangeUtil;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import static org.jctools.util.UnsafeAccess.UNSAFE;
+import static org.jctools.util.UnsafeLongArrayAccess.*;
+
+abstract class SpscQueueSelectorL0Pad<E>
+{
+    byte b000,b001,b002,b003,b004,b005,b006,b007;//  8b
+    byte b010,b011,b012,b013,b014,b015,b016,b017;// 16b
+    byte b020,b021,b022,b023,b024,b025,b026,b027;// 24b
+    byte b030,b031,b032,b033,b034,b035,b036,b037;// 32b
+    byte b040,b041,b042,b043,b044,b045,b046,b047;// 40b
+    byte b050,b051,b052,b053,b054,b055,b056,b057;// 48b
+    byte b060,b061,b062,b063,b064,b065,b066,b067;// 56b
+    byte b070,b071,b072,b073,b074,b075,b076,b077;// 64b
+    byte b100,b101,b102,b103,b104,b105,b106,b107;// 72b
+    byte b110,b111,b112,b113,b114,b115,b116,b117;// 80b
+    byte b120,b121,b122,b123,b124,b125,b126,b127;// 88b
+    byte b130,b131,b132,b133,b134,b135,b136,b137;// 96b
+    byte b140,b141,b142,b143,b144,b145,b146,b147;//104b
+    byte b150,b151,b152,b153,b154,b155,b156,b157;//112b
+    byte b160,b161,b162,b163,b164,b165,b166,b167;//120b
+    byte b170,b171,b172,b173,b174,b175,b176,b177;//128b
+}
+
+abstract class SpscQueueSelectorColdFields<E> extends SpscQueueSelectorL0Pad<E>
+{
+    /**
+     * Ready words are spread a cache line pair apart, as producers of different words CAS them independently.
+     */
+    static final int WORD_STRIDE_SHIFT = 4;
+
+    final SpscQueueSelectorLane<E>[] lanes;
+    final long[] readyWords;
+    final int wordsCount;
+    final int quota;
+
+    @SuppressWarnings("unchecked")
+    SpscQueueSelectorColdFields(int lanesCount, int quota)
+    {
+        RangeUtil.checkPositive(lanesCount, "lanesCount");
+        RangeUtil.checkPositive(quota, "quota");
+        lanes = new SpscQueueSelectorLane[lanesCount];
+        wordsCount = (lanesCount + 63) >>> 6;
+        // leading and trailing padding
+        readyWords = allocateLongArray((wordsCount + 2) << WORD_STRIDE_SHIFT);
+        this.quota = quota;
+    }
+
+    final long wordOffset(int lane)
+    {
+        return calcLongElementOffset(((lane >>> 6) + 1) << WORD_STRIDE_SHIFT);
+    }
+}
+
+abstract class SpscQueueSelectorMidPad<E> extends SpscQueueSelectorColdFields<E>
+{
+    byte b000,b001,b002,b003,b004,b005,b006,b007;//  8b
+    byte b010,b011,b012,b013,b014,b015,b016,b017;// 16b
+    byte b020,b021,b022,b023,b024,b025,b026,b027;// 24b
+    byte b030,b031,b032,b033,b034,b035,b036,b037;// 32b
+    byte b040,b041,b042,b043,b044,b045,b046,b047;// 40b
+    byte b050,b051,b052,b053,b054,b055,b056,b057;// 48b
+    byte b060,b061,b062,b063,b064,b065,b066,b067;// 56b
+    byte b070,b071,b072,b073,b074,b075,b076,b077;// 64b
+    byte b100,b101,b102,b103,b104,b105,b106,b107;// 72b
+    byte b110,b111,b112,b113,b114,b115,b116,b117;// 80b
+    byte b120,b121,b122,b123,b124,b125,b126,b127;// 88b
+    byte b130,b131,b132,b133,b134,b135,b136,b137;// 96b
+    byte b140,b141,b142,b143,b144,b145,b146,b147;//104b
+    byte b150,b151,b152,b153,b154,b155,b156,b157;//112b
+    byte b160,b161,b162,b163,b164,b165,b166,b167;//120b
+    byte b170,b171,b172,b173,b174,b175,b176,b177;//128b
+
+    SpscQueueSelectorMidPad(int lanesCount, int quota)
+    {
+        super(lanesCount, quota);
+    }
+}
+
+abstract class SpscQueueSelectorConsumerFields<E> extends SpscQueueSelectorMidPad<E>
+{
+    /**
+     * The consumer thread, while parked or about to park. Written with volatile semantics so the subsequent scan of
+     * the ready words can't be reordered before it, see {@link SpscQueueSelector#take()}.
+     */
+    volatile Thread blocked;
+    /**
+     * The lane to start looking from on the next visit, moving past each lane served.
+     */
+    int cursor;
+
+    SpscQueueSelectorConsumerFields(int lanesCount, int quota)
+    {
+        super(lanesCount, quota);
+    }
+}
+
+/**
+ * A consumer side multiplexer over many {@link SpscArrayQueue}s, one per producer (a lane), for the case where a
+ * single consumer services many mostly empty queues and round robin polling of all of them wastes the consumer's
+ * time.
+ * <p>
+ * Each lane has a bit in a shared ready bitmap (words of 64 lanes, updated with a CAS on the word in the manner of
+ * {@link org.jctools.maps.NonBlockingSetInt}). A producer sets its lane bit after an offer if it finds it clear, the
+ * consumer only visits lanes with their bit set and clears the bit when it finds the lane empty. A producer must
+ * offer via its lane handle ({@link #producer(int)}) rather than the lane queue, or the lane may not be marked ready.
+ * <p>
+ * The consumer visits ready lanes round robin: {@link #poll()} takes one element per lane visited, {@link #drain}
+ * takes up to a quota of elements per lane visited, so a busy lane can't starve the others.
+ * <p>
+ * The consumer may park while all lanes are empty with {@link #take()} or {@link #poll(long, TimeUnit)}. Producers
+ * only check for a parked consumer when they set a lane bit, so the parking support costs nothing while the consumer
+ * keeps up.
+ * <p>
+ * The empty -> ready handshake is a Dekker style exchange: the producer stores the element then loads the ready word,
+ * the consumer clears the bit then loads the element. The producer side needs a store-load barrier between the two
+ * (a volatile store to a lane local field), which is the main cost this adds to a plain {@link SpscArrayQueue#offer}.
+ */
+public class SpscQueueSelector<E> extends SpscQueueSelectorConsumerFields<E>
+{
+    byte b000,b001,b002,b003,b004,b005,b006,b007;//  8b
+    byte b010,b011,b012,b013,b014,b015,b016,b017;// 16b
+    byte b020,b021,b022,b023,b024,b025,b026,b027;// 24b
+    byte b030,b031,b032,b033,b034,b035,b036,b037;// 32b
+    byte b040,b041,b042,b043,b044,b045,b046,b047;// 40b
+    byte b050,b051,b052,b053,b054,b055,b056,b057;// 48b
+    byte b060,b061,b062,b063,b064,b065,b066,b067;// 56b
+    byte b070,b071,b072,b073,b074,b075,b076,b077;// 64b
+    byte b100,b101,b102,b103,b104,b105,b106,b107;// 72b
+    byte b110,b111,b112,b113,b114,b115,b116,b117;// 80b
+    byte b120,b121,b122,b123,b124,b125,b126,b127;// 88b
+    byte b130,b131,b132,b133,b134,b135,b136,b137;// 96b
+    byte b140,b141,b142,b143,b144,b145,b146,b147;//104b
+    byte b150,b151,b152,b153,b154,b155,b156,b157;//112b
+    byte b160,b161,b162,b163,b164,b165,b166,b167;//120b
+    byte b170,b171,b172,b173,b174,b175,b176,b177;//128b
+
+    /**
+     * @param lanesCount the number of lanes, i.e. producers
+     * @param laneCapacity the capacity of each lane queue
+     */
+    public SpscQueueSelector(int lanesCount, int laneCapacity)
+    {
+        this(lanesCount, laneCapacity, 64);
+    }
+
+    /**
+     * @param lanesCount the number of lanes, i.e. producers
+     * @param laneCapacity the capacity of each lane queue
+     * @param quota the maximum number of elements {@link #drain} takes from a lane before moving to the next one
+     */
+    public SpscQueueSelector(int lanesCount, int laneCapacity, int quota)
+    {
+        super(lanesCount, quota);
+        for (int i = 0; i < lanesCount; i++)
+        {
+            lanes[i] = new SpscQueueSelectorLane<E>(this, i, new SpscArrayQueue<E>(laneCapacity));
+        }
+    }
+
+    public int lanesCount()
+    {
+        return lanes.length;
+    }
+
+    /**
+     * @param lane the lane index, in [0, lanesCount)
+     * @return the producer handle for the lane, to be used by a single producer thread
+     */
+    public MessagePassingQueueProducer<E> producer(int lane)
+    {
+        return lanes[lane];
+    }
+
+    /**
+     * Offer to a lane, see {@link #producer(int)}.
+     */
+    public boolean offer(int lane, E e)
+    {
+        return lanes[lane].offer(e);
+    }
+
+    /**
+     * Called from the consumer thread.
+     *
+     * @return an element from the next ready lane after the last lane served, or {@code null} if all lanes are empty
+     */
+    public E poll()
+    {
+        final SpscQueueSelectorLane<E>[] lanes = this.lanes;
+        final int lanesCount = lanes.length;
+        int from = cursor;
+        // every lane found empty has its bit cleared, so this ends after a round unless producers keep marking lanes
+        for (int i = 0; i < lanesCount; i++)
+        {
+            final int lane = nextReady(from);
+            if (lane < 0)
+            {
+                return null;
+            }
+            final SpscArrayQueue<E> q = lanes[lane].queue;
+            E e = q.poll();
+            if (e == null)
+            {
+                clearReady(lane);
+                // an element stored before the producer saw the bit set is visible now
+                e = q.poll();
+                if (e != null)
+                {
+                    markReady(lane);
+                }
+            }
+            from = lane + 1 == lanesCount ? 0 : lane + 1;
+            if (e != null)
+            {
+                cursor = from;
+                return e;
+            }
+        }
+        cursor = from;
+        return null;
+    }
+
+    /**
+     * Called from the consumer thread. Drains ready lanes round robin, taking up to {@code quota} elements from a
+     * lane per visit.
+     *
+     * @return the number of elements drained
+     */
+    public int drain(MessagePassingQueue.Consumer<E> c, int limit)
+    {
+        if (null == c)
+            throw new IllegalArgumentException("c is null");
+        if (limit < 0)
+            throw new IllegalArgumentException("limit is negative: " + limit);
+
+        final SpscQueueSelectorLane<E>[] lanes = this.lanes;
+        final int lanesCount = lanes.length;
+        final int quota = this.quota;
+        int from = cursor;
+        int drained = 0;
+        for (int i = 0; i < lanesCount && drained < limit; i++)
+        {
+            final int lane = nextReady(from);
+            if (lane < 0)
+            {
+                break;
+            }
+            final SpscArrayQueue<E> q = lanes[lane].queue;
+            final int laneLimit = Math.min(quota, limit - drained);
+            int n = q.drain(c, laneLimit);
+            if (n < laneLimit)
+            {
+                clearReady(lane);
+                final int m = q.drain(c, laneLimit - n);
+                if (m != 0)
+                {
+                    markReady(lane);
+                    n += m;
+                }
+            }
+            drained += n;
+            // a visit cut short by the limit is resumed by the next drain
+            from = n == laneLimit && laneLimit < quota ? lane : (lane + 1 == lanesCount ? 0 : lane + 1);
+        }
+        cursor = from;
+        return drained;
+    }
+
+    /**
+     * Called from the consumer thread. Parks while all lanes are empty.
+     *
+     * @return the next element, see {@link #poll()}
+     * @throws InterruptedException if interrupted while parked
+     */
+    public E take() throws InterruptedException
+    {
+        return poll(false, 0);
+    }
+
+    /**
+     * Called from the consumer thread. Parks for up to the timeout while all lanes are empty.
+     *
+     * @return the next element, or {@code null} if the timeout elapsed first
+     * @throws InterruptedException if interrupted while parked
+     */
+    public E poll(long timeout, TimeUnit unit) throws InterruptedException
+    {
+        return poll(true, unit.toNanos(timeout));
+    }
+
+    private E poll(boolean timed, long timeoutNanos) throws InterruptedException
+    {
+        final long deadline = timed ? System.nanoTime() + timeoutNanos : 0;
+        E e;
+        while ((e = poll()) == null)
+        {
+            long remainingNanos = 0;
+            if (timed && (remainingNanos = deadline - System.nanoTime()) <= 0)
+            {
+                return null;
+            }
+            // producers check for a blocked consumer after setting a bit, so either we see the bit or they see us
+            blocked = Thread.currentThread();
+            try
+            {
+                if (nextReady(0) < 0)
+                {
+                    if (timed)
+                    {
+                        LockSupport.parkNanos(this, remainingNanos);
+                    }
+                    else
+                    {
+                        LockSupport.park(this);
+                    }
+                    if (Thread.interrupted())
+                    {
+                        throw new InterruptedException();
+                    }
+                }
+            }
+            finally
+            {
+                blocked = null;
+            }
+        }
+        return e;
+    }
+
+    /**
+     * @return the sum of the lanes sizes, see {@link MessagePassingQueue#size()} for the accuracy caveats
+     */
+    public int size()
+    {
+        long size = 0;
+        for (SpscQueueSelectorLane<E> lane : lanes)
+        {
+            size += lane.queue.size();
+        }
+        return (int) Math.min(size, Integer.MAX_VALUE);
+    }
+
+    public boolean isEmpty()
+    {
+        for (SpscQueueSelectorLane<E> lane : lanes)
+        {
+            if (!lane.queue.isEmpty())
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public String toString()
+    {
+        return this.getClass().getName();
+    }
+
+    /**
+     * @return the first lane at or after {@code from} (wrapping around) with its ready bit set, -1 if none
+     */
+    final int nextReady(int from)
+    {
+        final long[] readyWords = this.readyWords;
+        final int wordsCount = this.wordsCount;
+        final int firstWord = from >>> 6;
+        // bits at and after from in the first word
+        long word = lvLongElement(readyWords, wordOffset(from)) & (-1L << from);
+        int w = firstWord;
+        for (int i = 0; i <= wordsCount; i++)
+        {
+            if (word != 0)
+            {
+                return (w << 6) + Long.numberOfTrailingZeros(word);
+            }
+            w = w + 1 == wordsCount ? 0 : w + 1;
+            word = lvLongElement(readyWords, wordOffset(w << 6));
+            if (w == firstWord)
+            {
+                // wrapped around, only the bits before from are left to look at
+                word &= ~(-1L << from);
+            }
+        }
+        return -1;
+    }
+
+    final void markReady(int lane)
+    {
+        final long[] readyWords = this.readyWords;
+        final long offset = wordOffset(lane);
+        final long bit = 1L << lane;
+        long word;
+        while (((word = lvLongElement(readyWords, offset)) & bit) == 0)
+        {
+            if (UNSAFE.compareAndSwapLong(readyWords, offset, word, word | bit))
+            {
+                final Thread blocked = this.blocked;
+                if (blocked != null)
+                {
+                    LockSupport.unpark(blocked);
+                }
+                return;
+            }
+        }
+    }
+
+    final void clearReady(int lane)
+    {
+        final long[] readyWords = this.readyWords;
+        final long offset = wordOffset(lane);
+        final long bit = 1L << lane;
+        long word;
+        do
+        {
+            word = lvLongElement(readyWords, offset);
+        }
+        while (!UNSAFE.compareAndSwapLong(readyWords, offset, word, word & ~bit));
+    }
+}
+
+abstract class SpscQueueSelectorLanePad<E>
+{
+    byte b000,b001,b002,b003,b004,b005,b006,b007;//  8b
+    byte b010,b011,b012,b013,b014,b015,b016,b017;// 16b
+    byte b020,b021,b022,b023,b024,b025,b026,b027;// 24b
+    byte b030,b031,b032,b033,b034,b035,b036,b037;// 32b
+    byte b040,b041,b042,b043,b044,b045,b046,b047;// 40b
+    byte b050,b051,b052,b053,b054,b055,b056,b057;// 48b
+    byte b060,b061,b062,b063,b064,b065,b066,b067;// 56b
+    byte b070,b071,b072,b073,b074,b075,b076,b077;// 64b
+    byte b100,b101,b102,b103,b104,b105,b106,b107;// 72b
+    byte b110,b111,b112,b113,b114,b115,b116,b117;// 80b
+    byte b120,b121,b122,b123,b124,b125,b126,b127;// 88b
+    byte b130,b131,b132,b133,b134,b135,b136,b137;// 96b
+    byte b140,b141,b142,b143,b144,b145,b146,b147;//104b
+    byte b150,b151,b152,b153,b154,b155,b156,b157;//112b
+    byte b160,b161,b162,b163,b164,b165,b166,b167;//120b
+    byte b170,b171,b172,b173,b174,b175,b176,b177;//128b
+}
+
+abstract class SpscQueueSelectorLaneFields<E> extends SpscQueueSelectorLanePad<E>
+{
+    final SpscQueueSelector<E> selector;
+    final int lane;
+    final SpscArrayQueue<E> queue;
+    /**
+     * Only ever written, a volatile store acting as the store-load barrier between an offer and the ready word load.
+     */
+    volatile int storeLoadFence;
+
+    SpscQueueSelectorLaneFields(SpscQueueSelector<E> selector, int lane, SpscArrayQueue<E> queue)
+    {
+        this.selector = selector;
+        this.lane = lane;
+        this.queue = queue;
+    }
+}
+
+/**
+ * The producer handle of a {@link SpscQueueSelector} lane. Lanes are allocated together, the padding keeps producers
+ * writing to neighbouring lanes from sharing cache lines.
+ */
+final class SpscQueueSelectorLane<E> extends SpscQueueSelectorLaneFields<E> implements MessagePassingQueueProducer<E>
+{
+    byte b000,b001,b002,b003,b004,b005,b006,b007;//  8b
+    byte b010,b011,b012,b013,b014,b015,b016,b017;// 16b
+    byte b020,b021,b022,b023,b024,b025,b026,b027;// 24b
+    byte b030,b031,b032,b033,b034,b035,b036,b037;// 32b
+    byte b040,b041,b042,b043,b044,b045,b046,b047;// 40b
+    byte b050,b051,b052,b053,b054,b055,b056,b057;// 48b
+    byte b060,b061,b062,b063,b064,b065,b066,b067;// 56b
+    byte b070,b071,b072,b073,b074,b075,b076,b077;// 64b
+    byte b100,b101,b102,b103,b104,b105,b106,b107;// 72b
+    byte b110,b111,b112,b113,b114,b115,b116,b117;// 80b
+    byte b120,b121,b122,b123,b124,b125,b126,b127;// 88b
+    byte b130,b131,b132,b133,b134,b135,b136,b137;// 96b
+    byte b140,b141,b142,b143,b144,b145,b146,b147;//104b
+    byte b150,b151,b152,b153,b154,b155,b156,b157;//112b
+    byte b160,b161,b162,b163,b164,b165,b166,b167;//120b
+    byte b170,b171,b172,b173,b174,b175,b176,b177;//128b
+
+    SpscQueueSelectorLane(SpscQueueSelector<E> selector, int lane, SpscArrayQueue<E> queue)
+    {
+        super(selector, lane, queue);
+    }
+
+    @Override
+    public boolean offer(E e)
+    {
+        if (!queue.offer(e))
+        {
+            return false;
+        }
+        storeLoadFence = 1;
+        selector.markReady(lane);
+        return true;
+    }
+
+    @Override
+    public boolean relaxedOffer(E e)
+    {
+        return offer(e);
+    }
+
+    @Override
+    public int fill(MessagePassingQueue.Supplier<E> s, int limit)
+    {
+        final int filled = queue.fill(s, limit);
+        if (filled != 0)
+        {
+            storeLoadFence = 1;
+            selector.markReady(lane);
+        }
+        return filled;
+    }
+
+    /**
+     * Offers made directly to the returned queue do not mark the lane ready.
+     */
+    @Override
+    public MessagePassingQueue<E> queue()
+    {
+        return queue;
+    }
+}
@@ -14,6 +14,7 @@
 package org.jctools.queues;
 
 import org.jctools.util.Pow2;
+import org.jctools.util.RangeUtil;
 
 import static org.jctools.util.UnsafeRefArrayAccess.*;
 
@@ -36,6 +37,19 @@ public class SpscUnboundedArrayQueue<E> extends BaseSpscLinkedArrayQueue<E>
      */
     public SpscUnboundedArrayQueue(int chunkSize)
     {
+        this(chunkSize, 0);
+    }
+
+    /**
+     * 消费者将消费完的块交给生产者复用，突发流量过后不会为每个新块分配内存。
+     *
+     * @param chunkSize       每个块的有效内容大小
+     * @param maxPooledChunks the maximum number of consumed chunks kept around to avoid allocation, 0 disables
+     *                        pooling
+     */
+    public SpscUnboundedArrayQueue(int chunkSize, int maxPooledChunks)
+    {
+        RangeUtil.checkPositiveOrZero(maxPooledChunks, "maxPooledChunks");
         int chunkCapacity = Math.max(Pow2.roundToPowerOfTwo(chunkSize), 16);
         long mask = chunkCapacity - 1;
         // 额外的1个插槽用于存储到下一个数组的指针（引用）
@@ -45,6 +59,7 @@ public class SpscUnboundedArrayQueue<E> extends BaseSpscLinkedArrayQueue<E>
         consumerBuffer = buffer;
         consumerMask = mask;
         producerBufferLimit = mask - 1; // we know it's all empty to start with
+        freeBuffersPool = maxPooledChunks == 0 ? null : new SpscArrayQueue<E[]>(maxPooledChunks);
 
         // 这里并未考虑正确的构造（安全发布）一事，理论上将并不安全
     }
@@ -81,7 +96,7 @@ public class SpscUnboundedArrayQueue<E> extends BaseSpscLinkedArrayQueue<E>
 
             // we got one slot left to write into, and we are not full. Need to link new buffer.
             // allocate new buffer of same length
-            final E[] newBuffer = allocateRefArray((int) (mask + 2));
+            final E[] newBuffer = pooledOrNewBuffer((int) (mask + 2));
             producerBuffer = newBuffer;
             producerBufferLimit = pIndex + mask - 1;
 
@@ -0,0 +1,40 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jctools.queues;
+
+/**
+ * 有界的工作窃取双端队列，容量向上取整为2的幂，满时{@link #push(Object)}返回false。
+ * <p>
+ * A bounded work-stealing deque, see {@link BaseWorkStealingArrayDeque}. The capacity is rounded up to the next power
+ * of 2 and {@link #push(Object)} fails when the deque is full.
+ */
+public class WorkStealingArrayDeque<E> extends BaseWorkStealingArrayDeque<E>
+{
+    public WorkStealingArrayDeque(int capacity)
+    {
+        super(capacity);
+    }
+
+    @Override
+    final E[] onFull(E[] buffer, long bottom, long top)
+    {
+        return null;
+    }
+
+    @Override
+    public int capacity()
+    {
+        return lvBuffer().length;
+    }
+}
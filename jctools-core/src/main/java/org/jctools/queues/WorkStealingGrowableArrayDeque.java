@@ -0,0 +1,79 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jctools.queues;
+
+import org.jctools.util.Pow2;
+import org.jctools.util.RangeUtil;
+
+import static org.jctools.util.UnsafeRefArrayAccess.*;
+
+/**
+ * 从<i>initialCapacity</i>开始，以2倍扩容直到<i>maxCapacity</i>的工作窃取双端队列。
+ * <p>
+ * 扩容时所有者把[top, bottom)拷贝到新数组并以Ordered模式发布新数组，旧数组不会再被所有者修改，
+ * 因此仍在读取旧数组的窃取者读到的元素依然是正确的（CAS {@code top}决定了谁拿到了该元素）。
+ * <p>
+ * A work-stealing deque which starts at <i>initialCapacity</i> and doubles in size up to <i>maxCapacity</i>, see
+ * {@link BaseWorkStealingArrayDeque}. On resize the owner copies the live elements to the new buffer, the old buffer
+ * is never written again so thieves still reading from it observe the correct elements.
+ */
+public class WorkStealingGrowableArrayDeque<E> extends BaseWorkStealingArrayDeque<E>
+{
+    private final int maxCapacity;
+
+    public WorkStealingGrowableArrayDeque(int maxCapacity)
+    {
+        this(Math.max(2, Math.min(1024, Pow2.roundToPowerOfTwo(maxCapacity / 8))), maxCapacity);
+    }
+
+    /**
+     * @param initialCapacity the initial buffer size, will be rounded up to the next power of 2. Must be 2 or more.
+     * @param maxCapacity     the maximum capacity, will be rounded up to the next power of 2. Must not be less than
+     *                        initialCapacity.
+     */
+    public WorkStealingGrowableArrayDeque(int initialCapacity, int maxCapacity)
+    {
+        super(initialCapacity);
+        RangeUtil.checkGreaterThanOrEqual(Pow2.roundToPowerOfTwo(maxCapacity), Pow2.roundToPowerOfTwo(initialCapacity),
+            "maxCapacity");
+        this.maxCapacity = Pow2.roundToPowerOfTwo(maxCapacity);
+    }
+
+    @Override
+    final E[] onFull(E[] buffer, long bottom, long top)
+    {
+        final int length = buffer.length;
+        if (length >= maxCapacity)
+        {
+            return null;
+        }
+        final E[] newBuffer = allocateRefArray(length << 1);
+        final long mask = length - 1;
+        final long newMask = newBuffer.length - 1;
+        for (long i = top; i < bottom; i++)
+        {
+            // 窃取者可能同时在窃取这些元素，拷贝多余的元素没有关系，它们在top之下，所有者重用该槽位时会替换它们
+            spRefElement(newBuffer, calcCircularRefElementOffset(i, newMask),
+                lpRefElement(buffer, calcCircularRefElementOffset(i, mask)));
+        }
+        soBuffer(newBuffer);
+        return newBuffer;
+    }
+
+    @Override
+    public int capacity()
+    {
+        return maxCapacity;
+    }
+}
@@ -0,0 +1,483 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jctools.queues;
+
+import static org.jctools.util.UnsafeAccess.UNSAFE;
+import static org.jctools.util.UnsafeAccess.fieldOffset;
+import static org.jctools.util.UnsafeLongArrayAccess.*;
+
+abstract class XaddIndexRingColdFields
+{
+    /**
+     * 环中最多保存的索引个数n，索引的取值范围为[0, n)。
+     */
+    protected final int capacity;
+    /**
+     * 环的大小为2n，{@code mask = 2n - 1}，同时也是空槽位的索引值。
+     */
+    protected final long mask;
+    /**
+     * {@code log2(2n)}，票号（head/tail）的轮次为{@code ticket >>> shift}。
+     */
+    protected final int shift;
+    /**
+     * 每个槽位一个long：{@code cycle | safe | index}，低{@code shift}位为索引，其上一位为safe标记，再往上为轮次。
+     */
+    protected final long[] entries;
+
+    XaddIndexRingColdFields(int capacity)
+    {
+        this.capacity = capacity;
+        this.mask = 2L * capacity - 1;
+        this.shift = Integer.numberOfTrailingZeros(2 * capacity);
+        this.entries = allocateLongArray(2 * capacity);
+    }
+}
+
+abstract class XaddIndexRingL1Pad extends XaddIndexRingColdFields
+{
+    /**
+     * 缓存行填充，避免只读字段与{@code tail}产生伪共享
+     */
+    byte b000,b001,b002,b003,b004,b005,b006,b007;//  8b
+    byte b010,b011,b012,b013,b014,b015,b016,b017;// 16b
+    byte b020,b021,b022,b023,b024,b025,b026,b027;// 24b
+    byte b030,b031,b032,b033,b034,b035,b036,b037;// 32b
+    byte b040,b041,b042,b043,b044,b045,b046,b047;// 40b
+    byte b050,b051,b052,b053,b054,b055,b056,b057;// 48b
+    byte b060,b061,b062,b063,b064,b065,b066,b067;// 56b
+    byte b070,b071,b072,b073,b074,b075,b076,b077;// 64b
+    byte b100,b101,b102,b103,b104,b105,b106,b107;// 72b
+    byte b110,b111,b112,b113,b114,b115,b116,b117;// 80b
+    byte b120,b121,b122,b123,b124,b125,b126,b127;// 88b
+    byte b130,b131,b132,b133,b134,b135,b136,b137;// 96b
+    byte b140,b141,b142,b143,b144,b145,b146,b147;//104b
+    byte b150,b151,b152,b153,b154,b155,b156,b157;//112b
+    byte b160,b161,b162,b163,b164,b165,b166,b167;//120b
+    byte b170,b171,b172,b173,b174,b175,b176,b177;//128b
+
+    XaddIndexRingL1Pad(int capacity)
+    {
+        super(capacity);
+    }
+}
+
+// $gen:ordered-fields
+abstract class XaddIndexRingTailField extends XaddIndexRingL1Pad
+{
+    private final static long TAIL_OFFSET = fieldOffset(XaddIndexRingTailField.class, "tail");
+
+    /**
+     * 入队的票号，每次入队尝试getAndAdd加一，不论是否成功。
+     */
+    private volatile long tail;
+
+    XaddIndexRingTailField(int capacity)
+    {
+        super(capacity);
+    }
+
+    final long lvTail()
+    {
+        return tail;
+    }
+
+    final void soTail(long newValue)
+    {
+        UNSAFE.putOrderedLong(this, TAIL_OFFSET, newValue);
+    }
+
+    final long getAndAddTail(long delta)
+    {
+        return UNSAFE.getAndAddLong(this, TAIL_OFFSET, delta);
+    }
+
+    final boolean casTail(long expect, long newValue)
+    {
+        return UNSAFE.compareAndSwapLong(this, TAIL_OFFSET, expect, newValue);
+    }
+}
+
+abstract class XaddIndexRingMidPad extends XaddIndexRingTailField
+{
+    /**
+     * 缓存行填充，避免{@code tail}与{@code head}产生伪共享
+     */
+    byte b000,b001,b002,b003,b004,b005,b006,b007;//  8b
+    byte b010,b011,b012,b013,b014,b015,b016,b017;// 16b
+    byte b020,b021,b022,b023,b024,b025,b026,b027;// 24b
+    byte b030,b031,b032,b033,b034,b035,b036,b037;// 32b
+    byte b040,b041,b042,b043,b044,b045,b046,b047;// 40b
+    byte b050,b051,b052,b053,b054,b055,b056,b057;// 48b
+    byte b060,b061,b062,b063,b064,b065,b066,b067;// 56b
+    byte b070,b071,b072,b073,b074,b075,b076,b077;// 64b
+    byte b100,b101,b102,b103,b104,b105,b106,b107;// 72b
+    byte b110,b111,b112,b113,b114,b115,b116,b117;// 80b
+    byte b120,b121,b122,b123,b124,b125,b126,b127;// 88b
+    byte b130,b131,b132,b133,b134,b135,b136,b137;// 96b
+    byte b140,b141,b142,b143,b144,b145,b146,b147;//104b
+    byte b150,b151,b152,b153,b154,b155,b156,b157;//112b
+    byte b160,b161,b162,b163,b164,b165,b166,b167;//120b
+    byte b170,b171,b172,b173,b174,b175,b176,b177;//128b
+
+    XaddIndexRingMidPad(int capacity)
+    {
+        super(capacity);
+    }
+}
+
+// $gen:ordered-fields
+abstract class XaddIndexRingHeadField extends XaddIndexRingMidPad
+{
+    private final static long HEAD_OFFSET = fieldOffset(XaddIndexRingHeadField.class, "head");
+
+    /**
+     * 出队的票号，每次出队尝试getAndAdd加一，不论是否成功。
+     */
+    private volatile long head;
+
+    XaddIndexRingHeadField(int capacity)
+    {
+        super(capacity);
+    }
+
+    final long lvHead()
+    {
+        return head;
+    }
+
+    final void soHead(long newValue)
+    {
+        UNSAFE.putOrderedLong(this, HEAD_OFFSET, newValue);
+    }
+
+    final long getAndAddHead(long delta)
+    {
+        return UNSAFE.getAndAddLong(this, HEAD_OFFSET, delta);
+    }
+}
+
+abstract class XaddIndexRingL2Pad extends XaddIndexRingHeadField
+{
+    /**
+     * 缓存行填充，避免{@code head}与{@code threshold}产生伪共享
+     */
+    byte b000,b001,b002,b003,b004,b005,b006,b007;//  8b
+    byte b010,b011,b012,b013,b014,b015,b016,b017;// 16b
+    byte b020,b021,b022,b023,b024,b025,b026,b027;// 24b
+    byte b030,b031,b032,b033,b034,b035,b036,b037;// 32b
+    byte b040,b041,b042,b043,b044,b045,b046,b047;// 40b
+    byte b050,b051,b052,b053,b054,b055,b056,b057;// 48b
+    byte b060,b061,b062,b063,b064,b065,b066,b067;// 56b
+    byte b070,b071,b072,b073,b074,b075,b076,b077;// 64b
+    byte b100,b101,b102,b103,b104,b105,b106,b107;// 72b
+    byte b110,b111,b112,b113,b114,b115,b116,b117;// 80b
+    byte b120,b121,b122,b123,b124,b125,b126,b127;// 88b
+    byte b130,b131,b132,b133,b134,b135,b136,b137;// 96b
+    byte b140,b141,b142,b143,b144,b145,b146,b147;//104b
+    byte b150,b151,b152,b153,b154,b155,b156,b157;//112b
+    byte b160,b161,b162,b163,b164,b165,b166,b167;//120b
+    byte b170,b171,b172,b173,b174,b175,b176,b177;//128b
+
+    XaddIndexRingL2Pad(int capacity)
+    {
+        super(capacity);
+    }
+}
+
+// $gen:ordered-fields
+abstract class XaddIndexRingThresholdField extends XaddIndexRingL2Pad
+{
+    private final static long THRESHOLD_OFFSET = fieldOffset(XaddIndexRingThresholdField.class, "threshold");
+
+    /**
+     * 出队者在判定为空之前还可以尝试的次数，小于0表示环为空。每次成功入队重置为{@code 3n - 1}，防止出队者活锁。
+     */
+    private volatile long threshold;
+
+    XaddIndexRingThresholdField(int capacity)
+    {
+        super(capacity);
+    }
+
+    final long lvThreshold()
+    {
+        return threshold;
+    }
+
+    final void soThreshold(long newValue)
+    {
+        UNSAFE.putOrderedLong(this, THRESHOLD_OFFSET, newValue);
+    }
+
+    final long getAndAddThreshold(long delta)
+    {
+        return UNSAFE.getAndAddLong(this, THRESHOLD_OFFSET, delta);
+    }
+}
+
+abstract class XaddIndexRingL3Pad extends XaddIndexRingThresholdField
+{
+    /**
+     * 缓存行填充，避免{@code threshold}与其后分配的对象产生伪共享
+     */
+    byte b000,b001,b002,b003,b004,b005,b006,b007;//  8b
+    byte b010,b011,b012,b013,b014,b015,b016,b017;// 16b
+    byte b020,b021,b022,b023,b024,b025,b026,b027;// 24b
+    byte b030,b031,b032,b033,b034,b035,b036,b037;// 32b
+    byte b040,b041,b042,b043,b044,b045,b046,b047;// 40b
+    byte b050,b051,b052,b053,b054,b055,b056,b057;// 48b
+    byte b060,b061,b062,b063,b064,b065,b066,b067;// 56b
+    byte b070,b071,b072,b073,b074,b075,b076,b077;// 64b
+    byte b100,b101,b102,b103,b104,b105,b106,b107;// 72b
+    byte b110,b111,b112,b113,b114,b115,b116,b117;// 80b
+    byte b120,b121,b122,b123,b124,b125,b126,b127;// 88b
+    byte b130,b131,b132,b133,b134,b135,b136,b137;// 96b
+    byte b140,b141,b142,b143,b144,b145,b146,b147;//104b
+    byte b150,b151,b152,b153,b154,b155,b156,b157;//112b
+    byte b160,b161,b162,b163,b164,b165,b166,b167;//120b
+    byte b170,b171,b172,b173,b174,b175,b176,b177;//128b
+
+    XaddIndexRingL3Pad(int capacity)
+    {
+        super(capacity);
+    }
+}
+
+/**
+ * A bounded ring of int indexes in {@code [0, capacity)}, after the Scalable Circular Queue (SCQ) of Nikolaev,
+ * "A Scalable, Portable, and Memory-Efficient Lock-Free FIFO Queue" (DISC 2019).
+ * <p>
+ * Enqueuers and dequeuers take a ticket through a getAndAdd on the tail/head rather than a CAS loop on a shared index,
+ * the ticket maps onto one of {@code 2 * capacity} slots. Each slot holds the cycle ({@code ticket / (2 * capacity)})
+ * it was last written or skipped in, a safe bit and the index (or empty). A dequeuer arriving at a slot before its
+ * enqueuer moves the slot on to its own cycle, or marks it unsafe if it holds an element from an older cycle, so the
+ * late enqueuer takes another ticket; the ring being twice the capacity guarantees enqueuers eventually succeed. The
+ * threshold bounds the number of failed dequeue tickets after the last enqueue, preventing dequeuers from live-locking
+ * on a ring they keep emptying.
+ * <p>
+ * Enqueue is only valid when the ring holds fewer than {@code capacity} indexes, which the caller guarantees by only
+ * enqueuing indexes it dequeued from a companion ring.
+ */
+final class XaddIndexRing extends XaddIndexRingL3Pad
+{
+    static final int EMPTY = -1;
+    private static final int ENTRIES_PER_LINE_SHIFT = 3;
+
+    private final long safeBit;
+    private final long maxThreshold;
+
+    /**
+     * @param capacity a power of 2
+     * @param full     true to start with all of {@code [0, capacity)} enqueued, false to start empty
+     */
+    XaddIndexRing(int capacity, boolean full)
+    {
+        super(capacity);
+        final long[] entries = this.entries;
+        final long ringSize = mask + 1;
+        safeBit = ringSize;
+        maxThreshold = 3L * capacity - 1;
+        // 票号从2n（第1轮）开始，槽位初始为第0轮，安全且空
+        for (long i = 0; i < ringSize; i++)
+        {
+            soLongElement(entries, entryOffset(i), entry(0, true, mask));
+        }
+        long tail = ringSize;
+        if (full)
+        {
+            for (int i = 0; i < capacity; i++, tail++)
+            {
+                soLongElement(entries, entryOffset(tail), entry(tail >>> shift, true, i));
+            }
+        }
+        soHead(ringSize);
+        soTail(tail);
+        soThreshold(full ? maxThreshold : -1);
+    }
+
+    void enqueue(int index)
+    {
+        final long[] entries = this.entries;
+        while (true)
+        {
+            final long tail = getAndAddTail(1);
+            final long tailCycle = tail >>> shift;
+            final long offset = entryOffset(tail);
+            long entry = lvLongElement(entries, offset);
+            // 槽位属于更早的轮次，为空，并且安全（或还没有出队者越过该票号）
+            while (cycle(entry) < tailCycle && index(entry) == mask && (isSafe(entry) || lvHead() <= tail))
+            {
+                if (casEntry(entries, offset, entry, entry(tailCycle, true, index)))
+                {
+                    if (lvThreshold() != maxThreshold)
+                    {
+                        soThreshold(maxThreshold);
+                    }
+                    return;
+                }
+                entry = lvLongElement(entries, offset);
+            }
+            // 该票号作废，重新取票
+        }
+    }
+
+    /**
+     * @return the dequeued index, or {@link #EMPTY}
+     */
+    int dequeue()
+    {
+        if (lvThreshold() < 0)
+        {
+            return EMPTY;
+        }
+        final long[] entries = this.entries;
+        while (true)
+        {
+            final long head = getAndAddHead(1);
+            final long headCycle = head >>> shift;
+            final long offset = entryOffset(head);
+            long entry = lvLongElement(entries, offset);
+            while (true)
+            {
+                final long entryCycle = cycle(entry);
+                if (entryCycle == headCycle)
+                {
+                    // 消费：只将索引置空，保留轮次与safe标记（可能被更晚轮次的出队者并发地标记为unsafe）
+                    while (!casEntry(entries, offset, entry, entry | mask))
+                    {
+                        entry = lvLongElement(entries, offset);
+                    }
+                    return (int) index(entry);
+                }
+                if (entryCycle > headCycle)
+                {
+                    break;
+                }
+                // 入队者还没有到达：空槽位推进到当前轮次，使迟到的入队者放弃该票号；
+                // 非空槽位（更早轮次的元素还没有被消费）标记为unsafe
+                final long newEntry = index(entry) == mask ? entry(headCycle, isSafe(entry), mask) : entry & ~safeBit;
+                if (casEntry(entries, offset, entry, newEntry))
+                {
+                    break;
+                }
+                entry = lvLongElement(entries, offset);
+            }
+            final long tail = lvTail();
+            if (tail <= head + 1)
+            {
+                catchUp(tail, head + 1);
+                getAndAddThreshold(-1);
+                return EMPTY;
+            }
+            if (getAndAddThreshold(-1) <= 0)
+            {
+                return EMPTY;
+            }
+        }
+    }
+
+    /**
+     * @return the index held by the first full slot from {@code head} up to the tail, or {@link #EMPTY}
+     */
+    int firstIndex(long head)
+    {
+        final long[] entries = this.entries;
+        final long tail = Math.min(lvTail(), head + mask + 1);
+        for (long ticket = head; ticket < tail; ticket++)
+        {
+            final long entry = lvLongElement(entries, entryOffset(ticket));
+            if (cycle(entry) == ticket >>> shift && index(entry) != mask)
+            {
+                return (int) index(entry);
+            }
+        }
+        return EMPTY;
+    }
+
+    /**
+     * @return an estimate of the number of indexes in the ring, exact when quiescent
+     */
+    int size()
+    {
+        long after = lvHead();
+        long size;
+        while (true)
+        {
+            final long before = after;
+            final long tail = lvTail();
+            after = lvHead();
+            if (before == after)
+            {
+                size = tail - after;
+                break;
+            }
+        }
+        return (int) Math.max(0, Math.min(size, capacity));
+    }
+
+    private void catchUp(long tail, long head)
+    {
+        // 出队者越过了入队者，将tail推到head，使迟到的入队者不再使用被越过的票号
+        while (!casTail(tail, head))
+        {
+            head = lvHead();
+            tail = lvTail();
+            if (tail >= head)
+            {
+                break;
+            }
+        }
+    }
+
+    /**
+     * 连续的票号映射到不同的缓存行，避免相邻票号的入队者/出队者在同一缓存行上竞争。
+     */
+    private long entryOffset(long ticket)
+    {
+        final long position = ticket & mask;
+        if (shift <= ENTRIES_PER_LINE_SHIFT)
+        {
+            return calcLongElementOffset(position);
+        }
+        final long lineMask = (1L << ENTRIES_PER_LINE_SHIFT) - 1;
+        return calcLongElementOffset(
+            ((position & lineMask) << (shift - ENTRIES_PER_LINE_SHIFT)) | (position >>> ENTRIES_PER_LINE_SHIFT));
+    }
+
+    private long entry(long cycle, boolean safe, long index)
+    {
+        return (cycle << (shift + 1)) | (safe ? safeBit : 0) | index;
+    }
+
+    private long cycle(long entry)
+    {
+        return entry >>> (shift + 1);
+    }
+
+    private long index(long entry)
+    {
+        return entry & mask;
+    }
+
+    private boolean isSafe(long entry)
+    {
+        return (entry & safeBit) != 0;
+    }
+
+    private static boolean casEntry(long[] entries, long offset, long expect, long newValue)
+    {
+        return UNSAFE.compareAndSwapLong(entries, offset, expect, newValue);
+    }
+}
@@ -297,17 +297,39 @@ abstract class BaseMpscLinkedAtomicArrayQueue<E> extends BaseMpscLinkedAtomicArr
 
     private static final int QUEUE_RESIZE = 3;
 
+    private static final int QUEUE_SHRINK = 4;
+
+    private final int initialBufferLength;
+
+    /**
+     * Buffers handed back by the consumer, reused by the producer holding the resize lock. Null if pooling is disabled.
+     */
+    private final SpscAtomicArrayQueue<AtomicReferenceArray<E>> freeBuffersPool;
+
     /**
      * @param initialCapacity the queue initial capacity. If chunk size is fixed this will be the chunk size.
      *                        Must be 2 or more.
      */
     public BaseMpscLinkedAtomicArrayQueue(final int initialCapacity) {
+        this(initialCapacity, 0);
+    }
+
+    /**
+     * @param initialCapacity  the queue initial capacity. If chunk size is fixed this will be the chunk size.
+     *                         Must be 2 or more.
+     * @param maxPooledBuffers the maximum number of consumed buffers kept around to be reused when the producers
+     *                         link a new buffer, 0 disables pooling
+     */
+    BaseMpscLinkedAtomicArrayQueue(final int initialCapacity, final int maxPooledBuffers) {
         RangeUtil.checkGreaterThanOrEqual(initialCapacity, 2, "initialCapacity");
+        RangeUtil.checkPositiveOrZero(maxPooledBuffers, "maxPooledBuffers");
         int p2capacity = Pow2.roundToPowerOfTwo(initialCapacity);
         // leave lower bit of mask clear
         long mask = (p2capacity - 1) << 1;
         // need extra element to point at next array
         AtomicReferenceArray<E> buffer = allocateRefArray(p2capacity + 1);
+        initialBufferLength = p2capacity + 1;
+        freeBuffersPool = maxPooledBuffers == 0 ? null : new SpscAtomicArrayQueue<AtomicReferenceArray<E>>(maxPooledBuffers);
         producerBuffer = buffer;
         producerMask = mask;
         consumerBuffer = buffer;
@@ -385,7 +407,10 @@ abstract class BaseMpscLinkedAtomicArrayQueue<E> extends BaseMpscLinkedAtomicArr
                     case QUEUE_FULL:
                         return false;
                     case QUEUE_RESIZE:
-                        resize(mask, buffer, pIndex, e, null);
+                        resize(mask, buffer, pIndex, e, null, getNextBufferSize(buffer));
+                        return true;
+                    case QUEUE_SHRINK:
+                        resize(mask, buffer, pIndex, e, null, initialBufferLength);
                         return true;
                 }
             }
@@ -425,6 +450,7 @@ abstract class BaseMpscLinkedAtomicArrayQueue<E> extends BaseMpscLinkedAtomicArr
         }
         if (e == JUMP) {
             final AtomicReferenceArray<E> nextBuffer = nextBuffer(buffer, mask);
+            recycleBuffer(buffer, offset);
             return newBufferPoll(nextBuffer, index);
         }
         // release element null
@@ -454,7 +480,9 @@ abstract class BaseMpscLinkedAtomicArrayQueue<E> extends BaseMpscLinkedAtomicArr
             } while (e == null);
         }
         if (e == JUMP) {
-            return newBufferPeek(nextBuffer(buffer, mask), index);
+            final AtomicReferenceArray<E> nextBuffer = nextBuffer(buffer, mask);
+            recycleBuffer(buffer, offset);
+            return newBufferPeek(nextBuffer, index);
         }
         return (E) e;
     }
@@ -466,6 +494,10 @@ abstract class BaseMpscLinkedAtomicArrayQueue<E> extends BaseMpscLinkedAtomicArr
         final long cIndex = lvConsumerIndex();
         long bufferCapacity = getCurrentBufferCapacity(mask);
         if (cIndex + bufferCapacity > pIndex) {
+            // the slot at pIndex has been consumed, so the jump can be written there
+            if (shouldShrink(mask, pIndex, cIndex)) {
+                return casProducerIndex(pIndex, pIndex + 1) ? QUEUE_SHRINK : RETRY;
+            }
             if (!casProducerLimit(producerLimit, cIndex + bufferCapacity)) {
                 // retry from top
                 return RETRY;
@@ -502,6 +534,33 @@ abstract class BaseMpscLinkedAtomicArrayQueue<E> extends BaseMpscLinkedAtomicArr
         return nextBuffer;
     }
 
+    /**
+     * Once the consumer has passed the jump all the elements of the old buffer have been consumed and no producer
+     * will write to it again, so clearing the jump leaves it empty (bar the next pointer which a resize always
+     * overwrites before publishing the jump).
+     * <p>
+     * A recycled buffer may still be referenced by a {@link WeakIterator}, which may then return elements out of order.
+     */
+    private void recycleBuffer(final AtomicReferenceArray<E> buffer, final int offset) {
+        final SpscAtomicArrayQueue<AtomicReferenceArray<E>> pool = freeBuffersPool;
+        if (pool != null) {
+            spRefElement(buffer, offset, null);
+            pool.offer(buffer);
+        }
+    }
+
+    private AtomicReferenceArray<E> pooledOrNewBuffer(final int length) {
+        final SpscAtomicArrayQueue<AtomicReferenceArray<E>> pool = freeBuffersPool;
+        if (pool != null) {
+            final AtomicReferenceArray<E> buffer = pool.poll();
+            // buffers of a different length (growable queues) are dropped
+            if (buffer != null && length(buffer) == length) {
+                return buffer;
+            }
+        }
+        return allocateRefArray(length);
+    }
+
     private static int nextArrayOffset(long mask) {
         return modifiedCalcCircularRefElementOffset(mask + 2, Long.MAX_VALUE);
     }
@@ -557,6 +616,7 @@ abstract class BaseMpscLinkedAtomicArrayQueue<E> extends BaseMpscLinkedAtomicArr
         }
         if (e == JUMP) {
             final AtomicReferenceArray<E> nextBuffer = nextBuffer(buffer, mask);
+            recycleBuffer(buffer, offset);
             return newBufferPoll(nextBuffer, index);
         }
         soRefElement(buffer, offset, null);
@@ -573,7 +633,9 @@ abstract class BaseMpscLinkedAtomicArrayQueue<E> extends BaseMpscLinkedAtomicArr
         final int offset = modifiedCalcCircularRefElementOffset(index, mask);
         Object e = lvRefElement(buffer, offset);
         if (e == JUMP) {
-            return newBufferPeek(nextBuffer(buffer, mask), index);
+            final AtomicReferenceArray<E> nextBuffer = nextBuffer(buffer, mask);
+            recycleBuffer(buffer, offset);
+            return newBufferPeek(nextBuffer, index);
         }
         return (E) e;
     }
@@ -632,7 +694,10 @@ abstract class BaseMpscLinkedAtomicArrayQueue<E> extends BaseMpscLinkedAtomicArr
                     case QUEUE_FULL:
                         return 0;
                     case QUEUE_RESIZE:
-                        resize(mask, buffer, pIndex, null, s);
+                        resize(mask, buffer, pIndex, null, s, getNextBufferSize(buffer));
+                        return 1;
+                    case QUEUE_SHRINK:
+                        resize(mask, buffer, pIndex, null, s, initialBufferLength);
                         return 1;
                 }
             }
@@ -765,12 +830,11 @@ abstract class BaseMpscLinkedAtomicArrayQueue<E> extends BaseMpscLinkedAtomicArr
         }
     }
 
-    private void resize(long oldMask, AtomicReferenceArray<E> oldBuffer, long pIndex, E e, Supplier<E> s) {
+    private void resize(long oldMask, AtomicReferenceArray<E> oldBuffer, long pIndex, E e, Supplier<E> s, int newBufferLength) {
         assert (e != null && s == null) || (e == null || s != null);
-        int newBufferLength = getNextBufferSize(oldBuffer);
         final AtomicReferenceArray<E> newBuffer;
         try {
-            newBuffer = allocateRefArray(newBufferLength);
+            newBuffer = pooledOrNewBuffer(newBufferLength);
         } catch (OutOfMemoryError oom) {
             assert lvProducerIndex() == pIndex + 1;
             soProducerIndex(pIndex);
@@ -808,4 +872,20 @@ abstract class BaseMpscLinkedAtomicArrayQueue<E> extends BaseMpscLinkedAtomicArr
      * @return current buffer capacity for elements (excluding next pointer and jump entry) * 2
      */
     protected abstract long getCurrentBufferCapacity(long mask);
+
+    /**
+     * Called by the producers refreshing the producer limit while the current buffer has room, concurrently.
+     *
+     * @return true if the producers should move on to a buffer of the initial size
+     */
+    protected boolean shouldShrink(long mask, long pIndex, long cIndex) {
+        return false;
+    }
+
+    /**
+     * @return the length of the buffer the queue was created with (inclusive of next array pointer)
+     */
+    protected final int getInitialBufferSize() {
+        return initialBufferLength;
+    }
 }
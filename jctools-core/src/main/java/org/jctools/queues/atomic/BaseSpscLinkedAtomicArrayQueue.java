@@ -212,6 +212,11 @@ abstract class BaseSpscLinkedAtomicArrayQueue<E> extends BaseSpscLinkedAtomicArr
 
     private static final Object JUMP = new Object();
 
+    /**
+     * Buffers handed back by the consumer to the producer for reuse, set on construction. Null if pooling is disabled.
+     */
+    SpscAtomicArrayQueue<AtomicReferenceArray<E>> freeBuffersPool;
+
     @Override
     public final Iterator<E> iterator() {
         throw new UnsupportedOperationException();
@@ -421,6 +426,7 @@ abstract class BaseSpscLinkedAtomicArrayQueue<E> extends BaseSpscLinkedAtomicArr
 
     private E newBufferPeek(final AtomicReferenceArray<E> buffer, final long index) {
         AtomicReferenceArray<E> nextBuffer = lvNextArrayAndUnlink(buffer);
+        recycleBuffer(buffer, calcCircularRefElementOffset(index, consumerMask));
         consumerBuffer = nextBuffer;
         final long mask = length(nextBuffer) - 2;
         consumerMask = mask;
@@ -430,6 +436,7 @@ abstract class BaseSpscLinkedAtomicArrayQueue<E> extends BaseSpscLinkedAtomicArr
 
     private E newBufferPoll(final AtomicReferenceArray<E> buffer, final long index) {
         AtomicReferenceArray<E> nextBuffer = lvNextArrayAndUnlink(buffer);
+        recycleBuffer(buffer, calcCircularRefElementOffset(index, consumerMask));
         consumerBuffer = nextBuffer;
         final long mask = length(nextBuffer) - 2;
         consumerMask = mask;
@@ -444,4 +451,26 @@ abstract class BaseSpscLinkedAtomicArrayQueue<E> extends BaseSpscLinkedAtomicArr
             return n;
         }
     }
+
+    /**
+     * All the elements of the old buffer have been consumed and it is unlinked, clearing the jump leaves it empty.
+     */
+    private void recycleBuffer(final AtomicReferenceArray<E> buffer, final int offset) {
+        final SpscAtomicArrayQueue<AtomicReferenceArray<E>> pool = freeBuffersPool;
+        if (pool != null) {
+            spRefElement(buffer, offset, null);
+            pool.offer(buffer);
+        }
+    }
+
+    final AtomicReferenceArray<E> pooledOrNewBuffer(final int length) {
+        final SpscAtomicArrayQueue<AtomicReferenceArray<E>> pool = freeBuffersPool;
+        if (pool != null) {
+            final AtomicReferenceArray<E> buffer = pool.poll();
+            if (buffer != null && length(buffer) == length) {
+                return buffer;
+            }
+        }
+        return allocateRefArray(length);
+    }
 }
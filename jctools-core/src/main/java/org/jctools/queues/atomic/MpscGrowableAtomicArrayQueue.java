@@ -36,8 +36,15 @@ import static org.jctools.queues.atomic.AtomicQueueUtil.*;
  */
 public class MpscGrowableAtomicArrayQueue<E> extends MpscChunkedAtomicArrayQueue<E> {
 
+    private final int shrinkAfterLaps;
+
+    /**
+     * Racy count of consecutive low occupancy observations, lost updates only delay the shrink.
+     */
+    private int lowOccupancyLaps;
+
     public MpscGrowableAtomicArrayQueue(int maxCapacity) {
-        super(Math.max(2, Pow2.roundToPowerOfTwo(maxCapacity / 8)), maxCapacity);
+        this(Math.max(2, Pow2.roundToPowerOfTwo(maxCapacity / 8)), maxCapacity, 0);
     }
 
     /**
@@ -48,7 +55,21 @@ public class MpscGrowableAtomicArrayQueue<E> extends MpscChunkedAtomicArrayQueue
      *                        power of 2 than initialCapacity.
      */
     public MpscGrowableAtomicArrayQueue(int initialCapacity, int maxCapacity) {
+        this(initialCapacity, maxCapacity, 0);
+    }
+
+    /**
+     * @param initialCapacity the queue initial capacity. Must be 2 or more.
+     * @param maxCapacity     the maximum capacity will be rounded up to the closest power of 2 and will be the
+     *                        upper limit of number of elements in this queue. Must be 4 or more and round up to a larger
+     *                        power of 2 than initialCapacity.
+     * @param shrinkAfterLaps the number of consecutive passes over a grown buffer with at most half the initial
+     *                        capacity in the queue before going back to a buffer of the initial capacity, 0 disables
+     *                        shrinking
+     */
+    public MpscGrowableAtomicArrayQueue(int initialCapacity, int maxCapacity, int shrinkAfterLaps) {
         super(initialCapacity, maxCapacity);
+        this.shrinkAfterLaps = RangeUtil.checkPositiveOrZero(shrinkAfterLaps, "shrinkAfterLaps");
     }
 
     @Override
@@ -63,4 +84,22 @@ public class MpscGrowableAtomicArrayQueue<E> extends MpscChunkedAtomicArrayQueue
     protected long getCurrentBufferCapacity(long mask) {
         return (mask + 2 == maxQueueCapacity) ? maxQueueCapacity : mask;
     }
+
+    @Override
+    protected boolean shouldShrink(long mask, long pIndex, long cIndex) {
+        if (shrinkAfterLaps == 0) {
+            return false;
+        }
+        // shifted like the mask
+        final long initialMask = (getInitialBufferSize() - 2) << 1;
+        if (mask == initialMask || pIndex - cIndex > initialMask / 2) {
+            lowOccupancyLaps = 0;
+            return false;
+        }
+        if (++lowOccupancyLaps < shrinkAfterLaps) {
+            return false;
+        }
+        lowOccupancyLaps = 0;
+        return true;
+    }
 }
@@ -85,6 +85,15 @@ public class MpscUnboundedAtomicArrayQueue<E> extends BaseMpscLinkedAtomicArrayQ
         super(chunkSize);
     }
 
+    /**
+     * @param chunkSize       the size of each chunk
+     * @param maxPooledChunks the maximum number of consumed chunks kept around to avoid allocation, 0 disables
+     *                        pooling. Note that the iterator may return elements out of order when pooling.
+     */
+    public MpscUnboundedAtomicArrayQueue(int chunkSize, int maxPooledChunks) {
+        super(chunkSize, maxPooledChunks);
+    }
+
     @Override
     protected long availableInQueue(long pIndex, long cIndex) {
         return Integer.MAX_VALUE;
@@ -14,6 +14,7 @@
 package org.jctools.queues.atomic;
 
 import org.jctools.util.Pow2;
+import org.jctools.util.RangeUtil;
 import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
 import java.util.concurrent.atomic.AtomicLongFieldUpdater;
 import java.util.concurrent.atomic.AtomicReferenceArray;
@@ -37,6 +38,16 @@ import static org.jctools.queues.atomic.AtomicQueueUtil.*;
 public class SpscUnboundedAtomicArrayQueue<E> extends BaseSpscLinkedAtomicArrayQueue<E> {
 
     public SpscUnboundedAtomicArrayQueue(int chunkSize) {
+        this(chunkSize, 0);
+    }
+
+    /**
+     * @param chunkSize       the size of each chunk
+     * @param maxPooledChunks the maximum number of consumed chunks kept around to avoid allocation, 0 disables
+     *                        pooling
+     */
+    public SpscUnboundedAtomicArrayQueue(int chunkSize, int maxPooledChunks) {
+        RangeUtil.checkPositiveOrZero(maxPooledChunks, "maxPooledChunks");
         int chunkCapacity = Math.max(Pow2.roundToPowerOfTwo(chunkSize), 16);
         long mask = chunkCapacity - 1;
         AtomicReferenceArray<E> buffer = allocateRefArray(chunkCapacity + 1);
@@ -46,6 +57,7 @@ public class SpscUnboundedAtomicArrayQueue<E> extends BaseSpscLinkedAtomicArrayQ
         consumerMask = mask;
         // we know it's all empty to start with
         producerBufferLimit = mask - 1;
+        freeBuffersPool = maxPooledChunks == 0 ? null : new SpscAtomicArrayQueue<AtomicReferenceArray<E>>(maxPooledChunks);
     }
 
     @Override
@@ -64,7 +76,7 @@ public class SpscUnboundedAtomicArrayQueue<E> extends BaseSpscLinkedAtomicArrayQ
         } else {
             // we got one slot left to write into, and we are not full. Need to link new buffer.
             // allocate new buffer of same length
-            final AtomicReferenceArray<E> newBuffer = allocateRefArray((int) (mask + 2));
+            final AtomicReferenceArray<E> newBuffer = pooledOrNewBuffer((int) (mask + 2));
             producerBuffer = newBuffer;
             producerBufferLimit = pIndex + mask - 1;
             linkOldToNew(pIndex, buffer, offset, newBuffer, offset, v == null ? s.get() : v);
@@ -0,0 +1,181 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jctools.queues.unpadded;
+
+import org.jctools.util.Pow2;
+import java.util.AbstractQueue;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import static org.jctools.util.UnsafeRefArrayAccess.*;
+import org.jctools.queues.IndexedQueueSizeUtil;
+import org.jctools.queues.IndexedQueueSizeUtil.IndexedQueue;
+import org.jctools.queues.MessagePassingQueue;
+import org.jctools.queues.MessagePassingQueue.Consumer;
+import org.jctools.queues.MessagePassingQueue.ExitCondition;
+import org.jctools.queues.MessagePassingQueue.Supplier;
+import org.jctools.queues.MessagePassingQueue.WaitStrategy;
+import org.jctools.queues.MessagePassingQueueUtil;
+import org.jctools.queues.QueueProgressIndicators;
+import org.jctools.queues.SupportsIterator;
+
+/**
+ * NOTE: This class was automatically generated by org.jctools.queues.unpadded.JavaParsingUnpaddedQueueGenerator
+ * which can found in the jctools-build module. The original source file is ConcurrentCircularArrayQueue.java.
+ */
+abstract class ConcurrentCircularUnpaddedArrayQueueL0Pad<E> extends AbstractQueue<E> {
+}
+
+/**
+ * NOTE: This class was automatically generated by org.jctools.queues.unpadded.JavaParsingUnpaddedQueueGenerator
+ * which can found in the jctools-build module. The original source file is ConcurrentCircularArrayQueue.java.
+ *
+ * 底层为（环形）数组的队列的公共实现。该类进行了前填充，数组的任何一侧都被填充以帮助防止伪共享。该类期望子类处理后填充。
+ *
+ * Common functionality for array backed queues. The class is pre-padded and the array is padded on either side to help
+ * with False Sharing prevention. It is expected that subclasses handle post padding.
+ */
+abstract class ConcurrentCircularUnpaddedArrayQueue<E> extends ConcurrentCircularUnpaddedArrayQueueL0Pad<E> implements MessagePassingQueue<E>, IndexedQueue, QueueProgressIndicators, SupportsIterator {
+
+    /**
+     * 数组长度对应的掩码 - 方便用&运算代替较慢的%运算
+     * 子类需要继续缓存行填充，以避免mask 和 buffer 产生伪共享
+     */
+    protected final long mask;
+
+    /**
+     * 真正存储元素的数组
+     */
+    protected final E[] buffer;
+
+    /**
+     * @param capacity 数组的容量 - 在该实现中，会将其修正为最近的的一个2的整次幂。
+     */
+    ConcurrentCircularUnpaddedArrayQueue(int capacity) {
+        int actualCapacity = Pow2.roundToPowerOfTwo(capacity);
+        mask = actualCapacity - 1;
+        buffer = allocateRefArray(actualCapacity);
+    }
+
+    @Override
+    public int size() {
+        return IndexedQueueSizeUtil.size(this);
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return IndexedQueueSizeUtil.isEmpty(this);
+    }
+
+    @Override
+    public String toString() {
+        return this.getClass().getName();
+    }
+
+    @Override
+    public void clear() {
+        while (poll() != null) {
+        // if you stare into the void
+        }
+    }
+
+    @Override
+    public int capacity() {
+        return (int) (mask + 1);
+    }
+
+    @Override
+    public long currentProducerIndex() {
+        return lvProducerIndex();
+    }
+
+    @Override
+    public long currentConsumerIndex() {
+        return lvConsumerIndex();
+    }
+
+    /**
+     * Get an iterator for this queue. This method is thread safe.
+     * <p>
+     * The iterator provides a best-effort snapshot of the elements in the queue.
+     * The returned iterator is not guaranteed to return elements in queue order,
+     * and races with the consumer thread may cause gaps in the sequence of returned elements.
+     * Like {link #relaxedPoll}, the iterator may not immediately return newly inserted elements.
+     *
+     * @return The iterator.
+     */
+    @Override
+    public Iterator<E> iterator() {
+        // 注意：在Fast Flow模式下，消费者索引是可能超过生产者索引的，不过并不影响这里的正确性
+        final long cIndex = lvConsumerIndex();
+        final long pIndex = lvProducerIndex();
+        return new WeakIterator(cIndex, pIndex, mask, buffer);
+    }
+
+    /**
+     * NOTE: This class was automatically generated by org.jctools.queues.unpadded.JavaParsingUnpaddedQueueGenerator
+     * which can found in the jctools-build module. The original source file is ConcurrentCircularArrayQueue.java.
+     */
+    private static class WeakIterator<E> implements Iterator<E> {
+
+        private final long pIndex;
+
+        private final long mask;
+
+        private final E[] buffer;
+
+        private long nextIndex;
+
+        private E nextElement;
+
+        WeakIterator(long cIndex, long pIndex, long mask, E[] buffer) {
+            this.nextIndex = cIndex;
+            this.pIndex = pIndex;
+            this.mask = mask;
+            this.buffer = buffer;
+            nextElement = getNext();
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException("remove");
+        }
+
+        @Override
+        public boolean hasNext() {
+            return nextElement != null;
+        }
+
+        @Override
+        public E next() {
+            final E e = nextElement;
+            if (e == null)
+                throw new NoSuchElementException();
+            nextElement = getNext();
+            return e;
+        }
+
+        private E getNext() {
+            while (nextIndex < pIndex) {
+                long offset = calcCircularRefElementOffset(nextIndex++, mask);
+                // 请注意：这里并没有检查seq，这里只是一个极简实现
+                E e = lvRefElement(buffer, offset);
+                if (e != null) {
+                    // 这里未进行额外的尝试，因此语义等同于relaxedPeek，这也是类名Weak的含义之一
+                    return e;
+                }
+            }
+            return null;
+        }
+    }
+}
@@ -37,6 +37,7 @@ public class UnsafeAccess
 {
     public static final boolean SUPPORTS_GET_AND_SET_REF;
     public static final boolean SUPPORTS_GET_AND_ADD_LONG;
+    public static final boolean SUPPORTS_FENCES;
     public static final Unsafe UNSAFE;
 
     static
@@ -44,6 +45,7 @@ public class UnsafeAccess
         UNSAFE = getUnsafe();
         SUPPORTS_GET_AND_SET_REF = hasGetAndSetSupport();
         SUPPORTS_GET_AND_ADD_LONG = hasGetAndAddLongSupport();
+        SUPPORTS_FENCES = hasFenceSupport();
     }
 
     private static Unsafe getUnsafe()
@@ -100,6 +102,21 @@ public class UnsafeAccess
         return false;
     }
 
+    private static boolean hasFenceSupport()
+    {
+        try
+        {
+            Unsafe.class.getMethod("fullFence");
+            Unsafe.class.getMethod("loadFence");
+            Unsafe.class.getMethod("storeFence");
+            return true;
+        }
+        catch (Exception ignored)
+        {
+        }
+        return false;
+    }
+
     public static long fieldOffset(Class clz, String fieldName) throws RuntimeException
     {
         try
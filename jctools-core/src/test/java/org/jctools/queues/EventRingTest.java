@@ -0,0 +1,194 @@
+package org.jctools.queues;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+
+@RunWith(Parameterized.class)
+public class EventRingTest {
+
+    static final class Event {
+        int producer;
+        long value;
+    }
+
+    @Parameterized.Parameters
+    public static Collection<Object[]> parameters() {
+        ArrayList<Object[]> list = new ArrayList<>();
+        list.add(new Object[]{"spsc", 1});
+        list.add(new Object[]{"mpsc", 4});
+        return list;
+    }
+
+    private final String type;
+    private final int producers;
+    private final EventRing<Event> ring;
+
+    public EventRingTest(String type, int producers) {
+        this.type = type;
+        this.producers = producers;
+        ring = newRing(16);
+    }
+
+    private EventRing<Event> newRing(int capacity) {
+        return "spsc".equals(type) ?
+            new SpscEventRing<>(capacity, Event::new) :
+            new MpscEventRing<>(capacity, Event::new);
+    }
+
+    @Test
+    public void capacityIsRoundedAndEventsArePreallocated() {
+        EventRing<Event> ring = newRing(10);
+        assertEquals(16, ring.capacity());
+        IdentityHashMap<Event, Boolean> events = new IdentityHashMap<>();
+        for (int i = 0; i < ring.capacity(); i++) {
+            events.put(ring.event(i), Boolean.TRUE);
+            assertSame(ring.event(i), ring.event(i + ring.capacity()));
+        }
+        assertEquals(16, events.size());
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void factoryReturningNullFails() {
+        if ("spsc".equals(type)) {
+            new SpscEventRing<Event>(4, () -> null);
+        } else {
+            new MpscEventRing<Event>(4, () -> null);
+        }
+    }
+
+    @Test
+    public void claimFailsWhenFullAndSlotsAreReusedAfterRelease() {
+        final int capacity = ring.capacity();
+        for (int i = 0; i < capacity; i++) {
+            long seq = ring.claim();
+            assertEquals(i, seq);
+            ring.event(seq).value = i;
+            ring.publish(seq);
+        }
+        assertEquals(EventRing.FULL, ring.claim());
+        assertEquals(capacity, ring.size());
+
+        Event first = ring.acquire();
+        assertSame(ring.event(0), first);
+        assertEquals(0, first.value);
+        ring.release();
+
+        long seq = ring.claim();
+        assertEquals(capacity, seq);
+        assertSame(first, ring.event(seq));
+        ring.event(seq).value = capacity;
+        ring.publish(seq);
+
+        List<Long> values = new ArrayList<>();
+        assertEquals(capacity, ring.drain(e -> values.add(e.value), Integer.MAX_VALUE));
+        for (int i = 0; i < capacity; i++) {
+            assertEquals(i + 1, values.get(i).longValue());
+        }
+        assertTrue(ring.isEmpty());
+        assertNull(ring.acquire());
+        assertEquals(0, ring.drain(e -> fail(), 10));
+    }
+
+    @Test
+    public void claimedButUnpublishedEventIsNotConsumed() {
+        long seq = ring.claim();
+        // counted as in use, as documented by EventRing.size
+        assertEquals(1, ring.size());
+        assertFalse(ring.isEmpty());
+        assertNull(ring.acquire());
+        assertEquals(0, ring.drain(e -> fail(), 10));
+        ring.publish(seq);
+        assertNotNull(ring.acquire());
+        ring.release();
+        assertNull(ring.acquire());
+    }
+
+    @Test
+    public void drainRespectsLimitAndReleasesUpToAFailedEvent() {
+        for (int i = 0; i < 8; i++) {
+            long seq = ring.claim();
+            ring.event(seq).value = i;
+            ring.publish(seq);
+        }
+        assertEquals(3, ring.drain(e -> {
+        }, 3));
+        assertEquals(5, ring.size());
+        try {
+            ring.drain(e -> {
+                if (e.value == 4) {
+                    throw new IllegalStateException("boom");
+                }
+            }, 10);
+            fail();
+        } catch (IllegalStateException expected) {
+        }
+        // events 3 and 4 are released, the failed one included
+        assertEquals(3, ring.size());
+        assertEquals(5, ring.acquire().value);
+    }
+
+    @Test(timeout = 30000)
+    public void producersAndConsumerExchangeEventsInPlace() throws Exception {
+        final int perProducer = 100000;
+        final EventRing<Event> ring = newRing(64);
+        final CountDownLatch start = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<>();
+        for (int p = 0; p < producers; p++) {
+            final int producer = p;
+            threads.add(new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    throw new RuntimeException(e);
+                }
+                for (int i = 0; i < perProducer; i++) {
+                    long seq;
+                    while ((seq = ring.claim()) == EventRing.FULL) {
+                        Thread.yield();
+                    }
+                    Event e = ring.event(seq);
+                    e.producer = producer;
+                    e.value = i;
+                    ring.publish(seq);
+                }
+            }));
+        }
+        for (Thread t : threads) {
+            t.start();
+        }
+        start.countDown();
+        final long[] next = new long[producers];
+        final int[] outOfOrder = new int[1];
+        final MessagePassingQueue.Consumer<Event> consumer = e -> {
+            if (next[e.producer]++ != e.value) {
+                outOfOrder[0]++;
+            }
+        };
+        int received = 0;
+        while (received < producers * perProducer) {
+            int n = ring.drain(consumer, 32);
+            if (n == 0) {
+                Thread.yield();
+            }
+            received += n;
+        }
+        for (Thread t : threads) {
+            t.join();
+        }
+        assertEquals(0, outOfOrder[0]);
+        long[] expected = new long[producers];
+        Arrays.fill(expected, perProducer);
+        assertArrayEquals(expected, next);
+        assertTrue(ring.isEmpty());
+    }
+}
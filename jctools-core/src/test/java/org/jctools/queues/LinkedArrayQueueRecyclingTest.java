@@ -0,0 +1,114 @@
+package org.jctools.queues;
+
+import static org.junit.Assert.*;
+
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Set;
+
+import org.junit.Test;
+
+public class LinkedArrayQueueRecyclingTest {
+
+    @Test
+    public void mpscUnboundedReusesConsumedChunks() {
+        MpscUnboundedArrayQueue<Integer> q = new MpscUnboundedArrayQueue<>(4, 2);
+        Set<Object[]> buffers = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (int round = 0; round < 100; round++) {
+            for (int i = 0; i < 10; i++) {
+                assertTrue(q.offer(i));
+                buffers.add(q.producerBuffer);
+            }
+            for (int i = 0; i < 10; i++) {
+                assertEquals(i, q.poll().intValue());
+            }
+            assertNull(q.poll());
+        }
+        // 10 elements span at most 5 chunks of 3 usable slots, the rest come out of the pool
+        assertTrue(buffers.size() <= 5);
+    }
+
+    @Test
+    public void mpscUnboundedWithoutPoolAllocatesEachChunk() {
+        MpscUnboundedArrayQueue<Integer> q = new MpscUnboundedArrayQueue<>(4);
+        Set<Object[]> buffers = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (int round = 0; round < 100; round++) {
+            for (int i = 0; i < 10; i++) {
+                assertTrue(q.offer(i));
+                buffers.add(q.producerBuffer);
+            }
+            for (int i = 0; i < 10; i++) {
+                assertEquals(i, q.poll().intValue());
+            }
+        }
+        assertTrue(buffers.size() > 100);
+    }
+
+    @Test
+    public void spscUnboundedReusesConsumedChunks() {
+        SpscUnboundedArrayQueue<Integer> q = new SpscUnboundedArrayQueue<>(16, 2);
+        Set<Object[]> buffers = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (int round = 0; round < 100; round++) {
+            for (int i = 0; i < 40; i++) {
+                assertTrue(q.offer(i));
+                buffers.add(q.producerBuffer);
+            }
+            for (int i = 0; i < 40; i++) {
+                assertEquals(i, q.poll().intValue());
+            }
+            assertNull(q.poll());
+        }
+        assertTrue(buffers.size() <= 6);
+    }
+
+    @Test
+    public void mpscGrowableShrinksBackAfterBurst() {
+        MpscGrowableArrayQueue<Integer> q = new MpscGrowableArrayQueue<>(4, 256, 2);
+        final int initialLength = length(q);
+        for (int i = 0; i < 256; i++) {
+            assertTrue(q.offer(i));
+        }
+        assertFalse(q.offer(256));
+        assertTrue(length(q) > initialLength);
+        for (int i = 0; i < 256; i++) {
+            assertEquals(i, q.poll().intValue());
+        }
+        for (int i = 0; i < 1000; i++) {
+            assertTrue(q.offer(i));
+            assertEquals(i, q.poll().intValue());
+        }
+        assertEquals(initialLength, length(q));
+        assertNull(q.poll());
+        // and can still grow again
+        for (int i = 0; i < 256; i++) {
+            assertTrue(q.offer(i));
+        }
+        assertEquals(256, q.size());
+        for (int i = 0; i < 256; i++) {
+            assertEquals(i, q.poll().intValue());
+        }
+        assertTrue(q.isEmpty());
+    }
+
+    @Test
+    public void mpscGrowableDoesNotShrinkByDefault() {
+        MpscGrowableArrayQueue<Integer> q = new MpscGrowableArrayQueue<>(4, 256);
+        for (int i = 0; i < 256; i++) {
+            assertTrue(q.offer(i));
+        }
+        for (int i = 0; i < 256; i++) {
+            assertEquals(i, q.poll().intValue());
+        }
+        final int grownLength = length(q);
+        for (int i = 0; i < 1000; i++) {
+            assertTrue(q.offer(i));
+            assertEquals(i, q.poll().intValue());
+        }
+        assertEquals(grownLength, length(q));
+    }
+
+    private static int length(MpscGrowableArrayQueue<?> q) {
+        final Object[] buffer = q.producerBuffer;
+        return buffer.length;
+    }
+}
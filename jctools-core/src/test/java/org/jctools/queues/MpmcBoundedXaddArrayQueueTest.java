@@ -0,0 +1,109 @@
+package org.jctools.queues;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.Test;
+
+public class MpmcBoundedXaddArrayQueueTest {
+
+    @Test
+    public void capacityIsExactAndSlotsAreReused() {
+        MpmcBoundedXaddArrayQueue<Integer> q = new MpmcBoundedXaddArrayQueue<>(6);
+        assertEquals(8, q.capacity());
+        for (int round = 0; round < 100; round++) {
+            for (int i = 0; i < 8; i++) {
+                assertTrue(q.offer(i));
+            }
+            assertFalse(q.offer(8));
+            assertEquals(8, q.size());
+            assertEquals(0, q.peek().intValue());
+            for (int i = 0; i < 8; i++) {
+                assertEquals(i, q.poll().intValue());
+            }
+            assertNull(q.poll());
+            assertNull(q.peek());
+            assertTrue(q.isEmpty());
+        }
+    }
+
+    @Test
+    public void fillDoesNotCallTheSupplierWhenFull() {
+        MpmcBoundedXaddArrayQueue<Integer> q = new MpmcBoundedXaddArrayQueue<>(4);
+        final int[] supplied = new int[1];
+        assertEquals(4, q.fill(() -> supplied[0]++, 10));
+        assertEquals(4, supplied[0]);
+        assertEquals(0, q.fill(() -> supplied[0]++, 10));
+        assertEquals(4, supplied[0]);
+    }
+
+    @Test
+    public void throwingSupplierDoesNotLeakSlots() {
+        MpmcBoundedXaddArrayQueue<Integer> q = new MpmcBoundedXaddArrayQueue<>(4);
+        for (int i = 0; i < 8; i++) {
+            try {
+                q.fill(() -> {
+                    throw new IllegalStateException();
+                }, 1);
+                fail();
+            } catch (IllegalStateException expected) {
+            }
+        }
+        assertTrue(q.isEmpty());
+        final int[] supplied = new int[1];
+        assertEquals(4, q.fill(() -> supplied[0]++, 10));
+        for (int i = 0; i < 4; i++) {
+            assertEquals(i, q.poll().intValue());
+        }
+        assertNull(q.poll());
+    }
+
+    @Test(timeout = 60000)
+    public void manyProducersAndConsumersNeitherLoseNorDuplicate() throws Exception {
+        final int threads = 4;
+        final int perProducer = 200000;
+        final MpmcBoundedXaddArrayQueue<Integer> q = new MpmcBoundedXaddArrayQueue<>(64);
+        final AtomicIntegerArray seen = new AtomicIntegerArray(threads * perProducer);
+        final AtomicLong consumed = new AtomicLong();
+        final AtomicLong duplicates = new AtomicLong();
+        List<Thread> all = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            final int base = t * perProducer;
+            all.add(new Thread(() -> {
+                for (int i = 0; i < perProducer; i++) {
+                    while (!q.offer(base + i)) {
+                        Thread.yield();
+                    }
+                }
+            }));
+            all.add(new Thread(() -> {
+                while (consumed.get() < (long) threads * perProducer) {
+                    Integer e = q.poll();
+                    if (e == null) {
+                        Thread.yield();
+                        continue;
+                    }
+                    if (seen.getAndIncrement(e) != 0) {
+                        duplicates.incrementAndGet();
+                    }
+                    consumed.incrementAndGet();
+                }
+            }));
+        }
+        for (Thread t : all) {
+            t.start();
+        }
+        for (Thread t : all) {
+            t.join();
+        }
+        assertEquals(0, duplicates.get());
+        for (int i = 0; i < seen.length(); i++) {
+            assertEquals(1, seen.get(i));
+        }
+        assertTrue(q.isEmpty());
+    }
+}
@@ -0,0 +1,126 @@
+package org.jctools.queues;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+
+@RunWith(Parameterized.class)
+public class MpmcLinkedArrayQueueTest {
+
+    @Parameterized.Parameters
+    public static Collection<Object[]> parameters() {
+        ArrayList<Object[]> list = new ArrayList<>();
+        list.add(new Object[]{"chunked"});
+        list.add(new Object[]{"growable"});
+        return list;
+    }
+
+    private final String type;
+
+    public MpmcLinkedArrayQueueTest(String type) {
+        this.type = type;
+    }
+
+    private BaseMpmcLinkedArrayQueue<Integer> newQueue(int initialCapacity, int maxCapacity) {
+        return "chunked".equals(type) ?
+            new MpmcChunkedArrayQueue<>(initialCapacity, maxCapacity) :
+            new MpmcGrowableArrayQueue<>(initialCapacity, maxCapacity);
+    }
+
+    @Test
+    public void startsSmallAndGrowsToTheMaxCapacity() {
+        BaseMpmcLinkedArrayQueue<Integer> q = newQueue(2, 64);
+        assertEquals(2, BaseMpmcLinkedArrayQueue.bufferCapacity(q.producerBuffer));
+        for (int round = 0; round < 10; round++) {
+            for (int i = 0; i < 64; i++) {
+                assertTrue(q.offer(i));
+            }
+            assertFalse(q.offer(64));
+            assertEquals(64, q.size());
+            List<Integer> seen = new ArrayList<>();
+            for (Integer e : q) {
+                seen.add(e);
+            }
+            assertEquals(64, seen.size());
+            for (int i = 0; i < 64; i++) {
+                assertEquals(i, seen.get(i).intValue());
+                assertEquals(i, q.peek().intValue());
+                assertEquals(i, q.poll().intValue());
+            }
+            assertNull(q.poll());
+            assertTrue(q.isEmpty());
+        }
+        if ("growable".equals(type)) {
+            assertEquals(64, BaseMpmcLinkedArrayQueue.bufferCapacity(q.producerBuffer));
+        }
+    }
+
+    @Test
+    public void fillAcrossResizes() {
+        BaseMpmcLinkedArrayQueue<Integer> q = newQueue(4, 128);
+        final int[] supplied = new int[1];
+        int filled = 0;
+        int added;
+        while ((added = q.fill(() -> supplied[0]++, 7)) != 0) {
+            filled += added;
+        }
+        assertEquals(128, filled);
+        assertEquals(128, supplied[0]);
+        final int[] next = new int[1];
+        assertEquals(128, q.drain(e -> assertEquals(next[0]++, e.intValue())));
+        assertTrue(q.isEmpty());
+    }
+
+    @Test(timeout = 60000)
+    public void manyProducersAndConsumersNeitherLoseNorDuplicate() throws Exception {
+        final int threads = 4;
+        final int perProducer = 200000;
+        final BaseMpmcLinkedArrayQueue<Integer> q = newQueue(2, 1024);
+        final AtomicIntegerArray seen = new AtomicIntegerArray(threads * perProducer);
+        final AtomicLong consumed = new AtomicLong();
+        final AtomicLong duplicates = new AtomicLong();
+        List<Thread> all = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            final int base = t * perProducer;
+            all.add(new Thread(() -> {
+                for (int i = 0; i < perProducer; i++) {
+                    while (!q.offer(base + i)) {
+                        Thread.yield();
+                    }
+                }
+            }));
+            all.add(new Thread(() -> {
+                while (consumed.get() < (long) threads * perProducer) {
+                    Integer e = q.poll();
+                    if (e == null) {
+                        Thread.yield();
+                        continue;
+                    }
+                    if (seen.getAndIncrement(e) != 0) {
+                        duplicates.incrementAndGet();
+                    }
+                    consumed.incrementAndGet();
+                }
+            }));
+        }
+        for (Thread t : all) {
+            t.start();
+        }
+        for (Thread t : all) {
+            t.join();
+        }
+        assertEquals(0, duplicates.get());
+        for (int i = 0; i < seen.length(); i++) {
+            assertEquals(1, seen.get(i));
+        }
+        assertTrue(q.isEmpty());
+    }
+}
@@ -0,0 +1,29 @@
+package org.jctools.queues;
+
+import org.jctools.queues.spec.ConcurrentQueueSpec;
+import org.jctools.queues.spec.Ordering;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+
+import java.util.ArrayList;
+import java.util.Collection;
+
+@RunWith(Parameterized.class)
+public class MpqSanityTestMpmcBoundedXadd extends MpqSanityTest
+{
+    public MpqSanityTestMpmcBoundedXadd(ConcurrentQueueSpec spec, MessagePassingQueue<Integer> queue)
+    {
+        super(spec, queue);
+    }
+
+    @Parameterized.Parameters
+    public static Collection<Object[]> parameters()
+    {
+        ArrayList<Object[]> list = new ArrayList<Object[]>();
+        list.add(makeMpq(0, 0, 1, Ordering.FIFO, new MpmcBoundedXaddArrayQueue<>(1)));
+        list.add(makeMpq(0, 0, 2, Ordering.FIFO, new MpmcBoundedXaddArrayQueue<>(2)));
+        list.add(makeMpq(0, 0, 8, Ordering.FIFO, new MpmcBoundedXaddArrayQueue<>(8)));
+        list.add(makeMpq(0, 0, SIZE, Ordering.FIFO, new MpmcBoundedXaddArrayQueue<>(SIZE)));
+        return list;
+    }
+}
@@ -0,0 +1,39 @@
+package org.jctools.queues;
+
+import java.util.ArrayList;
+import java.util.Collection;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+
+import org.jctools.queues.spec.ConcurrentQueueSpec;
+import org.jctools.queues.spec.Ordering;
+
+@RunWith(Parameterized.class)
+public class MpqSanityTestMpmcChunked extends MpqSanityTest
+{
+    public MpqSanityTestMpmcChunked(ConcurrentQueueSpec spec, MessagePassingQueue<Integer> queue)
+    {
+        super(spec, queue);
+    }
+
+    @Parameterized.Parameters
+    public static Collection<Object[]> parameters()
+    {
+        ArrayList<Object[]> list = new ArrayList<Object[]>();
+        list.add(makeMpq(0, 0, 4, Ordering.FIFO, new MpmcChunkedArrayQueue<>(2, 4)));// MPMC size 4
+        list.add(makeMpq(0, 0, SIZE, Ordering.FIFO, new MpmcChunkedArrayQueue<>(8, SIZE)));// MPMC size SIZE
+        return list;
+    }
+
+    @Test
+    public void testMaxSizeQueue()
+    {
+        MpmcChunkedArrayQueue queue = new MpmcChunkedArrayQueue<Object>(1024, 1000 * 1024 * 1024);
+        for (int i = 0; i < 400001; i++)
+        {
+            queue.offer(i);
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package org.jctools.queues;
+
+import java.util.ArrayList;
+import java.util.Collection;
+
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+
+import org.jctools.queues.spec.ConcurrentQueueSpec;
+import org.jctools.queues.spec.Ordering;
+
+@RunWith(Parameterized.class)
+public class MpqSanityTestMpmcGrowable extends MpqSanityTest
+{
+    public MpqSanityTestMpmcGrowable(ConcurrentQueueSpec spec, MessagePassingQueue<Integer> queue)
+    {
+        super(spec, queue);
+    }
+
+    @Parameterized.Parameters
+    public static Collection<Object[]> parameters()
+    {
+        ArrayList<Object[]> list = new ArrayList<Object[]>();
+        list.add(makeMpq(0, 0, 4, Ordering.FIFO, new MpmcGrowableArrayQueue<>(2, 4)));// MPMC size 4
+        list.add(makeMpq(0, 0, SIZE, Ordering.FIFO, new MpmcGrowableArrayQueue<>(8, SIZE)));// MPMC size SIZE
+        return list;
+    }
+}
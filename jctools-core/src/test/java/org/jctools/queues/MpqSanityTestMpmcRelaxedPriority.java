@@ -0,0 +1,123 @@
+package org.jctools.queues;
+
+import org.jctools.queues.spec.ConcurrentQueueSpec;
+import org.jctools.queues.spec.Ordering;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(Parameterized.class)
+public class MpqSanityTestMpmcRelaxedPriority extends MpqSanityTest
+{
+    public MpqSanityTestMpmcRelaxedPriority(ConcurrentQueueSpec spec, MessagePassingQueue<Integer> queue)
+    {
+        super(spec, queue);
+    }
+
+    @Parameterized.Parameters
+    public static Collection<Object[]> parameters()
+    {
+        ArrayList<Object[]> list = new ArrayList<Object[]>();
+        list.add(makeMpq(0, 0, 0, Ordering.NONE, new MpmcRelaxedPriorityQueue<Integer>(1)));
+        list.add(makeMpq(0, 0, 0, Ordering.NONE, new MpmcRelaxedPriorityQueue<Integer>(8)));
+        return list;
+    }
+
+    @Test
+    public void singleStripeIsStrictPriorityOrder()
+    {
+        MpmcRelaxedPriorityQueue<Integer> q = new MpmcRelaxedPriorityQueue<Integer>(1, Collections.reverseOrder());
+        List<Integer> values = shuffled(SIZE);
+        for (Integer v : values)
+        {
+            q.offer(v);
+        }
+        assertEquals(SIZE - 1, q.peek().intValue());
+        for (int i = SIZE - 1; i >= 0; i--)
+        {
+            assertEquals(i, q.poll().intValue());
+        }
+        assertNull(q.poll());
+        assertNull(q.peek());
+    }
+
+    @Test
+    public void pollRankErrorIsBounded()
+    {
+        final int stripes = 8;
+        MpmcRelaxedPriorityQueue<Integer> q = new MpmcRelaxedPriorityQueue<Integer>(stripes);
+        for (Integer v : shuffled(SIZE))
+        {
+            q.offer(v);
+        }
+        // rank error of a poll from a MultiQueue is O(stripes) on average, allow some slack
+        long rankErrorSum = 0;
+        boolean[] polled = new boolean[SIZE];
+        int smallest = 0;
+        for (int i = 0; i < SIZE; i++)
+        {
+            int e = q.poll();
+            polled[e] = true;
+            rankErrorSum += e - smallest;
+            while (smallest < SIZE && polled[smallest])
+            {
+                smallest++;
+            }
+        }
+        assertNull(q.poll());
+        assertTrue("average rank error: " + rankErrorSum / SIZE, rankErrorSum / SIZE < stripes * 4);
+    }
+
+    @Test
+    public void drainBatchesNearMinimumElements()
+    {
+        MpmcRelaxedPriorityQueue<Integer> q = new MpmcRelaxedPriorityQueue<Integer>(1);
+        for (Integer v : shuffled(SIZE))
+        {
+            q.offer(v);
+        }
+        final int[] expected = {0};
+        assertEquals(SIZE, q.drain(new MessagePassingQueue.Consumer<Integer>()
+        {
+            @Override
+            public void accept(Integer e)
+            {
+                assertEquals(expected[0]++, e.intValue());
+            }
+        }, Integer.MAX_VALUE));
+        assertTrue(q.isEmpty());
+    }
+
+    @Test
+    public void comparatorIsUsed()
+    {
+        Comparator<Integer> reverse = Collections.reverseOrder();
+        MpmcRelaxedPriorityQueue<Integer> q = new MpmcRelaxedPriorityQueue<Integer>(1, reverse);
+        assertTrue(reverse == q.comparator());
+        q.offer(1);
+        q.offer(3);
+        q.offer(2);
+        assertEquals(3, q.poll().intValue());
+    }
+
+    private static List<Integer> shuffled(int size)
+    {
+        List<Integer> values = new ArrayList<Integer>(size);
+        for (int i = 0; i < size; i++)
+        {
+            values.add(i);
+        }
+        Collections.shuffle(values);
+        return values;
+    }
+}
@@ -0,0 +1,29 @@
+package org.jctools.queues;
+
+import org.jctools.queues.spec.ConcurrentQueueSpec;
+import org.jctools.queues.spec.Ordering;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+
+import java.util.ArrayList;
+import java.util.Collection;
+
+@RunWith(Parameterized.class)
+public class MpqSanityTestMpscOnSpsc extends MpqSanityTest
+{
+    public MpqSanityTestMpscOnSpsc(ConcurrentQueueSpec spec, MessagePassingQueue<Integer> queue)
+    {
+        super(spec, queue);
+    }
+
+    @Parameterized.Parameters
+    public static Collection<Object[]> parameters()
+    {
+        ArrayList<Object[]> list = new ArrayList<Object[]>();
+        // per producer FIFO, the lane holds all of a producer's offers
+        list.add(makeMpq(0, 1, 0, Ordering.PRODUCER_FIFO, new MpscOnSpscQueue<Integer>(SIZE)));
+        // small lanes spilling into the overflow queue
+        list.add(makeMpq(0, 1, 0, Ordering.NONE, new MpscOnSpscQueue<Integer>(16, SIZE)));
+        return list;
+    }
+}
@@ -24,6 +24,7 @@ public class MpqSanityTestSpscUnbounded extends MpqSanityTest
         ArrayList<Object[]> list = new ArrayList<Object[]>();
         list.add(makeMpq(1, 1, 0, Ordering.FIFO, new SpscUnboundedArrayQueue<>(2)));
         list.add(makeMpq(1, 1, 0, Ordering.FIFO, new SpscUnboundedArrayQueue<>(64)));
+        list.add(makeMpq(1, 1, 0, Ordering.FIFO, new SpscUnboundedArrayQueue<>(2, 2)));
         return list;
     }
 }
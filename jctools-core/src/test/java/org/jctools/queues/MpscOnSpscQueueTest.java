@@ -0,0 +1,183 @@
+package org.jctools.queues;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import org.junit.Test;
+
+public class MpscOnSpscQueueTest {
+
+    @Test
+    public void laneIsBoundedAndFifo() {
+        MpscOnSpscQueue<Integer> q = new MpscOnSpscQueue<>(8);
+        assertEquals(0, q.lanesCount());
+        assertNull(q.poll());
+        assertNull(q.peek());
+        for (int i = 0; i < 8; i++) {
+            assertTrue(q.offer(i));
+        }
+        assertFalse(q.offer(8));
+        assertEquals(1, q.lanesCount());
+        assertEquals(8, q.size());
+        assertEquals(MessagePassingQueue.UNBOUNDED_CAPACITY, q.capacity());
+        for (int i = 0; i < 8; i++) {
+            assertEquals(i, q.peek().intValue());
+            assertEquals(i, q.poll().intValue());
+        }
+        assertNull(q.poll());
+        assertTrue(q.isEmpty());
+    }
+
+    @Test
+    public void fullLaneSpillsIntoOverflow() {
+        MpscOnSpscQueue<Integer> q = new MpscOnSpscQueue<>(4, 4);
+        assertEquals(4, q.fill(() -> 0, 4));
+        for (int i = 0; i < 4; i++) {
+            assertTrue(q.offer(1));
+        }
+        assertFalse(q.offer(2));
+        assertEquals(0, q.fill(() -> 2, 1));
+        assertEquals(8, q.size());
+        final int[] counts = new int[2];
+        assertEquals(8, q.drain(e -> counts[e]++));
+        assertArrayEquals(new int[]{4, 4}, counts);
+        assertTrue(q.isEmpty());
+    }
+
+    @Test
+    public void consumerVisitsLanesRoundRobin() throws Exception {
+        MpscOnSpscQueue<Integer> q = new MpscOnSpscQueue<>(16);
+        for (int t = 0; t < 3; t++) {
+            final int base = t * 10;
+            runProducer(() -> {
+                for (int i = 0; i < 3; i++) {
+                    q.offer(base + i);
+                }
+            });
+        }
+        assertEquals(3, q.lanesCount());
+        List<Integer> polled = new ArrayList<>();
+        Integer e;
+        while ((e = q.poll()) != null) {
+            polled.add(e);
+        }
+        assertEquals(Arrays.asList(0, 10, 20, 1, 11, 21, 2, 12, 22), polled);
+    }
+
+    @Test
+    public void lanesOfTerminatedProducersAreRetiredOnceDrained() throws Exception {
+        MpscOnSpscQueue<Integer> q = new MpscOnSpscQueue<>(16, 4);
+        for (int t = 0; t < 4; t++) {
+            final int value = t;
+            runProducer(() -> q.offer(value));
+        }
+        // the overflow queue and a lane per producer
+        assertEquals(5, q.lanesCount());
+        q.retireLanes();
+        assertEquals(5, q.lanesCount());
+        assertNotNull(q.poll());
+        assertNotNull(q.poll());
+        q.retireLanes();
+        assertEquals(3, q.lanesCount());
+        // the consumer retires lanes as it goes
+        for (int i = 0; i < MpscOnSpscConsumerFields.RETIRE_CHECK_INTERVAL; i++) {
+            q.poll();
+        }
+        assertEquals(1, q.lanesCount());
+        assertTrue(q.isEmpty());
+        // a live producer keeps its lane
+        q.offer(1);
+        q.poll();
+        q.retireLanes();
+        assertEquals(2, q.lanesCount());
+    }
+
+    @Test
+    public void pollTakesThePeekedElementAcrossLaneRetirement() throws Exception {
+        MpscOnSpscQueue<Integer> q = new MpscOnSpscQueue<>(16);
+        runProducer(() -> q.offer(0));
+        assertEquals(0, q.poll().intValue());
+        runProducer(() -> q.offer(10));
+        runProducer(() -> q.offer(20));
+        assertEquals(10, q.peek().intValue());
+        // the first lane is drained and its producer gone, the peeked lane moves down
+        q.retireLanes();
+        assertEquals(2, q.lanesCount());
+        assertEquals(10, q.poll().intValue());
+        assertEquals(20, q.poll().intValue());
+        assertNull(q.poll());
+    }
+
+    @Test
+    public void drainResumesAfterTheLastLaneDrained() throws Exception {
+        MpscOnSpscQueue<Integer> q = new MpscOnSpscQueue<>(16);
+        for (int t = 0; t < 3; t++) {
+            final int base = t * 10;
+            runProducer(() -> {
+                for (int i = 0; i < 2; i++) {
+                    q.offer(base + i);
+                }
+            });
+        }
+        List<Integer> drained = new ArrayList<>();
+        assertEquals(3, q.drain(drained::add, 3));
+        assertEquals(Arrays.asList(0, 1, 10), drained);
+        drained.clear();
+        assertEquals(3, q.drain(drained::add, 3));
+        assertEquals(Arrays.asList(20, 21, 11), drained);
+        assertEquals(0, q.drain(drained::add, 3));
+    }
+
+    @Test(timeout = 60000)
+    public void manyProducersNeitherLoseNorReorderTheirElements() throws Exception {
+        final int producers = 32;
+        final int perProducer = 20000;
+        final MpscOnSpscQueue<Integer> q = new MpscOnSpscQueue<>(64);
+        final AtomicIntegerArray seen = new AtomicIntegerArray(producers * perProducer);
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < producers; t++) {
+            final int base = t * perProducer;
+            threads.add(new Thread(() -> {
+                for (int i = 0; i < perProducer; i++) {
+                    while (!q.offer(base + i)) {
+                        Thread.yield();
+                    }
+                }
+            }));
+        }
+        for (Thread t : threads) {
+            t.start();
+        }
+        final int[] lastSeen = new int[producers];
+        Arrays.fill(lastSeen, -1);
+        final int total = producers * perProducer;
+        int consumed = 0;
+        while (consumed < total) {
+            Integer e = (consumed & 1) == 0 ? q.poll() : q.relaxedPoll();
+            if (e == null) {
+                Thread.yield();
+                continue;
+            }
+            assertEquals(0, seen.getAndIncrement(e));
+            assertTrue(e % perProducer > lastSeen[e / perProducer]);
+            lastSeen[e / perProducer] = e % perProducer;
+            consumed++;
+        }
+        for (Thread t : threads) {
+            t.join();
+        }
+        assertTrue(q.isEmpty());
+        q.retireLanes();
+        assertEquals(0, q.lanesCount());
+    }
+
+    private static void runProducer(Runnable r) throws InterruptedException {
+        Thread t = new Thread(r);
+        t.start();
+        t.join();
+    }
+}
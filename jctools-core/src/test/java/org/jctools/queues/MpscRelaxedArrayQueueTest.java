@@ -0,0 +1,115 @@
+package org.jctools.queues;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+import org.jctools.queues.atomic.MpscRelaxedAtomicArrayQueue;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+
+@RunWith(Parameterized.class)
+public class MpscRelaxedArrayQueueTest {
+
+    @Parameterized.Parameters
+    public static Collection<Object[]> parameters() {
+        ArrayList<Object[]> list = new ArrayList<>();
+        list.add(new Object[]{"unsafe"});
+        list.add(new Object[]{"atomic"});
+        return list;
+    }
+
+    private final String type;
+
+    public MpscRelaxedArrayQueueTest(String type) {
+        this.type = type;
+    }
+
+    private MessagePassingQueue<Integer> newQueue(int capacity) {
+        return "unsafe".equals(type) ?
+            new MpscRelaxedArrayQueue<>(capacity) :
+            new MpscRelaxedAtomicArrayQueue<>(capacity);
+    }
+
+    @Test
+    public void fillStopsAtCapacity() {
+        MessagePassingQueue<Integer> q = newQueue(8);
+        final int[] supplied = new int[1];
+        assertEquals(8, q.fill(() -> supplied[0]++, 100));
+        assertEquals(8, supplied[0]);
+        assertEquals(0, q.fill(() -> supplied[0]++, 100));
+        assertEquals(8, supplied[0]);
+        assertEquals(8, q.size());
+        assertEquals(0, q.peek().intValue());
+        assertEquals(0, q.relaxedPeek().intValue());
+    }
+
+    @Test
+    public void fillInBatchesAcrossCycleRotations() {
+        MessagePassingQueue<Integer> q = newQueue(8);
+        final int[] supplied = new int[1];
+        final int[] next = new int[1];
+        for (int round = 0; round < 1000; round++) {
+            final int filled = q.fill(() -> supplied[0]++, 5);
+            assertEquals(5, filled);
+            assertEquals(5, q.drain(e -> assertEquals(next[0]++, e.intValue())));
+            assertNull(q.relaxedPeek());
+            assertNull(q.peek());
+        }
+        assertTrue(q.isEmpty());
+    }
+
+    @Test(timeout = 60000)
+    public void offeringAndFillingProducersNeitherLoseNorReorder() throws Exception {
+        final int producers = 4;
+        final int perProducer = 100000;
+        final MessagePassingQueue<Integer> q = newQueue(64);
+        List<Thread> threads = new ArrayList<>();
+        for (int p = 0; p < producers; p++) {
+            final int base = p * perProducer;
+            final boolean batched = (p & 1) == 0;
+            threads.add(new Thread(() -> {
+                final int[] sent = new int[1];
+                while (sent[0] < perProducer) {
+                    if (batched) {
+                        q.fill(() -> base + sent[0]++, Math.min(7, perProducer - sent[0]));
+                    }
+                    else if (q.offer(base + sent[0])) {
+                        sent[0]++;
+                    }
+                    Thread.yield();
+                }
+            }));
+        }
+        for (Thread t : threads) {
+            t.start();
+        }
+        final int[] lastSeen = new int[producers];
+        Arrays.fill(lastSeen, -1);
+        int consumed = 0;
+        int outOfOrder = 0;
+        while (consumed < producers * perProducer) {
+            Integer e = q.poll();
+            if (e == null) {
+                Thread.yield();
+                continue;
+            }
+            final int producer = e / perProducer;
+            final int seq = e % perProducer;
+            if (seq != lastSeen[producer] + 1) {
+                outOfOrder++;
+            }
+            lastSeen[producer] = seq;
+            consumed++;
+        }
+        for (Thread t : threads) {
+            t.join();
+        }
+        assertEquals(0, outOfOrder);
+        assertNull(q.poll());
+    }
+}
@@ -0,0 +1,199 @@
+package org.jctools.queues;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+
+@RunWith(Parameterized.class)
+public class QueueHandlesTest {
+    private static final int CAPACITY = 64;
+
+    @Parameterized.Parameters
+    public static Collection<Object[]> parameters() {
+        ArrayList<Object[]> list = new ArrayList<>();
+        list.add(new Object[]{"MpscArrayQueue"});
+        list.add(new Object[]{"MpmcArrayQueue"});
+        list.add(new Object[]{"MpscUnboundedXaddArrayQueue"});
+        return list;
+    }
+
+    private final String type;
+
+    public QueueHandlesTest(String type) {
+        this.type = type;
+    }
+
+    private MessagePassingQueue<Integer> newQueue() {
+        switch (type) {
+            case "MpscArrayQueue":
+                return new MpscArrayQueue<>(CAPACITY);
+            case "MpmcArrayQueue":
+                return new MpmcArrayQueue<>(CAPACITY);
+            default:
+                return new MpscUnboundedXaddArrayQueue<>(16);
+        }
+    }
+
+    private static MessagePassingQueueProducer<Integer> producer(MessagePassingQueue<Integer> q) {
+        if (q instanceof MpscArrayQueue) {
+            return ((MpscArrayQueue<Integer>) q).newProducer();
+        }
+        if (q instanceof MpmcArrayQueue) {
+            return ((MpmcArrayQueue<Integer>) q).newProducer();
+        }
+        return ((MpscUnboundedXaddArrayQueue<Integer>) q).newProducer();
+    }
+
+    private static MessagePassingQueueConsumer<Integer> consumer(MessagePassingQueue<Integer> q) {
+        if (q instanceof MpscArrayQueue) {
+            return ((MpscArrayQueue<Integer>) q).newConsumer();
+        }
+        if (q instanceof MpmcArrayQueue) {
+            return ((MpmcArrayQueue<Integer>) q).newConsumer();
+        }
+        return ((MpscUnboundedXaddArrayQueue<Integer>) q).newConsumer();
+    }
+
+    private boolean bounded() {
+        return !"MpscUnboundedXaddArrayQueue".equals(type);
+    }
+
+    @Test
+    public void handlesSeeEachOthersAndTheQueuesElements() {
+        MessagePassingQueue<Integer> q = newQueue();
+        MessagePassingQueueProducer<Integer> p = producer(q);
+        MessagePassingQueueConsumer<Integer> c = consumer(q);
+        assertSame(q, p.queue());
+        assertSame(q, c.queue());
+        for (int round = 0; round < 20; round++) {
+            assertNull(c.poll());
+            assertNull(c.peek());
+            for (int i = 0; i < CAPACITY; i++) {
+                // interleave handle and queue offers
+                assertTrue(i % 3 == 0 ? q.offer(i) : p.offer(i));
+            }
+            if (bounded()) {
+                assertFalse(p.offer(CAPACITY));
+                assertFalse(q.offer(CAPACITY));
+            }
+            assertEquals(CAPACITY, q.size());
+            for (int i = 0; i < CAPACITY; i++) {
+                assertEquals(i, c.peek().intValue());
+                assertEquals(i, (i % 2 == 0 ? c.poll() : q.poll()).intValue());
+            }
+            assertNull(c.poll());
+            assertNull(c.relaxedPoll());
+            assertTrue(q.isEmpty());
+        }
+    }
+
+    @Test
+    public void producerLimitIsRefreshedAfterConsumption() {
+        MessagePassingQueue<Integer> q = newQueue();
+        MessagePassingQueueProducer<Integer> p = producer(q);
+        for (int i = 0; i < CAPACITY; i++) {
+            assertTrue(p.offer(i));
+        }
+        if (bounded()) {
+            assertFalse(p.offer(-1));
+            assertEquals(0, p.fill(() -> -1, 8));
+        }
+        assertEquals(0, q.poll().intValue());
+        assertTrue(p.offer(CAPACITY));
+        if (bounded()) {
+            assertFalse(p.relaxedOffer(-1));
+        }
+    }
+
+    @Test
+    public void fillAndDrainThroughHandles() {
+        MessagePassingQueue<Integer> q = newQueue();
+        MessagePassingQueueProducer<Integer> p = producer(q);
+        MessagePassingQueueConsumer<Integer> c = consumer(q);
+        final int[] supplied = new int[1];
+        final int[] next = new int[1];
+        for (int round = 0; round < 10; round++) {
+            int filled = 0;
+            while (filled < CAPACITY) {
+                int added = p.fill(() -> supplied[0]++, Math.min(7, CAPACITY - filled));
+                assertTrue(added > 0);
+                filled += added;
+            }
+            assertEquals(CAPACITY, filled);
+            assertEquals(supplied[0] - next[0], q.size());
+            assertEquals(next[0], c.relaxedPeek().intValue());
+            int drained = 0;
+            int removed;
+            while ((removed = c.drain(e -> assertEquals(next[0]++, e.intValue()), 5)) != 0) {
+                drained += removed;
+            }
+            assertEquals(CAPACITY, drained);
+            assertTrue(q.isEmpty());
+        }
+        try {
+            p.fill(null, 1);
+            fail();
+        } catch (IllegalArgumentException expected) {
+        }
+        try {
+            p.offer(null);
+            fail();
+        } catch (NullPointerException expected) {
+        }
+    }
+
+    @Test(timeout = 60000)
+    public void producerHandlesNeitherLoseNorDuplicate() throws Exception {
+        final int producers = 3;
+        final int perProducer = 200000;
+        final MessagePassingQueue<Integer> q = newQueue();
+        final AtomicIntegerArray seen = new AtomicIntegerArray(producers * perProducer);
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < producers; t++) {
+            final int base = t * perProducer;
+            final boolean batched = t == 0;
+            threads.add(new Thread(() -> {
+                MessagePassingQueueProducer<Integer> p = producer(q);
+                int i = 0;
+                while (i < perProducer) {
+                    if (batched) {
+                        final int from = i;
+                        final int[] n = new int[1];
+                        i += p.fill(() -> base + from + n[0]++, Math.min(8, perProducer - from));
+                    } else if (p.offer(base + i)) {
+                        i++;
+                    }
+                    if (i < perProducer && bounded() && q.size() == CAPACITY) {
+                        Thread.yield();
+                    }
+                }
+            }));
+        }
+        for (Thread t : threads) {
+            t.start();
+        }
+        MessagePassingQueueConsumer<Integer> c = consumer(q);
+        int consumed = 0;
+        while (consumed < producers * perProducer) {
+            Integer e = c.poll();
+            if (e == null) {
+                Thread.yield();
+                continue;
+            }
+            assertEquals(0, seen.getAndIncrement(e));
+            consumed++;
+        }
+        for (Thread t : threads) {
+            t.join();
+        }
+        assertNull(c.poll());
+        assertTrue(q.isEmpty());
+    }
+}
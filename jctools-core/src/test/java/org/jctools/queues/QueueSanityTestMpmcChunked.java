@@ -0,0 +1,29 @@
+package org.jctools.queues;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Queue;
+
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+
+import org.jctools.queues.spec.ConcurrentQueueSpec;
+import org.jctools.queues.spec.Ordering;
+
+@RunWith(Parameterized.class)
+public class QueueSanityTestMpmcChunked extends QueueSanityTestMpmcArray
+{
+    public QueueSanityTestMpmcChunked(ConcurrentQueueSpec spec, Queue<Integer> queue)
+    {
+        super(spec, queue);
+    }
+
+    @Parameterized.Parameters
+    public static Collection<Object[]> parameters()
+    {
+        ArrayList<Object[]> list = new ArrayList<Object[]>();
+        list.add(makeQueue(0, 0, 4, Ordering.FIFO, new MpmcChunkedArrayQueue<>(2, 4)));// MPMC size 4
+        list.add(makeQueue(0, 0, SIZE, Ordering.FIFO, new MpmcChunkedArrayQueue<>(8, SIZE)));// MPMC size SIZE
+        return list;
+    }
+}
@@ -0,0 +1,68 @@
+package org.jctools.queues;
+
+import org.jctools.queues.spec.ConcurrentQueueSpec;
+import org.jctools.queues.spec.Ordering;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Queue;
+
+import static org.junit.Assert.*;
+
+@RunWith(Parameterized.class)
+public class QueueSanityTestMpmcRelaxedPriority extends QueueSanityTest
+{
+    public QueueSanityTestMpmcRelaxedPriority(ConcurrentQueueSpec spec, Queue<Integer> queue)
+    {
+        super(spec, queue);
+    }
+
+    @Parameterized.Parameters
+    public static Collection<Object[]> parameters()
+    {
+        ArrayList<Object[]> list = new ArrayList<Object[]>();
+        list.add(makeQueue(0, 0, 0, Ordering.NONE, new MpmcRelaxedPriorityQueue<Integer>(1)));
+        list.add(makeQueue(0, 0, 0, Ordering.NONE, new MpmcRelaxedPriorityQueue<Integer>(8)));
+        return list;
+    }
+
+    @Test(timeout = 10000)
+    public void testFailedComparisonReleasesTheStripe()
+    {
+        final MpmcRelaxedPriorityQueue<Object> q = new MpmcRelaxedPriorityQueue<Object>(1);
+        q.offer(1);
+        try
+        {
+            q.offer("x");
+            fail();
+        }
+        catch (ClassCastException expected)
+        {
+        }
+        assertEquals(1, q.poll());
+        assertNull(q.poll());
+        q.offer(2);
+        assertEquals(1, q.fill(() -> 3, 1));
+        assertEquals(2, q.drain(e -> {}));
+    }
+
+    @Test(timeout = 10000)
+    public void testFillRejectsNullElements()
+    {
+        final MpmcRelaxedPriorityQueue<Integer> q = new MpmcRelaxedPriorityQueue<Integer>(1);
+        try
+        {
+            q.fill(() -> null, 1);
+            fail();
+        }
+        catch (NullPointerException expected)
+        {
+        }
+        assertTrue(q.isEmpty());
+        assertEquals(1, q.fill(() -> 1, 1));
+        assertEquals(1, q.poll().intValue());
+    }
+}
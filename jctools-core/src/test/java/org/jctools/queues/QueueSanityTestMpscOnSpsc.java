@@ -0,0 +1,30 @@
+package org.jctools.queues;
+
+import org.jctools.queues.spec.ConcurrentQueueSpec;
+import org.jctools.queues.spec.Ordering;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Queue;
+
+@RunWith(Parameterized.class)
+public class QueueSanityTestMpscOnSpsc extends QueueSanityTest
+{
+    public QueueSanityTestMpscOnSpsc(ConcurrentQueueSpec spec, Queue<Integer> queue)
+    {
+        super(spec, queue);
+    }
+
+    @Parameterized.Parameters
+    public static Collection<Object[]> parameters()
+    {
+        ArrayList<Object[]> list = new ArrayList<Object[]>();
+        // per producer FIFO, the lane holds all of a producer's offers
+        list.add(makeQueue(0, 1, 0, Ordering.PRODUCER_FIFO, new MpscOnSpscQueue<Integer>(SIZE)));
+        // small lanes spilling into the overflow queue
+        list.add(makeQueue(0, 1, 0, Ordering.NONE, new MpscOnSpscQueue<Integer>(16, SIZE)));
+        return list;
+    }
+}
@@ -24,6 +24,7 @@ public class QueueSanityTestMpscUnboundedArray extends QueueSanityTest
         ArrayList<Object[]> list = new ArrayList<Object[]>();
         list.add(makeQueue(0, 1, 0, Ordering.FIFO, new MpscUnboundedArrayQueue<>(2)));// MPSC size 1
         list.add(makeQueue(0, 1, 0, Ordering.FIFO, new MpscUnboundedArrayQueue<>(64)));// MPSC size SIZE
+        list.add(makeQueue(0, 1, 0, Ordering.FIFO, new MpscUnboundedArrayQueue<>(2, 2)));// MPSC size 1, pooled chunks
         return list;
     }
 }
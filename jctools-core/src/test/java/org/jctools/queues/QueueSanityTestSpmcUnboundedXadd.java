@@ -0,0 +1,36 @@
+package org.jctools.queues;
+
+import org.jctools.queues.spec.ConcurrentQueueSpec;
+import org.jctools.queues.spec.Ordering;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Queue;
+
+import static org.junit.Assert.assertEquals;
+
+@RunWith(Parameterized.class)
+public class QueueSanityTestSpmcUnboundedXadd extends QueueSanityTest
+{
+    public QueueSanityTestSpmcUnboundedXadd(ConcurrentQueueSpec spec, Queue<Integer> queue)
+    {
+        super(spec, queue);
+    }
+
+    @Parameterized.Parameters
+    public static Collection<Object[]> parameters()
+    {
+        ArrayList<Object[]> list = new ArrayList<Object[]>();
+        list.add(makeQueue(1, 0, 0, Ordering.FIFO, new SpmcUnboundedXaddArrayQueue<>(1, 0)));
+        list.add(makeQueue(1, 0, 0, Ordering.FIFO, new SpmcUnboundedXaddArrayQueue<>(64, 0)));
+        list.add(makeQueue(1, 0, 0, Ordering.FIFO, new SpmcUnboundedXaddArrayQueue<>(1, 1)));
+        list.add(makeQueue(1, 0, 0, Ordering.FIFO, new SpmcUnboundedXaddArrayQueue<>(64, 1)));
+        list.add(makeQueue(1, 0, 0, Ordering.FIFO, new SpmcUnboundedXaddArrayQueue<>(1, 2)));
+        list.add(makeQueue(1, 0, 0, Ordering.FIFO, new SpmcUnboundedXaddArrayQueue<>(64, 2)));
+        list.add(makeQueue(1, 0, 0, Ordering.FIFO, new SpmcUnboundedXaddArrayQueue<>(1, 3)));
+        list.add(makeQueue(1, 0, 0, Ordering.FIFO, new SpmcUnboundedXaddArrayQueue<>(64, 3)));
+        return list;
+    }
+}
@@ -25,6 +25,7 @@ public class QueueSanityTestSpscUnbounded extends QueueSanityTest
         ArrayList<Object[]> list = new ArrayList<Object[]>();
         list.add(makeQueue(1, 1, 0, Ordering.FIFO, new SpscUnboundedArrayQueue<>(2)));
         list.add(makeQueue(1, 1, 0, Ordering.FIFO, new SpscUnboundedArrayQueue<>(64)));
+        list.add(makeQueue(1, 1, 0, Ordering.FIFO, new SpscUnboundedArrayQueue<>(2, 2)));
         return list;
     }
 }
@@ -0,0 +1,192 @@
+package org.jctools.queues;
+
+import static org.jctools.util.UnsafeLongArrayAccess.calcLongElementOffset;
+import static org.jctools.util.UnsafeLongArrayAccess.lvLongElement;
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import org.junit.Test;
+
+public class SpscQueueSelectorTest {
+
+    @Test
+    public void pollVisitsReadyLanesRoundRobin() {
+        SpscQueueSelector<Integer> selector = new SpscQueueSelector<>(130, 16);
+        int[] lanes = {3, 64, 129};
+        for (int lane : lanes) {
+            for (int i = 0; i < 3; i++) {
+                assertTrue(selector.offer(lane, lane * 10 + i));
+            }
+        }
+        assertEquals(9, selector.size());
+        for (int i = 0; i < 3; i++) {
+            for (int lane : lanes) {
+                assertEquals(lane * 10 + i, selector.poll().intValue());
+            }
+        }
+        assertNull(selector.poll());
+        assertTrue(selector.isEmpty());
+        assertNoneReady(selector);
+    }
+
+    @Test
+    public void onlyLanesOfferedToAreMarkedReady() {
+        SpscQueueSelector<Integer> selector = new SpscQueueSelector<>(512, 4);
+        assertEquals(-1, selector.nextReady(0));
+        selector.offer(200, 1);
+        assertEquals(200, selector.nextReady(0));
+        assertEquals(200, selector.nextReady(200));
+        // wraps around
+        assertEquals(200, selector.nextReady(201));
+        assertEquals(200, selector.nextReady(511));
+        selector.offer(7, 2);
+        assertEquals(7, selector.nextReady(201));
+        assertEquals(7, selector.nextReady(0));
+        assertEquals(200, selector.nextReady(8));
+    }
+
+    @Test
+    public void laneIsMarkedReadyAgainAfterBeingFoundEmpty() {
+        SpscQueueSelector<Integer> selector = new SpscQueueSelector<>(4, 4);
+        MessagePassingQueueProducer<Integer> p = selector.producer(2);
+        for (int round = 0; round < 10; round++) {
+            assertTrue(p.offer(round));
+            assertEquals(round, selector.poll().intValue());
+            assertNull(selector.poll());
+            assertNoneReady(selector);
+        }
+        assertEquals(4, p.fill(() -> 1, 10));
+        assertFalse(p.offer(1));
+        assertEquals(2, selector.nextReady(0));
+    }
+
+    @Test
+    public void drainTakesAtMostTheQuotaPerLaneVisit() {
+        SpscQueueSelector<Integer> selector = new SpscQueueSelector<>(3, 64, 2);
+        for (int lane = 0; lane < 3; lane++) {
+            for (int i = 0; i < 4; i++) {
+                selector.offer(lane, lane * 10 + i);
+            }
+        }
+        final List<Integer> drained = new ArrayList<>();
+        assertEquals(6, selector.drain(drained::add, 100));
+        assertEquals(Arrays.asList(0, 1, 10, 11, 20, 21), drained);
+        drained.clear();
+        assertEquals(3, selector.drain(drained::add, 3));
+        assertEquals(Arrays.asList(2, 3, 12), drained);
+        drained.clear();
+        // continues from where the last drain stopped
+        assertEquals(3, selector.drain(drained::add, 100));
+        assertEquals(Arrays.asList(13, 22, 23), drained);
+        assertEquals(0, selector.drain(drained::add, 100));
+        assertNoneReady(selector);
+    }
+
+    @Test(timeout = 10000)
+    public void timedPollReturnsNullWhenNothingArrives() throws InterruptedException {
+        SpscQueueSelector<Integer> selector = new SpscQueueSelector<>(8, 4);
+        assertNull(selector.poll(10, TimeUnit.MILLISECONDS));
+        selector.offer(5, 55);
+        assertEquals(55, selector.poll(10, TimeUnit.MILLISECONDS).intValue());
+    }
+
+    @Test(timeout = 10000)
+    public void takeIsWokenByAProducer() throws Exception {
+        final SpscQueueSelector<Integer> selector = new SpscQueueSelector<>(8, 4);
+        Thread producer = new Thread(() -> {
+            while (selector.blocked == null) {
+                Thread.yield();
+            }
+            selector.offer(6, 66);
+        });
+        producer.start();
+        assertEquals(66, selector.take().intValue());
+        producer.join();
+        assertNull(selector.blocked);
+    }
+
+    @Test(timeout = 10000)
+    public void takeIsInterruptible() throws Exception {
+        final SpscQueueSelector<Integer> selector = new SpscQueueSelector<>(8, 4);
+        final Thread consumer = Thread.currentThread();
+        Thread interrupter = new Thread(() -> {
+            while (selector.blocked == null) {
+                Thread.yield();
+            }
+            consumer.interrupt();
+        });
+        interrupter.start();
+        try {
+            selector.take();
+            fail();
+        } catch (InterruptedException expected) {
+        }
+        interrupter.join();
+        assertNull(selector.blocked);
+    }
+
+    @Test(timeout = 60000)
+    public void manyProducersNeitherLoseNorDuplicate() throws Exception {
+        final int producers = 16;
+        final int perProducer = 20000;
+        final SpscQueueSelector<Integer> selector = new SpscQueueSelector<>(producers * 4, 8, 4);
+        final AtomicIntegerArray seen = new AtomicIntegerArray(producers * perProducer);
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < producers; t++) {
+            final int base = t * perProducer;
+            // spread producers over the ready words
+            final MessagePassingQueueProducer<Integer> p = selector.producer(t * 4 + t % 4);
+            threads.add(new Thread(() -> {
+                for (int i = 0; i < perProducer; i++) {
+                    while (!p.offer(base + i)) {
+                        Thread.yield();
+                    }
+                    if ((i & 1023) == 0) {
+                        // let the consumer run dry and park now and again
+                        Thread.yield();
+                    }
+                }
+            }));
+        }
+        for (Thread t : threads) {
+            t.start();
+        }
+        final int total = producers * perProducer;
+        final int[] lastSeen = new int[producers];
+        Arrays.fill(lastSeen, -1);
+        int consumed = 0;
+        while (consumed < total) {
+            if ((consumed & 1) == 0) {
+                Integer e = selector.take();
+                assertEquals(0, seen.getAndIncrement(e));
+                // per producer FIFO
+                assertTrue(e % perProducer > lastSeen[e / perProducer]);
+                lastSeen[e / perProducer] = e % perProducer;
+                consumed++;
+            } else {
+                consumed += selector.drain(e -> {
+                    assertEquals(0, seen.getAndIncrement(e));
+                    assertTrue(e % perProducer > lastSeen[e / perProducer]);
+                    lastSeen[e / perProducer] = e % perProducer;
+                }, 1);
+            }
+        }
+        for (Thread t : threads) {
+            t.join();
+        }
+        assertNull(selector.poll());
+        assertTrue(selector.isEmpty());
+    }
+
+    private static void assertNoneReady(SpscQueueSelector<?> selector) {
+        for (int i = 0; i < selector.wordsCount; i++) {
+            long offset = calcLongElementOffset((i + 1) << SpscQueueSelectorColdFields.WORD_STRIDE_SHIFT);
+            assertEquals(0, lvLongElement(selector.readyWords, offset));
+        }
+    }
+}
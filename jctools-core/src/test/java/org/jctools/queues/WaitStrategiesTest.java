@@ -0,0 +1,138 @@
+package org.jctools.queues;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class WaitStrategiesTest
+{
+    @Test
+    public void busySpinCountsIdleCalls()
+    {
+        int idleCounter = 0;
+        for (int i = 0; i < 100; i++)
+        {
+            idleCounter = BusySpinWaitStrategy.INSTANCE.idle(idleCounter);
+        }
+        assertEquals(100, idleCounter);
+    }
+
+    @Test
+    public void backoffSpinsYieldsThenParksUpToTheMaximum()
+    {
+        final long parkNanos = TimeUnit.MILLISECONDS.toNanos(1);
+        final BackoffWaitStrategy w = new BackoffWaitStrategy(2, 2, parkNanos, 2 * parkNanos);
+        int idleCounter = 0;
+        long start = System.nanoTime();
+        for (int i = 0; i < 4; i++)
+        {
+            idleCounter = w.idle(idleCounter);
+        }
+        assertEquals(4, idleCounter);
+        assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(1));
+        start = System.nanoTime();
+        idleCounter = w.idle(idleCounter);
+        assertTrue(System.nanoTime() - start >= parkNanos / 2);
+        // deep in the park phase the park is capped and the counter does not overflow
+        start = System.nanoTime();
+        assertEquals(Integer.MAX_VALUE, w.idle(Integer.MAX_VALUE));
+        w.idle(1000);
+        assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(1));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void backoffRejectsMaxParkBelowMinPark()
+    {
+        new BackoffWaitStrategy(1, 1, 10, 5);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void spinParkRejectsNegativeSpins()
+    {
+        new SpinParkWaitStrategy(-1);
+    }
+
+    @Test(timeout = 30000)
+    public void spinParkConsumerIsWokenBySignal() throws Exception
+    {
+        final int messages = 100000;
+        final SpscArrayQueue<Integer> q = new SpscArrayQueue<Integer>(64);
+        final SpinParkWaitStrategy w = new SpinParkWaitStrategy(16);
+        final AtomicLong received = new AtomicLong();
+        final Thread consumer = new Thread(() -> {
+            int idleCounter = 0;
+            long count = 0;
+            while (count < messages)
+            {
+                if (q.relaxedPoll() == null)
+                {
+                    idleCounter = w.idle(idleCounter);
+                    continue;
+                }
+                idleCounter = 0;
+                received.lazySet(++count);
+            }
+        });
+        consumer.start();
+        for (int i = 0; i < messages; i++)
+        {
+            while (!q.relaxedOffer(i))
+            {
+                Thread.yield();
+            }
+            w.signal();
+            if ((i & 4095) == 0)
+            {
+                // let the consumer go idle and park
+                while (consumer.getState() != Thread.State.WAITING && consumer.isAlive())
+                {
+                    Thread.yield();
+                }
+            }
+        }
+        consumer.join();
+        assertEquals(messages, received.get());
+    }
+
+    @Test
+    public void adaptiveTunesTheSpinLimitToArrivals()
+    {
+        final AdaptiveWaitStrategy w = new AdaptiveWaitStrategy(4, 1024, 1, 1000);
+        assertEquals(4, w.spinLimit());
+        // arrivals at the end of the spin phase: spinning longer pays off
+        for (int period = 0; period < 20; period++)
+        {
+            idlePeriod(w, w.spinLimit());
+        }
+        assertEquals(1024, w.spinLimit());
+        // arrivals long after parking: spinning is wasted
+        for (int period = 0; period < 20; period++)
+        {
+            idlePeriod(w, w.spinLimit() + 8);
+        }
+        assertEquals(4, w.spinLimit());
+        // arrivals early in the spin phase: the limit settles above the gap
+        for (int period = 0; period < 20; period++)
+        {
+            idlePeriod(w, w.spinLimit());
+        }
+        for (int period = 0; period < 100; period++)
+        {
+            idlePeriod(w, 10);
+        }
+        assertTrue(w.spinLimit() > 10);
+        assertTrue(w.spinLimit() <= 80);
+    }
+
+    private static void idlePeriod(AdaptiveWaitStrategy w, int idleCalls)
+    {
+        int idleCounter = 0;
+        for (int i = 0; i < idleCalls; i++)
+        {
+            idleCounter = w.idle(idleCounter);
+        }
+    }
+}
@@ -0,0 +1,252 @@
+package org.jctools.queues;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.jctools.util.TestUtil.TEST_TIMEOUT;
+import static org.jctools.util.TestUtil.threads;
+import static org.junit.Assert.*;
+
+@RunWith(Parameterized.class)
+public class WorkStealingDequeSanityTest
+{
+    private static final int SIZE = 8192;
+
+    private final BaseWorkStealingArrayDeque<Integer> deque;
+    private final int expectedCapacity;
+
+    public WorkStealingDequeSanityTest(BaseWorkStealingArrayDeque<Integer> deque, int expectedCapacity)
+    {
+        this.deque = deque;
+        this.expectedCapacity = expectedCapacity;
+    }
+
+    @Parameterized.Parameters
+    public static Collection<Object[]> parameters()
+    {
+        ArrayList<Object[]> list = new ArrayList<Object[]>();
+        list.add(new Object[] {new WorkStealingArrayDeque<Integer>(2), 2});
+        list.add(new Object[] {new WorkStealingArrayDeque<Integer>(SIZE), SIZE});
+        list.add(new Object[] {new WorkStealingGrowableArrayDeque<Integer>(2, 4), 4});
+        list.add(new Object[] {new WorkStealingGrowableArrayDeque<Integer>(SIZE), SIZE});
+        return list;
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void pushNullResultsInNPE()
+    {
+        deque.push(null);
+    }
+
+    @Test
+    public void capacityWorks()
+    {
+        assertEquals(expectedCapacity, deque.capacity());
+        for (int i = 0; i < expectedCapacity; i++)
+        {
+            assertTrue(deque.push(i));
+        }
+        assertFalse(deque.push(expectedCapacity));
+        assertEquals(expectedCapacity, deque.size());
+        deque.clear();
+        assertTrue(deque.isEmpty());
+        assertEquals(0, deque.size());
+    }
+
+    @Test
+    public void popIsLifoAndStealIsFifo()
+    {
+        assertNull(deque.pop());
+        assertNull(deque.steal());
+        final int n = Math.min(expectedCapacity, 64);
+        for (int round = 0; round < 3; round++)
+        {
+            for (int i = 0; i < n; i++)
+            {
+                assertTrue(deque.push(i));
+            }
+            assertEquals(n, deque.size());
+            int top = 0;
+            int bottom = n - 1;
+            while (top <= bottom)
+            {
+                assertEquals(bottom--, deque.pop().intValue());
+                if (top <= bottom)
+                {
+                    assertEquals(top++, deque.steal().intValue());
+                }
+            }
+            assertTrue(deque.isEmpty());
+            assertNull(deque.pop());
+            assertNull(deque.steal());
+        }
+    }
+
+    @Test
+    public void stealHalf()
+    {
+        final int n = Math.min(expectedCapacity, 64);
+        for (int i = 0; i < n; i++)
+        {
+            deque.push(i);
+        }
+        final List<Integer> stolen = new ArrayList<Integer>();
+        final int count = deque.stealHalf(new MessagePassingQueue.Consumer<Integer>()
+        {
+            @Override
+            public void accept(Integer e)
+            {
+                stolen.add(e);
+            }
+        });
+        assertEquals((n + 1) / 2, count);
+        for (int i = 0; i < count; i++)
+        {
+            assertEquals(i, stolen.get(i).intValue());
+        }
+        assertEquals(n - count, deque.size());
+        assertEquals(n - count, deque.steal(new MessagePassingQueue.Consumer<Integer>()
+        {
+            @Override
+            public void accept(Integer e)
+            {
+            }
+        }, Integer.MAX_VALUE));
+        assertTrue(deque.isEmpty());
+        assertEquals(0, deque.stealHalf(new MessagePassingQueue.Consumer<Integer>()
+        {
+            @Override
+            public void accept(Integer e)
+            {
+                fail();
+            }
+        }));
+    }
+
+    @Test
+    public void stolenElementsAreNotRetained()
+    {
+        final int n = Math.min(expectedCapacity, 64);
+        for (int i = 0; i < n; i++)
+        {
+            deque.push(i);
+        }
+        assertEquals(0, deque.steal().intValue());
+        assertEquals(n - 1, deque.steal(new MessagePassingQueue.Consumer<Integer>()
+        {
+            @Override
+            public void accept(Integer e)
+            {
+            }
+        }, Integer.MAX_VALUE));
+        for (Object e : (Object[]) deque.lvBuffer())
+        {
+            assertNull(e);
+        }
+        // the slots are reused, including with an element stolen from them before
+        for (int i = 0; i < n; i++)
+        {
+            assertTrue(deque.push(i));
+        }
+        for (int i = n - 1; i >= 0; i--)
+        {
+            assertEquals(i, deque.pop().intValue());
+        }
+    }
+
+    @Test(timeout = TEST_TIMEOUT)
+    public void everyElementIsTakenExactlyOnce() throws Exception
+    {
+        final int elements = 200000;
+        final AtomicIntegerArray taken = new AtomicIntegerArray(elements);
+        final AtomicBoolean ownerDone = new AtomicBoolean();
+        final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+        final MessagePassingQueue.Consumer<Integer> take = new MessagePassingQueue.Consumer<Integer>()
+        {
+            @Override
+            public void accept(Integer e)
+            {
+                if (taken.getAndIncrement(e) != 0)
+                {
+                    failure.set(new AssertionError("element taken twice: " + e));
+                }
+            }
+        };
+        final List<Thread> thieves = new ArrayList<Thread>();
+        threads(new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                int round = 0;
+                while (!ownerDone.get() || !deque.isEmpty())
+                {
+                    if ((round++ & 1) == 0)
+                    {
+                        final Integer e = deque.steal();
+                        if (e != null)
+                        {
+                            take.accept(e);
+                        }
+                    }
+                    else
+                    {
+                        deque.stealHalf(take);
+                    }
+                }
+            }
+        }, 2, thieves);
+        for (Thread t : thieves)
+        {
+            t.start();
+        }
+        int next = 0;
+        while (next < elements)
+        {
+            // push a burst and pop part of it back, racing the thieves for the last elements
+            for (int i = 0; i < 16 && next < elements; i++)
+            {
+                if (deque.push(next))
+                {
+                    next++;
+                }
+            }
+            for (int i = 0; i < 8; i++)
+            {
+                final Integer e = deque.pop();
+                if (e == null)
+                {
+                    break;
+                }
+                take.accept(e);
+            }
+        }
+        Integer e;
+        while ((e = deque.pop()) != null)
+        {
+            take.accept(e);
+        }
+        ownerDone.set(true);
+        for (Thread t : thieves)
+        {
+            t.join();
+        }
+        if (failure.get() != null)
+        {
+            throw new AssertionError(failure.get());
+        }
+        for (int i = 0; i < elements; i++)
+        {
+            assertEquals("element " + i, 1, taken.get(i));
+        }
+        assertTrue(deque.isEmpty());
+    }
+}
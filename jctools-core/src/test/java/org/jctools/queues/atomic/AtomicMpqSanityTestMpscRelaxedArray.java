@@ -0,0 +1,30 @@
+package org.jctools.queues.atomic;
+
+import java.util.ArrayList;
+import java.util.Collection;
+
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+
+import org.jctools.queues.MessagePassingQueue;
+import org.jctools.queues.MpqSanityTestMpscRelaxedArray;
+import org.jctools.queues.spec.ConcurrentQueueSpec;
+import org.jctools.queues.spec.Ordering;
+
+@RunWith(Parameterized.class)
+public class AtomicMpqSanityTestMpscRelaxedArray extends MpqSanityTestMpscRelaxedArray
+{
+    public AtomicMpqSanityTestMpscRelaxedArray(ConcurrentQueueSpec spec, MessagePassingQueue<Integer> queue)
+    {
+        super(spec, queue);
+    }
+
+    @Parameterized.Parameters
+    public static Collection<Object[]> parameters()
+    {
+        ArrayList<Object[]> list = new ArrayList<Object[]>();
+        list.add(makeAtomic(1, 1, 2, Ordering.FIFO, new MpscRelaxedAtomicArrayQueue<>(2)));// MPSC size 2
+        list.add(makeAtomic(1, 1, SIZE, Ordering.FIFO, new MpscRelaxedAtomicArrayQueue<>(SIZE)));// MPSC size SIZE
+        return list;
+    }
+}
@@ -25,6 +25,7 @@ public class AtomicQueueSanityTestMpscUnboundedArray extends QueueSanityTestMpsc
         ArrayList<Object[]> list = new ArrayList<Object[]>();
         list.add(makeQueue(0, 1, 0, Ordering.FIFO, new MpscUnboundedAtomicArrayQueue<Integer>(2)));// MPSC size 1
         list.add(makeQueue(0, 1, 0, Ordering.FIFO, new MpscUnboundedAtomicArrayQueue<Integer>(64)));// MPSC size SIZE
+        list.add(makeQueue(0, 1, 0, Ordering.FIFO, new MpscUnboundedAtomicArrayQueue<Integer>(2, 2)));// MPSC size 1, pooled chunks
         return list;
     }
 }
@@ -26,6 +26,7 @@ public class AtomicQueueSanityTestSpscUnbounded extends QueueSanityTestSpscUnbou
         ArrayList<Object[]> list = new ArrayList<Object[]>();
         list.add(makeAtomic(1, 1, 0, Ordering.FIFO, new SpscUnboundedAtomicArrayQueue<>(2)));
         list.add(makeAtomic(1, 1, 0, Ordering.FIFO, new SpscUnboundedAtomicArrayQueue<>(64)));
+        list.add(makeAtomic(1, 1, 0, Ordering.FIFO, new SpscUnboundedAtomicArrayQueue<>(2, 2)));
         return list;
     }
 }
@@ -0,0 +1,30 @@
+package org.jctools.queues.unpadded;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Queue;
+
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+
+import org.jctools.queues.QueueSanityTestMpscArray;
+import org.jctools.queues.spec.ConcurrentQueueSpec;
+import org.jctools.queues.spec.Ordering;
+
+@RunWith(Parameterized.class)
+public class UnpaddedQueueSanityTestMpscArray extends QueueSanityTestMpscArray
+{
+    public UnpaddedQueueSanityTestMpscArray(ConcurrentQueueSpec spec, Queue<Integer> queue)
+    {
+        super(spec, queue);
+    }
+
+    @Parameterized.Parameters
+    public static Collection<Object[]> parameters()
+    {
+        ArrayList<Object[]> list = new ArrayList<Object[]>();
+        list.add(makeQueue(0, 1, 1, Ordering.FIFO, new MpscUnpaddedArrayQueue<>(1)));
+        list.add(makeQueue(0, 1, SIZE, Ordering.FIFO, new MpscUnpaddedArrayQueue<>(SIZE)));
+        return list;
+    }
+}
@@ -0,0 +1,459 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jctools.executors;
+
+import static org.jctools.util.UnsafeAccess.UNSAFE;
+import static org.jctools.util.UnsafeAccess.fieldOffset;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import org.jctools.queues.MessagePassingQueue;
+import org.jctools.queues.MessagePassingQueue.WaitStrategy;
+import org.jctools.queues.MpscBlockingConsumerArrayQueue;
+import org.jctools.util.RangeUtil;
+
+abstract class EventLoopExecutorL0Pad extends AbstractExecutorService {
+    byte b000,b001,b002,b003,b004,b005,b006,b007;//  8b
+    byte b010,b011,b012,b013,b014,b015,b016,b017;// 16b
+    byte b020,b021,b022,b023,b024,b025,b026,b027;// 24b
+    byte b030,b031,b032,b033,b034,b035,b036,b037;// 32b
+    byte b040,b041,b042,b043,b044,b045,b046,b047;// 40b
+    byte b050,b051,b052,b053,b054,b055,b056,b057;// 48b
+    byte b060,b061,b062,b063,b064,b065,b066,b067;// 56b
+    byte b070,b071,b072,b073,b074,b075,b076,b077;// 64b
+    byte b100,b101,b102,b103,b104,b105,b106,b107;// 72b
+    byte b110,b111,b112,b113,b114,b115,b116,b117;// 80b
+    byte b120,b121,b122,b123,b124,b125,b126,b127;// 88b
+    byte b130,b131,b132,b133,b134,b135,b136,b137;// 96b
+    byte b140,b141,b142,b143,b144,b145,b146,b147;//104b
+    byte b150,b151,b152,b153,b154,b155,b156,b157;//112b
+    byte b160,b161,b162,b163,b164,b165,b166,b167;//120b
+    byte b170,b171,b172,b173,b174,b175,b176,b177;//128b
+}
+
+/**
+ * Metrics are written by the event loop thread only (ordered stores) and read by anyone.
+ */
+abstract class EventLoopExecutorMetricsFields extends EventLoopExecutorL0Pad {
+    private final static long COMPLETED_OFFSET = fieldOffset(EventLoopExecutorMetricsFields.class, "completedTasks");
+    private final static long LATENCY_TOTAL_OFFSET = fieldOffset(EventLoopExecutorMetricsFields.class, "latencyTotalNanos");
+    private final static long LATENCY_MAX_OFFSET = fieldOffset(EventLoopExecutorMetricsFields.class, "latencyMaxNanos");
+    private final static long LATENCY_COUNT_OFFSET = fieldOffset(EventLoopExecutorMetricsFields.class, "latencyCount");
+
+    private volatile long completedTasks;
+    private volatile long latencyTotalNanos;
+    private volatile long latencyMaxNanos;
+    private volatile long latencyCount;
+
+    final long lvCompletedTasks() {
+        return completedTasks;
+    }
+
+    final void soCompletedTasks(long v) {
+        UNSAFE.putOrderedLong(this, COMPLETED_OFFSET, v);
+    }
+
+    final long lvLatencyTotalNanos() {
+        return latencyTotalNanos;
+    }
+
+    final long lvLatencyMaxNanos() {
+        return latencyMaxNanos;
+    }
+
+    final long lvLatencyCount() {
+        return latencyCount;
+    }
+
+    final void recordLatency(long latencyNanos) {
+        // single writer: plain read-modify-ordered-write is enough
+        UNSAFE.putOrderedLong(this, LATENCY_TOTAL_OFFSET, UNSAFE.getLong(this, LATENCY_TOTAL_OFFSET) + latencyNanos);
+        UNSAFE.putOrderedLong(this, LATENCY_COUNT_OFFSET, UNSAFE.getLong(this, LATENCY_COUNT_OFFSET) + 1);
+        if (latencyNanos > UNSAFE.getLong(this, LATENCY_MAX_OFFSET)) {
+            UNSAFE.putOrderedLong(this, LATENCY_MAX_OFFSET, latencyNanos);
+        }
+    }
+}
+
+abstract class EventLoopExecutorL1Pad extends EventLoopExecutorMetricsFields {
+    byte b000,b001,b002,b003,b004,b005,b006,b007;//  8b
+    byte b010,b011,b012,b013,b014,b015,b016,b017;// 16b
+    byte b020,b021,b022,b023,b024,b025,b026,b027;// 24b
+    byte b030,b031,b032,b033,b034,b035,b036,b037;// 32b
+    byte b040,b041,b042,b043,b044,b045,b046,b047;// 40b
+    byte b050,b051,b052,b053,b054,b055,b056,b057;// 48b
+    byte b060,b061,b062,b063,b064,b065,b066,b067;// 56b
+    byte b070,b071,b072,b073,b074,b075,b076,b077;// 64b
+    byte b100,b101,b102,b103,b104,b105,b106,b107;// 72b
+    byte b110,b111,b112,b113,b114,b115,b116,b117;// 80b
+    byte b120,b121,b122,b123,b124,b125,b126,b127;// 88b
+    byte b130,b131,b132,b133,b134,b135,b136,b137;// 96b
+    byte b140,b141,b142,b143,b144,b145,b146,b147;//104b
+    byte b150,b151,b152,b153,b154,b155,b156,b157;//112b
+    byte b160,b161,b162,b163,b164,b165,b166,b167;//120b
+    byte b170,b171,b172,b173,b174,b175,b176,b177;//128b
+}
+
+/**
+ * An {@link java.util.concurrent.ExecutorService} running all tasks on a single thread, fed by a
+ * {@link MpscBlockingConsumerArrayQueue}.
+ * <p>
+ * The event loop drains tasks in batches of up to {@code drainLimit} using
+ * {@link MpscBlockingConsumerArrayQueue#drain(MessagePassingQueue.Consumer, int)}. When the queue is empty it calls the
+ * idle {@link WaitStrategy} with an increasing idle counter, and once the counter reaches {@code parkAfterIdle} it
+ * parks in {@link MpscBlockingConsumerArrayQueue#take()}, relying on the queue's blocked consumer handshake so that the
+ * producer whose offer finds the consumer blocked unparks it. A wait strategy returning a constant never parks (busy
+ * spin), {@code parkAfterIdle == 0} parks as soon as the queue is empty.
+ * <p>
+ * The queue is bounded: {@link #execute(Runnable)} throws {@link RejectedExecutionException} when it is full or the
+ * executor is shut down. Tasks throwing an exception do not stop the loop, the exception is reported to the loop
+ * thread's {@link Thread.UncaughtExceptionHandler}.
+ * <p>
+ * Metrics: {@link #queueDepth()}, {@link #completedTaskCount()} and, if enabled at construction, the submit to start
+ * latency of tasks ({@link #taskLatencyMeanNanos()}, {@link #taskLatencyMaxNanos()}). Latency measurement wraps each
+ * task in a timestamped holder, so it costs an allocation and a {@link System#nanoTime()} per task.
+ * <p>
+ * Producers register in the state word for the duration of their shutdown check and offer, and the terminating loop
+ * waits for registered producers before its last drain, so that an accepted task is always run (or returned by
+ * {@link #shutdownNow()}).
+ */
+public class EventLoopExecutor extends EventLoopExecutorL1Pad {
+    public static final int DEFAULT_DRAIN_LIMIT = 64;
+    public static final int DEFAULT_PARK_AFTER_IDLE = 1024;
+
+    private final static long STATE_OFFSET = fieldOffset(EventLoopExecutor.class, "state");
+
+    // the low bits of the state word hold the run state, the high bits count the producers in execute
+    private static final int RUNNING = 0;
+    private static final int SHUTDOWN = 1;
+    private static final int STOP = 2;
+    private static final int TERMINATED = 3;
+    private static final int RUN_STATE_MASK = 3;
+    private static final int SUBMITTER = 4;
+
+    private static final Runnable WAKEUP = new Runnable() {
+        @Override
+        public void run() {
+        }
+    };
+
+    private static final WaitStrategy BUSY_SPIN = new WaitStrategy() {
+        @Override
+        public int idle(int idleCounter) {
+            return idleCounter + 1;
+        }
+    };
+
+    static final class TimedTask implements Runnable {
+        final Runnable task;
+        final long submitNanos;
+
+        TimedTask(Runnable task, long submitNanos) {
+            this.task = task;
+            this.submitNanos = submitNanos;
+        }
+
+        @Override
+        public void run() {
+            task.run();
+        }
+    }
+
+    private final MpscBlockingConsumerArrayQueue<Runnable> queue;
+    private final int drainLimit;
+    private final int parkAfterIdle;
+    private final WaitStrategy idleStrategy;
+    private final boolean measureLatency;
+    private final Thread thread;
+    private final CountDownLatch terminated = new CountDownLatch(1);
+    private final MessagePassingQueue.Consumer<Runnable> runTask = new MessagePassingQueue.Consumer<Runnable>() {
+        @Override
+        public void accept(Runnable task) {
+            // a batch may be in progress when shutdownNow is called, the rest of it must not run
+            if (runState() == STOP) {
+                addUnstarted(task);
+            } else {
+                runTask(task);
+            }
+        }
+    };
+    private final MessagePassingQueue.Consumer<Runnable> addUnstarted = new MessagePassingQueue.Consumer<Runnable>() {
+        @Override
+        public void accept(Runnable task) {
+            addUnstarted(task);
+        }
+    };
+    private volatile int state = RUNNING;
+    // event loop thread only, published to shutdownNow callers by the termination latch
+    private List<Runnable> unstarted = new ArrayList<Runnable>();
+    private long completed;
+
+    /**
+     * Busy spin {@link #DEFAULT_PARK_AFTER_IDLE} times before parking, no latency measurement.
+     *
+     * @param capacity the task queue capacity, rounded up to the next power of 2
+     */
+    public EventLoopExecutor(int capacity) {
+        this(capacity, DEFAULT_DRAIN_LIMIT, DEFAULT_PARK_AFTER_IDLE, BUSY_SPIN, false, Executors.defaultThreadFactory());
+    }
+
+    /**
+     * @param capacity       the task queue capacity, rounded up to the next power of 2
+     * @param drainLimit     the maximum number of tasks run per drain
+     * @param parkAfterIdle  park once the idle counter returned by the idle strategy reaches this value
+     * @param idleStrategy   called while the queue is empty and the loop has not parked yet
+     * @param measureLatency record the submit to start latency of tasks
+     * @param threadFactory  creates the event loop thread, which is started by the constructor
+     */
+    public EventLoopExecutor(
+        int capacity,
+        int drainLimit,
+        int parkAfterIdle,
+        WaitStrategy idleStrategy,
+        boolean measureLatency,
+        ThreadFactory threadFactory) {
+        RangeUtil.checkPositive(drainLimit, "drainLimit");
+        RangeUtil.checkPositiveOrZero(parkAfterIdle, "parkAfterIdle");
+        if (null == idleStrategy) {
+            throw new IllegalArgumentException("idleStrategy is null");
+        }
+        if (null == threadFactory) {
+            throw new IllegalArgumentException("threadFactory is null");
+        }
+        this.queue = new MpscBlockingConsumerArrayQueue<Runnable>(capacity);
+        this.drainLimit = drainLimit;
+        this.parkAfterIdle = parkAfterIdle;
+        this.idleStrategy = idleStrategy;
+        this.measureLatency = measureLatency;
+        this.thread = threadFactory.newThread(new Runnable() {
+            @Override
+            public void run() {
+                eventLoop();
+            }
+        });
+        this.thread.start();
+    }
+
+    @Override
+    public void execute(Runnable task) {
+        if (null == task) {
+            throw new NullPointerException("task is null");
+        }
+        while (true) {
+            final int s = state;
+            if ((s & RUN_STATE_MASK) != RUNNING) {
+                throw new RejectedExecutionException("executor is shut down");
+            }
+            if (UNSAFE.compareAndSwapInt(this, STATE_OFFSET, s, s + SUBMITTER)) {
+                break;
+            }
+        }
+        try {
+            if (!queue.offer(measureLatency ? new TimedTask(task, System.nanoTime()) : task)) {
+                throw new RejectedExecutionException("task queue is full");
+            }
+        } finally {
+            // the loop does not terminate before the last registered producer leaves
+            int s;
+            do {
+                s = state;
+            } while (!UNSAFE.compareAndSwapInt(this, STATE_OFFSET, s, s - SUBMITTER));
+        }
+    }
+
+    /**
+     * @return true if the calling thread is the event loop thread
+     */
+    public boolean inEventLoop() {
+        return Thread.currentThread() == thread;
+    }
+
+    /**
+     * @return the number of tasks waiting in the queue, an estimate when producers or the loop are active
+     */
+    public int queueDepth() {
+        return queue.size();
+    }
+
+    public long completedTaskCount() {
+        return lvCompletedTasks();
+    }
+
+    /**
+     * @return the mean submit to start latency of the tasks run so far, or 0 if latency is not measured
+     */
+    public long taskLatencyMeanNanos() {
+        final long count = lvLatencyCount();
+        return count == 0 ? 0 : lvLatencyTotalNanos() / count;
+    }
+
+    /**
+     * @return the max submit to start latency of the tasks run so far, or 0 if latency is not measured
+     */
+    public long taskLatencyMaxNanos() {
+        return lvLatencyMaxNanos();
+    }
+
+    @Override
+    public void shutdown() {
+        if (advanceState(SHUTDOWN)) {
+            wakeup();
+        }
+    }
+
+    /**
+     * Stop the loop after the running task, interrupting it. When called from outside the event loop this waits for
+     * the loop to terminate in order to collect the tasks which never started, as the loop is the only consumer.
+     */
+    @Override
+    public List<Runnable> shutdownNow() {
+        advanceState(STOP);
+        if (inEventLoop()) {
+            queue.drain(addUnstarted);
+            final List<Runnable> unstarted = this.unstarted;
+            this.unstarted = new ArrayList<Runnable>();
+            return unstarted;
+        }
+        thread.interrupt();
+        wakeup();
+        boolean interrupted = false;
+        while (true) {
+            try {
+                terminated.await();
+                break;
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+        return unstarted;
+    }
+
+    @Override
+    public boolean isShutdown() {
+        return runState() >= SHUTDOWN;
+    }
+
+    @Override
+    public boolean isTerminated() {
+        return runState() == TERMINATED;
+    }
+
+    @Override
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        return terminated.await(timeout, unit);
+    }
+
+    private int runState() {
+        return state & RUN_STATE_MASK;
+    }
+
+    private boolean advanceState(int target) {
+        while (true) {
+            final int s = state;
+            if ((s & RUN_STATE_MASK) >= target) {
+                return false;
+            }
+            if (UNSAFE.compareAndSwapInt(this, STATE_OFFSET, s, (s & ~RUN_STATE_MASK) | target)) {
+                return true;
+            }
+        }
+    }
+
+    private void wakeup() {
+        // if the queue is full the loop is not parked
+        queue.offer(WAKEUP);
+    }
+
+    private void eventLoop() {
+        final MpscBlockingConsumerArrayQueue<Runnable> queue = this.queue;
+        final MessagePassingQueue.Consumer<Runnable> runTask = this.runTask;
+        final WaitStrategy idleStrategy = this.idleStrategy;
+        final int drainLimit = this.drainLimit;
+        final int parkAfterIdle = this.parkAfterIdle;
+        try {
+            int idleCounter = 0;
+            while (true) {
+                final int s = runState();
+                if (s == STOP) {
+                    break;
+                }
+                if (queue.drain(runTask, drainLimit) != 0) {
+                    idleCounter = 0;
+                    continue;
+                }
+                if (s == SHUTDOWN) {
+                    // drained empty after shutdown, further submissions are rejected
+                    break;
+                }
+                if (idleCounter < parkAfterIdle) {
+                    idleCounter = idleStrategy.idle(idleCounter);
+                    continue;
+                }
+                final Runnable task;
+                try {
+                    task = queue.take();
+                } catch (InterruptedException e) {
+                    // shutdownNow, state is checked at the top of the loop
+                    continue;
+                }
+                runTask(task);
+                idleCounter = 0;
+            }
+        } finally {
+            // no producer registers once the executor is shut down, wait for those which did to offer
+            while (state >= SUBMITTER) {
+                Thread.yield();
+            }
+            // after shutdown: a producer which passed the state check may have offered after our last drain,
+            // after shutdownNow: collect the unstarted tasks
+            queue.drain(runTask);
+            state = TERMINATED;
+            terminated.countDown();
+        }
+    }
+
+    private void addUnstarted(Runnable task) {
+        if (task != WAKEUP) {
+            unstarted.add(task instanceof TimedTask ? ((TimedTask) task).task : task);
+        }
+    }
+
+    private void runTask(Runnable task) {
+        if (task == WAKEUP) {
+            return;
+        }
+        if (task instanceof TimedTask) {
+            final TimedTask timed = (TimedTask) task;
+            recordLatency(System.nanoTime() - timed.submitNanos);
+            task = timed.task;
+        }
+        try {
+            task.run();
+        } catch (Throwable ex) {
+            final Thread thread = Thread.currentThread();
+            thread.getUncaughtExceptionHandler().uncaughtException(thread, ex);
+        }
+        soCompletedTasks(++completed);
+    }
+}
@@ -56,6 +56,18 @@ public class BlockingQueueFactory {
         return newBlockingQueue(qs, takeStratClass, putStratClass);
     }
 
+    /**
+     * A blocking queue which is safe to use from virtual threads: waiting consumers and producers park (no monitors, no
+     * yield loops) and are unparked by the counterpart operation, so waiters are unmounted from their carrier rather
+     * than pinning it or burning its time.
+     */
+    public static <E> BlockingQueue<E> newVirtualThreadBlockingQueue(ConcurrentQueueSpec qs) {
+        Class takeStratClass = (qs.consumers == 1) ? ScParkTakeStrategy.class : McLockFreeParkTakeStrategy.class;
+        Class putStratClass = ParkPutStrategy.class;
+
+        return newBlockingQueue(qs, takeStratClass, putStratClass);
+    }
+
     public static <E> BlockingQueue<E> newBlockingQueue(ConcurrentQueueSpec qs,
             Class<? extends TakeStrategy> takeStratClass, Class<? extends PutStrategy> putStratClass) {
         // Check if strategies are compatible with QueueSpec
@@ -0,0 +1,78 @@
+package org.jctools.queues.blocking;
+
+import org.jctools.queues.spec.ConcurrentQueueSpec;
+
+import java.util.Queue;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A multi consumer take strategy which parks waiting consumers without taking a monitor. Unlike
+ * {@link McParkTakeStrategy} (which waits on {@code synchronized}/{@code Object.wait}, pinning virtual threads to their
+ * carrier on JDK 21) waiting consumers are unmounted, so it is suitable for large numbers of virtual thread consumers.
+ * <p>
+ * Each successful offer unparks at most one waiting consumer.
+ */
+public final class McLockFreeParkTakeStrategy<E> implements TakeStrategy<E>
+{
+    private final ParkWaiters waiters = new ParkWaiters();
+
+    @Override
+    public void signal()
+    {
+        waiters.signal();
+    }
+
+    @Override
+    public E waitPoll(Queue<E> q) throws InterruptedException
+    {
+        E e = q.poll();
+        if (e != null)
+        {
+            return e;
+        }
+
+        final Thread currentThread = Thread.currentThread();
+        do
+        {
+            waiters.register(currentThread);
+            e = q.poll();
+            if (e == null)
+            {
+                LockSupport.park(this);
+                if (Thread.interrupted())
+                {
+                    passOnWakeup(q, currentThread);
+                    throw new InterruptedException("Interrupted while waiting for the queue to become non-empty.");
+                }
+                e = q.poll();
+            }
+            if (e != null)
+            {
+                passOnWakeup(q, currentThread);
+            }
+            else
+            {
+                // signalled and beaten to the element, or a spurious wakeup: re-register
+                waiters.deregister(currentThread);
+            }
+        }
+        while (e == null);
+
+        return e;
+    }
+
+    private void passOnWakeup(Queue<E> q, Thread currentThread)
+    {
+        // We may have been signalled for an element we did not take, another waiter must not miss it
+        if (!waiters.deregister(currentThread) && !q.isEmpty())
+        {
+            waiters.signal();
+        }
+    }
+
+    @Override
+    public boolean supportsSpec(ConcurrentQueueSpec qs)
+    {
+        return true;
+    }
+}
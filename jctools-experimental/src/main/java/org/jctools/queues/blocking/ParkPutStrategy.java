@@ -0,0 +1,76 @@
+package org.jctools.queues.blocking;
+
+import org.jctools.queues.spec.ConcurrentQueueSpec;
+
+import java.util.Queue;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A put strategy which parks producers waiting for space until a consumer signals, instead of the
+ * {@link YieldPutStrategy} yield loop. No monitors are taken so waiting virtual threads are unmounted rather than
+ * pinned, and no carrier time is burnt while the queue is full.
+ * <p>
+ * Each successful poll unparks at most one waiting producer.
+ */
+public final class ParkPutStrategy<E> implements PutStrategy<E>
+{
+    private final ParkWaiters waiters = new ParkWaiters();
+
+    @Override
+    public void waitOffer(Queue<E> q, E e) throws InterruptedException
+    {
+        if (q.offer(e))
+        {
+            return;
+        }
+
+        final Thread currentThread = Thread.currentThread();
+        boolean offered;
+        do
+        {
+            waiters.register(currentThread);
+            offered = q.offer(e);
+            if (!offered)
+            {
+                LockSupport.park(this);
+                if (Thread.interrupted())
+                {
+                    passOnWakeup(currentThread);
+                    throw new InterruptedException("Interrupted while waiting for the queue to put in queue");
+                }
+                offered = q.offer(e);
+            }
+            if (offered)
+            {
+                passOnWakeup(currentThread);
+            }
+            else
+            {
+                // signalled and beaten to the slot, or a spurious wakeup: re-register
+                waiters.deregister(currentThread);
+            }
+        }
+        while (!offered);
+    }
+
+    private void passOnWakeup(Thread currentThread)
+    {
+        // We may have been signalled for a slot we did not use, another waiter must not miss it
+        if (!waiters.deregister(currentThread))
+        {
+            waiters.signal();
+        }
+    }
+
+    @Override
+    public void signal()
+    {
+        waiters.signal();
+    }
+
+    @Override
+    public boolean supportsSpec(ConcurrentQueueSpec qs)
+    {
+        return true;
+    }
+}
@@ -0,0 +1,48 @@
+package org.jctools.queues.blocking;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A lock free set of parked threads, shared by the park based strategies.
+ * <p>
+ * Waiting uses only {@link LockSupport} and CAS, no monitors are taken and no thread ever yields or spins, so virtual
+ * thread waiters are unmounted from their carrier while parked and are never pinned.
+ * <p>
+ * The protocol is a Dekker handshake: a waiter registers (CAS, full fence) and then re-checks the queue before
+ * parking, a signaller makes its queue operation visible (volatile store, store load barrier) and then checks for
+ * waiters. A signalled waiter which did not need the signal passes it on, see {@link #deregister(Thread)}.
+ */
+final class ParkWaiters
+{
+    private final ConcurrentLinkedQueue<Thread> waiters = new ConcurrentLinkedQueue<Thread>();
+
+    public volatile int storeFence = 0;
+
+    void register(Thread thread)
+    {
+        waiters.offer(thread);
+    }
+
+    /**
+     * O(waiters) when the thread is still registered.
+     *
+     * @return false if the thread was already removed by a {@link #signal()}, i.e. this thread consumed a wakeup
+     */
+    boolean deregister(Thread thread)
+    {
+        return waiters.remove(thread);
+    }
+
+    void signal()
+    {
+        // Make sure the offer/poll is visible before checking for waiters
+        storeFence = 1; // store load barrier
+
+        final Thread waiter = waiters.poll();
+        if (waiter != null)
+        {
+            LockSupport.unpark(waiter);
+        }
+    }
+}
@@ -0,0 +1,96 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jctools.timers;
+
+import static org.jctools.util.UnsafeAccess.UNSAFE;
+import static org.jctools.util.UnsafeAccess.fieldOffset;
+
+/**
+ * A handle to a task scheduled on a {@link TimingWheel}. The handle is also the wheel's bucket list node, so a
+ * schedule costs a single allocation.
+ * <p>
+ * The {@code prev/next/bucket/deadlineTick} fields are owned by the tick thread.
+ */
+public final class Timeout {
+    private final static long STATE_OFFSET = fieldOffset(Timeout.class, "state");
+
+    static final int PENDING = 0;
+    static final int CANCELLED = 1;
+    static final int EXPIRED = 2;
+
+    private final TimingWheel wheel;
+    private final Runnable task;
+    private final long deadline;
+    private volatile int state;
+
+    // tick thread only
+    long deadlineTick;
+    TimingWheel.Bucket bucket;
+    Timeout prev;
+    Timeout next;
+
+    Timeout(TimingWheel wheel, Runnable task, long deadline) {
+        this.wheel = wheel;
+        this.task = task;
+        this.deadline = deadline;
+    }
+
+    public Runnable task() {
+        return task;
+    }
+
+    /**
+     * @return the deadline in {@link System#nanoTime()} terms
+     */
+    public long deadline() {
+        return deadline;
+    }
+
+    /**
+     * Cancel the task, may be called from any thread. The handle is removed from its bucket by the tick thread in
+     * O(1) on its next tick.
+     *
+     * @return true if this call cancelled the task, false if it was already cancelled or expired
+     */
+    public boolean cancel() {
+        if (!casState(PENDING, CANCELLED)) {
+            return false;
+        }
+        wheel.onCancel(this);
+        return true;
+    }
+
+    public boolean isCancelled() {
+        return state == CANCELLED;
+    }
+
+    public boolean isExpired() {
+        return state == EXPIRED;
+    }
+
+    boolean expire() {
+        return casState(PENDING, EXPIRED);
+    }
+
+    private boolean casState(int expect, int update) {
+        return UNSAFE.compareAndSwapInt(this, STATE_OFFSET, expect, update);
+    }
+
+    @Override
+    public String toString() {
+        final int s = state;
+        return "Timeout{task=" + task + ", deadline=" + deadline +
+            ", state=" + (s == PENDING ? "PENDING" : s == CANCELLED ? "CANCELLED" : "EXPIRED") + "}";
+    }
+}
@@ -0,0 +1,344 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jctools.timers;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.LockSupport;
+
+import org.jctools.queues.MessagePassingQueue;
+import org.jctools.queues.MpscUnboundedXaddArrayQueue;
+import org.jctools.util.Pow2;
+import org.jctools.util.RangeUtil;
+
+/**
+ * A hierarchical timing wheel: any thread may {@link #schedule(Runnable, long, TimeUnit)} or {@link Timeout#cancel()},
+ * a single tick thread owns the wheel and runs the expired tasks.
+ * <p>
+ * Schedules and cancellations are handed to the tick thread through {@link MpscUnboundedXaddArrayQueue} inboxes, so
+ * producers never contend on the wheel itself and the only allocation per schedule is the {@link Timeout} handle
+ * (which doubles as the bucket list node). Schedule and cancel are O(1) for the caller and for the tick thread.
+ * <p>
+ * The wheel has {@code levels} levels of {@code wheelSize} buckets each, level {@code k} bucket spans
+ * {@code wheelSize^k} ticks. A timeout is placed in the lowest level that can hold it without wrapping and is cascaded
+ * to lower levels as the wheel turns, timeouts further out than the top level horizon are parked in the furthest top
+ * level bucket and re-placed when it is cascaded. Timeouts fire on the first tick at or after their deadline, i.e. up
+ * to one tick late.
+ * <p>
+ * The wheel can either be driven by its own thread ({@link #start()}/{@link #stop()}) or by an existing thread (e.g. an
+ * event loop) calling {@link #advance(long)}, but not both. Tasks run on the tick thread and should be short, exceptions
+ * thrown by tasks are reported to the tick thread's {@link Thread.UncaughtExceptionHandler}.
+ */
+public class TimingWheel {
+    private static final int INBOX_CHUNK_SIZE = 1024;
+    private static final int INBOX_POOLED_CHUNKS = 2;
+    // bound the inbox drain per advance so that a flood of schedules cannot starve the wheel
+    private static final int INBOX_DRAIN_LIMIT = 64 * 1024;
+    // keeps tick arithmetic well away from overflow, still ~73 years
+    private static final long MAX_DELAY_NANOS = Long.MAX_VALUE >> 2;
+
+    /**
+     * Intrusive doubly linked list of timeouts, tick thread only.
+     */
+    static final class Bucket {
+        Timeout head;
+        Timeout tail;
+
+        void add(Timeout t) {
+            t.bucket = this;
+            final Timeout tail = this.tail;
+            t.prev = tail;
+            if (tail == null) {
+                head = t;
+            } else {
+                tail.next = t;
+            }
+            this.tail = t;
+        }
+
+        void remove(Timeout t) {
+            final Timeout prev = t.prev;
+            final Timeout next = t.next;
+            if (prev == null) {
+                head = next;
+            } else {
+                prev.next = next;
+            }
+            if (next == null) {
+                tail = prev;
+            } else {
+                next.prev = prev;
+            }
+            t.prev = t.next = null;
+            t.bucket = null;
+        }
+
+        Timeout poll() {
+            final Timeout t = head;
+            if (t != null) {
+                remove(t);
+            }
+            return t;
+        }
+    }
+
+    private final long startNanos;
+    private final long tickNanos;
+    private final int wheelShift;
+    private final int wheelMask;
+    private final int levels;
+    private final Bucket[][] wheels;
+    private final MpscUnboundedXaddArrayQueue<Timeout> scheduled;
+    private final MpscUnboundedXaddArrayQueue<Timeout> cancelled;
+    private final MessagePassingQueue.Consumer<Timeout> placeScheduled;
+    private final MessagePassingQueue.Consumer<Timeout> removeCancelled;
+    private final AtomicBoolean started = new AtomicBoolean();
+    private volatile boolean running;
+    private volatile Thread tickThread;
+
+    // tick thread only
+    private long currentTick;
+
+    /**
+     * A 4 level wheel of 256 buckets per level.
+     *
+     * @param tickDuration the wheel resolution
+     */
+    public TimingWheel(long tickDuration, TimeUnit unit) {
+        this(tickDuration, unit, 256, 4);
+    }
+
+    /**
+     * @param tickDuration the wheel resolution
+     * @param wheelSize    buckets per level, rounded up to the next power of 2
+     * @param levels       number of levels, the horizon is {@code tickDuration * wheelSize^levels}
+     */
+    public TimingWheel(long tickDuration, TimeUnit unit, int wheelSize, int levels) {
+        tickNanos = RangeUtil.checkPositive(unit.toNanos(tickDuration), "tickDuration");
+        RangeUtil.checkGreaterThanOrEqual(wheelSize, 2, "wheelSize");
+        RangeUtil.checkPositive(levels, "levels");
+        final int size = Pow2.roundToPowerOfTwo(wheelSize);
+        wheelShift = Integer.numberOfTrailingZeros(size);
+        RangeUtil.checkLessThanOrEqual(wheelShift * levels, 62, "wheelShift * levels");
+        wheelMask = size - 1;
+        this.levels = levels;
+        wheels = new Bucket[levels][size];
+        for (Bucket[] wheel : wheels) {
+            for (int i = 0; i < size; i++) {
+                wheel[i] = new Bucket();
+            }
+        }
+        scheduled = new MpscUnboundedXaddArrayQueue<Timeout>(INBOX_CHUNK_SIZE, INBOX_POOLED_CHUNKS);
+        cancelled = new MpscUnboundedXaddArrayQueue<Timeout>(INBOX_CHUNK_SIZE, INBOX_POOLED_CHUNKS);
+        placeScheduled = new MessagePassingQueue.Consumer<Timeout>() {
+            @Override
+            public void accept(Timeout t) {
+                if (!t.isCancelled()) {
+                    // the current tick bucket has already expired
+                    place(t, currentTick + 1);
+                }
+            }
+        };
+        removeCancelled = new MessagePassingQueue.Consumer<Timeout>() {
+            @Override
+            public void accept(Timeout t) {
+                final Bucket bucket = t.bucket;
+                if (bucket != null) {
+                    bucket.remove(t);
+                }
+            }
+        };
+        startNanos = System.nanoTime();
+    }
+
+    public long tickDurationNanos() {
+        return tickNanos;
+    }
+
+    /**
+     * Schedule a task to run once after the given delay, may be called from any thread.
+     *
+     * @return a handle which can be used to cancel the task
+     */
+    public Timeout schedule(Runnable task, long delay, TimeUnit unit) {
+        if (null == task) {
+            throw new NullPointerException("task is null");
+        }
+        final long delayNanos = Math.min(Math.max(0, unit.toNanos(delay)), MAX_DELAY_NANOS);
+        final long now = System.nanoTime();
+        final Timeout t = new Timeout(this, task, now + delayNanos);
+        // round up: fire on the first tick at or after the deadline
+        t.deadlineTick = (now - startNanos + delayNanos + tickNanos - 1) / tickNanos;
+        scheduled.offer(t);
+        return t;
+    }
+
+    void onCancel(Timeout t) {
+        cancelled.offer(t);
+    }
+
+    /**
+     * Turn the wheel up to the given time and run the expired tasks. Must only be called by a single thread, and not
+     * at all when the wheel was {@link #start()}ed.
+     *
+     * @param nowNanos the current {@link System#nanoTime()}
+     * @return the number of tasks run
+     */
+    public int advance(long nowNanos) {
+        // schedules first, so that cancels of freshly placed timeouts unlink them
+        scheduled.drain(placeScheduled, INBOX_DRAIN_LIMIT);
+        cancelled.drain(removeCancelled, INBOX_DRAIN_LIMIT);
+
+        final long targetTick = (nowNanos - startNanos) / tickNanos;
+        final Bucket[][] wheels = this.wheels;
+        final int wheelShift = this.wheelShift;
+        final int wheelMask = this.wheelMask;
+        int expired = 0;
+        while (currentTick < targetTick) {
+            final long tick = ++currentTick;
+            // cascade top down so that timeouts can fall through several levels in one tick
+            for (int level = levels - 1; level > 0; level--) {
+                final int shift = level * wheelShift;
+                if ((tick & ((1L << shift) - 1)) == 0) {
+                    cascade(wheels[level][(int) ((tick >>> shift) & wheelMask)]);
+                }
+            }
+            expired += expire(wheels[0][(int) (tick & wheelMask)]);
+        }
+        return expired;
+    }
+
+    /**
+     * @param earliestTick the first tick whose level 0 bucket is still to be expired
+     */
+    private void place(Timeout t, long earliestTick) {
+        final long currentTick = this.currentTick;
+        final long deadlineTick = Math.max(t.deadlineTick, earliestTick);
+        final int wheelShift = this.wheelShift;
+        final int wheelSize = wheelMask + 1;
+        int level = 0;
+        int shift = 0;
+        long slot = deadlineTick;
+        for (; level < levels; level++, shift += wheelShift) {
+            slot = deadlineTick >>> shift;
+            // the slot must be within one turn of the current slot on this level, or it would wrap onto a passed slot
+            if (slot - (currentTick >>> shift) < wheelSize) {
+                break;
+            }
+        }
+        if (level == levels) {
+            // beyond the horizon: park in the furthest top level slot, it is re-placed when cascaded
+            level = levels - 1;
+            shift -= wheelShift;
+            slot = (currentTick >>> shift) + wheelSize - 1;
+        }
+        wheels[level][(int) (slot & wheelMask)].add(t);
+    }
+
+    private void cascade(Bucket bucket) {
+        Timeout t;
+        while ((t = bucket.poll()) != null) {
+            if (!t.isCancelled()) {
+                // cascading runs before the current tick bucket is expired, a timeout due now still makes it
+                place(t, currentTick);
+            }
+        }
+    }
+
+    private int expire(Bucket bucket) {
+        int expired = 0;
+        Timeout t;
+        while ((t = bucket.poll()) != null) {
+            if (t.expire()) {
+                expired++;
+                run(t.task());
+            }
+        }
+        return expired;
+    }
+
+    private static void run(Runnable task) {
+        try {
+            task.run();
+        } catch (Throwable ex) {
+            final Thread thread = Thread.currentThread();
+            thread.getUncaughtExceptionHandler().uncaughtException(thread, ex);
+        }
+    }
+
+    /**
+     * Start a daemon tick thread.
+     *
+     * @throws IllegalStateException if already started
+     */
+    public void start() {
+        start(new ThreadFactory() {
+            final ThreadFactory delegate = Executors.defaultThreadFactory();
+
+            @Override
+            public Thread newThread(Runnable r) {
+                final Thread thread = delegate.newThread(r);
+                thread.setName("jctools-timing-wheel");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+
+    /**
+     * Start a tick thread created by the given factory.
+     *
+     * @throws IllegalStateException if already started
+     */
+    public void start(ThreadFactory threadFactory) {
+        if (!started.compareAndSet(false, true)) {
+            throw new IllegalStateException("already started");
+        }
+        running = true;
+        final Thread thread = threadFactory.newThread(new Runnable() {
+            @Override
+            public void run() {
+                tickLoop();
+            }
+        });
+        tickThread = thread;
+        thread.start();
+    }
+
+    /**
+     * Stop the tick thread and wait for it to exit. Pending timeouts are not run.
+     */
+    public void stop() throws InterruptedException {
+        final Thread thread = tickThread;
+        if (thread == null) {
+            return;
+        }
+        running = false;
+        LockSupport.unpark(thread);
+        thread.join();
+    }
+
+    private void tickLoop() {
+        while (running) {
+            advance(System.nanoTime());
+            final long nextTickNanos = startNanos + (currentTick + 1) * tickNanos;
+            final long sleepNanos = nextTickNanos - System.nanoTime();
+            if (sleepNanos > 0) {
+                LockSupport.parkNanos(this, sleepNanos);
+            }
+        }
+    }
+}
@@ -0,0 +1,260 @@
+package org.jctools.executors;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+
+@RunWith(Parameterized.class)
+public class EventLoopExecutorTest {
+
+    @Parameterized.Parameters
+    public static Collection<Object[]> parameters() {
+        ArrayList<Object[]> list = new ArrayList<>();
+        // park as soon as idle
+        list.add(new Object[]{0, false});
+        // spin then park, measuring latency
+        list.add(new Object[]{EventLoopExecutor.DEFAULT_PARK_AFTER_IDLE, true});
+        return list;
+    }
+
+    private final EventLoopExecutor executor;
+
+    public EventLoopExecutorTest(int parkAfterIdle, boolean measureLatency) {
+        executor = new EventLoopExecutor(1024, 16, parkAfterIdle, i -> i + 1, measureLatency,
+            Executors.defaultThreadFactory());
+    }
+
+    @After
+    public void shutdown() throws InterruptedException {
+        executor.shutdownNow();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void executeNullResultsInNPE() {
+        executor.execute(null);
+    }
+
+    @Test(timeout = 30000)
+    public void runsTasksInSubmissionOrderOnOneThread() throws Exception {
+        final int tasks = 100000;
+        final AtomicReference<Thread> loopThread = new AtomicReference<>();
+        final AtomicInteger next = new AtomicInteger();
+        final AtomicInteger outOfOrder = new AtomicInteger();
+        final CountDownLatch done = new CountDownLatch(1);
+        for (int i = 0; i < tasks; i++) {
+            final int expected = i;
+            Runnable task = () -> {
+                if (loopThread.get() == null) {
+                    loopThread.set(Thread.currentThread());
+                }
+                if (!executor.inEventLoop() || loopThread.get() != Thread.currentThread() ||
+                    next.getAndIncrement() != expected) {
+                    outOfOrder.incrementAndGet();
+                }
+                if (expected == tasks - 1) {
+                    done.countDown();
+                }
+            };
+            while (true) {
+                try {
+                    executor.execute(task);
+                    break;
+                } catch (RejectedExecutionException full) {
+                    Thread.yield();
+                }
+            }
+        }
+        done.await();
+        assertEquals(0, outOfOrder.get());
+        assertFalse(executor.inEventLoop());
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+        assertEquals(tasks, executor.completedTaskCount());
+    }
+
+    @Test(timeout = 30000)
+    public void wakesUpFromParkForManyProducers() throws Exception {
+        final int producers = 4;
+        final int perProducer = 10000;
+        final CountDownLatch done = new CountDownLatch(producers * perProducer);
+        List<Thread> threads = new ArrayList<>();
+        for (int p = 0; p < producers; p++) {
+            threads.add(new Thread(() -> {
+                for (int i = 0; i < perProducer; i++) {
+                    while (true) {
+                        try {
+                            executor.execute(done::countDown);
+                            break;
+                        } catch (RejectedExecutionException full) {
+                            Thread.yield();
+                        }
+                    }
+                    if ((i & 1023) == 0) {
+                        // let the loop go idle and park
+                        sleep(1);
+                    }
+                }
+            }));
+        }
+        for (Thread t : threads) {
+            t.start();
+        }
+        done.await();
+        for (Thread t : threads) {
+            t.join();
+        }
+    }
+
+    @Test(timeout = 30000)
+    public void submitReturnsResultAndExceptionsDoNotKillTheLoop() throws Exception {
+        Thread.UncaughtExceptionHandler ignore = (t, e) -> {
+        };
+        executor.submit(() -> Thread.currentThread().setUncaughtExceptionHandler(ignore)).get();
+        executor.execute(() -> {
+            throw new IllegalStateException("boom");
+        });
+        Future<Integer> f = executor.submit(() -> 42);
+        assertEquals(42, f.get().intValue());
+    }
+
+    @Test(timeout = 30000)
+    public void shutdownRunsQueuedTasksAndRejectsNewOnes() throws Exception {
+        final CountDownLatch release = new CountDownLatch(1);
+        final AtomicInteger ran = new AtomicInteger();
+        executor.execute(() -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                throw new RuntimeException(e);
+            }
+        });
+        for (int i = 0; i < 10; i++) {
+            executor.execute(ran::incrementAndGet);
+        }
+        executor.shutdown();
+        assertTrue(executor.isShutdown());
+        try {
+            executor.execute(ran::incrementAndGet);
+            fail();
+        } catch (RejectedExecutionException expected) {
+        }
+        release.countDown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+        assertTrue(executor.isTerminated());
+        assertEquals(10, ran.get());
+    }
+
+    @Test(timeout = 60000)
+    public void everyAcceptedTaskCompletesWhenShutdownRacesSubmit() throws Exception {
+        final int producers = 4;
+        for (int round = 0; round < 200; round++) {
+            final EventLoopExecutor executor = new EventLoopExecutor(1024, 16, round & 1, i -> i + 1, false,
+                Executors.defaultThreadFactory());
+            final List<List<Future<?>>> accepted = new ArrayList<>();
+            final CountDownLatch go = new CountDownLatch(1);
+            final List<Thread> threads = new ArrayList<>();
+            for (int p = 0; p < producers; p++) {
+                final List<Future<?>> futures = new ArrayList<>();
+                accepted.add(futures);
+                threads.add(new Thread(() -> {
+                    try {
+                        go.await();
+                        while (true) {
+                            futures.add(executor.submit(() -> {
+                            }));
+                            Thread.yield();
+                        }
+                    } catch (RejectedExecutionException | InterruptedException done) {
+                    }
+                }));
+            }
+            for (Thread t : threads) {
+                t.start();
+            }
+            go.countDown();
+            Thread.yield();
+            executor.shutdown();
+            for (Thread t : threads) {
+                t.join();
+            }
+            assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+            for (List<Future<?>> futures : accepted) {
+                for (Future<?> f : futures) {
+                    f.get(10, TimeUnit.SECONDS);
+                }
+            }
+        }
+    }
+
+    @Test(timeout = 30000)
+    public void shutdownNowReturnsUnstartedTasks() throws Exception {
+        final CountDownLatch started = new CountDownLatch(1);
+        executor.execute(() -> {
+            started.countDown();
+            try {
+                Thread.sleep(60000);
+            } catch (InterruptedException expected) {
+            }
+        });
+        started.await();
+        for (int i = 0; i < 10; i++) {
+            executor.execute(() -> fail());
+        }
+        List<Runnable> unstarted = executor.shutdownNow();
+        assertEquals(10, unstarted.size());
+        assertTrue(executor.isTerminated());
+    }
+
+    @Test(timeout = 30000)
+    public void queueDepthAndLatencyMetrics() throws Exception {
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        executor.execute(() -> {
+            started.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                throw new RuntimeException(e);
+            }
+        });
+        started.await();
+        for (int i = 0; i < 10; i++) {
+            executor.execute(() -> {
+            });
+        }
+        assertEquals(10, executor.queueDepth());
+        sleep(10);
+        release.countDown();
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+        assertEquals(0, executor.queueDepth());
+        assertEquals(11, executor.completedTaskCount());
+        if (executor.taskLatencyMaxNanos() != 0) {
+            assertTrue(executor.taskLatencyMaxNanos() >= TimeUnit.MILLISECONDS.toNanos(10));
+            assertTrue(executor.taskLatencyMeanNanos() <= executor.taskLatencyMaxNanos());
+        }
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            throw new RuntimeException(e);
+        }
+    }
+}
@@ -11,9 +11,14 @@ import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.junit.runners.Parameterized;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.List;
 import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
 
 @RunWith(Parameterized.class)
 public class BlockingQueueTest
@@ -22,28 +27,39 @@ public class BlockingQueueTest
 
     private BlockingQueue<Integer> q;
     private final ConcurrentQueueSpec spec;
+    private final boolean virtualThreadMode;
 
     @Parameterized.Parameters
     public static Collection queues() {
         return Arrays.asList(
-                test(1, 1, CAPACITY, Ordering.FIFO), test(10, 1, CAPACITY, Ordering.FIFO),
-                test(1, 10, CAPACITY, Ordering.FIFO), test(10, 10, CAPACITY, Ordering.FIFO));
+                test(1, 1, CAPACITY, Ordering.FIFO, false), test(10, 1, CAPACITY, Ordering.FIFO, false),
+                test(1, 10, CAPACITY, Ordering.FIFO, false), test(10, 10, CAPACITY, Ordering.FIFO, false),
+                test(1, 1, CAPACITY, Ordering.FIFO, true), test(10, 1, CAPACITY, Ordering.FIFO, true),
+                test(1, 10, CAPACITY, Ordering.FIFO, true), test(10, 10, CAPACITY, Ordering.FIFO, true));
     }
 
-    private static Object[] test(int producers, int consumers, int capacity, Ordering ordering) {
+    private static Object[] test(int producers, int consumers, int capacity, Ordering ordering,
+            boolean virtualThreadMode) {
         return new Object[] { new ConcurrentQueueSpec(producers, consumers, capacity, ordering,
-                Preference.NONE) };
+                Preference.NONE), virtualThreadMode };
     }
 
-    public BlockingQueueTest(ConcurrentQueueSpec spec)
+    public BlockingQueueTest(ConcurrentQueueSpec spec, boolean virtualThreadMode)
     {
         this.spec = spec;
+        this.virtualThreadMode = virtualThreadMode;
     }
 
     @Before
     public void setUp()
     {
-        q = BlockingQueueFactory.newBlockingQueue(spec);
+        q = newQueue(spec);
+    }
+
+    private BlockingQueue<Integer> newQueue(ConcurrentQueueSpec spec)
+    {
+        return virtualThreadMode ? BlockingQueueFactory.<Integer>newVirtualThreadBlockingQueue(spec)
+            : BlockingQueueFactory.<Integer>newBlockingQueue(spec);
     }
 
     @Test
@@ -235,4 +251,88 @@ public class BlockingQueueTest
         assertFalse(put.isAlive());
     }
 
-}
\ No newline at end of file
+    @Test(timeout = 30000)
+    public void testBlockingPutTakeManyThreads() throws Exception
+    {
+        // a small queue so that both producers and consumers block
+        final ConcurrentQueueSpec small = new ConcurrentQueueSpec(spec.producers, spec.consumers, 16, spec.ordering,
+                Preference.NONE);
+        final BlockingQueue<Integer> q = newQueue(small);
+        final int producers = Math.min(spec.producers, 4);
+        final int consumers = Math.min(spec.consumers, 4);
+        final int perProducer = 20000;
+        final int total = producers * perProducer;
+        final AtomicLong sum = new AtomicLong();
+        final AtomicInteger taken = new AtomicInteger();
+        List<Thread> threads = new ArrayList<Thread>();
+        for (int p = 0; p < producers; p++)
+        {
+            threads.add(new Thread(() -> {
+                try
+                {
+                    for (int i = 1; i <= perProducer; i++)
+                    {
+                        q.put(i);
+                    }
+                }
+                catch (InterruptedException e)
+                {
+                    throw new RuntimeException(e);
+                }
+            }));
+        }
+        for (int c = 0; c < consumers; c++)
+        {
+            final int share = total / consumers + (c < total % consumers ? 1 : 0);
+            threads.add(new Thread(() -> {
+                try
+                {
+                    for (int i = 0; i < share; i++)
+                    {
+                        sum.addAndGet(q.take());
+                        taken.incrementAndGet();
+                    }
+                }
+                catch (InterruptedException e)
+                {
+                    throw new RuntimeException(e);
+                }
+            }));
+        }
+        for (Thread t : threads)
+        {
+            t.start();
+        }
+        for (Thread t : threads)
+        {
+            t.join();
+        }
+        assertEquals(total, taken.get());
+        assertEquals((long) producers * perProducer * (perProducer + 1) / 2, sum.get());
+        assertTrue(q.isEmpty());
+    }
+
+    @Test(timeout = 30000)
+    public void testInterruptedTake() throws Exception
+    {
+        final AtomicReference<Throwable> thrown = new AtomicReference<Throwable>();
+        Thread take = new Thread(() -> {
+            try
+            {
+                q.take();
+            }
+            catch (Throwable e)
+            {
+                thrown.set(e);
+            }
+        });
+        take.start();
+        Thread.sleep(100);
+        take.interrupt();
+        take.join();
+        assertTrue(thrown.get() instanceof InterruptedException);
+        // the queue is still usable
+        q.put(1);
+        assertEquals(new Integer(1), q.take());
+    }
+}
@@ -0,0 +1,168 @@
+package org.jctools.timers;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Test;
+
+public class TimingWheelTest {
+    private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    @Test(expected = NullPointerException.class)
+    public void scheduleNullResultsInNPE() {
+        new TimingWheel(1, TimeUnit.SECONDS).schedule(null, 1, TimeUnit.SECONDS);
+    }
+
+    @Test
+    public void expiresOnTheFirstTickAfterTheDeadline() {
+        TimingWheel wheel = new TimingWheel(1, TimeUnit.SECONDS);
+        AtomicInteger runs = new AtomicInteger();
+        Timeout t = wheel.schedule(runs::incrementAndGet, 3, TimeUnit.SECONDS);
+        assertEquals(0, wheel.advance(t.deadline() - SECOND));
+        assertEquals(0, runs.get());
+        assertFalse(t.isExpired());
+        assertEquals(1, wheel.advance(t.deadline() + SECOND));
+        assertEquals(1, runs.get());
+        assertTrue(t.isExpired());
+        assertFalse(t.cancel());
+        assertEquals(0, wheel.advance(t.deadline() + 10 * SECOND));
+        assertEquals(1, runs.get());
+    }
+
+    @Test
+    public void cancelledTimeoutDoesNotRun() {
+        TimingWheel wheel = new TimingWheel(1, TimeUnit.SECONDS);
+        AtomicInteger runs = new AtomicInteger();
+        // cancelled before the tick thread sees it
+        Timeout t1 = wheel.schedule(runs::incrementAndGet, 2, TimeUnit.SECONDS);
+        assertTrue(t1.cancel());
+        assertFalse(t1.cancel());
+        // cancelled once placed in a bucket
+        Timeout t2 = wheel.schedule(runs::incrementAndGet, 2, TimeUnit.SECONDS);
+        wheel.advance(t2.deadline() - SECOND);
+        assertTrue(t2.cancel());
+        assertEquals(0, wheel.advance(t2.deadline() + 2 * SECOND));
+        assertEquals(0, runs.get());
+        assertTrue(t1.isCancelled());
+        assertTrue(t2.isCancelled());
+    }
+
+    @Test
+    public void timeoutDueOnACascadeTickFiresOnThatTick() {
+        // 4 buckets, 2 levels: tick 4 is due in level 1 and cascaded on tick 4
+        TimingWheel wheel = new TimingWheel(1, TimeUnit.SECONDS, 4, 2);
+        AtomicInteger runs = new AtomicInteger();
+        Timeout t = wheel.schedule(runs::incrementAndGet, 3 * SECOND + SECOND / 2, TimeUnit.NANOSECONDS);
+        assertEquals(4, t.deadlineTick);
+        // advance to tick 4 exactly
+        assertEquals(1, wheel.advance(t.deadline() + SECOND / 2));
+        assertEquals(1, runs.get());
+    }
+
+    @Test
+    public void cascadesThroughAllLevelsAndBeyondTheHorizon() {
+        // 4 buckets, 3 levels: horizon of 64 ticks
+        TimingWheel wheel = new TimingWheel(1, TimeUnit.SECONDS, 4, 3);
+        final long base = System.nanoTime();
+        final int timeouts = 300;
+        final long[] firedAt = new long[timeouts];
+        final int[] fireCount = new int[timeouts];
+        final long[] now = new long[1];
+        List<Timeout> handles = new ArrayList<>();
+        for (int i = 0; i < timeouts; i++) {
+            final int index = i;
+            handles.add(wheel.schedule(() -> {
+                fireCount[index]++;
+                firedAt[index] = now[0];
+            }, i, TimeUnit.SECONDS));
+        }
+        int expired = 0;
+        for (long n = base; n < base + (timeouts + 2) * SECOND; n += SECOND) {
+            now[0] = n;
+            expired += wheel.advance(n);
+        }
+        assertEquals(timeouts, expired);
+        for (int i = 0; i < timeouts; i++) {
+            assertEquals(1, fireCount[i]);
+            final long deadline = handles.get(i).deadline();
+            assertTrue("timeout " + i + " fired early", firedAt[i] >= deadline);
+            assertTrue("timeout " + i + " fired late", firedAt[i] < deadline + 2 * SECOND);
+        }
+    }
+
+    @Test
+    public void taskExceptionIsReportedAndOtherTasksRun() {
+        TimingWheel wheel = new TimingWheel(1, TimeUnit.SECONDS);
+        AtomicReference<Throwable> reported = new AtomicReference<>();
+        Thread thread = Thread.currentThread();
+        Thread.UncaughtExceptionHandler handler = thread.getUncaughtExceptionHandler();
+        thread.setUncaughtExceptionHandler((th, ex) -> reported.set(ex));
+        try {
+            AtomicInteger runs = new AtomicInteger();
+            Timeout t = wheel.schedule(() -> {
+                throw new IllegalStateException("boom");
+            }, 1, TimeUnit.SECONDS);
+            wheel.schedule(runs::incrementAndGet, 1, TimeUnit.SECONDS);
+            assertEquals(2, wheel.advance(t.deadline() + SECOND));
+            assertEquals(1, runs.get());
+            assertTrue(reported.get() instanceof IllegalStateException);
+        } finally {
+            thread.setUncaughtExceptionHandler(handler);
+        }
+    }
+
+    @Test(timeout = 30000)
+    public void tickThreadRunsTimeoutsScheduledFromManyThreads() throws Exception {
+        final TimingWheel wheel = new TimingWheel(1, TimeUnit.MILLISECONDS);
+        wheel.start();
+        try {
+            final int producers = 4;
+            final int perProducer = 10000;
+            final CountDownLatch fired = new CountDownLatch(producers * perProducer / 2);
+            final AtomicBoolean cancelledRan = new AtomicBoolean();
+            List<Thread> threads = new ArrayList<>();
+            for (int p = 0; p < producers; p++) {
+                threads.add(new Thread(() -> {
+                    for (int i = 0; i < perProducer; i++) {
+                        if ((i & 1) == 0) {
+                            wheel.schedule(fired::countDown, i % 50, TimeUnit.MILLISECONDS);
+                        } else {
+                            Timeout t = wheel.schedule(() -> cancelledRan.set(true), 20 + i % 50, TimeUnit.MILLISECONDS);
+                            t.cancel();
+                        }
+                    }
+                }));
+            }
+            for (Thread t : threads) {
+                t.start();
+            }
+            for (Thread t : threads) {
+                t.join();
+            }
+            fired.await();
+            // give any wrongly kept cancelled timeout the chance to fire
+            Thread.sleep(100);
+            assertFalse(cancelledRan.get());
+        } finally {
+            wheel.stop();
+        }
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void startTwiceFails() throws Exception {
+        TimingWheel wheel = new TimingWheel(1, TimeUnit.MILLISECONDS);
+        wheel.start();
+        try {
+            wheel.start();
+        } finally {
+            wheel.stop();
+        }
+    }
+}